@@ -0,0 +1,117 @@
+package RL.QMatrix.Benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import RL.QMatrix.ReplacementStrategy.AccessBasedList;
+import RL.QMatrix.ReplacementStrategy.BufferedRecencyList;
+import RL.QMatrix.ReplacementStrategy.IndexedRecencyList;
+import RL.QMatrix.ReplacementStrategy.RecencyList;
+import RL.QMatrix.ReplacementStrategy.SlotTable;
+import RL.QMatrix.ReplacementStrategy.Slotted;
+
+/**
+ * This class represents the benchmark of the LRU list operations on the
+ * request path: a hit (accessItem) and an eviction of the LRU item followed by
+ * the insertion of a new one, so that the size of the list stays the same.
+ * All the implementations of the LRU lists (cachemanager.lru.list) are measured.
+ *
+ * @author Kakoulli Elena
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessBasedListBenchmark {
+
+	/**
+	 * An item of the lists (a pathname with the slot of the indexed lists)
+	 */
+	public static class Entry implements Slotted {
+		private final String pathname;
+		private int slot = -1;
+
+		Entry(String pathname) {
+			this.pathname = pathname;
+		}
+
+		@Override
+		public int getSlot() {
+			return slot;
+		}
+
+		@Override
+		public void setSlot(int slot) {
+			this.slot = slot;
+		}
+
+		@Override
+		public int hashCode() {
+			return pathname.hashCode();
+		}
+	}
+
+	@Param({ "synchronized", "buffered", "indexed" })
+	public String implementation;
+
+	@Param({ "ZIPF", "SCAN" })
+	public String distribution;
+
+	@Param({ "100000", "1000000" })
+	public int files;
+
+	private RecencyList<Entry> list;
+	private Entry[] entries;
+	private int[] sequence;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		switch (implementation) {
+		case "buffered":
+			list = new BufferedRecencyList<>();
+			break;
+		case "indexed":
+			list = new IndexedRecencyList<>(new SlotTable<>());
+			break;
+		default:
+			list = new AccessBasedList<>();
+		}
+		String[] pathnames = KeyGenerator.pathnames(files);
+		entries = new Entry[files];
+		for (int i = 0; i < files; i++) {
+			entries[i] = new Entry(pathnames[i]);
+			list.add(entries[i]);
+		}
+		sequence = KeyGenerator.sequence(KeyGenerator.Distribution.valueOf(distribution), files, BenchmarkSupport.SEQUENCE_LENGTH, 42);
+	}
+
+	@Benchmark
+	public void accessItem(BenchmarkSupport.Cursor cursor) {
+		list.accessItem(entries[sequence[cursor.next()]]);
+	}
+
+	@Benchmark
+	public Entry removeLRUItem() {
+		synchronized (list) { // keep the three operations together
+			Entry item = list.getLRUItem();
+			list.removeItem(item);
+			list.add(item);
+			return item;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package RL.QMatrix.Benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import RL.QMatrix.CacheManager;
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+
+/**
+ * This class represents the benchmark of CacheManager.cacheRequestAdmission
+ * (file lookup or creation, state encoding and admission decision).
+ *
+ * @author Kakoulli Elena
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdmissionBenchmark {
+
+	@Param({ "ZIPF", "SCAN", "UNIFORM" })
+	public String distribution;
+
+	@Param({ "100000" })
+	public int files;
+
+	@Param({ "hash", "dense" })
+	public String backend;
+
+	private CacheManager CM;
+	private String[] pathnames;
+	private int[] sequence;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Properties options = new Properties();
+		options.setProperty("cachemanager.qmodelcache.backend", backend);
+		CM = BenchmarkSupport.cacheManager(100, options);
+		pathnames = KeyGenerator.pathnames(files);
+		sequence = KeyGenerator.sequence(KeyGenerator.Distribution.valueOf(distribution), files, BenchmarkSupport.SEQUENCE_LENGTH, 42);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		CM.shutdown();
+	}
+
+	@Benchmark
+	public TiersMovements cacheRequestAdmission(BenchmarkSupport.Cursor cursor) {
+		return CM.cacheRequestAdmission(pathnames[sequence[cursor.next()]], 4096, true);
+	}
+}
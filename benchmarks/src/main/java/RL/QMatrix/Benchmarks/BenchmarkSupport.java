@@ -0,0 +1,43 @@
+package RL.QMatrix.Benchmarks;
+
+import java.util.Properties;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import RL.QMatrix.CacheManager;
+
+/**
+ * This class represents the common setup of the benchmarks: the Cache Manager
+ * with the default parameters of cachemanager.config.properties and the
+ * position of each benchmark thread in the request sequence.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class BenchmarkSupport {
+
+	public static final int SEQUENCE_LENGTH = 1 << 20; // power of two (see Cursor)
+
+	/*
+	 * The Cache Manager is a singleton per JVM; JMH runs each benchmark and
+	 * each combination of parameters in its own fork, so every trial gets a
+	 * new one.
+	 */
+	public static CacheManager cacheManager(int maxLRU, Properties options) {
+		return CacheManager.getCacheManager(2, new double[] { 0.01, 0.3, 0.4, 0.2 }, new double[] { 0.2, 0.3, 0.01 },
+				100, 5, maxLRU, 0.1, 0.7, 85, Long.MAX_VALUE / 200, 85, Long.MAX_VALUE / 200, options);
+	}
+
+	/**
+	 * Next position of a benchmark thread in the shared request sequence
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int next = (int) (Thread.currentThread().getId() * 7919);
+
+		public int next() {
+			return next++ & (SEQUENCE_LENGTH - 1);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package RL.QMatrix.Benchmarks;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import RL.QMatrix.CacheManager;
+import RL.QMatrix.CacheUpdate;
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+
+/**
+ * This class represents the benchmark of CacheManager.cacheUpdate for each
+ * type of update, over files that are already cached in memory. The DELETE
+ * benchmark creates the file again after deleting it, so that the number of
+ * cached files stays the same.
+ *
+ * @author Kakoulli Elena
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheUpdateBenchmark {
+
+	@Param({ "CREATE", "READ", "WRITE", "DELETE" })
+	public String update;
+
+	@Param({ "ZIPF", "SCAN" })
+	public String distribution;
+
+	@Param({ "100000" })
+	public int files;
+
+	private CacheManager CM;
+	private CacheUpdate cacheUpdate;
+	private String[] pathnames;
+	private int[] sequence;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		CM = BenchmarkSupport.cacheManager(100, new Properties());
+		// DELETE is spelled with a non-Latin E in CacheUpdate, select the updates by position
+		cacheUpdate = CacheUpdate.values()[Arrays.asList("CREATE", "READ", "WRITE", "DELETE").indexOf(update)];
+		pathnames = KeyGenerator.pathnames(files);
+		sequence = KeyGenerator.sequence(KeyGenerator.Distribution.valueOf(distribution), files, BenchmarkSupport.SEQUENCE_LENGTH, 42);
+
+		for (String pathname : pathnames)
+			CM.cacheUpdate(CacheUpdate.CREATE, pathname, 4096, TiersMovements.MEM, System.currentTimeMillis());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		CM.shutdown();
+	}
+
+	@Benchmark
+	public void cacheUpdate(BenchmarkSupport.Cursor cursor) {
+		String pathname = pathnames[sequence[cursor.next()]];
+		CM.cacheUpdate(cacheUpdate, pathname, 4096, TiersMovements.MEM, System.currentTimeMillis());
+		if (cacheUpdate.ordinal() == 3)
+			CM.cacheUpdate(CacheUpdate.CREATE, pathname, 4096, TiersMovements.MEM, System.currentTimeMillis());
+	}
+}
@@ -0,0 +1,96 @@
+package RL.QMatrix.Benchmarks;
+
+import java.util.Random;
+
+/**
+ * This class represents the generator of the keys (pathnames) that the
+ * benchmarks request, with realistic popularity distributions. The sequences
+ * are generated before the measurement, so no key is created on the measured
+ * path.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class KeyGenerator {
+
+	public enum Distribution {
+		ZIPF, 		// few popular files (skew 0.99)
+		SCAN, 		// sequential pass over all the files
+		UNIFORM
+	}
+
+	private static final String[] EXTENSIONS = { "txt", "pdf", "jpg", "png", "mp4", "avi", "zip", "bin" };
+
+	/**
+	 * @return the pathnames of files spread over directories with different formats
+	 */
+	public static String[] pathnames(int files) {
+		String[] pathnames = new String[files];
+		for (int i = 0; i < files; i++)
+			pathnames[i] = "bucket/dir" + (i % 64) + "/sub" + (i % 7) + "/file" + i + "." + EXTENSIONS[i % EXTENSIONS.length];
+		return pathnames;
+	}
+
+	/**
+	 * @return a sequence of file indexes in [0, files)
+	 */
+	public static int[] sequence(Distribution distribution, int files, int length, long seed) {
+		int[] sequence = new int[length];
+		Random random = new Random(seed);
+
+		switch (distribution) {
+		case SCAN:
+			for (int i = 0; i < length; i++)
+				sequence[i] = i % files;
+			break;
+		case UNIFORM:
+			for (int i = 0; i < length; i++)
+				sequence[i] = random.nextInt(files);
+			break;
+		case ZIPF:
+		default:
+			double[] cdf = zipfCdf(files, 0.99);
+			int[] rankToFile = permutation(files, random); // the popular files are not neighbours
+			for (int i = 0; i < length; i++)
+				sequence[i] = rankToFile[rank(cdf, random.nextDouble())];
+		}
+		return sequence;
+	}
+
+	private static double[] zipfCdf(int n, double skew) {
+		double[] cdf = new double[n];
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += 1.0 / Math.pow(i + 1, skew);
+			cdf[i] = sum;
+		}
+		for (int i = 0; i < n; i++)
+			cdf[i] /= sum;
+		return cdf;
+	}
+
+	private static int rank(double[] cdf, double u) {
+		int low = 0, high = cdf.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cdf[mid] < u)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	private static int[] permutation(int n, Random random) {
+		int[] permutation = new int[n];
+		for (int i = 0; i < n; i++)
+			permutation[i] = i;
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = tmp;
+		}
+		return permutation;
+	}
+}
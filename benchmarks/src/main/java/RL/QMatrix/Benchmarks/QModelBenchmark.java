@@ -0,0 +1,83 @@
+package RL.QMatrix.Benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.chen0040.rl.utils.IndexValue;
+
+import RL.QMatrix.DenseQTable;
+import RL.QMatrix.HashQTable;
+import RL.QMatrix.QModelCache;
+import RL.QMatrix.QTable;
+
+/**
+ * This class represents the benchmark of the Q-table lookups of the agents
+ * (QModelCache.getQ and actionWithMaxQAtState) for each Q-table backend.
+ *
+ * @author Kakoulli Elena
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QModelBenchmark {
+
+	@Param({ "hash", "dense" })
+	public String backend;
+
+	@Param({ "ZIPF", "UNIFORM" })
+	public String distribution;
+
+	@Param({ "4096" })
+	public int states; // distinct visited states
+
+	private QModelCache model;
+	private Set<Integer> possibleActions;
+	private int[] stateIds;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		double[] initialQs = { 0.01, 0.3, 0.4, 0.2 };
+		QTable table = "dense".equals(backend) ? new DenseQTable(initialQs.length) : new HashQTable(initialQs.length);
+		model = new QModelCache(2, initialQs, 0.1, 0.7, table);
+		possibleActions = new HashSet<>();
+		for (int a = 0; a < initialQs.length; a++)
+			possibleActions.add(a);
+
+		// spread the visited states over the whole 18-bit state space
+		int[] sequence = KeyGenerator.sequence(KeyGenerator.Distribution.valueOf(distribution), states, BenchmarkSupport.SEQUENCE_LENGTH, 42);
+		stateIds = new int[sequence.length];
+		for (int i = 0; i < sequence.length; i++)
+			stateIds[i] = (sequence[i] * 0x9E37) & ((1 << 18) - 1);
+		for (int stateId : stateIds)
+			model.initialStateAction(stateId);
+	}
+
+	@Benchmark
+	public double getQ(BenchmarkSupport.Cursor cursor) {
+		int i = cursor.next();
+		return model.getQ(stateIds[i], i & 3);
+	}
+
+	@Benchmark
+	public IndexValue actionWithMaxQAtState(BenchmarkSupport.Cursor cursor) {
+		return model.actionWithMaxQAtState(stateIds[cursor.next()], possibleActions);
+	}
+}
@@ -0,0 +1,79 @@
+package RL.QMatrix.Benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import RL.QMatrix.CacheManager;
+import RL.QMatrix.CacheUpdate;
+import RL.QMatrix.FileInfo;
+import RL.QMatrix.Tier;
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+
+/**
+ * This class represents the benchmark of CacheManager.cacheRequestReplacement
+ * for different depths (maxLRU) of the LRU candidates, with the candidates
+ * scored one by one (act) or in one batch.
+ *
+ * @author Kakoulli Elena
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplacementBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int maxLRU;
+
+	@Param({ "100000" })
+	public int files;
+
+	@Param({ "false", "true" })
+	public boolean batchScoring;
+
+	@Param({ "false", "true" })
+	public boolean greedyScoring;
+
+	@Param({ "hash", "dense" })
+	public String backend;
+
+	private CacheManager CM;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Properties options = new Properties();
+		options.setProperty("cachemanager.qmodelreplacement.batchscoring", String.valueOf(batchScoring));
+		options.setProperty("cachemanager.qmodelreplacement.greedyscoring", String.valueOf(greedyScoring));
+		options.setProperty("cachemanager.qmodelcache.backend", backend);
+		CM = BenchmarkSupport.cacheManager(maxLRU, options);
+		for (String pathname : KeyGenerator.pathnames(files))
+			CM.cacheUpdate(CacheUpdate.CREATE, pathname, 4096, TiersMovements.MEM, System.currentTimeMillis());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		CM.shutdown();
+	}
+
+	@Benchmark
+	public FileInfo cacheRequestReplacement() {
+		return CM.cacheRequestReplacement(Tier.MEM);
+	}
+}
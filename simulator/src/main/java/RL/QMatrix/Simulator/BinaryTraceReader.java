@@ -0,0 +1,109 @@
+package RL.QMatrix.Simulator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * This class represents a reader of a binary trace (see BinaryTraceWriter).
+ * The pathnames dictionary is loaded when the reader is opened, then the
+ * fixed-size records are read from the mapped window of the file.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class BinaryTraceReader implements TraceReader {
+
+	private final MappedTraceFile file;
+	private final KeyIndex keys;
+	private final long recordsEnd;
+
+	private byte operation;
+	private int key;
+	private long size;
+	private long timestamp;
+
+	public BinaryTraceReader(Path path) throws IOException {
+		this(path, MappedTraceFile.DEFAULT_WINDOW);
+	}
+
+	public BinaryTraceReader(Path path, int windowSize) throws IOException {
+		this.file = new MappedTraceFile(path, windowSize);
+		this.keys = new KeyIndex();
+
+		if (!file.ensure(BinaryTraceWriter.HEADER_SIZE) || file.window().getInt() != BinaryTraceWriter.MAGIC)
+			throw new IOException(path + " is not a binary trace");
+		int version = file.window().getInt();
+		if (version != BinaryTraceWriter.VERSION)
+			throw new IOException("Unsupported binary trace version " + version);
+		this.recordsEnd = file.window().getLong();
+		if (recordsEnd < BinaryTraceWriter.HEADER_SIZE || recordsEnd > file.size())
+			throw new IOException(path + " is truncated");
+
+		// dictionary
+		file.seek(recordsEnd);
+		if (!file.ensure(4))
+			throw new IOException(path + " is truncated");
+		int count = file.window().getInt();
+		for (int i = 0; i < count; i++) {
+			if (!file.ensure(2))
+				throw new IOException(path + " is truncated");
+			int length = file.window().getShort() & 0xffff;
+			if (!file.ensure(length))
+				throw new IOException(path + " is truncated");
+			byte[] bytes = new byte[length];
+			file.window().get(bytes);
+			keys.key(new String(bytes, StandardCharsets.UTF_8));
+		}
+		file.seek(BinaryTraceWriter.HEADER_SIZE);
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		if (file.position() + BinaryTraceWriter.RECORD_SIZE > recordsEnd
+				|| !file.ensure(BinaryTraceWriter.RECORD_SIZE))
+			return false;
+		MappedByteBuffer window = file.window();
+		timestamp = window.getLong();
+		operation = window.get();
+		key = window.getInt();
+		size = window.getLong();
+		return true;
+	}
+
+	@Override
+	public byte getOperation() {
+		return operation;
+	}
+
+	@Override
+	public int getKey() {
+		return key;
+	}
+
+	@Override
+	public String getPathname() {
+		return keys.pathname(key);
+	}
+
+	@Override
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public KeyIndex getKeys() {
+		return keys;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,83 @@
+package RL.QMatrix.Simulator;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class represents a writer of a binary trace:
+ *
+ * header: magic "RLTR" (int), version (int), offset of the dictionary (long)
+ * records: timestamp (long), operation (byte), key (int), size (long)
+ * dictionary: number of keys (int), then per key (in key order) the length
+ * (unsigned short) and the UTF-8 bytes of the pathname
+ *
+ * The dictionary is written at the end, so a trace is converted in one pass.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class BinaryTraceWriter implements Closeable {
+
+	public static final int MAGIC = 0x524C5452; // "RLTR"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int RECORD_SIZE = 21;
+
+	private final Path path;
+	private final DataOutputStream out;
+	private final KeyIndex keys;
+	private long records;
+
+	public BinaryTraceWriter(Path path, KeyIndex keys) throws IOException {
+		this.path = path;
+		this.keys = keys;
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 20));
+		this.records = 0;
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(0); // patched on close
+	}
+
+	public void write(long timestamp, byte operation, int key, long size) throws IOException {
+		out.writeLong(timestamp);
+		out.writeByte(operation);
+		out.writeInt(key);
+		out.writeLong(size);
+		records++;
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Write the dictionary and patch its offset in the header
+	 */
+	@Override
+	public void close() throws IOException {
+		long dictionary = HEADER_SIZE + records * RECORD_SIZE;
+		try {
+			out.writeInt(keys.size());
+			for (int key = 0; key < keys.size(); key++) {
+				byte[] bytes = keys.pathname(key).getBytes(StandardCharsets.UTF_8);
+				if (bytes.length > 0xffff)
+					throw new IOException("Pathname of key " + key + " is too long");
+				out.writeShort(bytes.length);
+				out.write(bytes);
+			}
+		} finally {
+			out.close();
+		}
+
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+			file.seek(8);
+			file.writeLong(dictionary);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package RL.QMatrix.Simulator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * This class represents a reader of a CSV trace with one request per line:
+ *
+ * timestamp,operation,pathname,size
+ *
+ * where the operation is GET/READ, PUT/WRITE or DELETE/DEL (case
+ * insensitive). Empty lines and lines that do not start with a digit (header,
+ * comments) are skipped. The pathname may not contain a comma.
+ *
+ * The fields are parsed in place from the mapped window of the file.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class CsvTraceReader implements TraceReader {
+
+	private final MappedTraceFile file;
+	private final KeyIndex keys;
+
+	private byte operation;
+	private int key;
+	private long size;
+	private long timestamp;
+	private long line;
+
+	public CsvTraceReader(Path path) throws IOException {
+		this(path, MappedTraceFile.DEFAULT_WINDOW);
+	}
+
+	public CsvTraceReader(Path path, int windowSize) throws IOException {
+		this.file = new MappedTraceFile(path, windowSize);
+		this.keys = new KeyIndex();
+		this.line = 0;
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		while (true) {
+			MappedByteBuffer window = file.window();
+			int start = window.position();
+			int limit = window.limit();
+			int end = start;
+			while (end < limit && window.get(end) != '\n')
+				end++;
+
+			if (end == limit) { // the line continues after the window (or the file ends)
+				if (file.position() + (limit - start) < file.size()) {
+					if (start == 0)
+						throw new IOException("Line " + (line + 1) + " is longer than the window");
+					file.remap();
+					continue;
+				}
+				if (start == limit)
+					return false;
+				window.position(limit);
+			} else
+				window.position(end + 1);
+			line++;
+
+			if (end > start && window.get(end - 1) == '\r')
+				end--;
+			if (end == start || !isDigit(window.get(start)))
+				continue;
+			parse(window, start, end);
+			return true;
+		}
+	}
+
+	private void parse(MappedByteBuffer window, int start, int end) throws IOException {
+		int comma1 = indexOf(window, start, end);
+		int comma2 = indexOf(window, comma1 + 1, end);
+		int comma3 = indexOf(window, comma2 + 1, end);
+		if (comma3 == end)
+			throw new IOException("Line " + line + " has less than 4 fields");
+
+		timestamp = parseLong(window, start, comma1);
+		operation = parseOperation(window, comma1 + 1, comma2);
+		key = keys.key(window, comma2 + 1, comma3 - comma2 - 1);
+		size = parseLong(window, comma3 + 1, end);
+	}
+
+	private static int indexOf(MappedByteBuffer window, int from, int end) {
+		while (from < end && window.get(from) != ',')
+			from++;
+		return from;
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private long parseLong(MappedByteBuffer window, int from, int to) throws IOException {
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			byte b = window.get(i);
+			if (b == ' ')
+				continue;
+			if (!isDigit(b))
+				throw new IOException("Line " + line + " has an invalid number");
+			value = value * 10 + (b - '0');
+		}
+		return value;
+	}
+
+	private byte parseOperation(MappedByteBuffer window, int from, int to) throws IOException {
+		while (from < to && window.get(from) == ' ')
+			from++;
+		switch (from < to ? window.get(from) | 0x20 : 0) { // lower case
+		case 'g':
+		case 'r':
+			return READ;
+		case 'p':
+		case 'w':
+			return WRITE;
+		case 'd':
+			return DELETE;
+		default:
+			throw new IOException("Line " + line + " has an unknown operation");
+		}
+	}
+
+	@Override
+	public byte getOperation() {
+		return operation;
+	}
+
+	@Override
+	public int getKey() {
+		return key;
+	}
+
+	@Override
+	public String getPathname() {
+		return keys.pathname(key);
+	}
+
+	@Override
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public KeyIndex getKeys() {
+		return keys;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
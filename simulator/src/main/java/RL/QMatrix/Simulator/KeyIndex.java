@@ -0,0 +1,135 @@
+package RL.QMatrix.Simulator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class represents the index of the pathnames of a trace: every distinct
+ * pathname gets a dense key (0, 1, 2, ...). The lookup hashes the UTF-8 bytes
+ * of a pathname directly from the trace buffer, so a String is created only
+ * for a pathname that is seen for the first time.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class KeyIndex {
+
+	private String[] pathnames; // by key
+	private int[] hashes; // by key
+	private int[] table; // open addressing, key + 1 (0 = empty)
+	private int count;
+
+	public KeyIndex() {
+		this.pathnames = new String[1024];
+		this.hashes = new int[1024];
+		this.table = new int[2048];
+		this.count = 0;
+	}
+
+	/**
+	 * @return the key of the pathname in buffer[offset, offset + length), added if new
+	 */
+	public int key(ByteBuffer buffer, int offset, int length) {
+		int hash = hash(buffer, offset, length);
+		int mask = table.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			int entry = table[slot];
+			if (entry == 0) {
+				byte[] bytes = new byte[length];
+				buffer.get(offset, bytes);
+				return add(new String(bytes, StandardCharsets.UTF_8), hash, slot);
+			}
+			if (hashes[entry - 1] == hash && equals(pathnames[entry - 1], buffer, offset, length))
+				return entry - 1;
+		}
+	}
+
+	/**
+	 * @return the key of the pathname, added if new
+	 */
+	public int key(String pathname) {
+		byte[] bytes = pathname.getBytes(StandardCharsets.UTF_8);
+		return key(ByteBuffer.wrap(bytes), 0, bytes.length);
+	}
+
+	/**
+	 * @return the key of the pathname or -1 if it is not indexed
+	 */
+	public int get(String pathname) {
+		byte[] bytes = pathname.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int hash = hash(buffer, 0, bytes.length);
+		int mask = table.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			int entry = table[slot];
+			if (entry == 0)
+				return -1;
+			if (hashes[entry - 1] == hash && pathnames[entry - 1].equals(pathname))
+				return entry - 1;
+		}
+	}
+
+	public String pathname(int key) {
+		return pathnames[key];
+	}
+
+	public int size() {
+		return count;
+	}
+
+	private int add(String pathname, int hash, int slot) {
+		if (count == pathnames.length) {
+			pathnames = Arrays.copyOf(pathnames, count * 2);
+			hashes = Arrays.copyOf(hashes, count * 2);
+		}
+		pathnames[count] = pathname;
+		hashes[count] = hash;
+		table[slot] = count + 1;
+		count++;
+
+		if (count * 2 > table.length) { // keep the load factor below 0.5
+			int[] newTable = new int[table.length * 2];
+			int mask = newTable.length - 1;
+			for (int key = 0; key < count; key++) {
+				int s = hashes[key] & mask;
+				while (newTable[s] != 0)
+					s = (s + 1) & mask;
+				newTable[s] = key + 1;
+			}
+			table = newTable;
+		}
+		return count - 1;
+	}
+
+	private static int hash(ByteBuffer buffer, int offset, int length) {
+		int hash = 0x811C9DC5; // FNV-1a
+		for (int i = 0; i < length; i++) {
+			hash ^= buffer.get(offset + i) & 0xff;
+			hash *= 0x01000193;
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/*
+	 * ASCII pathnames are compared without decoding the bytes
+	 */
+	private static boolean equals(String pathname, ByteBuffer buffer, int offset, int length) {
+		if (pathname.length() > length)
+			return false;
+		boolean ascii = true;
+		for (int i = 0; i < length && ascii; i++)
+			ascii = buffer.get(offset + i) >= 0;
+		if (!ascii) {
+			byte[] bytes = new byte[length];
+			buffer.get(offset, bytes);
+			return pathname.equals(new String(bytes, StandardCharsets.UTF_8));
+		}
+		if (pathname.length() != length)
+			return false;
+		for (int i = 0; i < length; i++)
+			if (pathname.charAt(i) != buffer.get(offset + i))
+				return false;
+		return true;
+	}
+}
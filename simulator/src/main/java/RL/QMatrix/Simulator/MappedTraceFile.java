@@ -0,0 +1,106 @@
+package RL.QMatrix.Simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class represents a trace file that is read through a window of a
+ * memory-mapped region. The window moves forward in the file, so traces of
+ * any size are streamed with a bounded address space.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class MappedTraceFile implements Closeable {
+
+	public static final int DEFAULT_WINDOW = 1 << 28; // 256MB
+
+	private final FileChannel channel;
+	private final long fileSize;
+	private final int windowSize;
+	private MappedByteBuffer window;
+	private long windowStart; // file position of the window
+
+	public MappedTraceFile(Path path, int windowSize) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.fileSize = channel.size();
+		this.windowSize = windowSize;
+		map(0);
+	}
+
+	private void map(long position) throws IOException {
+		this.windowStart = position;
+		this.window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, fileSize - position));
+		this.window.order(ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Make sure that the next bytes are in the window (moves the window to the
+	 * current position if they are not)
+	 *
+	 * @return false if the file ends before
+	 */
+	public boolean ensure(int bytes) throws IOException {
+		if (window.remaining() >= bytes)
+			return true;
+		long position = position();
+		if (fileSize - position < bytes)
+			return false;
+		map(position);
+		return true;
+	}
+
+	/**
+	 * @return the window, positioned at the current position of the file
+	 */
+	public MappedByteBuffer window() {
+		return window;
+	}
+
+	public long position() {
+		return windowStart + window.position();
+	}
+
+	/**
+	 * Move the window so that it starts at the given file position
+	 */
+	public void seek(long position) throws IOException {
+		if (position >= windowStart && position - windowStart <= window.limit())
+			window.position((int) (position - windowStart));
+		else
+			map(position);
+	}
+
+	/**
+	 * Move the window to the current position so that it holds as many bytes
+	 * as possible
+	 *
+	 * @return false at the end of the file
+	 */
+	public boolean remap() throws IOException {
+		long position = position();
+		if (position >= fileSize)
+			return false;
+		map(position);
+		return true;
+	}
+
+	public long size() {
+		return fileSize;
+	}
+
+	public int windowSize() {
+		return windowSize;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+}
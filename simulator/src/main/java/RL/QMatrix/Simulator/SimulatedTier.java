@@ -0,0 +1,91 @@
+package RL.QMatrix.Simulator;
+
+import RL.QMatrix.Tier;
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+
+/**
+ * This class represents a simulated storage tier: only the capacity and the
+ * used bytes are kept, the data are not stored.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class SimulatedTier {
+
+	private final Tier tier;
+	private final TiersMovements movement; // the tier as a position of the Cache Manager
+	private final long capacity; // bytes
+	private long used; // bytes
+	private long files;
+	private long evictions;
+	private long downgrades; // evictions that moved the file to the lower tier
+
+	public SimulatedTier(Tier tier, long capacity) {
+		this.tier = tier;
+		this.movement = TiersMovements.valueOf(1 << tier.ordinal());
+		this.capacity = capacity;
+		this.used = 0;
+		this.files = 0;
+		this.evictions = 0;
+		this.downgrades = 0;
+	}
+
+	/**
+	 * @return the bit of the tier in a residence mask (same as TiersMovements)
+	 */
+	public int bit() {
+		return 1 << tier.ordinal();
+	}
+
+	public boolean fits(long size) {
+		return used + size <= capacity;
+	}
+
+	public void add(long size) {
+		used += size;
+		files++;
+	}
+
+	public void remove(long size) {
+		used -= size;
+		files--;
+	}
+
+	public void incrEvictions(boolean downgrade) {
+		evictions++;
+		if (downgrade)
+			downgrades++;
+	}
+
+	public Tier getTier() {
+		return tier;
+	}
+
+	public TiersMovements getMovement() {
+		return movement;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	public long getUsed() {
+		return used;
+	}
+
+	public long getFiles() {
+		return files;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public long getDowngrades() {
+		return downgrades;
+	}
+
+	public double getOccupancy() {
+		return (capacity > 0) ? (double) used / capacity : 0;
+	}
+}
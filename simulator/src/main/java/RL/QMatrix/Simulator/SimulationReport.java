@@ -0,0 +1,102 @@
+package RL.QMatrix.Simulator;
+
+import java.io.PrintStream;
+
+import RL.QMatrix.Tier;
+
+/**
+ * This class represents the results of a simulation: hit ratio and byte hit
+ * ratio (of the read requests), hits, evictions and occupancy per tier,
+ * throughput of the decisions of the agents and of the requests, and the
+ * training rounds of the Cache Manager.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class SimulationReport {
+
+	private final SimulatedTier[] tiers; // by Tier ordinal, null if not simulated
+
+	long requests;
+	long reads;
+	long writes;
+	long deletes;
+	long readBytes;
+	long hits;
+	long hitBytes;
+	final long[] tierHits = new long[Tier.values().length]; // by the highest tier of the file
+	long admissions; // misses and writes that were placed in a tier
+	long bypasses; // misses and writes that were not placed in any tier
+	long decisions;
+	long decisionNanos;
+	long elapsedNanos;
+	long trainingRounds;
+	long trainingMillis;
+	int keys;
+
+	public SimulationReport(SimulatedTier[] tiers) {
+		this.tiers = tiers;
+	}
+
+	void decision(long nanos) {
+		decisions++;
+		decisionNanos += nanos;
+	}
+
+	public double getHitRatio() {
+		return (reads > 0) ? (double) hits / reads : 0;
+	}
+
+	public double getByteHitRatio() {
+		return (readBytes > 0) ? (double) hitBytes / readBytes : 0;
+	}
+
+	public double getDecisionsPerSecond() {
+		return (decisionNanos > 0) ? decisions * 1e9 / decisionNanos : 0;
+	}
+
+	public double getRequestsPerSecond() {
+		return (elapsedNanos > 0) ? requests * 1e9 / elapsedNanos : 0;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	public long getTrainingRounds() {
+		return trainingRounds;
+	}
+
+	public long getTrainingMillis() {
+		return trainingMillis;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedNanos / 1_000_000;
+	}
+
+	public SimulatedTier getTier(Tier tier) {
+		return tiers[tier.ordinal()];
+	}
+
+	public void print(PrintStream out) {
+		out.println("Requests:          " + requests + " (reads " + reads + ", writes " + writes + ", deletes " + deletes
+				+ ") on " + keys + " keys");
+		out.printf("Hit ratio:         %.4f (%d/%d)%n", getHitRatio(), hits, reads);
+		out.printf("Byte hit ratio:    %.4f (%d/%d bytes)%n", getByteHitRatio(), hitBytes, readBytes);
+		out.println("Admitted:          " + admissions + ", not admitted: " + bypasses);
+
+		for (int t = tiers.length - 1; t >= 0; t--) {
+			SimulatedTier tier = tiers[t];
+			if (tier == null)
+				continue;
+			out.printf("%-5s hits %d, evictions %d (downgrades %d), files %d, occupancy %.2f%% (%d/%d bytes)%n",
+					tier.getTier().name(), tierHits[t], tier.getEvictions(), tier.getDowngrades(), tier.getFiles(),
+					tier.getOccupancy() * 100, tier.getUsed(), tier.getCapacity());
+		}
+
+		out.printf("Decisions:         %d (%.0f decisions/sec)%n", decisions, getDecisionsPerSecond());
+		out.printf("Requests/sec:      %.0f (%d ms)%n", getRequestsPerSecond(), getElapsedMillis());
+		out.println("Training:          " + trainingRounds + " rounds in " + trainingMillis + " ms");
+	}
+}
@@ -0,0 +1,322 @@
+package RL.QMatrix.Simulator;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import RL.QMatrix.CacheManager;
+import RL.QMatrix.CacheUpdate;
+import RL.QMatrix.FileInfo;
+import RL.QMatrix.Tier;
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+import RL.QMatrix.Policies.RLpoliciesUtils;
+
+/**
+ * This class represents a trace-driven simulator of the Cache Manager without
+ * SMACC. The requests of a trace are replayed through the admission,
+ * replacement and update API of the Cache Manager (the same calls as the
+ * SMACC policies), over simulated tiers that only keep the used bytes.
+ *
+ * Read miss: admission, then the file is placed in the selected tiers (the
+ * replacement agent selects the victims while a tier is full, a victim of an
+ * upper tier is downgraded or deleted by fileDeleteOrDowngrade). Read hit:
+ * READ update on the highest tier of the file. Write: WRITE update if the
+ * file is cached with the same size, otherwise admission as a new file.
+ * Delete: DELETE update on every tier of the file.
+ *
+ * Usage: Simulator -c cachemanager.config.properties -t trace [-o checkpoint]
+ *
+ * @author Kakoulli Elena
+ */
+
+public class Simulator {
+
+	private static final Logger logger = LoggerFactory.getLogger(Simulator.class);
+
+	private final CacheManager CM;
+	private final SimulatedTier[] tiers; // by Tier ordinal, null if not simulated
+	private final int maxEvictionAttempts; // replacement requests per placement
+	private final int progressInterval;
+	private SimulationReport report;
+	private KeyIndex keys;
+
+	private byte[] residence; // by key: the tiers of the file (TiersMovements bits)
+	private long[] sizes; // by key: the size of the cached file
+
+	public Simulator(CacheManager CM, Properties prop) {
+		this.CM = CM;
+		this.tiers = new SimulatedTier[Tier.values().length];
+
+		int tiersNum = Integer.parseInt(prop.getProperty("cachemanager.qmodelcache.tiers").trim());
+		tiers[Tier.MEM.ordinal()] = new SimulatedTier(Tier.MEM, Long.parseLong(
+				prop.getProperty("simulator.memory.capacity", prop.getProperty("cachemanager.memory.capacity")).trim()));
+		if (tiersNum >= 2)
+			tiers[Tier.DISK.ordinal()] = new SimulatedTier(Tier.DISK, Long.parseLong(
+					prop.getProperty("simulator.disk.capacity", prop.getProperty("cachemanager.disk.capacity")).trim()));
+		if (tiersNum >= 3)
+			tiers[Tier.SSD.ordinal()] = new SimulatedTier(Tier.SSD,
+					Long.parseLong(prop.getProperty("simulator.ssd.capacity", "0").trim()));
+
+		this.maxEvictionAttempts = Integer.parseInt(prop.getProperty("simulator.eviction.attempts", "64").trim());
+		this.progressInterval = Integer.parseInt(prop.getProperty("simulator.progress.interval", "10000000").trim());
+	}
+
+	/**
+	 * Replay all the requests of the trace
+	 */
+	public SimulationReport run(TraceReader trace) throws IOException {
+		this.report = new SimulationReport(tiers);
+		this.keys = trace.getKeys();
+		this.residence = new byte[Math.max(1024, keys.size())];
+		this.sizes = new long[residence.length];
+
+		long start = System.nanoTime();
+		while (trace.next()) {
+			int key = trace.getKey();
+			if (key >= residence.length) {
+				residence = Arrays.copyOf(residence, Math.max(key + 1, residence.length * 2));
+				sizes = Arrays.copyOf(sizes, residence.length);
+			}
+			long time = (trace.getTimestamp() != 0) ? trace.getTimestamp() : System.currentTimeMillis();
+
+			switch (trace.getOperation()) {
+			case TraceReader.READ:
+				read(key, trace.getSize(), time);
+				break;
+			case TraceReader.WRITE:
+				write(key, trace.getSize(), time);
+				break;
+			case TraceReader.DELETE:
+				delete(key, time);
+				break;
+			}
+
+			if (++report.requests % progressInterval == 0)
+				System.err.println(new Timestamp(System.currentTimeMillis()) + ":: " + report.requests
+						+ " requests, hit ratio " + String.format("%.4f", report.getHitRatio()));
+		}
+		report.elapsedNanos = System.nanoTime() - start;
+		report.keys = keys.size();
+
+		CM.shutdown(); // applies the queued updates and waits for the running training round
+		report.trainingRounds = CM.getTrainingScheduler().getRounds();
+		report.trainingMillis = CM.getTrainingScheduler().getTotalRoundsDuration();
+		return report;
+	}
+
+	private void read(int key, long size, long time) {
+		report.reads++;
+		report.readBytes += size;
+
+		int resident = residence[key];
+		if (resident != 0) {
+			SimulatedTier highest = tiers[31 - Integer.numberOfLeadingZeros(resident)];
+			report.hits++;
+			report.hitBytes += size;
+			report.tierHits[highest.getTier().ordinal()]++;
+			CM.cacheUpdate(CacheUpdate.READ, keys.pathname(key), sizes[key], highest.getMovement(), time);
+			return;
+		}
+
+		long t0 = System.nanoTime();
+		TiersMovements selected = CM.cacheRequestAdmission(keys.pathname(key), size, true);
+		report.decision(System.nanoTime() - t0);
+		if (selected == TiersMovements.NONE || !place(key, size, selected, time))
+			CM.incrFileMisses(keys.pathname(key), size);
+	}
+
+	private void write(int key, long size, long time) {
+		report.writes++;
+
+		int resident = residence[key];
+		if (resident != 0 && sizes[key] == size) {
+			CM.cacheUpdate(CacheUpdate.WRITE, keys.pathname(key), size, TiersMovements.valueOf(resident), time);
+			return;
+		}
+		removeAll(key, time); // the new version is admitted as a new file
+
+		long t0 = System.nanoTime();
+		TiersMovements selected = CM.cacheRequestAdmission(keys.pathname(key), size, false);
+		report.decision(System.nanoTime() - t0);
+		if (selected != TiersMovements.NONE)
+			place(key, size, selected, time);
+		else
+			report.bypasses++;
+	}
+
+	private void delete(int key, long time) {
+		report.deletes++;
+		removeAll(key, time);
+	}
+
+	private void removeAll(int key, long time) {
+		for (SimulatedTier tier : tiers)
+			if (tier != null && (residence[key] & tier.bit()) != 0)
+				remove(key, tier, time);
+	}
+
+	/**
+	 * Place the file in each of the selected tiers that has (or can make)
+	 * room for it
+	 *
+	 * @return true if the file was placed in at least one tier
+	 */
+	private boolean place(int key, long size, TiersMovements selected, long time) {
+		boolean placed = false;
+		for (int t = tiers.length - 1; t >= 0; t--) {
+			SimulatedTier tier = tiers[t];
+			if (tier == null || (selected.ordinal() & tier.bit()) == 0 || (residence[key] & tier.bit()) != 0)
+				continue;
+			if (makeRoom(tier, size, time)) {
+				add(key, size, tier, time);
+				placed = true;
+			}
+		}
+		if (placed)
+			report.admissions++;
+		else
+			report.bypasses++;
+		return placed;
+	}
+
+	/**
+	 * Evict the files selected by the replacement agent until the tier has
+	 * room for size bytes. The victims of the missing bytes are selected with
+	 * one batch replacement request. A victim of an upper tier is moved to the
+	 * lower tier if fileDeleteOrDowngrade decides so.
+	 *
+	 * @return false if the file does not fit
+	 */
+	private boolean makeRoom(SimulatedTier tier, long size, long time) {
+		if (size > tier.getCapacity())
+			return false;
+
+		for (int attempts = 0; !tier.fits(size); attempts++) {
+			if (attempts == maxEvictionAttempts)
+				return false;
+
+			long t0 = System.nanoTime();
+			List<FileInfo> victims = CM.cacheRequestReplacement(tier.getTier(), tier.getUsed() + size - tier.getCapacity());
+			report.decision(System.nanoTime() - t0);
+			if (victims.isEmpty())
+				return false;
+
+			for (FileInfo victim : victims) {
+				if (tier.fits(size))
+					CM.cancelEviction(victim.getPathname()); // not needed anymore
+				else
+					evict(victim, tier, time);
+			}
+		}
+		return true;
+	}
+
+	private void evict(FileInfo victim, SimulatedTier tier, long time) {
+		int victimKey = keys.get(victim.getPathname());
+		if (victimKey < 0 || (residence[victimKey] & tier.bit()) == 0) {
+			// the Cache Manager has a file that the tier does not have: drop it from the tier
+			CM.cacheUpdate(CacheUpdate.DELETΕ, victim.getPathname(), victim.getSize(), tier.getMovement(), time);
+			return;
+		}
+
+		SimulatedTier lower = lowerTier(tier);
+		boolean downgrade = false;
+		if (lower != null) {
+			long t0 = System.nanoTime();
+			downgrade = CM.fileDeleteOrDowngrade(victim.getPathname());
+			report.decision(System.nanoTime() - t0);
+		}
+
+		long victimSize = sizes[victimKey];
+		remove(victimKey, tier, time);
+		tier.incrEvictions(downgrade);
+		if (downgrade && (residence[victimKey] & lower.bit()) == 0 && makeRoom(lower, victimSize, time))
+			add(victimKey, victimSize, lower, time);
+	}
+
+	private SimulatedTier lowerTier(SimulatedTier tier) {
+		for (int t = tier.getTier().ordinal() - 1; t >= 0; t--)
+			if (tiers[t] != null)
+				return tiers[t];
+		return null;
+	}
+
+	private void add(int key, long size, SimulatedTier tier, long time) {
+		residence[key] |= tier.bit();
+		sizes[key] = size;
+		tier.add(size);
+		CM.cacheUpdate(CacheUpdate.CREATE, keys.pathname(key), size, tier.getMovement(), time);
+	}
+
+	private void remove(int key, SimulatedTier tier, long time) {
+		residence[key] &= ~tier.bit();
+		tier.remove(sizes[key]);
+		CM.cacheUpdate(CacheUpdate.DELETΕ, keys.pathname(key), sizes[key], tier.getMovement(), time);
+	}
+
+	/**
+	 * @return a reader for the trace (binary if it starts with the magic of
+	 *         BinaryTraceWriter, otherwise CSV)
+	 */
+	public static TraceReader open(Path trace) throws IOException {
+		int magic = 0;
+		if (Files.size(trace) >= 4) {
+			try (DataInputStream in = new DataInputStream(Files.newInputStream(trace))) {
+				magic = in.readInt();
+			}
+		}
+		return (magic == BinaryTraceWriter.MAGIC) ? new BinaryTraceReader(trace) : new CsvTraceReader(trace);
+	}
+
+	public static void main(String[] args) throws IOException {
+		String config = null;
+		String trace = null;
+		String checkpoint = null;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "-c":
+				config = args[i + 1];
+				break;
+			case "-t":
+				trace = args[i + 1];
+				break;
+			case "-o":
+				checkpoint = args[i + 1];
+				break;
+			}
+		}
+		if (config == null || trace == null) {
+			System.err.println("Usage: Simulator -c cachemanager.config.properties -t trace [-o checkpoint]");
+			System.exit(1);
+		}
+
+		Properties prop = new Properties();
+		try (InputStream input = new FileInputStream(config)) {
+			prop.load(input);
+		}
+
+		CacheManager CM = RLpoliciesUtils.getCacheManager(prop);
+		Simulator simulator = new Simulator(CM, prop);
+		logger.info(new Timestamp(System.currentTimeMillis()) + ":: Simulating trace < " + trace + " >");
+
+		SimulationReport report;
+		try (TraceReader reader = open(Paths.get(trace))) {
+			report = simulator.run(reader);
+		}
+		report.print(System.out);
+
+		if (checkpoint != null)
+			CM.checkpoint(Paths.get(checkpoint));
+	}
+}
@@ -0,0 +1,256 @@
+package RL.QMatrix.Simulator;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import RL.QMatrix.CacheManager;
+import RL.QMatrix.Policies.RLpoliciesUtils;
+
+/**
+ * This class represents a parallel sweep of Cache Manager configurations over
+ * a trace. The grid file has one line per swept property of
+ * cachemanager.config.properties, with the values separated by ';' (since the
+ * initialQs contain commas), e.g.:
+ *
+ * cachemanager.qmodelcache.alpha = 0.05; 0.1; 0.2
+ * cachemanager.qmodelcache.admission.initialQs = 0.01,0.3,0.4,0.2; 0.1,0.1,0.1,0.1
+ *
+ * Every combination runs on a fork-join pool in its own Cache Manager (not
+ * the shared instance), over the trace that is decoded once in memory and
+ * replayed by all the runs. The results are ranked by hit ratio (or byte hit
+ * ratio).
+ *
+ * Usage: SweepRunner -c cachemanager.config.properties -g grid.properties -t trace
+ * [-p parallelism] [-r hit|byte] [-o results.csv]
+ *
+ * @author Kakoulli Elena
+ */
+
+public class SweepRunner {
+
+	private static final Logger logger = LoggerFactory.getLogger(SweepRunner.class);
+
+	/**
+	 * The result of the run of one configuration
+	 */
+	public static class Result {
+		private final Map<String, String> parameters;
+		private SimulationReport report;
+		private Exception error;
+
+		Result(Map<String, String> parameters) {
+			this.parameters = parameters;
+		}
+
+		public Map<String, String> getParameters() {
+			return parameters;
+		}
+
+		public SimulationReport getReport() {
+			return report;
+		}
+
+		public Exception getError() {
+			return error;
+		}
+	}
+
+	private final Properties base;
+	private final Trace trace;
+	private final ForkJoinPool pool;
+
+	public SweepRunner(Properties base, Trace trace, int parallelism) {
+		this.base = base;
+		this.trace = trace;
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * @return every combination of the values of the grid (property -> values
+	 *         separated by ';')
+	 */
+	public static List<Map<String, String>> combinations(Properties grid) {
+		List<Map<String, String>> combinations = new ArrayList<>();
+		combinations.add(new LinkedHashMap<>());
+		for (String name : new TreeSet<>(grid.stringPropertyNames())) {
+			List<Map<String, String>> next = new ArrayList<>();
+			for (Map<String, String> combination : combinations) {
+				for (String value : grid.getProperty(name).split(";")) {
+					Map<String, String> extended = new LinkedHashMap<>(combination);
+					extended.put(name, value.trim());
+					next.add(extended);
+				}
+			}
+			combinations = next;
+		}
+		return combinations;
+	}
+
+	/**
+	 * Run all the configurations in parallel
+	 *
+	 * @return the results in the order of the configurations
+	 */
+	public List<Result> run(List<Map<String, String>> configurations) {
+		List<Result> results = new ArrayList<>();
+		List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+		for (Map<String, String> parameters : configurations) {
+			Result result = new Result(parameters);
+			results.add(result);
+			tasks.add(ForkJoinTask.adapt(() -> run(result)));
+		}
+		for (ForkJoinTask<Result> task : tasks)
+			pool.execute(task);
+		for (ForkJoinTask<Result> task : tasks)
+			task.join();
+		pool.shutdown();
+		return results;
+	}
+
+	private Result run(Result result) {
+		Properties prop = new Properties();
+		prop.putAll(base);
+		prop.putAll(result.parameters);
+		if ("mapped".equals(prop.getProperty("cachemanager.qmodelcache.backend", "hash").trim()))
+			prop.setProperty("cachemanager.qmodelcache.backend", "dense"); // the runs must not share the Q-table files
+
+		try {
+			CacheManager CM = RLpoliciesUtils.newCacheManager(prop);
+			result.report = new Simulator(CM, prop).run(trace.reader()); // shuts down the Cache Manager
+			logger.info(new Timestamp(System.currentTimeMillis()) + ":: Sweep run " + result.parameters + " hit ratio: "
+					+ result.report.getHitRatio());
+		} catch (Exception e) {
+			result.error = e;
+			logger.error(new Timestamp(System.currentTimeMillis()) + ":: Sweep run " + result.parameters + " failed: " + e);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the successful results from the best to the worst
+	 */
+	public static List<Result> rank(List<Result> results, boolean byteHitRatio) {
+		List<Result> ranked = new ArrayList<>();
+		for (Result result : results)
+			if (result.report != null)
+				ranked.add(result);
+		Comparator<Result> hit = Comparator.comparingDouble(r -> r.report.getHitRatio());
+		Comparator<Result> byteHit = Comparator.comparingDouble(r -> r.report.getByteHitRatio());
+		ranked.sort((byteHitRatio ? byteHit.thenComparing(hit) : hit.thenComparing(byteHit)).reversed());
+		return ranked;
+	}
+
+	public static void print(List<Result> ranked, PrintStream out) {
+		out.printf("%-5s %-9s %-9s %-12s %-12s %s%n", "Rank", "HitRatio", "ByteHit", "Requests/s", "Training(ms)",
+				"Parameters");
+		int rank = 1;
+		for (Result result : ranked) {
+			SimulationReport report = result.report;
+			out.printf("%-5d %-9.4f %-9.4f %-12.0f %-12d %s%n", rank++, report.getHitRatio(), report.getByteHitRatio(),
+					report.getRequestsPerSecond(), report.getTrainingMillis(), result.parameters);
+		}
+	}
+
+	public static void writeCsv(List<Result> ranked, PrintStream out) {
+		if (ranked.isEmpty())
+			return;
+		StringBuilder header = new StringBuilder("rank,hit_ratio,byte_hit_ratio,requests_per_sec,training_ms");
+		for (String name : ranked.get(0).parameters.keySet())
+			header.append(',').append(name);
+		out.println(header);
+
+		int rank = 1;
+		for (Result result : ranked) {
+			StringBuilder line = new StringBuilder();
+			line.append(rank++).append(',').append(result.report.getHitRatio()).append(',')
+					.append(result.report.getByteHitRatio()).append(',')
+					.append((long) result.report.getRequestsPerSecond()).append(',')
+					.append(result.report.getTrainingMillis());
+			for (String value : result.parameters.values())
+				line.append(",\"").append(value).append('"');
+			out.println(line);
+		}
+	}
+
+	private static Properties load(String pathname) throws IOException {
+		Properties prop = new Properties();
+		try (InputStream input = new FileInputStream(pathname)) {
+			prop.load(input);
+		}
+		return prop;
+	}
+
+	public static void main(String[] args) throws IOException {
+		String config = null;
+		String grid = null;
+		String tracePath = null;
+		String output = null;
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		boolean byteHitRatio = false;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "-c":
+				config = args[i + 1];
+				break;
+			case "-g":
+				grid = args[i + 1];
+				break;
+			case "-t":
+				tracePath = args[i + 1];
+				break;
+			case "-p":
+				parallelism = Integer.parseInt(args[i + 1]);
+				break;
+			case "-r":
+				byteHitRatio = "byte".equals(args[i + 1]);
+				break;
+			case "-o":
+				output = args[i + 1];
+				break;
+			}
+		}
+		if (config == null || grid == null || tracePath == null) {
+			System.err.println("Usage: SweepRunner -c cachemanager.config.properties -g grid.properties -t trace"
+					+ " [-p parallelism] [-r hit|byte] [-o results.csv]");
+			System.exit(1);
+		}
+
+		Trace trace;
+		try (TraceReader reader = Simulator.open(Paths.get(tracePath))) {
+			trace = Trace.load(reader);
+		}
+		List<Map<String, String>> configurations = combinations(load(grid));
+		System.err.println(new Timestamp(System.currentTimeMillis()) + ":: " + configurations.size()
+				+ " configurations, " + trace.length() + " requests, parallelism " + parallelism);
+
+		List<Result> results = new SweepRunner(load(config), trace, parallelism).run(configurations);
+		for (Result result : results)
+			if (result.error != null)
+				System.err.println("Failed: " + result.parameters + ": " + result.error);
+
+		List<Result> ranked = rank(results, byteHitRatio);
+		print(ranked, System.out);
+		if (output != null) {
+			try (PrintStream out = new PrintStream(Files.newOutputStream(Paths.get(output)))) {
+				writeCsv(ranked, out);
+			}
+		}
+	}
+}
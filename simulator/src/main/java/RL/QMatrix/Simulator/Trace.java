@@ -0,0 +1,116 @@
+package RL.QMatrix.Simulator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class represents a trace decoded in memory (primitive arrays, 21 bytes
+ * per request), so it is read once from the file and then replayed by many
+ * simulations. It is not modified after loading, so any number of readers
+ * (one per simulation) can replay it in parallel.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class Trace {
+
+	private final KeyIndex keys;
+	private byte[] operations;
+	private int[] keyIds;
+	private long[] sizes;
+	private long[] timestamps;
+	private int length;
+
+	private Trace(KeyIndex keys) {
+		this.keys = keys;
+		this.operations = new byte[1 << 16];
+		this.keyIds = new int[operations.length];
+		this.sizes = new long[operations.length];
+		this.timestamps = new long[operations.length];
+		this.length = 0;
+	}
+
+	/**
+	 * Decode all the requests of a trace (at most Integer.MAX_VALUE - 8)
+	 */
+	public static Trace load(TraceReader reader) throws IOException {
+		Trace trace = new Trace(reader.getKeys());
+		while (reader.next()) {
+			if (trace.length == trace.operations.length) {
+				int capacity = (int) Math.min((long) trace.length * 2, Integer.MAX_VALUE - 8);
+				if (capacity == trace.length)
+					throw new IOException("The trace has more than " + trace.length + " requests");
+				trace.operations = Arrays.copyOf(trace.operations, capacity);
+				trace.keyIds = Arrays.copyOf(trace.keyIds, capacity);
+				trace.sizes = Arrays.copyOf(trace.sizes, capacity);
+				trace.timestamps = Arrays.copyOf(trace.timestamps, capacity);
+			}
+			trace.operations[trace.length] = reader.getOperation();
+			trace.keyIds[trace.length] = reader.getKey();
+			trace.sizes[trace.length] = reader.getSize();
+			trace.timestamps[trace.length] = reader.getTimestamp();
+			trace.length++;
+		}
+		return trace;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public KeyIndex getKeys() {
+		return keys;
+	}
+
+	/**
+	 * @return a new reader from the first request of the trace
+	 */
+	public TraceReader reader() {
+		return new TraceReader() {
+			private int index = -1;
+
+			@Override
+			public boolean next() {
+				if (index + 1 >= length)
+					return false;
+				index++;
+				return true;
+			}
+
+			@Override
+			public byte getOperation() {
+				return operations[index];
+			}
+
+			@Override
+			public int getKey() {
+				return keyIds[index];
+			}
+
+			@Override
+			public String getPathname() {
+				return keys.pathname(keyIds[index]);
+			}
+
+			@Override
+			public long getSize() {
+				return sizes[index];
+			}
+
+			@Override
+			public long getTimestamp() {
+				return timestamps[index];
+			}
+
+			@Override
+			public KeyIndex getKeys() {
+				return keys;
+			}
+
+			@Override
+			public void close() {
+				// nothing to release
+			}
+		};
+	}
+}
@@ -0,0 +1,35 @@
+package RL.QMatrix.Simulator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * This class converts a CSV trace to the binary trace format, which is
+ * smaller and faster to replay (no parsing, no pathname lookups).
+ *
+ * Usage: TraceConverter trace.csv trace.bin
+ *
+ * @author Kakoulli Elena
+ */
+
+public class TraceConverter {
+
+	public static long convert(Path csv, Path binary) throws IOException {
+		try (CsvTraceReader reader = new CsvTraceReader(csv);
+				BinaryTraceWriter writer = new BinaryTraceWriter(binary, reader.getKeys())) {
+			while (reader.next())
+				writer.write(reader.getTimestamp(), reader.getOperation(), reader.getKey(), reader.getSize());
+			return writer.getRecords();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: TraceConverter trace.csv trace.bin");
+			System.exit(1);
+		}
+		long records = convert(Paths.get(args[0]), Paths.get(args[1]));
+		System.out.println("Converted " + records + " requests to < " + args[1] + " >");
+	}
+}
@@ -0,0 +1,45 @@
+package RL.QMatrix.Simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * This class represents a reader of an access trace. The reader moves over
+ * the requests one at a time (next) and exposes the fields of the current
+ * request, so no object is created per request.
+ *
+ * Every distinct pathname gets a key: a dense id in the order the pathnames
+ * first appear in the trace.
+ *
+ * @author Kakoulli Elena
+ */
+
+public interface TraceReader extends Closeable {
+
+	// operations (same values as the ordinals of CacheUpdate)
+	byte READ = 1;
+	byte WRITE = 2;
+	byte DELETE = 3;
+
+	/**
+	 * Move to the next request
+	 *
+	 * @return false at the end of the trace
+	 */
+	boolean next() throws IOException;
+
+	byte getOperation();
+
+	int getKey();
+
+	String getPathname();
+
+	long getSize();
+
+	long getTimestamp();
+
+	/**
+	 * @return the keys of the pathnames read so far
+	 */
+	KeyIndex getKeys();
+}
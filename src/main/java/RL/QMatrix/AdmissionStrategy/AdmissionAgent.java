@@ -13,9 +13,12 @@ import com.github.chen0040.rl.learning.qlearn.QLearner;
 import com.github.chen0040.rl.utils.IndexValue;
 
 import RL.QMatrix.CacheAgent;
-import RL.QMatrix.Decision;
+import RL.QMatrix.DecisionAggregate;
+import RL.QMatrix.DecisionLog;
 import RL.QMatrix.FileInfo;
+import RL.QMatrix.HashQTable;
 import RL.QMatrix.QModelCache;
+import RL.QMatrix.QTable;
 import RL.QMatrix.State;
 
 /**
@@ -43,12 +46,20 @@ public class AdmissionAgent extends CacheAgent {
     }
       
     public AdmissionAgent(int tiersMovements, double initialQs[], double alpha, double gamma, long memThresPerc, long diskThresPerc) {
-    	super();
+    	this(tiersMovements, initialQs, alpha, gamma, memThresPerc, diskThresPerc, new HashQTable(initialQs.length));
+    }
+      
+    public AdmissionAgent(int tiersMovements, double initialQs[], double alpha, double gamma, long memThresPerc, long diskThresPerc, QTable table) {
+    	this(tiersMovements, initialQs, alpha, gamma, memThresPerc, diskThresPerc, table, DecisionLog.DEFAULT_CAPACITY);
+    }
+      
+    public AdmissionAgent(int tiersMovements, double initialQs[], double alpha, double gamma, long memThresPerc, long diskThresPerc, QTable table, int decisionsCapacity) {
+    	super(decisionsCapacity);
 		
     	this.memThresPerc = memThresPerc;
     	this.diskThresPerc = diskThresPerc;
     	
- 		this.model = new QModelCache(tiersMovements, initialQs, alpha, gamma);
+ 		this.model = new QModelCache(tiersMovements, initialQs, alpha, gamma, table);
 		this.agent = new QLearner();		
 		this.agent.setModel(model);	
 		
@@ -66,16 +77,23 @@ public class AdmissionAgent extends CacheAgent {
     	return this.agent;
     }
 
+    public QModelCache getModel() {
+    	return this.model;
+    }
+
     public int act(State file, AtomicLong memFilesSize, AtomicLong diskFilesSize, boolean forRead) {
-    	int state = getState(file);
+    	return act(getState(file), file.fileInfo, memFilesSize, diskFilesSize, forRead);
+    }
+
+    public int act(int state, FileInfo fileInfo, AtomicLong memFilesSize, AtomicLong diskFilesSize, boolean forRead) {
         int action = 0;
         boolean stateExists = false;
         
-    	Position pos = file.fileInfo.getCurrentPosition();
+    	Position pos = fileInfo.getCurrentPosition();
          
         if(!possibleActions.isEmpty()) {	
         	//First check if the state exists if not then you must choose MEM
-        	if (((QModelCache) agent.getModel()).getQs(state)!=null) {
+        	if (((QModelCache) agent.getModel()).isStateVisited(state)) {
         		stateExists= true;
         	}
         		
@@ -83,7 +101,10 @@ public class AdmissionAgent extends CacheAgent {
         	action = iv.getIndex();
         	double value = iv.getValue();
             
-            decisions.add(new Decision(state, state, file.fileInfo, action, 0, possibleActions));
+            if (aggregate != null)
+            	aggregate.add(state, action);
+            else
+            	decisions.add(state, state, fileInfo, action, 0);
 
             if(value <= 0 || !stateExists || (memFilesSize.get() < this.memThresPerc)){
                 // Add memory to current selected tier
@@ -119,31 +140,38 @@ public class AdmissionAgent extends CacheAgent {
     
     @Override
     public void updateStrategy() {
-		TiersMovements action_tiers = TiersMovements.NONE;
+		if (aggregate != null) {
+			int pairs = aggregate.apply((QModelCache) agent.getModel(), possibleActions,
+					(stateId, action) -> reward(action, DecisionAggregate.fileAccessFrequency(stateId)));
+			logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CM] - AdmissionAgent.update of " + pairs + " (state, action) pairs");
+			return;
+		}
 
-		for (int i = 0; i < decisions.size(); i++) {
-			Decision move = decisions.get(i);
-		
-			FileInfo file = move.fileObject;
-			// -------------------------------------------------
-			// take the right tier move from action
-			action_tiers = validTiersMovements[move.action];
-			// -------------------------------------------------
-
-			if (admission_action_values.get(action_tiers) > 5 && file.getFile_access_frequency().ordinal() == 0)
-				move.reward = 0.667; // special case
-			else
-				move.reward = (admission_action_values.get(action_tiers) + file.getFile_access_frequency().ordinal()) / 3.0;
-
-			if (move.reward > 1) {
-				move.reward = 2.0 - move.reward;
-			}
-
-			agent.update(move.oldState, move.action, move.newState, move.possibleActions, move.reward);	
-			move.updates++;
-    		logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CM] - AdmissionAgent.update with " + " move.action=" + move.action + " oldState=" + move.oldState +" newState=" + move.newState + " reward=" + move.reward);
-     	
+		decisions.replay(false, (oldState, newState, file, action) -> {
+			double reward = reward(action, file.getFile_access_frequency().ordinal());
+
+			agent.update(oldState, action, newState, possibleActions, reward);	
+    		logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CM] - AdmissionAgent.update with " + " move.action=" + action + " oldState=" + oldState +" newState=" + newState + " reward=" + reward);
+    		return reward;
+		});
+    }
+
+    private double reward(int action, int fileAccessFrequency) {
+		// -------------------------------------------------
+		// take the right tier move from action
+		TiersMovements action_tiers = validTiersMovements[action];
+		// -------------------------------------------------
+
+		double reward;
+		if (admission_action_values.get(action_tiers) > 5 && fileAccessFrequency == 0)
+			reward = 0.667; // special case
+		else
+			reward = (admission_action_values.get(action_tiers) + fileAccessFrequency) / 3.0;
+
+		if (reward > 1) {
+			reward = 2.0 - reward;
 		}
+		return reward;
     }
     
 }
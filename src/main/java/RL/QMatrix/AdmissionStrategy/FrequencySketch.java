@@ -0,0 +1,109 @@
+package RL.QMatrix.AdmissionStrategy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class represents a count-min sketch of the access frequency of the
+ * pathnames (TinyLFU): 4 rows of 4-bit counters packed 16 per long, so the
+ * frequencies of millions of pathnames take a few MB and no object per
+ * pathname. The counters are halved every 10 accesses per expected file, so
+ * the frequencies age and the sketch follows the recent popularity.
+ *
+ * The counters are updated with CAS; an increment may be lost while the
+ * counters are halved, which only makes the estimate slightly lower.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class FrequencySketch {
+
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+	private static final long RESET_MASK = 0x7777777777777777L; // clears the bit shifted into the next counter
+	private static final int MAX_COUNT = 15;
+
+	private final AtomicLongArray table;
+	private final int tableMask;
+	private final int sampleSize; // accesses between two halvings
+	private final AtomicInteger size; // accesses since the last halving
+
+	/**
+	 * @param expectedFiles the number of files of the cache (sizes the sketch)
+	 */
+	public FrequencySketch(int expectedFiles) {
+		int length = Integer.highestOneBit(Math.max(64, Math.min(expectedFiles, 1 << 30)) - 1) << 1;
+		this.table = new AtomicLongArray(length);
+		this.tableMask = length - 1;
+		this.sampleSize = (int) Math.min(10L * length, Integer.MAX_VALUE);
+		this.size = new AtomicInteger(0);
+	}
+
+	/**
+	 * Record an access of the pathname
+	 */
+	public void increment(String pathname) {
+		int hash = spread(pathname.hashCode());
+		boolean added = false;
+		for (int row = 0; row < 4; row++) {
+			int index = indexOf(hash, row);
+			int shift = counterShift(hash, row);
+			long word;
+			do {
+				word = table.get(index);
+				if (((word >>> shift) & MAX_COUNT) == MAX_COUNT)
+					break;
+			} while (!table.compareAndSet(index, word, word + (1L << shift)));
+			added |= ((word >>> shift) & MAX_COUNT) != MAX_COUNT;
+		}
+
+		if (added && size.incrementAndGet() >= sampleSize)
+			reset();
+	}
+
+	/**
+	 * @return the estimated number of recent accesses of the pathname (0 to 15)
+	 */
+	public int frequency(String pathname) {
+		int hash = spread(pathname.hashCode());
+		int frequency = MAX_COUNT;
+		for (int row = 0; row < 4; row++) {
+			int count = (int) ((table.get(indexOf(hash, row)) >>> counterShift(hash, row)) & MAX_COUNT);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/*
+	 * Halve all the counters (aging)
+	 */
+	private synchronized void reset() {
+		if (size.get() < sampleSize)
+			return; // halved by another thread
+		int odd = 0;
+		for (int i = 0; i < table.length(); i++) {
+			long word = table.get(i);
+			odd += Long.bitCount(word & 0x1111111111111111L);
+			table.set(i, (word >>> 1) & RESET_MASK);
+		}
+		size.set(Math.max(0, (size.get() - (odd >>> 2)) >>> 1));
+	}
+
+	private int indexOf(int hash, int row) {
+		long h = (hash + SEEDS[row]) * SEEDS[row];
+		h += h >>> 32;
+		return (int) h & tableMask;
+	}
+
+	/*
+	 * each row uses 4 of the 16 counters of a long
+	 */
+	private static int counterShift(int hash, int row) {
+		return ((row << 2) + ((hash >>> (row << 3)) & 3)) << 2;
+	}
+
+	private static int spread(int h) {
+		h = ((h >>> 16) ^ h) * 0x45d9f3b;
+		h = ((h >>> 16) ^ h) * 0x45d9f3b;
+		return (h >>> 16) ^ h;
+	}
+}
@@ -1,9 +1,8 @@
 package RL.QMatrix;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Random;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import RL.QMatrix.AdmissionStrategy.TiersMovements;
 import RL.QMatrix.ReplacementStrategy.Actions;
@@ -16,14 +15,20 @@ import RL.QMatrix.ReplacementStrategy.Actions;
 
 public abstract class CacheAgent {
 
-	protected List<Decision> decisions;
+	protected DecisionLog decisions;
+	protected DecisionAggregate aggregate; // aggregated training mode (null = replay every decision)
 	protected static Random random = new Random(42);
+	private final AtomicLong modelVersion = new AtomicLong(0); // increased after every training round
 
 	protected HashMap<TiersMovements, Double> admission_action_values = new HashMap<TiersMovements, Double>(); 	//mapping for admission action
 	protected HashMap<Actions, Double>  eviction_action_values = new HashMap<Actions, Double>(); 				// mapping for eviction action
 
 	public CacheAgent() {
-		this.decisions = new CopyOnWriteArrayList<>();
+		this(DecisionLog.DEFAULT_CAPACITY);
+	}
+
+	public CacheAgent(int decisionsCapacity) {
+		this.decisions = new DecisionLog(decisionsCapacity);
 
 		//Create the mapping for admission action 
 		admission_action_values.put(TiersMovements.MEM, 0.0);
@@ -44,17 +49,40 @@ public abstract class CacheAgent {
 
 	public abstract void updateStrategy();
 
-	public int getState(State file) {
-		int state = file.getStateID();
+	public abstract QModelCache getModel();
+
+	/**
+	 * Switch to the aggregated training mode: the decisions are counted per
+	 * (state, action) and each counts as replayed the given times
+	 */
+	public void setAggregatedTraining(int replays) {
+		this.aggregate = new DecisionAggregate(getModel().getTable().getActionCount(), replays);
+	}
+
+	public boolean isAggregatedTraining() {
+		return aggregate != null;
+	}
+
+	/**
+	 * Publish a new version of the Q-model (after a training round)
+	 */
+	public long publishModel() {
+		return modelVersion.incrementAndGet();
+	}
 
-		return state;
+	public long getModelVersion() {
+		return modelVersion.get();
+	}
+
+	public int getState(State file) {
+		return file.fileInfo.getStateID();
 	}
 
 	public void clearHistory() {
 		decisions.clear();
 	}
 
-	public List<Decision> getDecisions() {
+	public DecisionLog getDecisions() {
 		return this.decisions;
 	}
 
@@ -0,0 +1,325 @@
+package RL.QMatrix;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+import RL.QMatrix.DirectoryInfo.DirectoryAccessFrequencyEnum;
+import RL.QMatrix.DirectoryInfo.DirectoryLastAccessTimeEnum;
+import RL.QMatrix.FileInfo.FileAccessFrequencyEnum;
+import RL.QMatrix.FileInfo.FileLastAccessTimeEnum;
+import RL.QMatrix.FileInfo.LastModifiedEnum;
+import RL.QMatrix.FileInfo.SizeEnum;
+import RL.QMatrix.TypeInfo.FileFormatEnum;
+import RL.QMatrix.TypeInfo.FileTypeAccessFrequencyEnum;
+import RL.QMatrix.TypeInfo.FileTypeLastAccessTimeEnum;
+
+/**
+ * This class represents the checkpoint of a Cache Manager: the Q-tables of
+ * both agents, the metadata of types, directories and files, and the order of
+ * the LRU lists, in a versioned binary stream.
+ *
+ * Layout (big-endian, DataOutputStream):
+ * header     = magic, version, timestamp
+ * Q-table    = actions, { stateId, Q[actions], alpha[actions] }*, -1 (admission, then replacement)
+ * types      = { true, format, lastAccessTime, frequency, enums }*, false
+ * dirs       = { true, name, lastAccessTime, frequency, enums }*, false
+ * files      = { true, pathname, fields, format, dir id (or -1 and name), position, evict, misses }*, false
+ * tier sizes = memFilesSize, diskFilesSize
+ * LRU lists  = per Tier: count, pathnames from LRU to MRU
+ *
+ * The checkpoint is taken while the traffic continues: each Q-table is written
+ * between training rounds, each file under the lock of its stripe and each LRU
+ * list from a snapshot. The restore is meant for a Cache Manager that does
+ * not serve requests yet.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class CacheCheckpoint {
+
+	private static final Logger logger = LoggerFactory.getLogger(CacheCheckpoint.class);
+
+	private static final int MAGIC = 0x524C4350; // "RLCP"
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private static final SizeEnum[] SIZES = SizeEnum.values();
+	private static final LastModifiedEnum[] LAST_MODIFIED = LastModifiedEnum.values();
+	private static final FileLastAccessTimeEnum[] FILE_LAST_ACCESS = FileLastAccessTimeEnum.values();
+	private static final FileAccessFrequencyEnum[] FILE_FREQUENCY = FileAccessFrequencyEnum.values();
+	private static final FileFormatEnum[] FORMATS = FileFormatEnum.values();
+	private static final FileTypeLastAccessTimeEnum[] TYPE_LAST_ACCESS = FileTypeLastAccessTimeEnum.values();
+	private static final FileTypeAccessFrequencyEnum[] TYPE_FREQUENCY = FileTypeAccessFrequencyEnum.values();
+	private static final DirectoryLastAccessTimeEnum[] DIR_LAST_ACCESS = DirectoryLastAccessTimeEnum.values();
+	private static final DirectoryAccessFrequencyEnum[] DIR_FREQUENCY = DirectoryAccessFrequencyEnum.values();
+
+	private CacheCheckpoint() {
+	}
+
+	/**
+	 * Write the checkpoint of CM to a temporary file next to path and move it
+	 * in place, so that path always holds a complete checkpoint.
+	 */
+	public static void write(CacheManager CM, Path path) throws IOException {
+		long start = System.currentTimeMillis();
+		Path dir = path.toAbsolutePath().getParent();
+		if (dir != null)
+			Files.createDirectories(dir);
+		Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(System.currentTimeMillis());
+
+				synchronized (CM.lockAA) {
+					writeQTable(out, CM.getAdmissionAgent().getModel().getTable());
+				}
+				synchronized (CM.lockRA) {
+					writeQTable(out, CM.getReplacementAgent().getModel().getTable());
+				}
+
+				for (TypeInfo type : CM.getTypes().values()) {
+					out.writeBoolean(true);
+					out.writeByte(type.file_type.ordinal());
+					out.writeLong(type.fileTypeLastAccessTime);
+					out.writeInt(type.fileTypeAccessFrequency);
+					out.writeByte(type.file_type_last_access_time.ordinal());
+					out.writeByte(type.file_type_access_frequency.ordinal());
+				}
+				out.writeBoolean(false);
+
+				Map<DirectoryInfo, Integer> dirIds = new IdentityHashMap<>();
+				for (DirectoryInfo directory : CM.getDirectories().values()) {
+					out.writeBoolean(true);
+					out.writeUTF(directory.name_directory);
+					out.writeLong(directory.last_access_time);
+					out.writeInt(directory.access_frequency);
+					out.writeByte(directory.directory_last_access_time.ordinal());
+					out.writeByte(directory.directory_access_frequency.ordinal());
+					dirIds.put(directory, dirIds.size());
+				}
+				out.writeBoolean(false);
+
+				long files = 0;
+				for (FileInfo row : CM.files.values()) { // in id order
+					String pathname = row.getPathname();
+					synchronized (CM.lockFor(pathname)) {
+						FileInfo file = CM.files.get(pathname);
+						if (file != row)
+							continue; // deleted meanwhile
+						out.writeBoolean(true);
+						writeFile(out, file, dirIds);
+						files++;
+					}
+				}
+				out.writeBoolean(false);
+
+				out.writeLong(CM.getMemFilesSize().get());
+				out.writeLong(CM.getDiskFilesSize().get());
+
+				for (Tier tier : Tier.values()) {
+					List<FileInfo> lru = CM.getLRUList(tier).getLRUItems(Integer.MAX_VALUE);
+					out.writeInt(lru.size());
+					for (FileInfo file : lru)
+						out.writeUTF(file.getPathname());
+				}
+
+				logger.info(new Timestamp(System.currentTimeMillis()) + ":: Checkpoint < " + path + " > with " + files
+						+ " files written in " + (System.currentTimeMillis() - start) + "ms.");
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Replace the Q-tables and the metadata of CM with the ones of the
+	 * checkpoint in path.
+	 */
+	public static void read(CacheManager CM, Path path) throws IOException {
+		long start = System.currentTimeMillis();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a Cache Manager checkpoint: " + path);
+			int version = in.readInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported checkpoint version " + version + ": " + path);
+			in.readLong(); // timestamp
+
+			synchronized (CM.lockAA) {
+				readQTable(in, CM.getAdmissionAgent().getModel().getTable());
+			}
+			synchronized (CM.lockRA) {
+				readQTable(in, CM.getReplacementAgent().getModel().getTable());
+			}
+
+			CM.clearLRULists();
+			CM.files.clear();
+			CM.ghosts.clear();
+			CM.clearRetainedFiles();
+			CM.fileToevict.clear();
+			CM.evictionActions.clear();
+
+			// the counts of files per type/directory are rebuilt from the files
+			Map<FileFormatEnum, TypeInfo> types = CM.getTypes();
+			types.clear();
+			while (in.readBoolean()) {
+				TypeInfo type = new TypeInfo(FORMATS[in.readByte()], in.readLong(), in.readInt(),
+						TYPE_LAST_ACCESS[in.readByte()], TYPE_FREQUENCY[in.readByte()]);
+				types.put(type.file_type, type);
+			}
+
+			Map<String, DirectoryInfo> directories = CM.getDirectories();
+			directories.clear();
+			Map<Integer, DirectoryInfo> dirIds = new HashMap<>();
+			while (in.readBoolean()) {
+				String name = in.readUTF();
+				DirectoryInfo directory = new DirectoryInfo(in.readLong(), in.readInt(), DIR_LAST_ACCESS[in.readByte()],
+						DIR_FREQUENCY[in.readByte()], name);
+				directories.put(name, directory);
+				dirIds.put(dirIds.size(), directory);
+			}
+
+			long files = 0;
+			while (in.readBoolean()) {
+				FileInfo file = readFile(in, types, directories, dirIds);
+				CM.files.put(file.getPathname(), file);
+				file.getFile_format().files++;
+				file.getDirectory_path().files++;
+				files++;
+			}
+
+			CM.getMemFilesSize().set(in.readLong());
+			CM.getDiskFilesSize().set(in.readLong());
+
+			for (Tier tier : Tier.values()) {
+				TiersMovements movement = TiersMovements.valueOf(1 << tier.ordinal());
+				int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					FileInfo file = CM.files.get(in.readUTF());
+					if (file != null)
+						CM.addFileToLRU(file, movement); // from LRU to MRU, each one becomes the head
+				}
+			}
+			CM.refreshEvictionCandidates(); // ranked with the restored Q-tables
+
+			logger.info(new Timestamp(System.currentTimeMillis()) + ":: Checkpoint < " + path + " > with " + files
+					+ " files restored in " + (System.currentTimeMillis() - start) + "ms.");
+		}
+	}
+
+	private static void writeQTable(DataOutputStream out, QTable table) throws IOException {
+		int actions = table.getActionCount();
+		out.writeInt(actions);
+		table.forEachVisited(stateId -> {
+			try {
+				out.writeInt(stateId);
+				for (int a = 0; a < actions; a++)
+					out.writeDouble(table.getQ(stateId, a));
+				for (int a = 0; a < actions; a++)
+					out.writeDouble(table.getAlpha(stateId, a));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		out.writeInt(-1);
+	}
+
+	private static void readQTable(DataInputStream in, QTable table) throws IOException {
+		int actions = in.readInt();
+		if (actions != table.getActionCount())
+			throw new IOException("Checkpoint Q-table has " + actions + " actions instead of " + table.getActionCount());
+
+		double[] Qs = new double[actions];
+		int stateId;
+		while ((stateId = in.readInt()) >= 0) {
+			for (int a = 0; a < actions; a++)
+				Qs[a] = in.readDouble();
+			if (!table.isVisited(stateId))
+				table.initialState(stateId, Qs, 0);
+			for (int a = 0; a < actions; a++) {
+				table.setQ(stateId, a, Qs[a]);
+				table.setAlpha(stateId, a, in.readDouble());
+			}
+		}
+	}
+
+	private static void writeFile(DataOutputStream out, FileInfo file, Map<DirectoryInfo, Integer> dirIds) throws IOException {
+		out.writeUTF(file.getPathname());
+		out.writeLong(file.getSize());
+		out.writeByte(file.getFileSize().ordinal());
+		out.writeLong(file.getLast_modified_date());
+		out.writeByte(file.getLast_modified().ordinal());
+		out.writeLong(file.getFile_last_access_time_date());
+		out.writeByte(file.getFile_last_access_time().ordinal());
+		out.writeInt(file.getFile_access_frequency_num());
+		out.writeByte(file.getFile_access_frequency().ordinal());
+		out.writeByte(file.getFile_format().file_type.ordinal());
+
+		Integer dirId = dirIds.get(file.getDirectory_path());
+		if (dirId != null) {
+			out.writeInt(dirId);
+		} else { // directory created after the directories were written
+			out.writeInt(-1);
+			out.writeUTF(file.getDirectory_path().name_directory);
+		}
+
+		out.writeByte(file.getCurrentPosition().getPosition().ordinal());
+		out.writeBoolean(file.getEvict());
+		out.writeInt(file.getMisses());
+	}
+
+	private static FileInfo readFile(DataInputStream in, Map<FileFormatEnum, TypeInfo> types,
+			Map<String, DirectoryInfo> directories, Map<Integer, DirectoryInfo> dirIds) throws IOException {
+		String pathname = in.readUTF();
+		long size = in.readLong();
+		SizeEnum fileSize = SIZES[in.readByte()];
+		long last_modified_date = in.readLong();
+		LastModifiedEnum last_modified = LAST_MODIFIED[in.readByte()];
+		long file_last_access_time_date = in.readLong();
+		FileLastAccessTimeEnum file_last_access_time = FILE_LAST_ACCESS[in.readByte()];
+		int file_access_frequency_num = in.readInt();
+		FileAccessFrequencyEnum file_access_frequency = FILE_FREQUENCY[in.readByte()];
+		FileFormatEnum format = FORMATS[in.readByte()];
+		TypeInfo type = types.computeIfAbsent(format, TypeInfo::new);
+
+		int dirId = in.readInt();
+		DirectoryInfo directory;
+		if (dirId >= 0) {
+			directory = dirIds.get(dirId);
+		} else {
+			String name = in.readUTF();
+			directory = directories.computeIfAbsent(name, n -> new DirectoryInfo(0, 0, DirectoryLastAccessTimeEnum.OLD,
+					DirectoryAccessFrequencyEnum.NOT_FAMOUS, n));
+		}
+
+		FileInfo file = new FileInfo(pathname, size, fileSize, last_modified_date, last_modified, file_last_access_time_date,
+				file_last_access_time, file_access_frequency_num, file_access_frequency, type, directory);
+		file.setCurrentPosition(TiersMovements.valueOf(in.readByte()));
+		file.setEvict(in.readBoolean());
+		file.setMisses(in.readInt());
+		return file;
+	}
+}
@@ -1,20 +1,41 @@
 package RL.QMatrix;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Timestamp;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.chen0040.rl.utils.IndexValue;
+
 import RL.QMatrix.TypeInfo.FileFormatEnum;
 import RL.QMatrix.AdmissionStrategy.AdmissionAgent;
+import RL.QMatrix.AdmissionStrategy.FrequencySketch;
 import RL.QMatrix.AdmissionStrategy.Position;
 import RL.QMatrix.AdmissionStrategy.TiersMovements;
 import RL.QMatrix.ReplacementStrategy.AccessBasedList;
+import RL.QMatrix.ReplacementStrategy.Actions;
+import RL.QMatrix.ReplacementStrategy.BufferedRecencyList;
+import RL.QMatrix.ReplacementStrategy.EvictionCandidates;
+import RL.QMatrix.ReplacementStrategy.IndexedRecencyList;
+import RL.QMatrix.ReplacementStrategy.RecencyList;
+import RL.QMatrix.ReplacementStrategy.SlotTable;
 import RL.QMatrix.ReplacementStrategy.ReplacementAgent;
 
 /**
@@ -27,36 +48,65 @@ import RL.QMatrix.ReplacementStrategy.ReplacementAgent;
 public class CacheManager {
 
 	private static final Logger logger = LoggerFactory.getLogger(CacheManager.class);
+	private static final Tier[] FILTERED_TIERS = { Tier.MEM, Tier.DISK }; // tiers of the admission filter (the SSD size is not kept)
 
 	// Management of files, types, directories
-	private HashMap<FileFormatEnum, TypeInfo> types; // keep a list with all type formats exist
-	private HashMap<String, DirectoryInfo> directories; // keep a list with all directories exist
-	protected ConcurrentHashMap<String, FileInfo> files;// keep a list with all files exist
-	protected HashMap<String, FileInfo> filesDeleted; // keep a list with all files deleted exist
+	private ConcurrentHashMap<FileFormatEnum, TypeInfo> types; // keep a list with all type formats exist
+	private ConcurrentHashMap<String, DirectoryInfo> directories; // keep a list with all directories exist
+	protected FileTable files;// keep a list with all files exist (columns of their metadata, by pathname)
+	protected GhostCache ghosts; // the files that left the cache (bounded, fingerprints of the pathnames)
+	private LinkedHashMap<FileInfo, Integer> retainedFiles; // the files that left their last tier with their eviction action, oldest first (until they become ghosts)
+	private int retainedCapacity;
+	protected Map<String, Integer> evictionActions; // the decision of fileDeleteOrDowngrade until the DELETE of the file
 	protected Map<String, Integer> fileToevict; // keep the last selected to evict file
 	
 	// RL Agents (Admission & Replacement/Eviction)
 	private AdmissionAgent AA;
+	private FrequencySketch admissionFilter; // frequencies of all accesses (null = every request reaches the admission agent)
+	private int tierBits; // the tiers of the model (TiersMovements bits)
 	private ReplacementAgent RA;
 
-	private int updates; // keep the count of updates to cache/cloud system
+	private AtomicInteger updates; // keep the count of updates to cache/cloud system
 	private int maxUpdatesNum; // maximum number of updates to do an update of Qvalues
 	private int maxDecisions; // maximum number of decisions then delete Q-entry
 	private AtomicLong memFilesSize; // current size of all cached files (@MEM tier)
 	private AtomicLong diskFilesSize; // current size of all cached files (@DISK tier)
+	private long memCapacity;
+	private long diskCapacity;
 
 	private int counterToPrintQs;
 	
 	// LRU Lists of files
 	private int maxLRU; // parameter for #files from lru list
-	private AccessBasedList<FileInfo> filesLRU_atMEM; // LRU list for files in memory
-	private AccessBasedList<FileInfo> filesLRU_atSSD; // LRU list for files in ssd
-	private AccessBasedList<FileInfo> filesLRU_atDISK; // LRU list for files in disk
+	private boolean batchScoring; // score the LRU files in one batch instead of one act per file
+	private RecencyList<FileInfo> filesLRU_atMEM; // LRU list for files in memory
+	private RecencyList<FileInfo> filesLRU_atSSD; // LRU list for files in ssd
+	private RecencyList<FileInfo> filesLRU_atDISK; // LRU list for files in disk
+	private RecencyList<FileInfo>[] filesLRU; // the LRU lists by Tier ordinal
+	private EvictionCandidates[] candidates; // eviction candidates by Tier ordinal (null = score the LRU files on request)
+
+	// Training rounds of the agents (one at a time, requests are coalesced)
+	private final TrainingScheduler trainer;
+	private final long flushInterval; // ms between flushes of persistent Q-tables
+	private long lastFlush;
+
+	// Asynchronous ingestion of cache updates (null when updates are applied synchronously)
+	private volatile CacheUpdateQueue updateQueue;
+
+	// Background evictors of the tiers (null when the tiers are evicted only on request)
+	private volatile WatermarkEvictor[] evictors;
+
+	// Periodic aging of the access frequencies (null when the frequencies only grow)
+	private FrequencyAging aging;
 
 	private static CacheManager CMInstance = null;
 
-	private final Object lockAA = new Object();
-	private final Object lockRA = new Object();
+	final Object lockAA = new Object(); // held by the training rounds of the admission agent
+	final Object lockRA = new Object(); // held by the training rounds of the replacement agent
+
+	// Striped locks for per-file updates (files of different stripes are updated in parallel)
+	private final Object[] fileLocks;
+	private final int fileLocksMask;
 
 	// CONSTRUCTORS
 	/*
@@ -70,30 +120,154 @@ public class CacheManager {
 	 * 7. gamma = gamma value for Qmodel 
 	 * 8. memThresPerc = percentage of mem capacity to directly cache in mem
 	 * 9. memcapacity = memory capacity
+	 * 10. options = optional settings from cachemanager.config.properties (e.g., cachemanager.async.*)
+	 * 11. *Table = Q-tables shared with other Cache Managers (null = own Q-table from the options)
 	 * 
 	 */
 	private CacheManager(int tiersMovements, double admissionInitialQs[], double replacementInitialQs[], int maxUpdatesNum, int maxDecisions, int maxLRU,
-			double alpha, double gamma, long memThresPerc, long memCapacity, long diskThresPerc, long diskCapacity) {
+			double alpha, double gamma, long memThresPerc, long memCapacity, long diskThresPerc, long diskCapacity, Properties options,
+			QTable admissionTable, QTable replacementTable) {
 
 		this.maxUpdatesNum = maxUpdatesNum;
 		this.maxDecisions = maxDecisions;
 		this.maxLRU = maxLRU;
-		this.AA = new AdmissionAgent(tiersMovements, admissionInitialQs, alpha, gamma, (long) (memThresPerc * memCapacity / 100), (long) (diskThresPerc * diskCapacity / 100));
-		this.RA = new ReplacementAgent(replacementInitialQs, alpha, gamma);
-		this.filesLRU_atMEM = new AccessBasedList<>();
-		this.filesLRU_atSSD = new AccessBasedList<>();
-		this.filesLRU_atDISK = new AccessBasedList<>();
-
-		this.types = new HashMap<FileFormatEnum, TypeInfo>();
-		this.directories = new HashMap<String, DirectoryInfo>();
-		this.files = new ConcurrentHashMap<String, FileInfo>();
-		this.filesDeleted = new HashMap<String, FileInfo>();
-		this.updates = 0;
-        this.fileToevict = new HashMap<>();
+		this.batchScoring = Boolean.parseBoolean(options.getProperty("cachemanager.qmodelreplacement.batchscoring", "false").trim());
+		int decisionsCapacity = Integer.parseInt(options.getProperty("cachemanager.decisions.capacity", String.valueOf(DecisionLog.DEFAULT_CAPACITY)).trim());
+		this.AA = new AdmissionAgent(tiersMovements, admissionInitialQs, alpha, gamma, (long) (memThresPerc * memCapacity / 100), (long) (diskThresPerc * diskCapacity / 100),
+				(admissionTable != null) ? admissionTable : createQTable(options, "admission", tiersMovements, Position.validValues(tiersMovements).length, alpha, gamma),
+				decisionsCapacity);
+		this.RA = new ReplacementAgent(replacementInitialQs, alpha, gamma,
+				(replacementTable != null) ? replacementTable : createQTable(options, "replacement", tiersMovements, Actions.values().length, alpha, gamma),
+				decisionsCapacity);
+		this.RA.setGreedyScoring(Boolean.parseBoolean(options.getProperty("cachemanager.qmodelreplacement.greedyscoring", "false").trim()));
+		if ("aggregated".equals(options.getProperty("cachemanager.training.mode", "replay").trim())) {
+			this.AA.setAggregatedTraining(maxDecisions);
+			this.RA.setAggregatedTraining(maxDecisions);
+		}
+		this.flushInterval = Long.parseLong(options.getProperty("cachemanager.qmodelcache.mapped.forceinterval.ms", "60000").trim());
+		this.lastFlush = System.currentTimeMillis();
+		SlotTable<FileInfo> slots = new SlotTable<>(); // shared by the indexed lists
+		this.filesLRU_atMEM = createRecencyList(options, slots);
+		this.filesLRU_atSSD = createRecencyList(options, slots);
+		this.filesLRU_atDISK = createRecencyList(options, slots);
+		this.filesLRU = newLRUArray(filesLRU_atDISK, filesLRU_atSSD, filesLRU_atMEM);
+		if (Boolean.parseBoolean(options.getProperty("cachemanager.eviction.candidates", "false").trim())) {
+			this.candidates = new EvictionCandidates[filesLRU.length];
+			for (int tier = 0; tier < candidates.length; tier++)
+				this.candidates[tier] = new EvictionCandidates(RA, 1 << tier);
+		}
+
+		this.types = new ConcurrentHashMap<FileFormatEnum, TypeInfo>();
+		this.directories = new ConcurrentHashMap<String, DirectoryInfo>();
+		this.files = createFileTable(options, "files");
+		this.ghosts = new GhostCache(Integer.parseInt(options.getProperty("cachemanager.ghost.capacity", "65536").trim()));
+		this.retainedFiles = new LinkedHashMap<>();
+		this.retainedCapacity = Integer.parseInt(options.getProperty("cachemanager.ghost.retained", "4096").trim());
+		this.evictionActions = new ConcurrentHashMap<>();
+		this.updates = new AtomicInteger(0);
+        this.fileToevict = new ConcurrentHashMap<>();
+
+		// at least 4 stripes per core, rounded up to a power of two
+		int stripes = Integer.highestOneBit(Math.max(16, 4 * Runtime.getRuntime().availableProcessors()) - 1) << 1;
+		this.fileLocks = new Object[stripes];
+		for (int i = 0; i < stripes; i++)
+			this.fileLocks[i] = new Object();
+		this.fileLocksMask = stripes - 1;
 
 		this.memFilesSize = new AtomicLong(0);
 		this.diskFilesSize = new AtomicLong(0);
+		this.memCapacity = memCapacity;
+		this.diskCapacity = diskCapacity;
+		for (TiersMovements position : Position.validValues(tiersMovements))
+			this.tierBits |= position.ordinal();
+		if (Boolean.parseBoolean(options.getProperty("cachemanager.admission.filter", "false").trim()))
+			this.admissionFilter = new FrequencySketch(Integer.parseInt(options.getProperty("cachemanager.admission.filter.size", "1000000").trim()));
 		this.counterToPrintQs = 0;
+		this.trainer = new TrainingScheduler(this::trainAgents, "CacheManager-training");
+		long agingInterval = Long.parseLong(options.getProperty("cachemanager.frequency.aging.interval.ms", "0").trim());
+		if (agingInterval > 0)
+			this.aging = new FrequencyAging(this, agingInterval);
+
+		if (Boolean.parseBoolean(options.getProperty("cachemanager.async.updates", "false").trim())) {
+			this.updateQueue = new CacheUpdateQueue(this,
+					Integer.parseInt(options.getProperty("cachemanager.async.consumers", "1").trim()),
+					Integer.parseInt(options.getProperty("cachemanager.async.queuesize", "65536").trim()),
+					Integer.parseInt(options.getProperty("cachemanager.async.batchsize", "256").trim()),
+					CacheUpdateQueue.OverflowPolicy.valueOf(options.getProperty("cachemanager.async.overflow", "BLOCK").trim()));
+		}
+	}
+
+	/*
+	 * LRU lists (cachemanager.lru.list):
+	 * synchronized = every access reorders the list under its lock
+	 * buffered = the accesses are recorded in striped lossy buffers and replayed in batches
+	 * indexed = the links are kept in int arrays indexed by the slot of the file (no node/hash map entry per file)
+	 */
+	private static RecencyList<FileInfo> createRecencyList(Properties options, SlotTable<FileInfo> slots) {
+		String list = options.getProperty("cachemanager.lru.list", "synchronized").trim();
+		switch (list) {
+		case "buffered":
+			return new BufferedRecencyList<>();
+		case "indexed":
+			return new IndexedRecencyList<>(slots);
+		case "synchronized":
+			return new AccessBasedList<>();
+		default:
+			logger.error(new Timestamp(System.currentTimeMillis()) + ":: Unknown LRU list < " + list + " >, using synchronized!");
+			return new AccessBasedList<>();
+		}
+	}
+
+	/*
+	 * Q-table backends (cachemanager.qmodelcache.backend):
+	 * hash = rows of visited states in hash maps 
+	 * dense = flat primitive arrays indexed by state id
+	 * mapped = dense table in a memory-mapped file <mapped.dir>/<name>.qtable (warm start after restart)
+	 */
+	static QTable createQTable(Properties options, String name, int tiersMovements, int actions, double alpha, double gamma) {
+		String backend = options.getProperty("cachemanager.qmodelcache.backend", "hash").trim();
+		switch (backend) {
+		case "mapped":
+			Path path = Paths.get(options.getProperty("cachemanager.qmodelcache.mapped.dir", "qtables").trim(), name + ".qtable");
+			try {
+				return new MappedQTable(path, tiersMovements, actions, alpha, gamma);
+			} catch (IOException e) {
+				logger.error(new Timestamp(System.currentTimeMillis()) + ":: Cannot map Q-table < " + path + " >, using dense: " + e);
+				return new DenseQTable(actions);
+			}
+		case "dense":
+			return new DenseQTable(actions);
+		case "hash":
+			return new HashQTable(actions);
+		default:
+			logger.error(new Timestamp(System.currentTimeMillis()) + ":: Unknown Q-table backend < " + backend + " >, using hash!");
+			return new HashQTable(actions);
+		}
+	}
+
+	static FileTable createFileTable(Properties options, String name) {
+		String backend = options.getProperty("cachemanager.metadata.backend", "heap").trim();
+		switch (backend) {
+		case "mapped":
+			Path dir = Paths.get(options.getProperty("cachemanager.metadata.mapped.dir", "metadata").trim());
+			try {
+				FileTable table = FileTable.mapped(dir, name);
+				logger.info(new Timestamp(System.currentTimeMillis()) + ":: Metadata of the files mapped in < " + dir
+						+ " > (new files, restore a checkpoint to restart warm); the views of the files stay in the heap.");
+				return table;
+			} catch (IOException e) {
+				logger.error(new Timestamp(System.currentTimeMillis()) + ":: Cannot map the metadata in < " + dir + " >, using direct: " + e);
+				return FileTable.direct();
+			}
+		case "direct":
+			logger.info(new Timestamp(System.currentTimeMillis()) + ":: Metadata of the files in direct buffers; the views of the files stay in the heap.");
+			return FileTable.direct();
+		case "heap":
+			return new FileTable();
+		default:
+			logger.error(new Timestamp(System.currentTimeMillis()) + ":: Unknown metadata backend < " + backend + " >, using heap!");
+			return new FileTable();
+		}
 	}
 
 	public static boolean isCacheManagerCreated() {
@@ -102,13 +276,41 @@ public class CacheManager {
 
 	public static CacheManager getCacheManager(int tiersMovements, double admissionInitialQs[], double replacementInitialQs[], int maxUpdatesNum, int maxDecisions,
 			int maxLRU, double alpha, double gamma, long memThresPerc, long memCapacity, long diskThresPerc, long diskCapacity) {
+		return getCacheManager(tiersMovements, admissionInitialQs, replacementInitialQs, maxUpdatesNum, maxDecisions, maxLRU,
+				alpha, gamma, memThresPerc, memCapacity, diskThresPerc, diskCapacity, new Properties());
+	}
+
+	public static synchronized CacheManager getCacheManager(int tiersMovements, double admissionInitialQs[], double replacementInitialQs[], int maxUpdatesNum, int maxDecisions,
+			int maxLRU, double alpha, double gamma, long memThresPerc, long memCapacity, long diskThresPerc, long diskCapacity, Properties options) {
 		if (CMInstance == null) {
 			CMInstance = new CacheManager(tiersMovements, admissionInitialQs, replacementInitialQs, maxUpdatesNum, maxDecisions, maxLRU, alpha, gamma,
-					memThresPerc, memCapacity, diskThresPerc, diskCapacity);
+					memThresPerc, memCapacity, diskThresPerc, diskCapacity, options, null, null);
 		}
 		return CMInstance;
 	}
 
+	/**
+	 * Create an independent Cache Manager, with its own agents, metadata and
+	 * LRU lists (not the shared instance of getCacheManager), e.g., for the
+	 * simulations of different configurations in the same JVM
+	 */
+	public static CacheManager newCacheManager(int tiersMovements, double admissionInitialQs[], double replacementInitialQs[], int maxUpdatesNum, int maxDecisions,
+			int maxLRU, double alpha, double gamma, long memThresPerc, long memCapacity, long diskThresPerc, long diskCapacity, Properties options) {
+		return newCacheManager(tiersMovements, admissionInitialQs, replacementInitialQs, maxUpdatesNum, maxDecisions, maxLRU, alpha, gamma,
+				memThresPerc, memCapacity, diskThresPerc, diskCapacity, options, null, null);
+	}
+
+	/**
+	 * Create an independent Cache Manager whose agents use the given Q-tables
+	 * (e.g., one Q-model learned by the shards of a ShardedCacheManager)
+	 */
+	public static CacheManager newCacheManager(int tiersMovements, double admissionInitialQs[], double replacementInitialQs[], int maxUpdatesNum, int maxDecisions,
+			int maxLRU, double alpha, double gamma, long memThresPerc, long memCapacity, long diskThresPerc, long diskCapacity, Properties options,
+			QTable admissionTable, QTable replacementTable) {
+		return new CacheManager(tiersMovements, admissionInitialQs, replacementInitialQs, maxUpdatesNum, maxDecisions, maxLRU, alpha, gamma,
+				memThresPerc, memCapacity, diskThresPerc, diskCapacity, options, admissionTable, replacementTable);
+	}
+
 	/*
 	 * API - REQUEST PROCESSES:
 	 *
@@ -129,12 +331,62 @@ public class CacheManager {
 		 * 
 		 */
 
-		FileInfo file = getFile(pathname, filesize);
+		FrequencySketch filter = this.admissionFilter;
+		if (filter != null) {
+			filter.increment(pathname);
+			int allowed = admissionFilterTiers(filter, pathname, filesize);
+			if (allowed == 0) // rejected without creating a FileInfo
+				return TiersMovements.NONE;
+
+			FileInfo file = getFile(pathname, filesize, forRead);
+			int tiers = admission(file, forRead).ordinal();
+			int admitted = tiers & allowed;
+			if (admitted == 0 && tiers != 0) // the file is placed in the highest allowed tier below the selected ones
+				admitted = Integer.highestOneBit(allowed & (Integer.lowestOneBit(tiers) - 1));
+			return TiersMovements.valueOf(admitted);
+		}
+
+		FileInfo file = getFile(pathname, filesize, forRead);
 		TiersMovements tierMovement = admission(file, forRead);
 
 		return tierMovement;
 	}
 
+	/*
+	 * Admission filter (TinyLFU): a file may enter a tier that has room for it,
+	 * or a full tier if it is accessed more often than the LRU file of the tier
+	 * that it would displace. The SSD tier is not filtered (its size is not
+	 * kept). A file that may not enter the tiers selected by the admission agent
+	 * is placed in a lower allowed tier, so rarely accessed files do not push
+	 * the frequently accessed files out of the memory.
+	 * 
+	 * @return the tiers that the file may enter (TiersMovements bits)
+	 */
+	private int admissionFilterTiers(FrequencySketch filter, String pathname, long filesize) {
+		int allowed = tierBits & TiersMovements.SSD.ordinal();
+		int frequency = -1;
+		for (Tier tier : FILTERED_TIERS) {
+			if ((tierBits & (1 << tier.ordinal())) == 0)
+				continue;
+			long used = (tier == Tier.MEM) ? memFilesSize.get() : diskFilesSize.get();
+			long capacity = (tier == Tier.MEM) ? memCapacity : diskCapacity;
+			FileInfo victim;
+			if (used + filesize <= capacity || (victim = getLRUList(tier).peekLRUItem()) == null) {
+				allowed |= 1 << tier.ordinal();
+				continue;
+			}
+			if (frequency < 0)
+				frequency = filter.frequency(pathname);
+			if (frequency > filter.frequency(victim.getPathname()))
+				allowed |= 1 << tier.ordinal();
+		}
+		return allowed;
+	}
+
+	public FrequencySketch getAdmissionFilter() {
+		return admissionFilter;
+	}
+
 	public FileInfo cacheRequestReplacement(Tier tier) {
 
 		/*
@@ -147,7 +399,47 @@ public class CacheManager {
 		return file;
 	}
 
-	public synchronized void cacheUpdate(CacheUpdate update, String pathname, long filesize, TiersMovements tiers,
+	/**
+	 * Select in one pass the files to evict from the tier to free bytesNeeded
+	 * bytes (see cacheReplacement(Tier, long))
+	 *
+	 * @return the files to evict in eviction order (fewer bytes if the tier does
+	 *         not have enough files)
+	 */
+	public List<FileInfo> cacheRequestReplacement(Tier tier, long bytesNeeded) {
+		return cacheRequestReplacement(tier, bytesNeeded, file -> false);
+	}
+
+	/**
+	 * Same as cacheRequestReplacement(Tier, long), but the files of skip (e.g.,
+	 * already selected and not evicted yet) are neither decided nor selected
+	 */
+	public List<FileInfo> cacheRequestReplacement(Tier tier, long bytesNeeded, Predicate<FileInfo> skip) {
+		List<FileInfo> files = cacheReplacement(tier, bytesNeeded, skip); // Cache Replacement
+		logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CM] - cacheRequestReplacement for location: " + tier.name()
+				+ " selected " + files.size() + " files for " + bytesNeeded + " bytes");
+		return files;
+	}
+
+	/*
+	 * In asynchronous mode the update is only queued and is applied later by
+	 * the consumers of the update queue; otherwise it is applied directly.
+	 */
+	public void cacheUpdate(CacheUpdate update, String pathname, long filesize, TiersMovements tiers,
+			long last_modified_date) {
+		CacheUpdateQueue queue = this.updateQueue;
+		if (queue != null)
+			queue.submit(update, pathname, filesize, tiers, last_modified_date);
+		else
+			applyCacheUpdate(update, pathname, filesize, tiers, last_modified_date);
+	}
+
+	/*
+	 * Updates of the same file are serialized on the stripe of its pathname, while
+	 * updates of files in other stripes proceed in parallel. The tier sizes are
+	 * atomic and the LRU lists are synchronized per tier.
+	 */
+	public void applyCacheUpdate(CacheUpdate update, String pathname, long filesize, TiersMovements tiers,
 			long last_modified_date) {
 		/*
 		 * API - UPDATES PROCESSES:
@@ -161,296 +453,444 @@ public class CacheManager {
 
 		FileInfo file;
 
-		switch (update.ordinal()) {
+		synchronized (lockFor(pathname)) {
+			switch (update.ordinal()) {
 
-		case 0:
-			logger.info(new Timestamp(System.currentTimeMillis())
-					+ ":: ==> CacheManager received CREATE request for file < " + pathname + " > in " + tiers.toString()
-					+ " with file size: " + filesize + " memFilesSize: " + this.memFilesSize.get());
+			case 0:
+				logger.info(new Timestamp(System.currentTimeMillis())
+						+ ":: ==> CacheManager received CREATE request for file < " + pathname + " > in " + tiers.toString()
+						+ " with file size: " + filesize + " memFilesSize: " + this.memFilesSize.get());
 
-			// if the file exists but not in the requested tier add it in the tier
-			if (files.get(pathname) != null && files.get(pathname).getCurrentPosition().getPosition() != tiers) {
+				// if the file exists but not in the requested tier add it in the tier
+				if (files.get(pathname) != null && files.get(pathname).getCurrentPosition().getPosition() != tiers) {
 
-				if (!files.get(pathname).getCurrentPosition().containsTier(tiers)) {
+					if (!files.get(pathname).getCurrentPosition().containsTier(tiers)) {
 	
-					logger.info(new Timestamp(System.currentTimeMillis()) + ":: The file < " + pathname
-							+ " > exists in < " + files.get(pathname).getCurrentPosition() + " >.");
+						logger.info(new Timestamp(System.currentTimeMillis()) + ":: The file < " + pathname
+								+ " > exists in < " + files.get(pathname).getCurrentPosition() + " >.");
 
-					if (tiers == TiersMovements.MEM) 
-						this.memFilesSize.addAndGet(filesize);
+						if (tiers == TiersMovements.MEM) 
+							this.memFilesSize.addAndGet(filesize);
 				
-					else if (tiers == TiersMovements.DISK) 
-						this.diskFilesSize.addAndGet(filesize);
+						else if (tiers == TiersMovements.DISK) 
+							this.diskFilesSize.addAndGet(filesize);
 					
-					// Change currentPosition of the file (add requested tier)
-					file = files.get(pathname);
-					TiersMovements newPos = file.getCurrentPosition().addTier(tiers);
-					files.get(pathname).setCurrentPosition(newPos);
+						// Change currentPosition of the file (add requested tier)
+						file = files.get(pathname);
+						TiersMovements newPos = file.getCurrentPosition().addTier(tiers);
+						files.get(pathname).setCurrentPosition(newPos);
 		
-					logger.info(new Timestamp(System.currentTimeMillis()) + ":: New location for the file < " + pathname
-							+ " >: " + files.get(pathname).getCurrentPosition());
+						logger.info(new Timestamp(System.currentTimeMillis()) + ":: New location for the file < " + pathname
+								+ " >: " + files.get(pathname).getCurrentPosition());
 	
-					// Be sure for filesize consistency
-					if (files.get(pathname).getSize() != filesize)
-						files.get(pathname).setSize(filesize);	
+						// Be sure for filesize consistency
+						if (files.get(pathname).getSize() != filesize)
+							files.get(pathname).setSize(filesize);	
 
-				} else { // if the file exists in the requested tier
+					} else { // if the file exists in the requested tier
 					
+						// update the capacity of memory/disk if exists there
+						if (files.get(pathname).getCurrentPosition().containsTier(TiersMovements.MEM) && tiers == TiersMovements.MEM && filesize!=files.get(pathname).getSize()) {
+							this.memFilesSize.addAndGet(-files.get(pathname).getSize());
+							this.memFilesSize.addAndGet(filesize);
+						}
+						else if(files.get(pathname).getCurrentPosition().containsTier(TiersMovements.DISK) && tiers == TiersMovements.DISK && filesize!=files.get(pathname).getSize()) {
+							this.diskFilesSize.addAndGet(-files.get(pathname).getSize());
+							this.diskFilesSize.addAndGet(filesize);
+						}
+					
+						if (files.get(pathname).getSize() != filesize) {
+						
+							// be sure for filesize consistency
+							files.get(pathname).setSize(filesize);
+						}
+					}
+				} else if (files.get(pathname) == null) { // if the file does not exist, create the file in this tier
+					createFile(pathname, filesize);
+					files.get(pathname).setCurrentPosition(tiers);
+
+					if (tiers == TiersMovements.MEM) 
+						this.memFilesSize.addAndGet(filesize);
+					else if (tiers == TiersMovements.DISK) 
+						this.diskFilesSize.addAndGet(filesize);
+				
+				}
+				// below is when the file exists but check if the size is the same - do we need this???
+				else {
 					// update the capacity of memory/disk if exists there
 					if (files.get(pathname).getCurrentPosition().containsTier(TiersMovements.MEM) && tiers == TiersMovements.MEM && filesize!=files.get(pathname).getSize()) {
 						this.memFilesSize.addAndGet(-files.get(pathname).getSize());
 						this.memFilesSize.addAndGet(filesize);
 					}
-					else if(files.get(pathname).getCurrentPosition().containsTier(TiersMovements.DISK) && tiers == TiersMovements.DISK && filesize!=files.get(pathname).getSize()) {
-						this.diskFilesSize.addAndGet(-files.get(pathname).getSize());
-						this.diskFilesSize.addAndGet(filesize);
+					else if (files.get(pathname).getCurrentPosition().containsTier(TiersMovements.DISK) && tiers == TiersMovements.DISK && filesize!=files.get(pathname).getSize()) {
+							this.diskFilesSize.addAndGet(-files.get(pathname).getSize());
+							this.diskFilesSize.addAndGet(filesize);
 					}
-					
+
+					// Be sure for filesize consistency
 					if (files.get(pathname).getSize() != filesize) {
-						
-						// be sure for filesize consistency
+					
 						files.get(pathname).setSize(filesize);
 					}
 				}
-			} else if (files.get(pathname) == null) { // if the file does not exist, create the file in this tier
-				createFile(pathname, filesize);
-				files.get(pathname).setCurrentPosition(tiers);
-
-				if (tiers == TiersMovements.MEM) 
-					this.memFilesSize.addAndGet(filesize);
-				else if (tiers == TiersMovements.DISK) 
-					this.diskFilesSize.addAndGet(filesize);
-				
-			}
-			// below is when the file exists but check if the size is the same - do we need this???
-			else {
-				// update the capacity of memory/disk if exists there
-				if (files.get(pathname).getCurrentPosition().containsTier(TiersMovements.MEM) && tiers == TiersMovements.MEM && filesize!=files.get(pathname).getSize()) {
-					this.memFilesSize.addAndGet(-files.get(pathname).getSize());
-					this.memFilesSize.addAndGet(filesize);
-				}
-				else if (files.get(pathname).getCurrentPosition().containsTier(TiersMovements.DISK) && tiers == TiersMovements.DISK && filesize!=files.get(pathname).getSize()) {
-						this.diskFilesSize.addAndGet(-files.get(pathname).getSize());
-						this.diskFilesSize.addAndGet(filesize);
-				}
 
-				// Be sure for filesize consistency
-				if (files.get(pathname).getSize() != filesize) {
-					
-					files.get(pathname).setSize(filesize);
-				}
-			}
-
-			files.get(pathname).setLast_modified(last_modified_date);
-			addFileToLRU(files.get(pathname), tiers);
-
-			break;
-
-		case 1: 
-			logger.info(
-					new Timestamp(System.currentTimeMillis()) + ":: ==> CacheManager received READ request for file < "
-							+ pathname + " in the tier < " + tiers + " > with filesize: "+ filesize);
-			// if the file exists check the tier for access
-			if (files.get(pathname) != null) {
-				if (files.get(pathname).getCurrentPosition().getPosition() != tiers
-						&& files.get(pathname).getCurrentPosition().containsTier(tiers) == false) {
+				files.get(pathname).setLast_modified(last_modified_date);
+				addFileToLRU(files.get(pathname), tiers);
+
+				break;
+
+			case 1: 
+				logger.info(
+						new Timestamp(System.currentTimeMillis()) + ":: ==> CacheManager received READ request for file < "
+								+ pathname + " in the tier < " + tiers + " > with filesize: "+ filesize);
+				if (admissionFilter != null) // the misses are recorded by cacheRequestAdmission
+					admissionFilter.increment(pathname);
+				// if the file exists check the tier for access
+				if (files.get(pathname) != null) {
+					if (files.get(pathname).getCurrentPosition().getPosition() != tiers
+							&& files.get(pathname).getCurrentPosition().containsTier(tiers) == false) {
 				
-					if(files.get(pathname).getCurrentPosition().getPosition()==TiersMovements.NONE) {
-					files.get(pathname).getCurrentPosition().setPosition(files.get(pathname).getCurrentPosition().addTier(tiers));
-					addFileToLRU(files.get(pathname), tiers);
-					}
-					else {
-						logger.info(new Timestamp(System.currentTimeMillis())
-								+ ":: CacheManager received READ request for file < " + pathname
-								+ " > but does not exist in the tier < " + tiers + " >");
+						if(files.get(pathname).getCurrentPosition().getPosition()==TiersMovements.NONE) {
+						files.get(pathname).setCurrentPosition(files.get(pathname).getCurrentPosition().addTier(tiers));
+						addFileToLRU(files.get(pathname), tiers);
+						}
+						else {
+							logger.info(new Timestamp(System.currentTimeMillis())
+									+ ":: CacheManager received READ request for file < " + pathname
+									+ " > but does not exist in the tier < " + tiers + " >");
 						
-						//just for test
-						System.err.println(new Timestamp(System.currentTimeMillis())
-								+ ":: CacheManager received READ request for file < " + pathname
-								+ " > but does not exist in the tier < " + tiers + " >");
+							//just for test
+							System.err.println(new Timestamp(System.currentTimeMillis())
+									+ ":: CacheManager received READ request for file < " + pathname
+									+ " > but does not exist in the tier < " + tiers + " >");
+						}
+					} else {
+						file = files.get(pathname);
+						file.incrFile_access_frequency();
+						file.setFile_last_access_time();
+						file.getDirectory_path().incr_access_frequency();
+						file.getDirectory_path().set_last_access_time();
+						file.getFile_format().incr_access_frequency();
+						file.getFile_format().set_fileTypeLastAccessTime();
+
+						accessFileInLRU(file);
 					}
 				} else {
-					files.get(pathname).incrFile_access_frequency();
-					files.get(pathname).setFile_last_access_time();
-					files.get(pathname).getDirectory_path().incr_access_frequency();
-					files.get(pathname).getDirectory_path().set_last_access_time();
-					files.get(pathname).getFile_format().incr_access_frequency();
-					files.get(pathname).getFile_format().set_fileTypeLastAccessTime();
-
-					filesLRU_atMEM.accessItem(files.get(pathname));
-					filesLRU_atSSD.accessItem(files.get(pathname));
-					filesLRU_atDISK.accessItem(files.get(pathname));
+					logger.error(new Timestamp(System.currentTimeMillis()) + ":: [CacheManager] - READ request: The file < "
+							+ pathname + " > does not exist!");
 				}
-			} else {
-				logger.error(new Timestamp(System.currentTimeMillis()) + ":: [CacheManager] - READ request: The file < "
-						+ pathname + " > does not exist!");
-			}
-			updates++;
-			break;
+				updates.incrementAndGet();
+				break;
 
-		case 2: 
-			logger.info(new Timestamp(System.currentTimeMillis())
-					+ ":: ==> CacheManager received WRITE request for file < " + pathname + " > in " + tiers + " .");
-			// if the file exists check the tier for update
-			if (files.get(pathname) != null) {
-				if (files.get(pathname).getCurrentPosition().getPosition() != tiers
-						&& files.get(pathname).getCurrentPosition().containsTier(tiers) == false) {
+			case 2: 
+				logger.info(new Timestamp(System.currentTimeMillis())
+						+ ":: ==> CacheManager received WRITE request for file < " + pathname + " > in " + tiers + " .");
+				// if the file exists check the tier for update
+				if (files.get(pathname) != null) {
+					if (files.get(pathname).getCurrentPosition().getPosition() != tiers
+							&& files.get(pathname).getCurrentPosition().containsTier(tiers) == false) {
 
-					if (files.get(pathname).getCurrentPosition().getPosition() == TiersMovements.NONE) {
+						if (files.get(pathname).getCurrentPosition().getPosition() == TiersMovements.NONE) {
 
-						files.get(pathname).getCurrentPosition()
-								.setPosition(files.get(pathname).getCurrentPosition().addTier(tiers));
-						files.get(pathname).setLast_modified();
-						addFileToLRU(files.get(pathname), tiers);
+							files.get(pathname).setCurrentPosition(files.get(pathname).getCurrentPosition().addTier(tiers));
+							files.get(pathname).setLast_modified();
+							addFileToLRU(files.get(pathname), tiers);
 
-						if (files.get(pathname).getSize() != filesize) {
-							files.get(pathname).setSize(filesize);
-						}
+							if (files.get(pathname).getSize() != filesize) {
+								files.get(pathname).setSize(filesize);
+							}
 
+							// keep memory size updated
+							if (tiers == TiersMovements.MEM)
+								this.memFilesSize.addAndGet(filesize);
+							else if (tiers == TiersMovements.DISK)
+								this.diskFilesSize.addAndGet(filesize);
+
+						} else {
+							logger.info(new Timestamp(System.currentTimeMillis())
+									+ ":: CacheManager received WRITE request for file < " + pathname
+									+ " > but does not exist in the tier < " + tiers + " >");
+
+							// just for test
+							System.err.println("CacheManager received WRITE request for file < " + pathname
+									+ " > but does not exist in the tier < " + tiers + " >");
+						}
+					} else {
+						// on write update maybe the size changed so keep it consistent
 						// keep memory size updated
-						if (tiers == TiersMovements.MEM)
+						if (files.get(pathname).getCurrentPosition().containsTier(TiersMovements.MEM) && tiers == TiersMovements.MEM && filesize!=files.get(pathname).getSize()) {
+							this.memFilesSize.addAndGet(-files.get(pathname).getSize());
 							this.memFilesSize.addAndGet(filesize);
-						else if (tiers == TiersMovements.DISK)
+						}
+						else if (files.get(pathname).getCurrentPosition().containsTier(TiersMovements.DISK) && tiers == TiersMovements.DISK && filesize!=files.get(pathname).getSize()) {
+							this.diskFilesSize.addAndGet(-files.get(pathname).getSize());
 							this.diskFilesSize.addAndGet(filesize);
+						}
+					
+						if (files.get(pathname).getSize() != filesize) {
+							files.get(pathname).setSize(filesize);
+						}
+						files.get(pathname).setLast_modified();
+						files.get(pathname).getDirectory_path().set_last_access_time();
+						files.get(pathname).getFile_format().set_fileTypeLastAccessTime();
 
-					} else {
-						logger.info(new Timestamp(System.currentTimeMillis())
-								+ ":: CacheManager received WRITE request for file < " + pathname
-								+ " > but does not exist in the tier < " + tiers + " >");
-
-						// just for test
-						System.err.println("CacheManager received WRITE request for file < " + pathname
-								+ " > but does not exist in the tier < " + tiers + " >");
+						accessFileInLRU(files.get(pathname));
+	
 					}
 				} else {
-					// on write update maybe the size changed so keep it consistent
-					// keep memory size updated
-					if (files.get(pathname).getCurrentPosition().containsTier(TiersMovements.MEM) && tiers == TiersMovements.MEM && filesize!=files.get(pathname).getSize()) {
-						this.memFilesSize.addAndGet(-files.get(pathname).getSize());
-						this.memFilesSize.addAndGet(filesize);
+					logger.error(new Timestamp(System.currentTimeMillis())
+							+ ":: [CacheManager] - WRITE request: The file < " + pathname + " > does not exist!");
+				}
+				updates.incrementAndGet();
+				break;
+
+			case 3:
+				logger.info(new Timestamp(System.currentTimeMillis())
+						+ ":: ==> CacheManager received DELETE request for file < " + pathname + " > from "
+						+ tiers.toString() + " with file size: " + filesize + " memFilesSize: " + this.memFilesSize.get());
+
+				// must check the tiers of the file (delete or keep it to the remaining tiers)
+				if (files.containsKey(pathname)) {
+					Integer evictionAction = evictionActions.remove(pathname);
+					fileToevict.remove(pathname); // selected but deleted without fileDeleteOrDowngrade
+					// update memory capacity size (supposed the deletion request comes only from one tier)
+					if (tiers == TiersMovements.MEM) {
+						this.memFilesSize.addAndGet(-filesize);
 					}
-					else if (files.get(pathname).getCurrentPosition().containsTier(TiersMovements.DISK) && tiers == TiersMovements.DISK && filesize!=files.get(pathname).getSize()) {
-						this.diskFilesSize.addAndGet(-files.get(pathname).getSize());
-						this.diskFilesSize.addAndGet(filesize);
+					else if(tiers == TiersMovements.DISK){
+						this.diskFilesSize.addAndGet(-filesize);
 					}
-					
-					if (files.get(pathname).getSize() != filesize) {
-						files.get(pathname).setSize(filesize);
-					}
-					files.get(pathname).setLast_modified();
-					files.get(pathname).getDirectory_path().set_last_access_time();
-					files.get(pathname).getFile_format().set_fileTypeLastAccessTime();
-
-					filesLRU_atMEM.accessItem(files.get(pathname));
-					filesLRU_atSSD.accessItem(files.get(pathname));
-					filesLRU_atDISK.accessItem(files.get(pathname));
-	
-				}
-			} else {
-				logger.error(new Timestamp(System.currentTimeMillis())
-						+ ":: [CacheManager] - WRITE request: The file < " + pathname + " > does not exist!");
-			}
-			updates++;
-			break;
+					deleteFileFromLRU(files.get(pathname), tiers);
 
-		case 3:
-			logger.info(new Timestamp(System.currentTimeMillis())
-					+ ":: ==> CacheManager received DELETE request for file < " + pathname + " > from "
-					+ tiers.toString() + " with file size: " + filesize + " memFilesSize: " + this.memFilesSize.get());
-
-			// must check the tiers of the file (delete or keep it to the remaining tiers)
-			if (files.containsKey(pathname)) {
-				// update memory capacity size (supposed the deletion request comes only from one tier)
-				if (tiers == TiersMovements.MEM) {
-					this.memFilesSize.addAndGet(-filesize);
-				}
-				else if(tiers == TiersMovements.DISK){
-					this.diskFilesSize.addAndGet(-filesize);
-				}
-				deleteFileFromLRU(files.get(pathname), tiers);
-
-				file = files.get(pathname);
-				Position tiersIncluded = new Position(tiers);
-				if (tiersIncluded.getPosition() == file.getCurrentPosition().getPosition()) { // suppose is only one
-																								// tier
-					filesDeleted.put(pathname, file);
-					files.get(pathname).setCurrentPosition(TiersMovements.NONE);
+					file = files.get(pathname);
+					Position tiersIncluded = new Position(tiers);
+					if (tiersIncluded.getPosition() == file.getCurrentPosition().getPosition()) { // suppose is only one
+																									// tier
+						file.setCurrentPosition(TiersMovements.NONE);
+						// the metadata is kept (e.g., for the CREATE of a downgrade) until the file becomes a ghost
+						retainFile(file, (evictionAction != null) ? evictionAction : Actions.NOT_EVICT.ordinal());
 					
-					logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CacheManager] - Delete request: The file < " + pathname + " > deleted successfully!");
-				} else {
-					// delete file for the requested tier and keep to others
-					// just change currentPosition of the file
-					TiersMovements newPos = file.getCurrentPosition().excludeTier(tiers);
-					if (newPos == null) { // check if is null then the file does not exist in the requested tier
-						System.err.println("The file < " + pathname + " > does not exist in the location: " + tiers);
-						logger.error(new Timestamp(System.currentTimeMillis()) + ":: [CacheManager] - Delete request: The file < " + pathname
-								+ " > does not exist in the location: " + tiers);
+						logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CacheManager] - Delete request: The file < " + pathname + " > deleted successfully!");
 					} else {
-						files.get(pathname).setCurrentPosition(newPos);
-
-						logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CacheManager] - Delete request: The file < " + pathname
-								+ " > deleted successfully from < " + tiers + " > and exists to remaining tiers <"
-								+ files.get(pathname).getCurrentPosition().toString() + " >.");
+						// delete file for the requested tier and keep to others
+						// just change currentPosition of the file
+						TiersMovements newPos = file.getCurrentPosition().excludeTier(tiers);
+						if (newPos == null) { // check if is null then the file does not exist in the requested tier
+							System.err.println("The file < " + pathname + " > does not exist in the location: " + tiers);
+							logger.error(new Timestamp(System.currentTimeMillis()) + ":: [CacheManager] - Delete request: The file < " + pathname
+									+ " > does not exist in the location: " + tiers);
+						} else {
+							files.get(pathname).setCurrentPosition(newPos);
+
+							logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CacheManager] - Delete request: The file < " + pathname
+									+ " > deleted successfully from < " + tiers + " > and exists to remaining tiers <"
+									+ files.get(pathname).getCurrentPosition().toString() + " >.");
+						}
 					}
+				} else {
+					System.err.println("The file < " + pathname + " > does not exist!");
+					logger.error(new Timestamp(System.currentTimeMillis()) + ":: [CacheManager] - Delete request: The file < " + pathname + " > does not exist!");
 				}
-			} else {
-				System.err.println("The file < " + pathname + " > does not exist!");
-				logger.error(new Timestamp(System.currentTimeMillis()) + ":: [CacheManager] - Delete request: The file < " + pathname + " > does not exist!");
-			}
 
-			break;
+				break;
 
-		default: 
-			logger.error(new Timestamp(System.currentTimeMillis()) + ":: CacheManager received a wrong cache update request!");
+			default: 
+				logger.error(new Timestamp(System.currentTimeMillis()) + ":: CacheManager received a wrong cache update request!");
+			}
 		}
+
+		if (update.ordinal() == 3) // DELETE
+			forgetRetainedFiles();
+
+		WatermarkEvictor[] evictors = this.evictors;
+		if (evictors != null && (update == CacheUpdate.CREATE || update == CacheUpdate.WRITE))
+			for (WatermarkEvictor evictor : evictors)
+				evictor.checkUsage();
 		
 		checkForUpdate();
 				
 	}
 
-	public void checkForUpdate() {
+	/*
+	 * Background eviction (cachemanager.evictor.*): one evictor per tier with
+	 * known size (memory and disk) evicts through the handler of the cache
+	 * when the tier exceeds highwatermark % of its capacity, until the tier is
+	 * at lowwatermark %
+	 */
+	public synchronized void startWatermarkEvictors(Properties options, WatermarkEvictor.Handler handler) {
+		if (this.evictors != null || !Boolean.parseBoolean(options.getProperty("cachemanager.evictor.enabled", "false").trim()))
+			return;
+
+		int highPerc = Integer.parseInt(options.getProperty("cachemanager.evictor.highwatermark", "95").trim());
+		int lowPerc = Integer.parseInt(options.getProperty("cachemanager.evictor.lowwatermark", "85").trim());
+		long interval = Long.parseLong(options.getProperty("cachemanager.evictor.interval.ms", "1000").trim());
+		this.evictors = new WatermarkEvictor[] {
+				new WatermarkEvictor(this, Tier.MEM, memFilesSize, memCapacity, highPerc, lowPerc, interval, handler),
+				new WatermarkEvictor(this, Tier.DISK, diskFilesSize, diskCapacity, highPerc, lowPerc, interval, handler) };
+		logger.info(new Timestamp(System.currentTimeMillis()) + ":: Started the watermark evictors (high: " + highPerc + "%, low: " + lowPerc + "%)");
+	}
 
-		if (updates >= maxUpdatesNum) {
-            updates = 0; // reset counter for updates
+	public GhostCache getGhosts() {
+		return ghosts;
+	}
 
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
+	public FrequencyAging getFrequencyAging() {
+		return aging;
+	}
 
-                	synchronized (lockAA) {
-						AA.updateStrategy();
-						for (Decision a : AA.getDecisions()) {
-							if (a.updates == maxDecisions) {
-								logger.info(new Timestamp(System.currentTimeMillis()) + ":: Deletion of an admission decision:" + a.toString());
-								AA.getDecisions().remove(a);
-							}
-						}
-					}
-					
-					
-					synchronized (lockRA) {
-						RA.updateStrategy();
+	public WatermarkEvictor[] getWatermarkEvictors() {
+		return evictors;
+	}
 
-						for (Decision r : RA.getDecisions()) {
-							if (r.updates == maxDecisions) {
-								logger.info(new Timestamp(System.currentTimeMillis()) + ":: Deletion of an admission decision:" + r.toString());
-								RA.getDecisions().remove(r);
-							}
-						}
-						
-					}
+	public void checkForUpdate() {
+
+		int currentUpdates = updates.get();
+		if (currentUpdates >= maxUpdatesNum && updates.compareAndSet(currentUpdates, 0)) { // reset counter for updates
+			trainer.requestRound();
+		}
+	}
+
+	/*
+	 * One training round: update the Q-values of both agents from their
+	 * decisions (rewards/penalties) and delete the decisions that reached
+	 * maxDecisions updates. Runs on the training thread of the scheduler.
+	 */
+	private void trainAgents() {
+		synchronized (lockAA) {
+			AA.updateStrategy();
+			AA.publishModel();
+			int retired = AA.getDecisions().retire(maxDecisions);
+			if (retired > 0)
+				logger.info(new Timestamp(System.currentTimeMillis()) + ":: Deletion of " + retired + " admission decisions.");
+		}
 
-					logger.info(new Timestamp(System.currentTimeMillis()) + ":: Done UpdateStrategy for Qvalues - rewards/penalties.");
+		synchronized (lockRA) {
+			RA.updateStrategy();
+			RA.publishModel();
+			int retired = RA.getDecisions().retire(maxDecisions);
+			if (retired > 0)
+				logger.info(new Timestamp(System.currentTimeMillis()) + ":: Deletion of " + retired + " replacement decisions.");
+		}
 
-                }
+		logger.info(new Timestamp(System.currentTimeMillis()) + ":: Done UpdateStrategy for Qvalues - rewards/penalties.");
+
+		if (candidates != null) {
+			for (Tier tier : Tier.values()) {
+				if (candidates[tier.ordinal()].isStale())
+					candidates[tier.ordinal()].refresh();
 			}
-            ).start();
-        }
+		}
+
+		if (System.currentTimeMillis() - lastFlush >= flushInterval) {
+			flushQTables();
+			lastFlush = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Make the persistent Q-tables durable (no effect for in-memory tables)
+	 */
+	public void flushQTables() {
+		synchronized (lockAA) {
+			AA.getModel().getTable().flush();
+		}
+		synchronized (lockRA) {
+			RA.getModel().getTable().flush();
+		}
+	}
+
+	public TrainingScheduler getTrainingScheduler() {
+		return trainer;
+	}
+
+	/**
+	 * @return the number of queued updates not yet applied (0 in synchronous mode)
+	 */
+	public long getLaggingUpdates() {
+		CacheUpdateQueue queue = this.updateQueue;
+		return (queue != null) ? queue.getLaggingUpdates() : 0;
+	}
+
+	/**
+	 * @return the number of updates dropped by the update queue (0 in synchronous mode)
+	 */
+	public long getDroppedUpdates() {
+		CacheUpdateQueue queue = this.updateQueue;
+		return (queue != null) ? queue.getDroppedUpdates() : 0;
+	}
+
+	/**
+	 * Apply all queued updates and stop the background threads. Any later
+	 * update is applied synchronously.
+	 */
+	public void shutdown() {
+		WatermarkEvictor[] evictors = this.evictors;
+		this.evictors = null;
+		if (evictors != null)
+			for (WatermarkEvictor evictor : evictors)
+				evictor.shutdown();
+		if (aging != null)
+			aging.shutdown();
+		CacheUpdateQueue queue = this.updateQueue;
+		this.updateQueue = null;
+		if (queue != null)
+			queue.shutdown();
+		trainer.shutdown();
+		flushQTables();
+	}
+
+	/**
+	 * Write the Q-tables, the metadata of files/types/directories and the LRU
+	 * lists to a versioned binary checkpoint, while the traffic continues
+	 */
+	public void checkpoint(Path path) throws IOException {
+		CacheCheckpoint.write(this, path);
+	}
+
+	/**
+	 * Replace the Q-tables and the metadata with the ones of a checkpoint.
+	 * Call it before the Cache Manager serves any request.
+	 */
+	public void restore(Path path) throws IOException {
+		CacheCheckpoint.read(this, path);
+	}
+
+	public AdmissionAgent getAdmissionAgent() {
+		return AA;
+	}
+
+	public ReplacementAgent getReplacementAgent() {
+		return RA;
+	}
+
+	public AtomicLong getMemFilesSize() {
+		return memFilesSize;
+	}
+
+	public AtomicLong getDiskFilesSize() {
+		return diskFilesSize;
 	}
 
 	public FileInfo createFile(String pathname, long size) {
+		synchronized (lockFor(pathname)) { // the files are written under the lock of their stripe
+			return createFile(pathname, size, false);
+		}
+	}
+
+	/*
+	 * A file that comes back gets the statistics of its ghost; a read miss of
+	 * an evicted file is reported to the replacement agent
+	 */
+	private FileInfo createFile(String pathname, long size, boolean forRead) {
 		if (!files.containsKey(pathname)) {
-			FileInfo file = new FileInfo(pathname, size, checkType(pathname), checkDirectory(pathname));
+			FileInfo file = new FileInfo(files, pathname, size, checkType(pathname), checkDirectory(pathname));
+			GhostCache.Ghost ghost = ghosts.take(pathname);
+			if (ghost != null) {
+				file.setFile_access_frequency(ghost.getFile_access_frequency_num());
+				file.setMisses(ghost.getMisses());
+				if (forRead && ghost.getAction() != Actions.NOT_EVICT.ordinal())
+					RA.recordMissAfterEviction(ghost.getState(), ghost.getAction());
+			}
 			files.put(file.getPathname(), file);
 	
 			return file;
@@ -462,51 +902,182 @@ public class CacheManager {
 	}
 
 	public FileInfo getFile(String pathname, long filesize) {
-		if (!files.containsKey(pathname))
-			createFile(pathname, filesize);
-		return files.get(pathname);
+		return getFile(pathname, filesize, false);
+	}
+
+	private FileInfo getFile(String pathname, long filesize, boolean forRead) {
+		synchronized (lockFor(pathname)) {
+			if (!files.containsKey(pathname))
+				createFile(pathname, filesize, forRead);
+			return files.get(pathname);
+		}
+	}
+
+	/*
+	 * Keep the metadata of a file that left its last tier: a downgrade
+	 * (DELETE, then CREATE in the lower tier) or a READ/WRITE of the file
+	 * finds it, and the oldest of the retainedCapacity files become ghosts
+	 * (the caller holds the lock of the file's stripe)
+	 */
+	private void retainFile(FileInfo file, int action) {
+		synchronized (retainedFiles) {
+			retainedFiles.remove(file); // the latest deletion counts
+			retainedFiles.put(file, action);
+		}
+	}
+
+	/*
+	 * Turn the oldest retained files that are still in no tier into ghosts
+	 * while more than retainedCapacity files are retained (called without the
+	 * lock of a stripe)
+	 */
+	private void forgetRetainedFiles() {
+		while (true) {
+			FileInfo file;
+			int action;
+			synchronized (retainedFiles) {
+				if (retainedFiles.size() <= retainedCapacity)
+					return;
+				Iterator<Map.Entry<FileInfo, Integer>> oldest = retainedFiles.entrySet().iterator();
+				Map.Entry<FileInfo, Integer> entry = oldest.next();
+				file = entry.getKey();
+				action = entry.getValue();
+				oldest.remove();
+			}
+			synchronized (lockFor(file)) {
+				if (file.getCurrentPosition().getPosition() == TiersMovements.NONE)
+					forgetFile(file, action);
+			}
+		}
+	}
+
+	/**
+	 * Empty the LRU lists and the eviction candidates of the tiers (restore of
+	 * a checkpoint); the files of the lists are marked out of them, so an old
+	 * view is never taken for a file of a tier
+	 */
+	void clearLRULists() {
+		for (FileInfo file : files.values()) {
+			file.lruTiers = 0;
+			file.lruHandles = null;
+		}
+		for (RecencyList<FileInfo> lru : filesLRU)
+			lru.clear();
+		if (candidates != null)
+			for (EvictionCandidates tierCandidates : candidates)
+				tierCandidates.clear();
+	}
+
+	/**
+	 * Rescore the eviction candidates of the tiers with the current Q-model
+	 */
+	void refreshEvictionCandidates() {
+		if (candidates != null)
+			for (EvictionCandidates tierCandidates : candidates)
+				tierCandidates.refresh();
+	}
+
+	void clearRetainedFiles() {
+		synchronized (retainedFiles) {
+			retainedFiles.clear();
+		}
+	}
+
+	/**
+	 * Drop the metadata of a file that is in no tier and keep it as a ghost,
+	 * with the eviction action of its last deletion (the caller holds the lock
+	 * of the file's stripe)
+	 */
+	void forgetFile(FileInfo file) {
+		Integer action;
+		synchronized (retainedFiles) {
+			action = retainedFiles.remove(file);
+		}
+		forgetFile(file, (action != null) ? action : Actions.NOT_EVICT.ordinal());
+	}
+
+	/**
+	 * Drop the metadata of a file that is in no tier and keep it as a ghost
+	 * (the caller holds the lock of the file's stripe)
+	 * 
+	 * @param action the eviction action of the replacement agent (NOT_EVICT if
+	 *        the file was not evicted)
+	 */
+	void forgetFile(FileInfo file, int action) {
+		if (!files.remove(file.getPathname(), file))
+			return;
+		ghosts.add(file, action);
+		releaseTypeAndDirectory(file);
 	}
 
 	public void incrFileMisses(String pathname, long filesize) {
 	
-		if (files.containsKey(pathname)) {
-			if (files.get(pathname).getSize() != filesize) { // update size
-				files.get(pathname).setSize(filesize);
+		synchronized (lockFor(pathname)) {
+			if (files.containsKey(pathname)) {
+				if (files.get(pathname).getSize() != filesize) { // update size
+					files.get(pathname).setSize(filesize);
+				}
+				files.get(pathname).incrMisses();
+				return;
 			}
-			files.get(pathname).incrMisses();
-
-		} else { // if file does not exist
-			logger.info(new Timestamp(System.currentTimeMillis()) + ":: The file with pathname << " + pathname + " >> does not exist!!!");
 		}
+		// if file does not exist
+		logger.info(new Timestamp(System.currentTimeMillis()) + ":: The file with pathname << " + pathname + " >> does not exist!!!");
+	}
+
+	/**
+	 * Returns the lock of the stripe that the given pathname belongs to
+	 * 
+	 * @param pathname
+	 * @return
+	 */
+	protected Object lockFor(String pathname) {
+		int h = pathname.hashCode();
+		return fileLocks[(h ^ (h >>> 16)) & fileLocksMask];
+	}
 
+	/**
+	 * The lock of the file's pathname, without decoding the pathname of an
+	 * off-heap row (the hash code of a file is the hash code of its pathname)
+	 */
+	protected Object lockFor(FileInfo file) {
+		int h = file.hashCode();
+		return fileLocks[(h ^ (h >>> 16)) & fileLocksMask];
 	}
 
 	public TiersMovements admission(FileInfo file, boolean forRead) {
-		State state = new State(file);
-		TiersMovements tiers = TiersMovements.valueOf(AA.act(state, this.memFilesSize, this.diskFilesSize, forRead));
+		TiersMovements tiers = TiersMovements.valueOf(AA.act(file.getStateID(), file, this.memFilesSize, this.diskFilesSize, forRead));
 		return tiers;
 	}
 
 	public FileInfo cacheReplacement(Tier tier) {
+
+		if (candidates != null) {
+			FileInfo candidate = pollCandidate(tier, file -> false);
+			if (candidate != null)
+				return candidate;
+		}
 	
-		Iterator<FileInfo> iter = getLRUIterator(tier);
+		// take a snapshot of the LRU files so that updates are not blocked while scoring
+		List<FileInfo> lruFiles = getLRUList(tier).getLRUItems(maxLRU);
+		if (batchScoring)
+			return cacheReplacementBatch(lruFiles);
 
 		int counter = 0;
 		FileInfo lruInTier = null;
 		
-		while (iter.hasNext() && counter < maxLRU) {
-			State state = new State(iter.next());
-			int action = RA.act(state, this.memFilesSize, this.diskFilesSize);
+		for (FileInfo lruFile : lruFiles) {
+			int action = RA.act(lruFile.getStateID(), lruFile, this.memFilesSize, this.diskFilesSize);
 			if (action != 0) {
 				// Store pathname & action for next downgrade action
-				this.fileToevict.put(state.fileInfo.getPathname(), action);
+				this.fileToevict.put(lruFile.getPathname(), action);
 
 				// return the file to evict or evict to lower tier
-				return state.fileInfo;
+				return lruFile;
 			}
 			// if there is not a file to evict return the LRU file in the requested tier
 			if (lruInTier == null)
-				lruInTier = state.fileInfo;
+				lruInTier = lruFile;
 
 			counter++;
 		}
@@ -521,31 +1092,174 @@ public class CacheManager {
 
 	}
 
+	/*
+	 * Same selection as cacheReplacement with the LRU files scored by one
+	 * RA.actBatch call: the state ids are gathered in an array and the Q-rows of
+	 * the states are copied in one call
+	 */
+	private FileInfo cacheReplacementBatch(List<FileInfo> lruFiles) {
+		int count = lruFiles.size();
+		if (count == 0) {
+			logger.error(new Timestamp(System.currentTimeMillis()) + ":: There is not any file to evict and return null!");
+			return null;
+		}
+
+		FileInfo[] files = lruFiles.toArray(new FileInfo[count]);
+		int[] states = new int[count];
+		for (int i = 0; i < count; i++)
+			states[i] = files[i].getStateID();
+
+		int[] selected = new int[count];
+		int victim = RA.actBatch(states, files, count, new double[count * Actions.values().length], selected);
+		if (victim < 0) {
+			// if there is not a file to evict return the LRU file in the requested tier
+			logger.info(new Timestamp(System.currentTimeMillis()) + ":: getLRUItem evicted file < " + files[0].getPathname() + " >");
+			return files[0];
+		}
+
+		FileInfo lruFile = files[victim];
+		int action = selected[victim];
+		// give a 2nd chance before evict it from MEM
+		if (action == Actions.EVICT_TO_NONE.ordinal() && lruFile.getCurrentPosition().getPosition() == TiersMovements.MEM)
+			action = Actions.EVICT_TO_LOWER_TIER.ordinal();
+		// Store pathname & action for next downgrade action
+		this.fileToevict.put(lruFile.getPathname(), action);
+		return lruFile;
+	}
+
+	/*
+	 * Same selection as repeated calls of cacheReplacement(tier), but every LRU
+	 * file is scored once: the files that the agent keeps wait in a window of
+	 * maxLRU files, and when the window is full without a file to evict its LRU
+	 * file is evicted (as cacheReplacement does). The LRU files are read in
+	 * snapshots of doubling size, so the cost is linear in the scanned files.
+	 */
+	public List<FileInfo> cacheReplacement(Tier tier, long bytesNeeded) {
+		return cacheReplacement(tier, bytesNeeded, file -> false);
+	}
+
+	public List<FileInfo> cacheReplacement(Tier tier, long bytesNeeded, Predicate<FileInfo> skip) {
+		RecencyList<FileInfo> lru = getLRUList(tier);
+		List<FileInfo> victims = new ArrayList<>();
+		ArrayDeque<FileInfo> kept = new ArrayDeque<>(maxLRU);
+		Set<FileInfo> scanned = Collections.newSetFromMap(new IdentityHashMap<>());
+		long bytes = 0;
+
+		if (candidates != null) {
+			FileInfo candidate;
+			while (bytes < bytesNeeded && (candidate = pollCandidate(tier, skip)) != null) {
+				victims.add(candidate);
+				scanned.add(candidate);
+				bytes += candidate.getSize();
+			}
+		}
+
+		int count = Math.max(maxLRU, 64);
+		int index = 0;
+		List<FileInfo> lruFiles = lru.getLRUItems(count);
+
+		while (bytes < bytesNeeded) {
+			if (index == lruFiles.size()) {
+				if (lruFiles.size() < count)
+					break; // no more files in the tier
+				count = (count > Integer.MAX_VALUE / 2) ? Integer.MAX_VALUE : count * 2;
+				lruFiles = lru.getLRUItems(count);
+				continue;
+			}
+
+			FileInfo lruFile = lruFiles.get(index++);
+			if (!scanned.add(lruFile))
+				continue; // moved in the list since the previous snapshot
+			if (skip.test(lruFile))
+				continue;
+
+			int action = RA.act(lruFile.getStateID(), lruFile, this.memFilesSize, this.diskFilesSize);
+			if (action != 0) {
+				// Store pathname & action for next downgrade action
+				this.fileToevict.put(lruFile.getPathname(), action);
+				victims.add(lruFile);
+				bytes += lruFile.getSize();
+			} else {
+				kept.addLast(lruFile);
+				if (kept.size() == maxLRU) {
+					// there is not a file to evict in the window: evict its LRU file
+					FileInfo lruInTier = kept.pollFirst();
+					victims.add(lruInTier);
+					bytes += lruInTier.getSize();
+				}
+			}
+		}
+
+		// the tier has fewer bytes than needed: evict also the kept files
+		while (bytes < bytesNeeded && !kept.isEmpty()) {
+			FileInfo lruInTier = kept.pollFirst();
+			victims.add(lruInTier);
+			bytes += lruInTier.getSize();
+		}
+
+		if (victims.isEmpty() && bytesNeeded > 0)
+			logger.error(new Timestamp(System.currentTimeMillis()) + ":: There is not any file to evict and return an empty list!");
+		return victims;
+	}
+
+	/*
+	 * Best eviction candidate of the tier that is still in the tier and that
+	 * the agent evicts at its current state. The candidates are ranked by their
+	 * greedy advantage, but the decision is the one of act (the action
+	 * selection of the learner, see ReplacementAgent.selectAction) and is
+	 * recorded as a decision of cacheReplacement; a kept candidate waits for
+	 * its next access or refresh. The files of skip are dropped from the
+	 * candidates without a decision.
+	 */
+	private FileInfo pollCandidate(Tier tier, Predicate<FileInfo> skip) {
+		EvictionCandidates tierCandidates = candidates[tier.ordinal()];
+		FileInfo file;
+		while ((file = tierCandidates.poll()) != null) {
+			if ((file.lruTiers & (1 << tier.ordinal())) == 0 || skip.test(file))
+				continue; // removed from the tier or already selected
+			int state = file.getStateID();
+			if (Double.isNaN(RA.evictionAdvantage(state)))
+				continue; // not evicted anymore: back to the candidates on its next access or refresh
+			IndexValue iv = RA.selectAction(state);
+			int action = iv.getIndex();
+			RA.recordDecision(state, file, action);
+			if (action == Actions.NOT_EVICT.ordinal() || iv.getValue() <= 0)
+				continue; // kept, as by act
+			// give a 2nd chance before evict it from MEM
+			if (action == Actions.EVICT_TO_NONE.ordinal() && file.getCurrentPosition().getPosition() == TiersMovements.MEM)
+				action = Actions.EVICT_TO_LOWER_TIER.ordinal();
+			this.fileToevict.put(file.getPathname(), action);
+			return file;
+		}
+		return null;
+	}
+
 	public boolean fileDeleteOrDowngrade(String pathname) {
 		// Delete : 0
 		// Downgrade : 1
-		if (files.containsKey(pathname)) {
+		FileInfo file = files.get(pathname);
+		if (file != null) {
 
-			State state = new State(files.get(pathname));
 			int decision;
 
-			if (this.fileToevict != null) {
-				if (this.fileToevict.containsKey(pathname)) {
-					decision = this.fileToevict.get(pathname);
-					this.fileToevict.remove(pathname);
-				}
+			Integer selected = (this.fileToevict != null) ? this.fileToevict.remove(pathname) : null;
+			if (selected != null)
+				decision = selected;
+			else
+				decision = RA.act(file.getStateID(), file, this.memFilesSize, this.diskFilesSize);
 
-				else
-					decision = RA.act(state, this.memFilesSize, this.diskFilesSize);
-			} else
-				decision = RA.act(state, this.memFilesSize, this.diskFilesSize);
+			this.evictionActions.put(pathname, decision); // recorded with the ghost of the file after its DELETE
 
 			if (decision == 2) { // if action == EVICT_TO_NONE
-				files.get(pathname).setEvict(true);
+				synchronized (lockFor(pathname)) { // the files are written under the lock of their stripe
+					file.setEvict(true);
+				}
                 				return false;
 			} else { // if action == NOT_EVICT OR EVICT_TO_LOWER_TIER
 				if (decision == 1 || decision == 0) // if action == EVICT_TO_LOWER_TIER (keep info for update create)
-					files.get(pathname).setEvict(true);
+					synchronized (lockFor(pathname)) {
+						file.setEvict(true);
+					}
                 				return true;
 			}
 		}
@@ -554,56 +1268,96 @@ public class CacheManager {
         		return true;
 	}
 
-	public DirectoryInfo checkDirectory(String pathname) {
-		DirectoryInfo dir = new DirectoryInfo(pathname);
-		if (!directories.containsKey(dir.getName_directory()))
-			directories.put(dir.getName_directory(), dir);
-		// increase count of files contains
-		directories.get(dir.getName_directory()).incrFiles();
+	/**
+	 * Forget the replacement decision of a file selected to evict that is not
+	 * evicted (e.g., accessed before its eviction, or a file of a replacement
+	 * request that the caller keeps)
+	 */
+	public void cancelEviction(String pathname) {
+		this.fileToevict.remove(pathname);
+	}
 
-		return directories.get(dir.getName_directory());
+	public DirectoryInfo checkDirectory(String pathname) {
+		DirectoryInfo newDir = new DirectoryInfo(pathname);
+		// increase count of files contains (in the map operation, so a concurrent deleteFile never drops the counted directory)
+		DirectoryInfo dir = directories.compute(newDir.getName_directory(), (name, dirInfo) -> {
+			DirectoryInfo counted = (dirInfo != null) ? dirInfo : newDir;
+			counted.incrFiles();
+			return counted;
+		});
+
+		return dir;
 	}
 
 	public TypeInfo checkType(String pathname) {
-		TypeInfo type = new TypeInfo(pathname);
-		if (!types.containsKey(type.getFile_type()))
-			types.put(type.getFile_type(), type);
-		// increase count of files contains
-		types.get(type.getFile_type()).incrFiles();
-
-		return types.get(type.getFile_type());
+		TypeInfo newType = new TypeInfo(pathname);
+		// increase count of files contains (in the map operation, so a concurrent deleteFile never drops the counted type)
+		TypeInfo type = types.compute(newType.getFile_type(), (format, typeInfo) -> {
+			TypeInfo counted = (typeInfo != null) ? typeInfo : newType;
+			counted.incrFiles();
+			return counted;
+		});
+
+		return type;
 	}
 
+	/*
+	 * The tiers of a file in the LRU lists are kept as a bitmask on the file
+	 * (TiersMovements bits, 1 << Tier ordinal), so only the lists of the
+	 * requested tiers that contain (or not) the file are updated. The callers
+	 * hold the lock of the file's stripe.
+	 */
 	public void deleteFileFromLRU(FileInfo file, TiersMovements tiers) {
-		if (tiers == TiersMovements.DISK || tiers == TiersMovements.DISK_MEM || tiers == TiersMovements.DISK_SSD
-				|| tiers == TiersMovements.DISK_SSD_MEM) {
-			filesLRU_atDISK.deleteItem(file);
-		}
-		if (tiers == TiersMovements.MEM || tiers == TiersMovements.DISK_MEM || tiers == TiersMovements.SSD_MEM
-				|| tiers == TiersMovements.DISK_SSD_MEM) {
-			filesLRU_atMEM.deleteItem(file);
-		}
-		if (tiers == TiersMovements.SSD || tiers == TiersMovements.DISK_SSD || tiers == TiersMovements.SSD_MEM
-				|| tiers == TiersMovements.DISK_SSD_MEM) {
-			filesLRU_atSSD.deleteItem(file);
+		int bits = tiers.ordinal() & file.lruTiers;
+		while (bits != 0) {
+			int tier = Integer.numberOfTrailingZeros(bits);
+			bits &= bits - 1;
+			filesLRU[tier].removeItem(file);
+			if (candidates != null)
+				candidates[tier].remove(file);
+			if (file.lruHandles != null)
+				file.lruHandles[tier] = null;
+			file.lruTiers &= ~(1 << tier);
 		}
 	}
 
 	public void addFileToLRU(FileInfo file, TiersMovements tiers) {
-		if (tiers == TiersMovements.DISK || tiers == TiersMovements.DISK_MEM || tiers == TiersMovements.DISK_SSD
-				|| tiers == TiersMovements.DISK_SSD_MEM) {
-			filesLRU_atDISK.add(file);
-		}
-		if (tiers == TiersMovements.MEM || tiers == TiersMovements.DISK_MEM || tiers == TiersMovements.SSD_MEM
-				|| tiers == TiersMovements.DISK_SSD_MEM) {
-			filesLRU_atMEM.add(file);
+		int bits = tiers.ordinal() & ~file.lruTiers;
+		while (bits != 0) {
+			int tier = Integer.numberOfTrailingZeros(bits);
+			bits &= bits - 1;
+			Object handle = filesLRU[tier].addWithHandle(file);
+			if (handle != null) {
+				if (file.lruHandles == null)
+					file.lruHandles = new Object[filesLRU.length];
+				file.lruHandles[tier] = handle;
+			}
+			file.lruTiers |= 1 << tier;
+			if (candidates != null)
+				candidates[tier].add(file);
 		}
-		if (tiers == TiersMovements.SSD || tiers == TiersMovements.DISK_SSD || tiers == TiersMovements.SSD_MEM
-				|| tiers == TiersMovements.DISK_SSD_MEM) {
-			filesLRU_atSSD.add(file);
+	}
+
+	/**
+	 * Record an access of the file in the LRU lists that contain it
+	 */
+	private void accessFileInLRU(FileInfo file) {
+		int bits = file.lruTiers;
+		Object[] handles = file.lruHandles;
+		while (bits != 0) {
+			int tier = Integer.numberOfTrailingZeros(bits);
+			bits &= bits - 1;
+			filesLRU[tier].accessHandle(file, (handles != null) ? handles[tier] : null);
+			if (candidates != null)
+				candidates[tier].add(file); // the state of the file has changed
 		}
 	}
 
+	@SafeVarargs
+	private static RecencyList<FileInfo>[] newLRUArray(RecencyList<FileInfo>... lists) {
+		return lists;
+	}
+
 	public Iterator<FileInfo> getLRUIterator(Tier tier) {
 		Iterator<FileInfo> iter = null;
 
@@ -617,29 +1371,44 @@ public class CacheManager {
 		return iter;
 	}
 
+	public RecencyList<FileInfo> getLRUList(Tier tier) {
+		return filesLRU[tier.ordinal()];
+	}
+
 	public void deleteFile(FileInfo file) {
         // find the file and delete it from hashmap table
         files.remove(file.getPathname());
 
-		// delete it from type and directory lists
+		releaseTypeAndDirectory(file);
+	}
+
+	/*
+	 * Delete the file from the type and directory lists (a type or directory
+	 * without files is removed)
+	 */
+	private void releaseTypeAndDirectory(FileInfo file) {
 		FileFormatEnum type = file.getFile_format().getFile_type();
-		if (types.get(type).getFiles() == 1) // is the only file with this type must delete the type???
-			types.remove(type);
-		else
-			types.get(type).decrFiles();
+		types.computeIfPresent(type, (format, typeInfo) -> {
+			if (typeInfo.getFiles() == 1) // is the only file with this type must delete the type???
+				return null;
+			typeInfo.decrFiles();
+			return typeInfo;
+		});
 
 		String directory = file.getDirectory_path().getName_directory();
-		if (directories.get(directory).getFiles() == 1) // is the only file in this directory must delete the directory???
-			directories.remove(directory);
-		else
-			directories.get(directory).decrFiles();
+		directories.computeIfPresent(directory, (name, dirInfo) -> {
+			if (dirInfo.getFiles() == 1) // is the only file in this directory must delete the directory???
+				return null;
+			dirInfo.decrFiles();
+			return dirInfo;
+		});
 	}
 
-	public HashMap<FileFormatEnum, TypeInfo> getTypes() {
+	public Map<FileFormatEnum, TypeInfo> getTypes() {
 		return types;
 	}
 
-	public HashMap<String, DirectoryInfo> getDirectories() {
+	public Map<String, DirectoryInfo> getDirectories() {
 		return directories;
 	}
 
@@ -649,10 +1418,10 @@ public class CacheManager {
 			System.out.println(type.getValue().toString());
 			System.out.println();
 			System.out.println("Files with type < " + type.getValue().getFile_type().name() + " >:");
-			for (Map.Entry<String, FileInfo> file : files.entrySet()) {
-				if (file.getValue().getFile_format().getFile_type().ordinal() == type.getValue().getFile_type()
+			for (FileInfo file : files.values()) {
+				if (file.getFile_format().getFile_type().ordinal() == type.getValue().getFile_type()
 						.ordinal()) {
-					System.out.println(file.getValue().toString());
+					System.out.println(file.toString());
 				}
 			}
 		}
@@ -664,9 +1433,9 @@ public class CacheManager {
 			System.out.println(dir.getValue().toString());
 			System.out.println();
 			System.out.println("Files in directory < " + dir.getValue().getName_directory() + " >:");
-			for (Map.Entry<String, FileInfo> file : files.entrySet()) {
-				if (file.getValue().getDirectory_path().getName_directory() == dir.getValue().getName_directory()) {
-					System.out.println(file.getValue().toString());
+			for (FileInfo file : files.values()) {
+				if (file.getDirectory_path().getName_directory() == dir.getValue().getName_directory()) {
+					System.out.println(file.toString());
 				}
 			}
 
@@ -675,8 +1444,8 @@ public class CacheManager {
 
 	public void printFiles() {
 		System.out.println("\n*** Files in the system ***");
-		for (Map.Entry<String, FileInfo> file : files.entrySet())
-			System.out.println(file.getValue().toString());
+		for (FileInfo file : files.values())
+			System.out.println(file.toString());
 		// System.out.println("***********************");
 	}
 
@@ -0,0 +1,250 @@
+package RL.QMatrix;
+
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+
+/**
+ * This class represents the asynchronous ingestion of cache updates. The
+ * updates are appended as compact events to bounded multi-producer ring
+ * buffers and are applied to the Cache Manager in batches by consumer threads.
+ *
+ * The events of a file always go to the same ring buffer (partition by
+ * pathname), so the updates of a file are applied in the order they arrived.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class CacheUpdateQueue {
+
+	private static final Logger logger = LoggerFactory.getLogger(CacheUpdateQueue.class);
+
+	/**
+	 * What to do with an update when its ring buffer is full
+	 */
+	public enum OverflowPolicy {
+		BLOCK, 		// wait until there is space (no update is lost)
+		DROP, 		// drop the update
+		DROP_READS 	// drop READ updates (recency only), wait for all others
+	}
+
+	private static final CacheUpdate[] UPDATES = CacheUpdate.values();
+	private static final long IDLE_PARK_NANOS = 1000000L; // 1ms
+
+	private final CacheManager CM;
+	private final Partition[] partitions;
+	private final OverflowPolicy policy;
+	private final int batchSize;
+	private final AtomicLong dropped;
+	private volatile boolean running;
+
+	/*
+	 * Parameters:
+	 * 1. CM = the cache manager that applies the updates
+	 * 2. consumers = number of ring buffers (one consumer thread each)
+	 * 3. capacity = number of events per ring buffer (rounded up to a power of two)
+	 * 4. batchSize = maximum number of events applied per batch
+	 * 5. policy = what to do when a ring buffer is full
+	 */
+	public CacheUpdateQueue(CacheManager CM, int consumers, int capacity, int batchSize, OverflowPolicy policy) {
+		this.CM = CM;
+		this.policy = policy;
+		this.batchSize = Math.max(1, batchSize);
+		this.dropped = new AtomicLong(0);
+		this.running = true;
+
+		int slots = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.partitions = new Partition[Math.max(1, consumers)];
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i] = new Partition(slots);
+			Thread consumer = new Thread(partitions[i], "CacheManager-updates-" + i);
+			consumer.setDaemon(true);
+			partitions[i].consumer = consumer;
+			consumer.start();
+		}
+	}
+
+	/**
+	 * Append an update to the ring buffer of its file
+	 *
+	 * @return true if the update was queued, false if it was dropped
+	 */
+	public boolean submit(CacheUpdate update, String pathname, long filesize, TiersMovements tiers,
+			long last_modified_date) {
+		int h = pathname.hashCode();
+		Partition partition = partitions[((h ^ (h >>> 16)) & 0x7fffffff) % partitions.length];
+
+		boolean mayDrop = policy == OverflowPolicy.DROP
+				|| (policy == OverflowPolicy.DROP_READS && update == CacheUpdate.READ);
+
+		while (!partition.offer(update, pathname, filesize, tiers, last_modified_date)) {
+			if (mayDrop || !running) {
+				dropped.incrementAndGet();
+				return false;
+			}
+			partition.wakeUp();
+			LockSupport.parkNanos(1000L);
+		}
+
+		partition.wakeUp();
+		return true;
+	}
+
+	/**
+	 * @return the number of updates that are queued but not yet applied
+	 */
+	public long getLaggingUpdates() {
+		long lagging = 0;
+		for (Partition partition : partitions)
+			lagging += partition.head.get() - partition.applied;
+		return lagging;
+	}
+
+	/**
+	 * @return the number of updates dropped because a ring buffer was full
+	 */
+	public long getDroppedUpdates() {
+		return dropped.get();
+	}
+
+	/**
+	 * Stop accepting updates, apply the queued ones and stop the consumers
+	 */
+	public void shutdown() {
+		running = false;
+		for (Partition partition : partitions) {
+			LockSupport.unpark(partition.consumer);
+			try {
+				partition.consumer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * A bounded multi-producer/single-consumer ring buffer of update events,
+	 * kept in parallel arrays. Each slot carries a sequence number: a producer
+	 * claims a slot with a CAS on the head and publishes it by advancing the
+	 * slot's sequence, the consumer releases it for the next lap.
+	 */
+	private final class Partition implements Runnable {
+
+		private final int mask;
+		private final AtomicLongArray sequences;
+		private final byte[] updates;
+		private final String[] pathnames;
+		private final long[] sizes;
+		private final byte[] tiers;
+		private final long[] lastModified;
+
+		private final AtomicLong head; // next slot to claim (producers)
+		private long tail; // next slot to consume (consumer only)
+		private volatile long applied; // number of applied events
+		private volatile boolean idle;
+		private Thread consumer;
+
+		Partition(int capacity) {
+			this.mask = capacity - 1;
+			this.sequences = new AtomicLongArray(capacity);
+			for (int i = 0; i < capacity; i++)
+				sequences.set(i, i);
+			this.updates = new byte[capacity];
+			this.pathnames = new String[capacity];
+			this.sizes = new long[capacity];
+			this.tiers = new byte[capacity];
+			this.lastModified = new long[capacity];
+			this.head = new AtomicLong(0);
+			this.tail = 0;
+			this.applied = 0;
+		}
+
+		boolean offer(CacheUpdate update, String pathname, long filesize, TiersMovements tier, long last_modified_date) {
+			long pos = head.get();
+			int index;
+			while (true) {
+				index = (int) (pos & mask);
+				long dif = sequences.get(index) - pos;
+				if (dif == 0) {
+					if (head.compareAndSet(pos, pos + 1))
+						break;
+					pos = head.get();
+				} else if (dif < 0) {
+					return false; // full
+				} else {
+					pos = head.get();
+				}
+			}
+
+			updates[index] = (byte) update.ordinal();
+			pathnames[index] = pathname;
+			sizes[index] = filesize;
+			tiers[index] = (byte) tier.ordinal();
+			lastModified[index] = last_modified_date;
+			sequences.set(index, pos + 1); // publish
+			return true;
+		}
+
+		void wakeUp() {
+			if (idle)
+				LockSupport.unpark(consumer);
+		}
+
+		/**
+		 * Apply up to batchSize published events
+		 *
+		 * @return the number of applied events
+		 */
+		int drain() {
+			int count = 0;
+			while (count < batchSize) {
+				int index = (int) (tail & mask);
+				if (sequences.get(index) != tail + 1)
+					break; // not published yet
+
+				CacheUpdate update = UPDATES[updates[index]];
+				String pathname = pathnames[index];
+				long filesize = sizes[index];
+				TiersMovements tier = TiersMovements.valueOf(tiers[index]);
+				long last_modified_date = lastModified[index];
+
+				pathnames[index] = null;
+				sequences.set(index, tail + mask + 1); // release the slot for the next lap
+				tail++;
+
+				try {
+					CM.applyCacheUpdate(update, pathname, filesize, tier, last_modified_date);
+				} catch (RuntimeException e) {
+					logger.error(new Timestamp(System.currentTimeMillis()) + ":: [CM] - Failed to apply " + update
+							+ " update for file < " + pathname + " >: " + e);
+				}
+				count++;
+			}
+			if (count > 0)
+				applied += count;
+			return count;
+		}
+
+		@Override
+		public void run() {
+			while (running) {
+				if (drain() == 0) {
+					idle = true;
+					if (sequences.get((int) (tail & mask)) != tail + 1)
+						LockSupport.parkNanos(IDLE_PARK_NANOS);
+					idle = false;
+				}
+			}
+
+			// apply what was queued before the shutdown
+			while (drain() > 0)
+				;
+		}
+	}
+}
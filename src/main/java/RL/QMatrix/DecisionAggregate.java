@@ -0,0 +1,99 @@
+package RL.QMatrix;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class represents the decisions of an agent aggregated per (state,
+ * action) pair, for the aggregated training mode. A decision only increases
+ * the count of its pair; a training round applies one batched Q-learning
+ * update per touched pair, so the cost of a round depends on the number of
+ * distinct pairs instead of the number of requests.
+ *
+ * The reward of a decision depends only on its action and the access
+ * frequency of the file, which is part of the state (bits 6-7), so all the
+ * decisions of a pair share the same reward. k decisions replayed n times
+ * each move Q towards the same target as a single update with
+ * alpha_eff = 1 - (1 - alpha)^(k * n).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class DecisionAggregate {
+
+	/**
+	 * Computes the reward of the decisions of a (state, action) pair
+	 */
+	public interface Reward {
+		double reward(int stateId, int action);
+	}
+
+	private final int actions;
+	private final int replays; // times a decision counts (maxDecisions of the replay mode)
+	private final AtomicIntegerArray counts; // decisions per (state, action) since the last round
+	private final AtomicLongArray touched; // bitmap of the pairs with count > 0
+
+	public DecisionAggregate(int actions, int replays) {
+		this.actions = actions;
+		this.replays = Math.max(1, replays);
+		this.counts = new AtomicIntegerArray(State.STATE_COUNT * actions);
+		this.touched = new AtomicLongArray((State.STATE_COUNT * actions + 63) >>> 6);
+	}
+
+	public void add(int stateId, int action) {
+		add(stateId, action, 1);
+	}
+
+	/**
+	 * Count k decisions of the (state, action) pair
+	 */
+	public void add(int stateId, int action, int k) {
+		int pair = stateId * actions + action;
+		if (counts.getAndAdd(pair, k) == 0)
+			touched.getAndAccumulate(pair >>> 6, 1L << pair, (word, bit) -> word | bit);
+	}
+
+	/**
+	 * Apply one batched update to each touched (state, action) pair and reset
+	 * the counts
+	 *
+	 * @return the number of updated pairs
+	 */
+	public int apply(QModelCache model, Set<Integer> possibleActions, Reward reward) {
+		double gamma = model.getGamma();
+		int pairs = 0;
+
+		for (int w = 0; w < touched.length(); w++) {
+			if (touched.get(w) == 0)
+				continue;
+			long word = touched.getAndSet(w, 0);
+			while (word != 0) {
+				int pair = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+
+				int k = counts.getAndSet(pair, 0);
+				if (k == 0)
+					continue;
+
+				int stateId = pair / actions;
+				int action = pair % actions;
+				double oldQ = model.getQ(stateId, action);
+				double alpha = model.getAlpha(stateId, action);
+				double maxQ = model.actionWithMaxQAtState(stateId, possibleActions).getValue();
+				double alphaEff = 1.0 - Math.pow(1.0 - alpha, (double) k * replays);
+
+				model.setQ(stateId, action, oldQ + alphaEff * (reward.reward(stateId, action) + gamma * maxQ - oldQ));
+				pairs++;
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * @return the access frequency bucket of the file of a state
+	 */
+	public static int fileAccessFrequency(int stateId) {
+		return (stateId >>> 6) & 3;
+	}
+}
@@ -0,0 +1,236 @@
+package RL.QMatrix;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class represents the decisions of an agent in a fixed-capacity ring
+ * buffer of primitive records (old state, new state, action, reward, updates,
+ * time). Appending is lock-free and O(1); when the buffer is full the oldest
+ * decision is overwritten.
+ *
+ * The decisions are replayed by one thread at a time (the training round).
+ * Since every replay updates all the live decisions, the older a decision the
+ * more updates it has, so the decisions that reached the maximum number of
+ * updates are always the oldest ones and are retired by advancing the tail.
+ *
+ * A slot is hidden (published 0) before its decision is overwritten, and
+ * readers check the published sequence again after reading the fields. The
+ * replay stores the reward of a decision only after claiming its slot with a
+ * CAS (published -(sequence + 1)), and a writer waits for the claim to end
+ * before hiding the slot, so a reward is never stored on a newer decision.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class DecisionLog {
+
+	public static final int DEFAULT_CAPACITY = 65536;
+
+	/**
+	 * Computes the reward of a replayed decision (and updates the agent)
+	 */
+	public interface Replay {
+		double reward(int oldState, int newState, FileInfo fileObject, int action);
+	}
+
+	private final int mask;
+	private final AtomicLongArray published; // sequence + 1 of the decision in each slot, 0 = empty, negative = claimed by the replay
+	private final int[] oldStates;
+	private final int[] newStates;
+	private final int[] actions;
+	private final int[] updates;
+	private final double[] rewards;
+	private final long[] times;
+	private final FileInfo[] fileObjects; // to compute the reward with the current access frequency
+
+	private final AtomicLong head; // sequence of the next decision
+	private volatile long tail; // sequence of the oldest decision not retired
+
+	public DecisionLog(int capacity) {
+		int slots = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.mask = slots - 1;
+		this.published = new AtomicLongArray(slots);
+		this.oldStates = new int[slots];
+		this.newStates = new int[slots];
+		this.actions = new int[slots];
+		this.updates = new int[slots];
+		this.rewards = new double[slots];
+		this.times = new long[slots];
+		this.fileObjects = new FileInfo[slots];
+		this.head = new AtomicLong(0);
+		this.tail = 0;
+	}
+
+	public void add(int oldState, int newState, FileInfo fileObject, int action, double reward) {
+		long seq = head.getAndIncrement();
+		int index = (int) (seq & mask);
+
+		hide(index);
+		oldStates[index] = oldState;
+		newStates[index] = newState;
+		fileObjects[index] = fileObject;
+		actions[index] = action;
+		rewards[index] = reward;
+		updates[index] = 0;
+		times[index] = System.currentTimeMillis();
+		published.set(index, seq + 1);
+	}
+
+	/**
+	 * Add count decisions with reward 0 and the same old and new state (the
+	 * decisions of a batch of files) with one sequence reservation
+	 */
+	public void addAll(int[] states, FileInfo[] fileObjects, int[] actions, int count) {
+		long first = head.getAndAdd(count);
+		long time = System.currentTimeMillis();
+
+		for (int i = 0; i < count; i++) {
+			long seq = first + i;
+			int index = (int) (seq & mask);
+
+			hide(index);
+			oldStates[index] = states[i];
+			newStates[index] = states[i];
+			this.fileObjects[index] = fileObjects[i];
+			this.actions[index] = actions[i];
+			rewards[index] = 0;
+			updates[index] = 0;
+			times[index] = time;
+			published.set(index, seq + 1);
+		}
+	}
+
+	/*
+	 * Hide the overwritten decision of the slot while writing (after the
+	 * replay stores its reward, if it claimed the slot)
+	 */
+	private void hide(int index) {
+		while (true) {
+			long current = published.get(index);
+			if (current >= 0 && published.compareAndSet(index, current, 0))
+				break;
+			Thread.onSpinWait();
+		}
+		VarHandle.storeStoreFence(); // the fields are not written before the slot is hidden
+	}
+
+	/**
+	 * Replay the live decisions, store the computed reward and increase their
+	 * updates
+	 *
+	 * @param newestFirst replay from the newest to the oldest decision
+	 * @return the number of replayed decisions
+	 */
+	public int replay(boolean newestFirst, Replay replay) {
+		long last = head.get();
+		long first = Math.max(tail, last - mask - 1);
+		int count = 0;
+
+		for (long i = 0; i < last - first; i++) {
+			long seq = newestFirst ? last - 1 - i : first + i;
+			int index = (int) (seq & mask);
+			if (published.get(index) != seq + 1)
+				continue; // not written yet or overwritten
+
+			int oldState = oldStates[index];
+			int newState = newStates[index];
+			FileInfo fileObject = fileObjects[index];
+			int action = actions[index];
+			VarHandle.loadLoadFence(); // the fields are read before the check
+			if (published.get(index) != seq + 1)
+				continue; // overwritten while reading
+
+			double reward = replay.reward(oldState, newState, fileObject, action);
+			if (published.compareAndSet(index, seq + 1, -(seq + 1))) { // not overwritten: a writer waits for the store
+				rewards[index] = reward;
+				updates[index]++;
+				published.set(index, seq + 1);
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Retire the oldest decisions with at least maxUpdates updates
+	 *
+	 * @return the number of retired decisions (the overwritten ones are not counted)
+	 */
+	public int retire(int maxUpdates) {
+		long last = head.get();
+		long seq = Math.max(tail, last - mask - 1);
+		int retired = 0;
+
+		while (seq < last) {
+			int index = (int) (seq & mask);
+			long published_seq = published.get(index);
+			if (published_seq < seq + 1)
+				break; // still being written
+			if (published_seq == seq + 1) {
+				if (updates[index] < maxUpdates)
+					break;
+				retired++;
+			}
+			seq++;
+		}
+		tail = seq;
+		return retired;
+	}
+
+	/**
+	 * @return the number of live decisions (at most the capacity)
+	 */
+	public int size() {
+		return (int) Math.min(head.get() - tail, mask + 1);
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @return the number of decisions that were ever added
+	 */
+	public long getAdded() {
+		return head.get();
+	}
+
+	public void clear() {
+		tail = head.get();
+	}
+
+	/**
+	 * @return a copy of the live decisions from the oldest to the newest
+	 */
+	public List<Decision> toList(Set<Integer> possibleActions) {
+		long last = head.get();
+		long first = Math.max(tail, last - mask - 1);
+		List<Decision> list = new ArrayList<>((int) (last - first));
+
+		for (long seq = first; seq < last; seq++) {
+			int index = (int) (seq & mask);
+			Decision decision;
+			long current;
+			do {
+				while ((current = published.get(index)) == -(seq + 1))
+					Thread.onSpinWait(); // the replay is storing the reward
+				if (current != seq + 1)
+					break;
+				decision = new Decision(oldStates[index], newStates[index], fileObjects[index], actions[index],
+						rewards[index], possibleActions);
+				decision.updates = updates[index];
+				decision.time = times[index];
+				VarHandle.loadLoadFence(); // the fields are read before the check
+				current = published.get(index);
+				if (current == seq + 1)
+					list.add(decision);
+			} while (current == -(seq + 1));
+		}
+		return list;
+	}
+}
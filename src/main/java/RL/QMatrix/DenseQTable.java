@@ -0,0 +1,135 @@
+package RL.QMatrix;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * This class represents a Q-table that keeps all the states in flat primitive
+ * arrays indexed directly by state id (row = stateId * actions), with a
+ * bitmap of the visited states. There is no boxing, hashing or allocation per
+ * state; the price is that the arrays cover all State.STATE_COUNT states up
+ * front (8 bytes per state and action for the Q-values and as much for alpha).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class DenseQTable implements QTable {
+
+	private final double[] Qvalues;
+	private final double[] alphaMatrix;
+	private final AtomicLongArray visited;
+	private final int actions;
+	private volatile int visitedCount;
+
+	public DenseQTable(int actions) {
+		this.actions = actions;
+		this.Qvalues = new double[State.STATE_COUNT * actions];
+		this.alphaMatrix = new double[State.STATE_COUNT * actions];
+		this.visited = new AtomicLongArray(State.STATE_COUNT >>> 6);
+		this.visitedCount = 0;
+	}
+
+	@Override
+	public boolean isVisited(int stateId) {
+		return (visited.get(stateId >>> 6) & (1L << stateId)) != 0;
+	}
+
+	@Override
+	public synchronized void initialState(int stateId, double[] initialQs, double alpha) {
+		if (isVisited(stateId))
+			return;
+
+		int row = stateId * actions;
+		for (int a = 0; a < actions; a++) {
+			Qvalues[row + a] = initialQs[a];
+			alphaMatrix[row + a] = alpha;
+		}
+
+		// publish the state after its row is written
+		visited.set(stateId >>> 6, visited.get(stateId >>> 6) | (1L << stateId));
+		visitedCount++;
+	}
+
+	@Override
+	public double getQ(int stateId, int actionId) {
+		return Qvalues[stateId * actions + actionId];
+	}
+
+	@Override
+	public void setQ(int stateId, int actionId, double Qij) {
+		Qvalues[stateId * actions + actionId] = Qij;
+	}
+
+	@Override
+	public double getAlpha(int stateId, int actionId) {
+		return alphaMatrix[stateId * actions + actionId];
+	}
+
+	@Override
+	public void setAlpha(int stateId, int actionId, double alpha) {
+		alphaMatrix[stateId * actions + actionId] = alpha;
+	}
+
+	@Override
+	public void fillAlpha(double alpha) {
+		forEachVisited(stateId -> {
+			int row = stateId * actions;
+			for (int a = 0; a < actions; a++)
+				alphaMatrix[row + a] = alpha;
+		});
+	}
+
+	@Override
+	public void fillQ(double Qij) {
+		forEachVisited(stateId -> {
+			int row = stateId * actions;
+			for (int a = 0; a < actions; a++)
+				Qvalues[row + a] = Qij;
+		});
+	}
+
+	@Override
+	public double[] getQs(int stateId) {
+		if (!isVisited(stateId))
+			return null;
+
+		double[] actionValues = new double[actions];
+		System.arraycopy(Qvalues, stateId * actions, actionValues, 0, actions);
+		return actionValues;
+	}
+
+	@Override
+	public void getQRows(int[] stateIds, int count, double[] rows) {
+		for (int i = 0; i < count; i++)
+			System.arraycopy(Qvalues, stateIds[i] * actions, rows, i * actions, actions);
+	}
+
+	@Override
+	public void forEachVisited(IntConsumer action) {
+		for (int w = 0; w < visited.length(); w++) {
+			long word = visited.get(w);
+			while (word != 0) {
+				int bit = Long.numberOfTrailingZeros(word);
+				action.accept((w << 6) + bit);
+				word &= word - 1;
+			}
+		}
+	}
+
+	@Override
+	public int getVisitedCount() {
+		return visitedCount;
+	}
+
+	@Override
+	public int getActionCount() {
+		return actions;
+	}
+
+	/**
+	 * @return the Q-values of all the states (row = stateId * actions)
+	 */
+	public double[] getQvalues() {
+		return Qvalues;
+	}
+}
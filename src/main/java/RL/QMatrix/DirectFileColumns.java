@@ -0,0 +1,362 @@
+package RL.QMatrix;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * This class represents the columns of a FileTable outside the heap: every
+ * file is a record of RECORD_SIZE bytes in direct buffers of 2^pageBits
+ * records, and its pathname is a chunk of a SlabAllocator (Latin-1 bytes, or
+ * UTF-16 chars if the pathname needs them). The types and directories are
+ * kept by number, in small registries of the heap. With a directory, the
+ * buffers are files of the directory mapped in memory, so the operating
+ * system can page the metadata out; they are not a persistent store (the
+ * files of an older run are deleted, a restart restores a checkpoint).
+ *
+ * A record is read and written with absolute gets and puts of its buffer, and
+ * the pathname of a record is one long (the address, length and coder of its
+ * chunk), so a reader never sees a chunk with the length of another one.
+ *
+ * @author Kakoulli Elena
+ */
+
+class DirectFileColumns extends FileColumns {
+
+	static final int RECORD_SIZE = 64;
+	private static final int RECORD_BITS = 6;
+
+	// offsets in a record
+	private static final int SIZE = 0;
+	private static final int LAST_MODIFIED = 8;
+	private static final int LAST_ACCESS = 16;
+	private static final int FREQUENCY = 24;
+	private static final int MISSES = 28;
+	private static final int STATE_BITS = 32;
+	private static final int HASH = 36;
+	private static final int TYPE = 40;
+	private static final int DIRECTORY = 44;
+	private static final int PATHNAME = 48; // chunk address << 18 | (bytes + 1) << 1 | coder (0 = no pathname)
+	private static final int POSITION = 56;
+	private static final int EVICT = 57;
+
+	private static final int LENGTH_BITS = 17;
+	private static final int LATIN1 = 0;
+	private static final int UTF16 = 1;
+
+	/*
+	 * Numbers of the objects of a column (0 = null)
+	 */
+	private static final class Registry<T> {
+		private final Map<T, Integer> numbers = new IdentityHashMap<>();
+		private volatile Object[] values = new Object[16];
+
+		synchronized int number(T value) {
+			if (value == null)
+				return 0;
+			Integer number = numbers.get(value);
+			if (number == null) {
+				number = numbers.size() + 1;
+				// the value is stored before the array is (re)published by the
+				// volatile write, so a reader of the number (lock-free, in value)
+				// never finds an empty slot
+				Object[] current = values;
+				if (number == current.length)
+					current = Arrays.copyOf(current, current.length * 2);
+				current[number] = value;
+				values = current;
+				numbers.put(value, number);
+			}
+			return number;
+		}
+
+		@SuppressWarnings("unchecked")
+		T value(int number) {
+			Object[] current = values;
+			return (number < current.length) ? (T) current[number] : null;
+		}
+
+		synchronized void clear() {
+			numbers.clear();
+			values = new Object[16];
+		}
+	}
+
+	private final Path dir; // null for direct buffers
+	private final String name;
+	private volatile ByteBuffer[] pages;
+	private final SlabAllocator pathnames;
+	private final Registry<TypeInfo> types;
+	private final Registry<DirectoryInfo> directories;
+
+	/**
+	 * @param dir the directory of the mapped files, or null for direct buffers
+	 * @param name the prefix of the mapped files
+	 */
+	DirectFileColumns(int pageBits, Path dir, String name) throws IOException {
+		super(pageBits);
+		this.dir = dir;
+		this.name = name;
+		this.pages = new ByteBuffer[1];
+		this.types = new Registry<>();
+		this.directories = new Registry<>();
+		if (dir != null) {
+			Files.createDirectories(dir);
+			try (DirectoryStream<Path> stale = Files.newDirectoryStream(dir, name + "-*")) {
+				for (Path path : stale)
+					Files.delete(path);
+			}
+		}
+		this.pathnames = new SlabAllocator(region -> buffer("pathnames-" + region, SlabAllocator.REGION_SIZE));
+	}
+
+	private ByteBuffer buffer(String file, int bytes) {
+		if (dir == null)
+			return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		try (FileChannel channel = FileChannel.open(dir.resolve(name + "-" + file), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes).order(ByteOrder.nativeOrder());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	void addPage(int page) {
+		ByteBuffer[] current = pages;
+		if (page >= current.length)
+			current = Arrays.copyOf(current, Math.max(current.length * 2, page + 1));
+		current[page] = buffer("rows-" + page, RECORD_SIZE << pageBits);
+		pages = current;
+	}
+
+	@Override
+	void clear() {
+		types.clear();
+		directories.clear();
+	}
+
+	private ByteBuffer page(int id) {
+		return pages[id >>> pageBits];
+	}
+
+	private int record(int id) {
+		return (id & pageMask) << RECORD_BITS;
+	}
+
+	/*
+	 * PATHNAMES
+	 */
+
+	@Override
+	String pathname(int id) {
+		long pathname = page(id).getLong(record(id) + PATHNAME);
+		if (pathname == 0)
+			return null;
+		ByteBuffer chunk = pathnames.buffer(address(pathname));
+		int offset = SlabAllocator.offset(address(pathname));
+		int bytes = bytes(pathname);
+		if ((pathname & 1) == LATIN1) {
+			byte[] latin1 = new byte[bytes];
+			chunk.get(offset, latin1);
+			return new String(latin1, StandardCharsets.ISO_8859_1);
+		}
+		char[] chars = new char[bytes / 2];
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = chunk.getChar(offset + 2 * i);
+		return new String(chars);
+	}
+
+	/**
+	 * The chunk of the old pathname is freed, so the caller must be the only
+	 * user of the row (e.g., a new file or a reused id)
+	 */
+	@Override
+	void setPathname(int id, String pathname) {
+		ByteBuffer page = page(id);
+		int record = record(id);
+		long old = page.getLong(record + PATHNAME);
+
+		long value = 0;
+		if (pathname != null) {
+			int coder = LATIN1;
+			for (int i = 0; i < pathname.length() && coder == LATIN1; i++)
+				if (pathname.charAt(i) > 0xFF)
+					coder = UTF16;
+			int bytes = (coder == LATIN1) ? pathname.length() : 2 * pathname.length();
+			long address = pathnames.allocate(bytes);
+			ByteBuffer chunk = pathnames.buffer(address);
+			int offset = SlabAllocator.offset(address);
+			for (int i = 0; i < pathname.length(); i++) {
+				if (coder == LATIN1)
+					chunk.put(offset + i, (byte) pathname.charAt(i));
+				else
+					chunk.putChar(offset + 2 * i, pathname.charAt(i));
+			}
+			value = (address << (LENGTH_BITS + 1)) | ((long) (bytes + 1) << 1) | coder;
+		}
+		page.putInt(record + HASH, (pathname != null) ? pathname.hashCode() : 0);
+		page.putLong(record + PATHNAME, value);
+
+		if (old != 0)
+			pathnames.free(address(old), bytes(old));
+	}
+
+	@Override
+	int hash(int id) {
+		return page(id).getInt(record(id) + HASH);
+	}
+
+	/**
+	 * Compare the chunk of the row with the pathname without decoding it
+	 */
+	@Override
+	boolean matches(int id, String pathname, int hash) {
+		ByteBuffer page = page(id);
+		int record = record(id);
+		if (page.getInt(record + HASH) != hash)
+			return false;
+		long value = page.getLong(record + PATHNAME);
+		if (value == 0)
+			return false;
+		ByteBuffer chunk = pathnames.buffer(address(value));
+		int offset = SlabAllocator.offset(address(value));
+		int bytes = bytes(value);
+		if ((value & 1) == LATIN1) {
+			if (bytes != pathname.length())
+				return false;
+			for (int i = 0; i < bytes; i++)
+				if ((chunk.get(offset + i) & 0xFF) != pathname.charAt(i))
+					return false;
+		} else {
+			if (bytes != 2 * pathname.length())
+				return false;
+			for (int i = 0; i < pathname.length(); i++)
+				if (chunk.getChar(offset + 2 * i) != pathname.charAt(i))
+					return false;
+		}
+		return true;
+	}
+
+	private static long address(long pathname) {
+		return pathname >>> (LENGTH_BITS + 1);
+	}
+
+	private static int bytes(long pathname) {
+		return (int) ((pathname >>> 1) & ((1 << LENGTH_BITS) - 1)) - 1;
+	}
+
+	/*
+	 * COLUMNS
+	 */
+
+	@Override
+	long size(int id) {
+		return page(id).getLong(record(id) + SIZE);
+	}
+
+	@Override
+	void setSize(int id, long size) {
+		page(id).putLong(record(id) + SIZE, size);
+	}
+
+	@Override
+	long lastModified(int id) {
+		return page(id).getLong(record(id) + LAST_MODIFIED);
+	}
+
+	@Override
+	void setLastModified(int id, long date) {
+		page(id).putLong(record(id) + LAST_MODIFIED, date);
+	}
+
+	@Override
+	long lastAccess(int id) {
+		return page(id).getLong(record(id) + LAST_ACCESS);
+	}
+
+	@Override
+	void setLastAccess(int id, long date) {
+		page(id).putLong(record(id) + LAST_ACCESS, date);
+	}
+
+	@Override
+	int frequency(int id) {
+		return page(id).getInt(record(id) + FREQUENCY);
+	}
+
+	@Override
+	void setFrequency(int id, int frequency) {
+		page(id).putInt(record(id) + FREQUENCY, frequency);
+	}
+
+	@Override
+	int misses(int id) {
+		return page(id).getInt(record(id) + MISSES);
+	}
+
+	@Override
+	void setMisses(int id, int misses) {
+		page(id).putInt(record(id) + MISSES, misses);
+	}
+
+	@Override
+	int stateBits(int id) {
+		return page(id).getInt(record(id) + STATE_BITS);
+	}
+
+	@Override
+	void setStateBits(int id, int stateBits) {
+		page(id).putInt(record(id) + STATE_BITS, stateBits);
+	}
+
+	@Override
+	int position(int id) {
+		return page(id).get(record(id) + POSITION);
+	}
+
+	@Override
+	void setPosition(int id, int position) {
+		page(id).put(record(id) + POSITION, (byte) position);
+	}
+
+	@Override
+	boolean evict(int id) {
+		return page(id).get(record(id) + EVICT) != 0;
+	}
+
+	@Override
+	void setEvict(int id, boolean evict) {
+		page(id).put(record(id) + EVICT, (byte) (evict ? 1 : 0));
+	}
+
+	@Override
+	TypeInfo type(int id) {
+		return types.value(page(id).getInt(record(id) + TYPE));
+	}
+
+	@Override
+	void setType(int id, TypeInfo type) {
+		page(id).putInt(record(id) + TYPE, types.number(type));
+	}
+
+	@Override
+	DirectoryInfo directory(int id) {
+		return directories.value(page(id).getInt(record(id) + DIRECTORY));
+	}
+
+	@Override
+	void setDirectory(int id, DirectoryInfo directory) {
+		page(id).putInt(record(id) + DIRECTORY, directories.number(directory));
+	}
+}
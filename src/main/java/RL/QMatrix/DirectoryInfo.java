@@ -30,6 +30,7 @@ public class DirectoryInfo {
 	protected int access_frequency;
 	protected String name_directory; 
 	protected int files = 0; //keep the count of files
+	protected volatile int stateBits; // directory characteristics at their position in the state id (bits 14-17)
 	
 	/**
 	 * 	CONSTRUCTORS
@@ -50,6 +51,7 @@ public class DirectoryInfo {
 		this.directory_last_access_time = directory_last_access_time; 
 		this.directory_access_frequency = directory_access_frequency;
 		this.files = 0;
+		updateStateBits();
 	}
 	
 	/**
@@ -71,6 +73,7 @@ public class DirectoryInfo {
 		this.directory_last_access_time = DirectoryLastAccessTimeEnum.RECENT;
 		this.directory_access_frequency = DirectoryAccessFrequencyEnum.NOT_FAMOUS;
 		this.files = 0;
+		updateStateBits();
 	}
 
 	
@@ -83,7 +86,7 @@ public class DirectoryInfo {
 	 * @param directory_last_access_time
 	 */
 	
-	public void set_last_access_time() {
+	public synchronized void set_last_access_time() {
 		long diff = System.currentTimeMillis() - this.last_access_time;
 		
 		//update
@@ -100,6 +103,7 @@ public class DirectoryInfo {
 		}
 		else
 			this.directory_last_access_time = DirectoryLastAccessTimeEnum.OLD;
+		updateStateBits();
 	}
 	
 	public long get_last_access_time() {
@@ -108,6 +112,7 @@ public class DirectoryInfo {
 	
 	public void setDirectory_last_access_time(DirectoryLastAccessTimeEnum directory_last_access_time) {
 		this.directory_last_access_time = directory_last_access_time;
+		updateStateBits();
 	}
 	
 	public DirectoryLastAccessTimeEnum getDirectory_last_access_time() {
@@ -125,6 +130,7 @@ public class DirectoryInfo {
 			this.directory_access_frequency = DirectoryAccessFrequencyEnum.LESS_FAMOUS;
 		else		
 			this.directory_access_frequency = DirectoryAccessFrequencyEnum.NOT_FAMOUS;
+		updateStateBits();
 	}	
 	
 	public int get_access_frequency() {
@@ -137,6 +143,7 @@ public class DirectoryInfo {
 	 */
 	public void setDirectory_access_frequency(DirectoryAccessFrequencyEnum directory_access_frequency) {
 		this.directory_access_frequency = directory_access_frequency;
+		updateStateBits();
 	}
 	
 	/**
@@ -167,21 +174,33 @@ public class DirectoryInfo {
 		return this.files;
 	}
 	
-	public void incrFiles() {
+	public synchronized void incrFiles() {
 		this.files++;
 	}
 	
-	public void decrFiles() {
+	public synchronized void decrFiles() {
 		this.files--;
 	}
 	
-	public void incr_access_frequency() {
+	public synchronized void incr_access_frequency() {
 		this.access_frequency++;
 		
 		//update file access frequency
 		set_access_frequency(this.access_frequency);
 	}
+
+	/**
+	 * Halve the access frequency (aging, see FrequencyAging)
+	 */
+	public synchronized void halve_access_frequency() {
+		set_access_frequency(this.access_frequency >>> 1);
+	}
 	
+	private void updateStateBits() {
+		this.stateBits = (this.directory_last_access_time.ordinal() << State.DIR_LAST_ACCESS_SHIFT)
+				| (this.directory_access_frequency.ordinal() << State.DIR_FREQUENCY_SHIFT);
+	}
+
 	@Override
 	public String toString() {
 		return "\nDirectory name = " + name_directory + 
@@ -0,0 +1,103 @@
+package RL.QMatrix;
+
+/**
+ * This class represents the storage of the columns of a FileTable: the
+ * metadata of the file with the given id, in pages of 2^pageBits files that
+ * the table adds as it allocates ids (see HeapFileColumns and
+ * DirectFileColumns).
+ *
+ * @author Kakoulli Elena
+ */
+
+abstract class FileColumns {
+
+	protected final int pageBits;
+	protected final int pageMask;
+
+	protected FileColumns(int pageBits) {
+		this.pageBits = pageBits;
+		this.pageMask = (1 << pageBits) - 1;
+	}
+
+	/**
+	 * Add the storage of the ids of the page (called under the lock of the
+	 * rows of the table, in page order)
+	 */
+	abstract void addPage(int page);
+
+	/**
+	 * Forget the types and directories of the rows (all the rows are free)
+	 */
+	abstract void clear();
+
+	abstract String pathname(int id);
+
+	abstract void setPathname(int id, String pathname);
+
+	/**
+	 * @return the hash code of the pathname
+	 */
+	abstract int hash(int id);
+
+	/**
+	 * @return true if the row is the pathname with the given hash code
+	 */
+	abstract boolean matches(int id, String pathname, int hash);
+
+	abstract long size(int id);
+
+	abstract void setSize(int id, long size);
+
+	abstract long lastModified(int id);
+
+	abstract void setLastModified(int id, long date);
+
+	abstract long lastAccess(int id);
+
+	abstract void setLastAccess(int id, long date);
+
+	abstract int frequency(int id);
+
+	abstract void setFrequency(int id, int frequency);
+
+	abstract int misses(int id);
+
+	abstract void setMisses(int id, int misses);
+
+	abstract int stateBits(int id);
+
+	abstract void setStateBits(int id, int stateBits);
+
+	abstract int position(int id);
+
+	abstract void setPosition(int id, int position);
+
+	abstract boolean evict(int id);
+
+	abstract void setEvict(int id, boolean evict);
+
+	abstract TypeInfo type(int id);
+
+	abstract void setType(int id, TypeInfo type);
+
+	abstract DirectoryInfo directory(int id);
+
+	abstract void setDirectory(int id, DirectoryInfo directory);
+
+	/**
+	 * Copy a row (from another storage) to a row of this storage
+	 */
+	void copyRow(FileColumns from, int fromId, int toId) {
+		setPathname(toId, from.pathname(fromId));
+		setSize(toId, from.size(fromId));
+		setLastModified(toId, from.lastModified(fromId));
+		setLastAccess(toId, from.lastAccess(fromId));
+		setFrequency(toId, from.frequency(fromId));
+		setMisses(toId, from.misses(fromId));
+		setStateBits(toId, from.stateBits(fromId));
+		setPosition(toId, from.position(fromId));
+		setEvict(toId, from.evict(fromId));
+		setType(toId, from.type(fromId));
+		setDirectory(toId, from.directory(fromId));
+	}
+}
@@ -10,14 +10,16 @@ import org.slf4j.LoggerFactory;
 
 import RL.QMatrix.AdmissionStrategy.Position;
 import RL.QMatrix.AdmissionStrategy.TiersMovements;
+import RL.QMatrix.ReplacementStrategy.Slotted;
 
 /**
  * This class represents an object in the storage with its uniquely saved characteristics
+ * (a view of the row of the object in a FileTable)
  *
  * @author Kakoulli Elena
  */
 
-public class FileInfo {
+public class FileInfo implements Slotted {
 	
 	private static final Logger logger = LoggerFactory.getLogger(FileInfo.class);
 	
@@ -49,20 +51,20 @@ public class FileInfo {
 		FAMOUS
 	}
 	
-	protected String pathname; 	
-	protected long size; //bytes
-	protected SizeEnum fileSize; 
-	protected long last_modified_date; //seconds
-	protected LastModifiedEnum last_modified; //[Long type (save epoch)] Current time - last modified time
-	protected long file_last_access_time_date; //seconds
-	protected FileLastAccessTimeEnum file_last_access_time; // Current time - file_last_access_time
-	protected int file_access_frequency_num;
-	protected FileAccessFrequencyEnum file_access_frequency; 
-	protected TypeInfo file_format;
-	protected DirectoryInfo directory_path; //(part of key)
-	protected Position currentPosition;
-	protected boolean evict; // 0=not_evict & 1=evict(delete)
-	protected int misses;
+	private static final SizeEnum[] SIZES = SizeEnum.values();
+	private static final LastModifiedEnum[] LAST_MODIFIED = LastModifiedEnum.values();
+	private static final FileLastAccessTimeEnum[] FILE_LAST_ACCESS = FileLastAccessTimeEnum.values();
+	private static final FileAccessFrequencyEnum[] FILE_FREQUENCY = FileAccessFrequencyEnum.values();
+
+	// the characteristics of the file are kept in its row of a FileTable (size, dates, access frequency, 
+	// misses, state bits with the enums, position, evict, type and directory). A getter validates its
+	// read with FileTable.holds and reads again if the file was removed meanwhile (its id may be reused);
+	// the setters of a file in the table of the Cache Manager are called under the lock of its stripe.
+	volatile FileTable table; // the table of the Cache Manager, or a table of one row (any id is its row)
+	int id; // the row of the file in the table (written before the table is published, read after it)
+	protected volatile int slot = -1; // slot in the indexed LRU lists (-1 = in no list)
+	protected volatile int lruTiers; // bits (1 << Tier ordinal, as TiersMovements) of the LRU lists that contain the file
+	protected Object[] lruHandles; // handles of the file in the LRU lists by Tier ordinal (null if the lists have none)
 	
 	
 	/**
@@ -70,57 +72,59 @@ public class FileInfo {
 	 */
 	
 	public FileInfo(String pathname, long size, SizeEnum fileSize, long last_modified_date, LastModifiedEnum last_modified, long file_last_access_time_date, FileLastAccessTimeEnum file_last_access_time, int file_access_frequency_num, FileAccessFrequencyEnum file_access_frequency, TypeInfo file_format, DirectoryInfo directory_path){
-        this.pathname = pathname;
-        this.size = size;
-        this.fileSize = fileSize;
-        this.last_modified_date = last_modified_date;
-        this.last_modified = last_modified;
-        this.file_last_access_time_date = file_last_access_time_date;
-        this.file_last_access_time = file_last_access_time;
-        this.file_access_frequency_num = file_access_frequency_num;
-        this.file_access_frequency = file_access_frequency;
-        this.file_format = file_format;
-        this.directory_path = directory_path;
-        this.currentPosition = new Position(TiersMovements.NONE);
-        this.evict = false;
-        this.misses = 0;
-        
+        this.table = FileTable.row();
+        this.id = 0;
+        table.setPathname(id, pathname);
+        table.setSize(id, size);
+        table.setLastModified(id, last_modified_date);
+        table.setLastAccess(id, file_last_access_time_date);
+        table.setFrequency(id, file_access_frequency_num);
+        table.setType(id, file_format);
+        table.setDirectory(id, directory_path);
+        table.setStateBits(id, (fileSize.ordinal() << State.SIZE_SHIFT)
+				| (last_modified.ordinal() << State.LAST_MODIFIED_SHIFT)
+				| (file_last_access_time.ordinal() << State.FILE_LAST_ACCESS_SHIFT)
+				| (file_access_frequency.ordinal() << State.FILE_FREQUENCY_SHIFT)
+				| (file_format.getFile_type().ordinal() << State.FILE_TYPE_SHIFT));
     }
 	
 	public FileInfo(String pathname, long size, SizeEnum fileSize, String directory_path){
-        this.pathname = pathname;
-        this.size = size;
+        this.table = FileTable.row();
+        this.id = 0;
+        table.setPathname(id, pathname);
         setSize(size);
-        this.last_modified_date = System.currentTimeMillis();
-        this.last_modified = LastModifiedEnum.RECENTLY;
-        this.file_last_access_time_date = System.currentTimeMillis();
-        this.file_last_access_time = FileLastAccessTimeEnum.RECENT;
-        this.file_access_frequency_num = 1;
-        this.file_access_frequency = FileAccessFrequencyEnum.NOT_FAMOUS;
-        this.file_format = new TypeInfo(pathname);
-        this.directory_path = new DirectoryInfo(directory_path); 
-        this.currentPosition = new Position(TiersMovements.NONE);
-        this.evict = false;
-        this.misses = 0;
-        
+        table.setLastModified(id, System.currentTimeMillis());
+        table.setLastAccess(id, System.currentTimeMillis());
+        table.setFrequency(id, 1);
+        table.setType(id, new TypeInfo(pathname));
+        table.setDirectory(id, new DirectoryInfo(directory_path));
+        setStateBits(State.FILE_TYPE_SHIFT, getFile_format().getFile_type().ordinal());
     }
 	
 	public FileInfo(String pathname, long size, TypeInfo type, DirectoryInfo directory_path){
-        this.pathname = pathname;
-        this.size = size;
+		this(FileTable.row(), pathname, size, type, directory_path);
+	}
+
+	/**
+	 * A new file in a row of the table (added to the table with put)
+	 */
+	public FileInfo(FileTable table, String pathname, long size, TypeInfo type, DirectoryInfo directory_path){
+        this.table = table;
+        this.id = table.allocate();
+        table.setPathname(id, pathname);
+        table.setPosition(id, TiersMovements.NONE.ordinal());
+        table.setEvict(id, false);
+        table.setMisses(id, 0);
+        table.setStateBits(id, 0);
         setSize(size);
-        this.last_modified_date = System.currentTimeMillis();
+        table.setLastModified(id, System.currentTimeMillis());
         setLast_modified();
-        this.file_last_access_time_date = System.currentTimeMillis();
+        table.setLastAccess(id, System.currentTimeMillis());
         setFile_last_access_time();
-        this.file_access_frequency_num = 1;
-        setFile_access_frequency(file_access_frequency_num);
-        this.file_format = type;
-        this.directory_path = directory_path; 
-        this.currentPosition = new Position(TiersMovements.NONE);
-        this.evict = false;
-        this.misses = 0;
-        
+        setFile_access_frequency(1);
+        table.setType(id, type);
+        table.setDirectory(id, directory_path);
+        setStateBits(State.FILE_TYPE_SHIFT, type.getFile_type().ordinal());
     }
 	
 	/**
@@ -128,205 +132,285 @@ public class FileInfo {
 	 */
 	
 	public void setPathname(String pathname) {
-		this.pathname = pathname;
+		FileTable table = this.table;
+		table.setPathname(this.id, pathname);
 	}
 	
 	public String getPathname() {
-		return this.pathname;
+		FileTable table = this.table;
+		String pathname = table.pathname(this.id);
+		return table.holds(this) ? pathname : getPathname();
 	}
 	
 	public void setSize(long size) {
-		  
-		this.size = size;
+		FileTable table = this.table;
+		int id = this.id;
+		table.setSize(id, size);
 	
-		if(this.size < 1000) {
-			this.fileSize = SizeEnum.SMALL;
+		SizeEnum fileSize;
+		if(size < 1000) {
+			fileSize = SizeEnum.SMALL;
 		}
-		else if(this.size < 1000000) {
-			this.fileSize = SizeEnum.MEDIUM;
+		else if(size < 1000000) {
+			fileSize = SizeEnum.MEDIUM;
 		}	 
-		else if(this.size < 1000000000) {	 
-			this.fileSize = SizeEnum.LARGE;
+		else if(size < 1000000000) {	 
+			fileSize = SizeEnum.LARGE;
 		}	 
 		else
-			this.fileSize = SizeEnum.HUGE;
+			fileSize = SizeEnum.HUGE;
+		setStateBits(State.SIZE_SHIFT, fileSize.ordinal());
 	}
 	
 	public long getSize() {
-		return size;
+		FileTable table = this.table;
+		long size = table.size(this.id);
+		return table.holds(this) ? size : getSize();
 	}
 	
 	public SizeEnum getFileSize() {
-		return this.fileSize;
+		return SIZES[(stateBits() >>> State.SIZE_SHIFT) & 3];
 	}
 	
 	public void setLast_modified(long date) {
-		long diff = date - this.last_modified_date;
+		FileTable table = this.table;
+		int id = this.id;
+		long diff = date - table.lastModified(id);
 		//update
-		this.last_modified_date = date;
+		table.setLastModified(id, date);
 			  
+		LastModifiedEnum last_modified;
 		if(diff < 60) {
-			this.last_modified = LastModifiedEnum.RECENTLY;	
+			last_modified = LastModifiedEnum.RECENTLY;	
 		}
 		else if(diff < 3600) {
-			this.last_modified = LastModifiedEnum.LESS_RECENTLY;
+			last_modified = LastModifiedEnum.LESS_RECENTLY;
 		}
 		else if(diff < 86400) {
-			this.last_modified = LastModifiedEnum.MUCH_LESS_RECENTLY;
+			last_modified = LastModifiedEnum.MUCH_LESS_RECENTLY;
 		}
 		else
-			this.last_modified = LastModifiedEnum.OLD;
+			last_modified = LastModifiedEnum.OLD;
+		setStateBits(State.LAST_MODIFIED_SHIFT, last_modified.ordinal());
 	}
 	
 	public void setLast_modified() {
-		long diff = System.currentTimeMillis() - this.last_modified_date;
-
-		//update
-		this.last_modified_date = System.currentTimeMillis();
-	  
-		if(diff < 60) {
-			this.last_modified = LastModifiedEnum.RECENTLY;	
-		} 
-		else if(diff < 3600) {
-			this.last_modified = LastModifiedEnum.LESS_RECENTLY;
-		}
-		else if(diff < 86400) {
-			this.last_modified = LastModifiedEnum.MUCH_LESS_RECENTLY;
-		}
-		else
-			this.last_modified = LastModifiedEnum.OLD;
+		setLast_modified(System.currentTimeMillis());
 	}
 	
 	public long getLast_modified_date() {
-		return last_modified_date;
+		FileTable table = this.table;
+		long date = table.lastModified(this.id);
+		return table.holds(this) ? date : getLast_modified_date();
 	}
 	
 	public LastModifiedEnum getLast_modified() {
-		return this.last_modified;
+		return LAST_MODIFIED[(stateBits() >>> State.LAST_MODIFIED_SHIFT) & 3];
 	}
 	
 	public void setFile_last_access_time() {
-		long diff = System.currentTimeMillis() - this.file_last_access_time_date;
+		FileTable table = this.table;
+		int id = this.id;
+		long now = System.currentTimeMillis();
+		long diff = now - table.lastAccess(id);
 		
 		//update	
-		this.file_last_access_time_date = System.currentTimeMillis();
+		table.setLastAccess(id, now);
 	  
+		FileLastAccessTimeEnum file_last_access_time;
 		if(diff < 60) {
-			this.file_last_access_time = FileLastAccessTimeEnum.RECENT;	
+			file_last_access_time = FileLastAccessTimeEnum.RECENT;	
 		} 
 		else if(diff < 3600) {
-			this.file_last_access_time = FileLastAccessTimeEnum.LESS_RECENT;
+			file_last_access_time = FileLastAccessTimeEnum.LESS_RECENT;
 		}
 		else if(diff < 86400) {
-			this.file_last_access_time = FileLastAccessTimeEnum.MUCH_LESS_RECENT;
+			file_last_access_time = FileLastAccessTimeEnum.MUCH_LESS_RECENT;
 		}
 		else
-			this.file_last_access_time = FileLastAccessTimeEnum.OLD;
+			file_last_access_time = FileLastAccessTimeEnum.OLD;
+		setStateBits(State.FILE_LAST_ACCESS_SHIFT, file_last_access_time.ordinal());
 	}
 	
 	public long getFile_last_access_time_date() {
-		return file_last_access_time_date;
+		FileTable table = this.table;
+		long date = table.lastAccess(this.id);
+		return table.holds(this) ? date : getFile_last_access_time_date();
 	}
 	
 	public FileLastAccessTimeEnum getFile_last_access_time() {
-		return this.file_last_access_time; 
+		return FILE_LAST_ACCESS[(stateBits() >>> State.FILE_LAST_ACCESS_SHIFT) & 3]; 
 	}
 	
 	public void setFile_access_frequency(int file_access_frequency_num) {		
-		this.file_access_frequency_num = file_access_frequency_num;
+		FileTable table = this.table;
+		table.setFrequency(this.id, file_access_frequency_num);
 		
-		if(this.file_access_frequency_num > 20) 
-			this.file_access_frequency = FileAccessFrequencyEnum.FAMOUS;		
-		else if(this.file_access_frequency_num >= 6)
-			this.file_access_frequency = FileAccessFrequencyEnum.ENOUGH_FAMOUS;
-		else if(this.file_access_frequency_num >= 1)		
-			this.file_access_frequency = FileAccessFrequencyEnum.LESS_FAMOUS;
+		FileAccessFrequencyEnum file_access_frequency;
+		if(file_access_frequency_num > 20) 
+			file_access_frequency = FileAccessFrequencyEnum.FAMOUS;		
+		else if(file_access_frequency_num >= 6)
+			file_access_frequency = FileAccessFrequencyEnum.ENOUGH_FAMOUS;
+		else if(file_access_frequency_num >= 1)		
+			file_access_frequency = FileAccessFrequencyEnum.LESS_FAMOUS;
 		else		
-			this.file_access_frequency = FileAccessFrequencyEnum.NOT_FAMOUS;
+			file_access_frequency = FileAccessFrequencyEnum.NOT_FAMOUS;
+		setStateBits(State.FILE_FREQUENCY_SHIFT, file_access_frequency.ordinal());
 	}		
 	
 	public void incrFile_access_frequency() {
-		this.file_access_frequency_num++;
-		
 		//update file access frequency
-		setFile_access_frequency(this.file_access_frequency_num);
+		setFile_access_frequency(getFile_access_frequency_num() + 1);
+	}
+
+	/**
+	 * Halve the access frequency (aging, see FrequencyAging)
+	 */
+	public void halveFile_access_frequency() {
+		setFile_access_frequency(getFile_access_frequency_num() >>> 1);
 	}
 	
 	public int getFile_access_frequency_num() {
-		return this.file_access_frequency_num;
+		FileTable table = this.table;
+		int frequency = table.frequency(this.id);
+		return table.holds(this) ? frequency : getFile_access_frequency_num();
 	}
 	
 	public FileAccessFrequencyEnum getFile_access_frequency() {
-		return this.file_access_frequency; 
+		return FILE_FREQUENCY[(stateBits() >>> State.FILE_FREQUENCY_SHIFT) & 3]; 
 	}
 	
 	public void setFile_format(String filename) {	
-			this.file_format = new TypeInfo(filename);
+		FileTable table = this.table;
+		TypeInfo file_format = new TypeInfo(filename);
+		table.setType(this.id, file_format);
+		setStateBits(State.FILE_TYPE_SHIFT, file_format.getFile_type().ordinal());
 	}
 	
 	public TypeInfo getFile_format() {
-		return this.file_format; 
+		FileTable table = this.table;
+		TypeInfo type = table.type(this.id);
+		return table.holds(this) ? type : getFile_format();
 	}
 	
 	public void setDirectory_path(String directory_path) {
-		this.directory_path = new DirectoryInfo(directory_path); 
+		FileTable table = this.table;
+		table.setDirectory(this.id, new DirectoryInfo(directory_path)); 
 	}
 	
 	public DirectoryInfo getDirectory_path() {
-		return this.directory_path; 
+		FileTable table = this.table;
+		DirectoryInfo directory = table.directory(this.id);
+		return table.holds(this) ? directory : getDirectory_path();
 	}
 	
+	/**
+	 * @return the state id of the file (without allocation): the file bits
+	 *         together with the bits of its type and directory
+	 */
+	public int getStateID() {
+		FileTable table = this.table;
+		int id = this.id;
+		int bits = table.stateBits(id);
+		TypeInfo type = table.type(id);
+		DirectoryInfo directory = table.directory(id);
+		if (!table.holds(this))
+			return getStateID();
+		return bits | type.stateBits | directory.stateBits;
+	}
+
+	private int stateBits() {
+		FileTable table = this.table;
+		int bits = table.stateBits(this.id);
+		return table.holds(this) ? bits : stateBits();
+	}
+
+	private void setStateBits(int shift, int ordinal) {
+		FileTable table = this.table;
+		int id = this.id;
+		table.setStateBits(id, (table.stateBits(id) & ~(3 << shift)) | (ordinal << shift));
+	}
+
+	/**
+	 * @return the tiers whose LRU lists contain the file (TiersMovements bits)
+	 */
+	public int getLRUTiers() {
+		return this.lruTiers;
+	}
+
+	@Override
+	public int getSlot() {
+		return this.slot;
+	}
+
+	@Override
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+
 	public void setCurrentPosition(TiersMovements tier) {
-		this.currentPosition.setPosition(tier);
+		FileTable table = this.table;
+		table.setPosition(this.id, tier.ordinal());
 	}
 	
+	/**
+	 * @return a copy of the position of the file (changed with setCurrentPosition)
+	 */
 	public Position getCurrentPosition() {
-	 return this.currentPosition;
+		FileTable table = this.table;
+		int position = table.position(this.id);
+		return table.holds(this) ? new Position(TiersMovements.valueOf(position)) : getCurrentPosition();
 	}
 	
 	public boolean getEvict() {
-		return evict;
+		FileTable table = this.table;
+		boolean evict = table.evict(this.id);
+		return table.holds(this) ? evict : getEvict();
 	}
 	
 	public void setEvict(boolean decision) {
-		this.evict = decision;
+		FileTable table = this.table;
+		table.setEvict(this.id, decision);
 	}
 	
 	public int getMisses() {
-		return misses;
+		FileTable table = this.table;
+		int misses = table.misses(this.id);
+		return table.holds(this) ? misses : getMisses();
 	}
 	
 	public void setMisses(int v) {
-		this.misses = v;
+		FileTable table = this.table;
+		table.setMisses(this.id, v);
 	}
 	
 	public void incrMisses() {
-		this.misses++;
+		setMisses(getMisses() + 1);
 	}
 	
 	 public void print() {
-		 logger.info(new Timestamp(System.currentTimeMillis()) + ":: pathname = {}, size = {}, fileSize = {}, last_modified_date = {}, last_modified = {}, file_last_access_time_date = {}, file_last_access_time = {}, file_access_frequency_num = {}, file_access_frequency = {}, file_format = {}, directory_path = {}, currentPosition = {}", pathname, size, fileSize, last_modified_date, last_modified, file_last_access_time_date, file_last_access_time, file_access_frequency_num, file_access_frequency, file_format.getFile_type(), directory_path.getName_directory(), currentPosition.getPosition()); 
+		 logger.info(new Timestamp(System.currentTimeMillis()) + ":: pathname = {}, size = {}, fileSize = {}, last_modified_date = {}, last_modified = {}, file_last_access_time_date = {}, file_last_access_time = {}, file_access_frequency_num = {}, file_access_frequency = {}, file_format = {}, directory_path = {}, currentPosition = {}", getPathname(), getSize(), getFileSize(), getLast_modified_date(), getLast_modified(), getFile_last_access_time_date(), getFile_last_access_time(), getFile_access_frequency_num(), getFile_access_frequency(), getFile_format().getFile_type(), getDirectory_path().getName_directory(), getCurrentPosition().getPosition()); 
 	 }
 	
 	 public String toString() {
-		return "\npathname = " + pathname + 
-				"\nsize = " + size + 
-				"\nfileSize = " + fileSize +
-				"\nlast_modified_date = " + last_modified_date + 
-				"\nlast_modified = " + last_modified + 
-				"\nfile_last_access_time_date = " + file_last_access_time_date + 
-				"\nfile_last_access_time = " + file_last_access_time + 
-				"\nfile_access_frequency_num = " + file_access_frequency_num + 
-				"\nfile_access_frequency = " + file_access_frequency + 
-				"\nfile_format = " + file_format.getFile_type() + 
-				"\ndirectory_path = " + directory_path.getName_directory() + 
-				"\ncurrentPosition = " + currentPosition.getPosition() +
-				"\nevict = " + evict;
+		return "\npathname = " + getPathname() + 
+				"\nsize = " + getSize() + 
+				"\nfileSize = " + getFileSize() +
+				"\nlast_modified_date = " + getLast_modified_date() + 
+				"\nlast_modified = " + getLast_modified() + 
+				"\nfile_last_access_time_date = " + getFile_last_access_time_date() + 
+				"\nfile_last_access_time = " + getFile_last_access_time() + 
+				"\nfile_access_frequency_num = " + getFile_access_frequency_num() + 
+				"\nfile_access_frequency = " + getFile_access_frequency() + 
+				"\nfile_format = " + getFile_format().getFile_type() + 
+				"\ndirectory_path = " + getDirectory_path().getName_directory() + 
+				"\ncurrentPosition = " + getCurrentPosition().getPosition() +
+				"\nevict = " + getEvict();
 	 } 
 	   
 	 public boolean equals(FileInfo f){
 		 if(f != null){
-			   if(pathname.equals(f.getPathname()))
+			   if(getPathname().equals(f.getPathname()))
 				   return true;
 			   else
 				   return false;
@@ -335,6 +419,8 @@ public class FileInfo {
 	 }
 	 
 	 public int hashCode() {
-		 return pathname.hashCode();
+		 FileTable table = this.table;
+		 int hash = table.hash(this.id);
+		 return table.holds(this) ? hash : hashCode();
 	 }
 }
\ No newline at end of file
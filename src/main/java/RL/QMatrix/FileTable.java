@@ -0,0 +1,602 @@
+package RL.QMatrix;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * This class represents the metadata of the files in columns (struct of
+ * arrays): every file has a dense int id, and its pathname, size, timestamps,
+ * access frequency, misses, state bits, position (TiersMovements bits), evict
+ * flag, type and directory are kept at that id in arrays of pages of 4096
+ * files. A FileInfo is a view of its row (the table and the id), so a file
+ * costs its row and a small view instead of the FileInfo fields, its enums,
+ * its Position and a hash map node, and the sweeps over all the files (aging,
+ * checkpoints) scan the columns in id order.
+ *
+ * The columns are kept in the arrays of the heap (HeapFileColumns), or outside
+ * the heap in direct or mapped buffers (DirectFileColumns, see direct and
+ * mapped) with the index of the pathnames. Only the columns and the index
+ * leave the heap: every indexed file keeps its view (about 36 bytes with its
+ * slot in the pages of views), because the LRU lists, the eviction candidates
+ * and the decision log hold the files by identity, so the objects of the heap
+ * still grow with the files.
+ *
+ * The pathnames are indexed by segments of open addressing tables of ids,
+ * each with a StampedLock: the lookups are optimistic reads and the updates
+ * of a segment are serialized. A removed FileInfo keeps a copy of its row (a
+ * table of one row, which reads its row at any id), so the holders of removed
+ * files (e.g., the decision log) read their last values. The copy is
+ * published by the single write of the table of the view, and a reader of a
+ * view validates its read with holds (the table of the view did not change
+ * while it read the row), so the id of a removed file is reused at once: a
+ * reader that still holds the id reads the copy again. The columns of an
+ * indexed file are written under the lock of its stripe in the Cache Manager,
+ * as its removal, so a writer never holds a reused id.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class FileTable {
+
+	private static final int PAGE_BITS = 12;
+
+	/*
+	 * Open addressing table of ids + 1 (0 = empty slot), at most half full
+	 */
+	private static final class Segment {
+		final StampedLock lock = new StampedLock();
+		IntBuffer slots;
+		int count;
+	}
+
+	private final int pageBits;
+	private final int pageMask;
+	private final FileColumns columns;
+	private final int rowMask; // -1, or 0 for a table of one row (any id is its row)
+	private final boolean directIndex; // slots of the segments outside the heap
+	private volatile FileInfo[][] views; // views of the indexed files by page (null = free or not indexed yet)
+	private final Object rowsLock = new Object();
+	private volatile int rows; // ids allocated so far
+	private int[] freeIds; // removed ids
+	private int freeCount;
+
+	private final Segment[] segments; // null for the row of a file that is not in a table
+	private final int segmentMask;
+	private final AtomicInteger size;
+	private final Collection<FileInfo> values;
+
+	public FileTable() {
+		this(new HeapFileColumns(PAGE_BITS), false);
+	}
+
+	FileTable(FileColumns columns, boolean directIndex) {
+		// at least 4 segments per core, rounded up to a power of two
+		this(columns, Integer.highestOneBit(Math.max(16, 4 * Runtime.getRuntime().availableProcessors()) - 1) << 1, directIndex);
+	}
+
+	private FileTable(FileColumns columns, int segments, boolean directIndex) {
+		this.pageBits = columns.pageBits;
+		this.pageMask = columns.pageMask;
+		this.columns = columns;
+		this.rowMask = (segments > 0) ? -1 : 0;
+		this.directIndex = directIndex;
+		this.views = new FileInfo[1][];
+		this.rows = 0;
+		if (segments > 0) {
+			this.freeIds = new int[16];
+			this.segments = new Segment[segments];
+			for (int i = 0; i < segments; i++) {
+				this.segments[i] = new Segment();
+				this.segments[i].slots = newSlots(16);
+			}
+			this.size = new AtomicInteger(0);
+			this.values = new Values();
+		} else { // one row, never freed
+			this.segments = null;
+			this.size = null;
+			this.values = null;
+		}
+		this.segmentMask = segments - 1;
+	}
+
+	/**
+	 * @return a table of one row for a file that is not in a table (every id
+	 *         reads and writes the row)
+	 */
+	static FileTable row() {
+		FileTable row = new FileTable(new HeapFileColumns(0), 0, false);
+		row.allocate();
+		return row;
+	}
+
+	/**
+	 * @return a table with the columns and the index in direct buffers
+	 */
+	static FileTable direct() {
+		try {
+			return new FileTable(new DirectFileColumns(PAGE_BITS, null, "files"), true);
+		} catch (IOException e) { // no files
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return a table with the columns in files of the directory (named
+	 *         name-*) mapped in memory and the index in direct buffers
+	 */
+	static FileTable mapped(Path dir, String name) throws IOException {
+		return new FileTable(new DirectFileColumns(PAGE_BITS, dir, name), true);
+	}
+
+	/*
+	 * ROWS
+	 */
+
+	/**
+	 * Allocate the row of a new file (the caller initializes its columns and
+	 * adds the file with put)
+	 */
+	int allocate() {
+		synchronized (rowsLock) {
+			if (freeCount > 0)
+				return freeIds[--freeCount];
+
+			int id = rows;
+			int index = id >>> pageBits;
+			FileInfo[][] current = views;
+			if (index == current.length)
+				current = Arrays.copyOf(current, current.length * 2);
+			if (current[index] == null) {
+				columns.addPage(index);
+				current[index] = new FileInfo[1 << pageBits];
+			}
+			views = current;
+			rows = id + 1;
+			return id;
+		}
+	}
+
+	/*
+	 * The row keeps its values until the id is reused, so a stale reader of the
+	 * id (e.g., an optimistic lookup) still finds a pathname
+	 */
+	private void free(int id) {
+		synchronized (rowsLock) {
+			if (freeCount == freeIds.length)
+				freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+			freeIds[freeCount++] = id;
+		}
+	}
+
+	/**
+	 * Validate a read of the row of the file (after the values are read):
+	 * false if the file was detached meanwhile, so its id may be reused and
+	 * the caller reads the values again (from the copy of its row)
+	 */
+	boolean holds(FileInfo file) {
+		VarHandle.loadLoadFence(); // the row is read before the table
+		return file.table == this;
+	}
+
+	private FileInfo view(int id) {
+		return views[id >>> pageBits][id & pageMask];
+	}
+
+	private void setView(int id, FileInfo file) {
+		views[id >>> pageBits][id & pageMask] = file;
+	}
+
+	private static void copyRow(FileTable from, int fromId, FileTable to, int toId) {
+		to.columns.copyRow(from.columns, fromId & from.rowMask, toId & to.rowMask);
+	}
+
+	/*
+	 * Move the row of a new file (not shared with other threads yet) to this table
+	 */
+	private void adopt(FileInfo file) {
+		FileTable from = file.table;
+		int fromId = file.id;
+		int id = allocate();
+		copyRow(from, fromId, this, id);
+		file.id = id; // the row table reads its row at any id
+		file.table = this;
+	}
+
+	/*
+	 * Give a copy of its row to a removed file and free its id. The copy is
+	 * published by the write of the table alone (the row table reads its row
+	 * at the old id), before the id is freed.
+	 */
+	private void detach(FileInfo file) {
+		int id = file.id;
+		FileTable row = row();
+		copyRow(this, id, row, 0);
+		file.table = row;
+		free(id);
+	}
+
+	/*
+	 * COLUMNS
+	 */
+
+	String pathname(int id) {
+		return columns.pathname(id & rowMask);
+	}
+
+	void setPathname(int id, String pathname) {
+		columns.setPathname(id & rowMask, pathname);
+	}
+
+	/**
+	 * @return the hash code of the pathname
+	 */
+	int hash(int id) {
+		return columns.hash(id & rowMask);
+	}
+
+	long size(int id) {
+		return columns.size(id & rowMask);
+	}
+
+	void setSize(int id, long size) {
+		columns.setSize(id & rowMask, size);
+	}
+
+	long lastModified(int id) {
+		return columns.lastModified(id & rowMask);
+	}
+
+	void setLastModified(int id, long date) {
+		columns.setLastModified(id & rowMask, date);
+	}
+
+	long lastAccess(int id) {
+		return columns.lastAccess(id & rowMask);
+	}
+
+	void setLastAccess(int id, long date) {
+		columns.setLastAccess(id & rowMask, date);
+	}
+
+	int frequency(int id) {
+		return columns.frequency(id & rowMask);
+	}
+
+	void setFrequency(int id, int frequency) {
+		columns.setFrequency(id & rowMask, frequency);
+	}
+
+	int misses(int id) {
+		return columns.misses(id & rowMask);
+	}
+
+	void setMisses(int id, int misses) {
+		columns.setMisses(id & rowMask, misses);
+	}
+
+	int stateBits(int id) {
+		return columns.stateBits(id & rowMask);
+	}
+
+	void setStateBits(int id, int stateBits) {
+		columns.setStateBits(id & rowMask, stateBits);
+	}
+
+	int position(int id) {
+		return columns.position(id & rowMask);
+	}
+
+	void setPosition(int id, int position) {
+		columns.setPosition(id & rowMask, position);
+	}
+
+	boolean evict(int id) {
+		return columns.evict(id & rowMask);
+	}
+
+	void setEvict(int id, boolean evict) {
+		columns.setEvict(id & rowMask, evict);
+	}
+
+	TypeInfo type(int id) {
+		return columns.type(id & rowMask);
+	}
+
+	void setType(int id, TypeInfo type) {
+		columns.setType(id & rowMask, type);
+	}
+
+	DirectoryInfo directory(int id) {
+		return columns.directory(id & rowMask);
+	}
+
+	void setDirectory(int id, DirectoryInfo directory) {
+		columns.setDirectory(id & rowMask, directory);
+	}
+
+	/*
+	 * INDEX OF THE PATHNAMES
+	 */
+
+	public FileInfo get(Object key) {
+		String pathname = (String) key;
+		int h = spread(pathname.hashCode());
+		Segment segment = segments[h & segmentMask];
+
+		long stamp = segment.lock.tryOptimisticRead();
+		if (stamp != 0) {
+			FileInfo file = null;
+			try {
+				file = lookup(segment, pathname, h);
+			} catch (RuntimeException e) {
+				// inconsistent snapshot of a segment being updated
+			}
+			if (segment.lock.validate(stamp))
+				return file;
+		}
+
+		stamp = segment.lock.readLock();
+		try {
+			return lookup(segment, pathname, h);
+		} finally {
+			segment.lock.unlockRead(stamp);
+		}
+	}
+
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Add the file (or replace the file of the pathname). A file created in
+	 * another table is moved to this table, so it must not be shared with other
+	 * threads yet.
+	 *
+	 * @return the replaced file or null
+	 */
+	public FileInfo put(String pathname, FileInfo file) {
+		if (file.table != this)
+			adopt(file);
+		int id = file.id;
+		int hash = pathname.hashCode();
+		if (!columns.matches(id, pathname, hash))
+			setPathname(id, pathname);
+
+		int h = spread(hash);
+		Segment segment = segments[h & segmentMask];
+		FileInfo previous = null;
+		long stamp = segment.lock.writeLock();
+		try {
+			int slot = find(segment.slots, pathname, h);
+			if (slot >= 0) {
+				int old = segment.slots.get(slot) - 1;
+				if (old == id)
+					return null;
+				previous = view(old);
+				setView(old, null);
+				segment.slots.put(slot, id + 1);
+			} else {
+				if (2 * (segment.count + 1) > segment.slots.capacity())
+					resize(segment);
+				insert(segment.slots, id, h);
+				segment.count++;
+				size.incrementAndGet();
+			}
+			setView(id, file);
+		} finally {
+			segment.lock.unlockWrite(stamp);
+		}
+
+		if (previous != null)
+			detach(previous);
+		return previous;
+	}
+
+	public FileInfo remove(Object key) {
+		return removeFile((String) key, null);
+	}
+
+	/**
+	 * Remove the pathname only if it is the given file
+	 */
+	public boolean remove(Object key, Object file) {
+		return file instanceof FileInfo && removeFile((String) key, (FileInfo) file) != null;
+	}
+
+	private FileInfo removeFile(String pathname, FileInfo expected) {
+		int h = spread(pathname.hashCode());
+		Segment segment = segments[h & segmentMask];
+		FileInfo file;
+		long stamp = segment.lock.writeLock();
+		try {
+			int slot = find(segment.slots, pathname, h);
+			if (slot < 0)
+				return null;
+			int id = segment.slots.get(slot) - 1;
+			file = view(id);
+			if (expected != null && file != expected)
+				return null;
+			delete(segment.slots, slot);
+			segment.count--;
+			size.decrementAndGet();
+			setView(id, null);
+		} finally {
+			segment.lock.unlockWrite(stamp);
+		}
+
+		detach(file);
+		return file;
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	public boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	/**
+	 * Remove all the files; the pages of the columns and of the views are kept
+	 * and the ids are allocated again from 0 (the files are not updated
+	 * meanwhile, e.g., the restore of a checkpoint)
+	 */
+	public void clear() {
+		List<FileInfo> removed = new ArrayList<>();
+		for (Segment segment : segments) {
+			long stamp = segment.lock.writeLock();
+			try {
+				IntBuffer slots = segment.slots;
+				for (int i = 0; i < slots.capacity(); i++) {
+					int slot = slots.get(i);
+					if (slot == 0)
+						continue;
+					int id = slot - 1;
+					removed.add(view(id));
+					setView(id, null);
+					slots.put(i, 0);
+				}
+				size.addAndGet(-segment.count);
+				segment.count = 0;
+			} finally {
+				segment.lock.unlockWrite(stamp);
+			}
+		}
+		for (FileInfo file : removed)
+			detach(file);
+		columns.clear();
+		synchronized (rowsLock) { // the ids start again from 0 in the pages of the table
+			rows = 0;
+			freeCount = 0;
+		}
+	}
+
+	/**
+	 * @return the files in id order (a view that sees the concurrent updates)
+	 */
+	public Collection<FileInfo> values() {
+		return values;
+	}
+
+	private FileInfo lookup(Segment segment, String pathname, int h) {
+		IntBuffer slots = segment.slots;
+		int slot = find(slots, pathname, h);
+		if (slot < 0)
+			return null;
+		return view(slots.get(slot) - 1);
+	}
+
+	private int find(IntBuffer slots, String pathname, int h) {
+		int mask = slots.capacity() - 1;
+		int hash = pathname.hashCode();
+		for (int i = home(h, mask), n = 0; n <= mask && slots.get(i) != 0; i = (i + 1) & mask, n++)
+			if (columns.matches(slots.get(i) - 1, pathname, hash))
+				return i;
+		return -1;
+	}
+
+	private void insert(IntBuffer slots, int id, int h) {
+		int mask = slots.capacity() - 1;
+		int i = home(h, mask);
+		while (slots.get(i) != 0)
+			i = (i + 1) & mask;
+		slots.put(i, id + 1);
+	}
+
+	/*
+	 * Backward shift deletion (no tombstones)
+	 */
+	private void delete(IntBuffer slots, int hole) {
+		int mask = slots.capacity() - 1;
+		slots.put(hole, 0);
+		for (int i = (hole + 1) & mask; slots.get(i) != 0; i = (i + 1) & mask) {
+			int home = home(spread(hash(slots.get(i) - 1)), mask);
+			if (((i - home) & mask) >= ((i - hole) & mask)) {
+				slots.put(hole, slots.get(i));
+				slots.put(i, 0);
+				hole = i;
+			}
+		}
+	}
+
+	private void resize(Segment segment) {
+		IntBuffer old = segment.slots;
+		IntBuffer slots = newSlots(old.capacity() * 2);
+		for (int i = 0; i < old.capacity(); i++)
+			if (old.get(i) != 0)
+				insert(slots, old.get(i) - 1, spread(hash(old.get(i) - 1)));
+		segment.slots = slots;
+	}
+
+	private IntBuffer newSlots(int length) {
+		if (directIndex)
+			return ByteBuffer.allocateDirect(4 * length).order(ByteOrder.nativeOrder()).asIntBuffer();
+		return IntBuffer.allocate(length);
+	}
+
+	/*
+	 * the segment is selected by the low bits of the hash, the slot by the high bits
+	 */
+	private static int home(int h, int mask) {
+		return (h >>> 8 | h << 24) & mask;
+	}
+
+	private static int spread(int h) {
+		h = ((h >>> 16) ^ h) * 0x45d9f3b;
+		h = ((h >>> 16) ^ h) * 0x45d9f3b;
+		return (h >>> 16) ^ h;
+	}
+
+	private final class Values extends AbstractCollection<FileInfo> {
+
+		@Override
+		public Iterator<FileInfo> iterator() {
+			return new Iterator<FileInfo>() {
+				private int id = -1;
+				private FileInfo next = advance();
+
+				private FileInfo advance() {
+					int end = rows;
+					while (++id < end) {
+						FileInfo file = view(id);
+						if (file != null)
+							return file;
+					}
+					return null;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return next != null;
+				}
+
+				@Override
+				public FileInfo next() {
+					if (next == null)
+						throw new NoSuchElementException();
+					FileInfo file = next;
+					next = advance();
+					return file;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return size.get();
+		}
+	}
+}
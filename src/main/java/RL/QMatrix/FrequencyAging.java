@@ -0,0 +1,106 @@
+package RL.QMatrix;
+
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+
+/**
+ * This class represents the aging of the access frequencies of the files,
+ * directories and types. Every interval a background sweep halves all the
+ * counters, so the frequency buckets of the states (FAMOUS, ENOUGH_FAMOUS,
+ * ...) follow the recent accesses instead of growing forever; a counter
+ * accessed n times per interval converges to about 2n. The accesses do not
+ * keep any timestamp for the aging.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class FrequencyAging {
+
+	private static final Logger logger = LoggerFactory.getLogger(FrequencyAging.class);
+
+	private final CacheManager CM;
+	private final ScheduledExecutorService executor;
+	private volatile long sweeps;
+	private volatile long lastSweepDuration; // ms
+
+	/*
+	 * Parameters:
+	 * 1. interval = ms between two sweeps
+	 */
+	public FrequencyAging(CacheManager CM, long interval) {
+		this.CM = CM;
+		this.sweeps = 0;
+		this.lastSweepDuration = 0;
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "CacheManager-aging");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.scheduleWithFixedDelay(this::runSweep, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	private void runSweep() {
+		try {
+			sweep();
+		} catch (RuntimeException e) {
+			logger.error(new Timestamp(System.currentTimeMillis()) + ":: Aging of the access frequencies failed: " + e);
+		}
+	}
+
+	/**
+	 * Halve the access frequencies of all the files, directories and types. A
+	 * file is aged under the lock of its updates; the files in no tier whose
+	 * frequency reaches 0 are dropped to the ghosts of the Cache Manager.
+	 */
+	public void sweep() {
+		long start = System.currentTimeMillis();
+
+		int forgotten = 0;
+		for (FileInfo file : CM.files.values()) {
+			synchronized (CM.lockFor(file)) {
+				file.halveFile_access_frequency();
+				// the cold files of no tier (e.g., rejected by the admission) are kept only as ghosts
+				if (file.getFile_access_frequency_num() == 0 && file.getCurrentPosition().getPosition() == TiersMovements.NONE) {
+					CM.forgetFile(file);
+					forgotten++;
+				}
+			}
+		}
+		for (DirectoryInfo directory : CM.getDirectories().values())
+			directory.halve_access_frequency();
+		for (TypeInfo type : CM.getTypes().values())
+			type.halve_access_frequency();
+
+		lastSweepDuration = System.currentTimeMillis() - start;
+		sweeps++;
+		logger.info(new Timestamp(System.currentTimeMillis()) + ":: Aged the access frequencies of " + CM.files.size() + " files in "
+				+ lastSweepDuration + " ms (" + forgotten + " cold files forgotten)");
+	}
+
+	public long getSweeps() {
+		return sweeps;
+	}
+
+	public long getLastSweepDuration() {
+		return lastSweepDuration;
+	}
+
+	/**
+	 * Let the running sweep finish and stop the aging thread
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package RL.QMatrix;
+
+import java.util.Arrays;
+
+/**
+ * This class represents the ghosts of the files that left the cache: instead
+ * of the FileInfo of every deleted file, a bounded table keeps a 64-bit
+ * fingerprint of the pathname with the state of the file when it left, the
+ * action of the replacement agent (EVICT_TO_NONE if it was evicted) and its
+ * access frequency and misses. When the file comes back its statistics are
+ * restored, and a read miss of an evicted file is learned by the replacement
+ * agent as a wrong eviction.
+ *
+ * The ghosts are kept in two generations of capacity/2 entries (open
+ * addressing, linear probing): when the current generation is full the older
+ * one is dropped, so at most capacity ghosts are kept, the most recent ones.
+ * Two pathnames with the same fingerprint (probability about capacity/2^64)
+ * share a ghost.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class GhostCache {
+
+	private static final int STATE_BITS = 18;
+	private static final int ACTION_BITS = 2;
+	private static final int COUNT_BITS = 22; // access frequency and misses
+	private static final long COUNT_MAX = (1L << COUNT_BITS) - 1;
+
+	/**
+	 * The statistics of a file when it left the cache
+	 */
+	public static class Ghost {
+		private final long value;
+
+		private Ghost(long value) {
+			this.value = value;
+		}
+
+		public int getState() {
+			return (int) (value & ((1L << STATE_BITS) - 1));
+		}
+
+		public int getAction() {
+			return (int) ((value >>> STATE_BITS) & ((1L << ACTION_BITS) - 1));
+		}
+
+		public int getFile_access_frequency_num() {
+			return (int) ((value >>> (STATE_BITS + ACTION_BITS)) & COUNT_MAX);
+		}
+
+		public int getMisses() {
+			return (int) ((value >>> (STATE_BITS + ACTION_BITS + COUNT_BITS)) & COUNT_MAX);
+		}
+	}
+
+	private final int generationCapacity;
+	private final int mask;
+	private long[] keys; // fingerprints of the current generation (0 = empty)
+	private long[] values;
+	private int size;
+	private long[] oldKeys; // fingerprints of the older generation
+	private long[] oldValues;
+	private int oldSize;
+
+	/**
+	 * @param capacity the maximum number of ghosts
+	 */
+	public GhostCache(int capacity) {
+		this.generationCapacity = Math.max(1, capacity / 2);
+		// at most half of the slots are used
+		int length = Integer.highestOneBit(Math.max(2, 2 * generationCapacity) - 1) << 1;
+		this.mask = length - 1;
+		this.keys = new long[length];
+		this.values = new long[length];
+		this.oldKeys = new long[length];
+		this.oldValues = new long[length];
+	}
+
+	/**
+	 * Remember the file that left the cache (replaces its older ghost)
+	 *
+	 * @param action the action of the replacement agent that evicted the file
+	 *        (NOT_EVICT if it was not evicted)
+	 */
+	public synchronized void add(FileInfo file, int action) {
+		long key = fingerprint(file.getPathname());
+		remove(key);
+
+		if (size == generationCapacity) { // drop the older generation
+			long[] swapKeys = oldKeys;
+			long[] swapValues = oldValues;
+			oldKeys = keys;
+			oldValues = values;
+			oldSize = size;
+			Arrays.fill(swapKeys, 0);
+			keys = swapKeys;
+			values = swapValues;
+			size = 0;
+		}
+
+		long value = (file.getStateID() & ((1L << STATE_BITS) - 1))
+				| ((long) action << STATE_BITS)
+				| (Math.min(Math.max(file.getFile_access_frequency_num(), 0), COUNT_MAX) << (STATE_BITS + ACTION_BITS))
+				| (Math.min(Math.max(file.getMisses(), 0), COUNT_MAX) << (STATE_BITS + ACTION_BITS + COUNT_BITS));
+		int index = indexOf(key);
+		while (keys[index] != 0)
+			index = (index + 1) & mask;
+		keys[index] = key;
+		values[index] = value;
+		size++;
+	}
+
+	/**
+	 * Remove the ghost of the pathname (when the file comes back)
+	 *
+	 * @return the ghost or null if the file is not remembered
+	 */
+	public synchronized Ghost take(String pathname) {
+		long key = fingerprint(pathname);
+		int index = find(keys, key);
+		if (index >= 0) {
+			Ghost ghost = new Ghost(values[index]);
+			delete(keys, values, index);
+			size--;
+			return ghost;
+		}
+		index = find(oldKeys, key);
+		if (index >= 0) {
+			Ghost ghost = new Ghost(oldValues[index]);
+			delete(oldKeys, oldValues, index);
+			oldSize--;
+			return ghost;
+		}
+		return null;
+	}
+
+	public synchronized int size() {
+		return size + oldSize;
+	}
+
+	public synchronized void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(oldKeys, 0);
+		size = 0;
+		oldSize = 0;
+	}
+
+	private void remove(long key) {
+		int index = find(keys, key);
+		if (index >= 0) {
+			delete(keys, values, index);
+			size--;
+		}
+		index = find(oldKeys, key);
+		if (index >= 0) {
+			delete(oldKeys, oldValues, index);
+			oldSize--;
+		}
+	}
+
+	private int find(long[] table, long key) {
+		for (int index = indexOf(key); table[index] != 0; index = (index + 1) & mask)
+			if (table[index] == key)
+				return index;
+		return -1;
+	}
+
+	/*
+	 * Backward shift deletion: the following entries of the probe sequence
+	 * are moved into the hole, so the table needs no tombstones
+	 */
+	private void delete(long[] table, long[] tableValues, int hole) {
+		table[hole] = 0;
+		for (int index = (hole + 1) & mask; table[index] != 0; index = (index + 1) & mask) {
+			int home = indexOf(table[index]);
+			if (((index - home) & mask) >= ((index - hole) & mask)) {
+				table[hole] = table[index];
+				tableValues[hole] = tableValues[index];
+				table[index] = 0;
+				hole = index;
+			}
+		}
+	}
+
+	private int indexOf(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/*
+	 * FNV-1a of the characters of the pathname (never 0)
+	 */
+	private static long fingerprint(String pathname) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < pathname.length(); i++) {
+			h ^= pathname.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return (h != 0) ? h : 1;
+	}
+}
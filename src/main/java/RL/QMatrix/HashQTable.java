@@ -0,0 +1,103 @@
+package RL.QMatrix;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * This class represents a Q-table that keeps one row of Q-values and one row
+ * of alpha values per visited state in hash maps (only the visited states use
+ * memory).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class HashQTable implements QTable {
+
+	private final Map<Integer, double[]> Qvalues;
+	private final Map<Integer, double[]> alphaMatrix;
+	private final int actions;
+
+	public HashQTable(int actions) {
+		this.Qvalues = new ConcurrentHashMap<Integer, double[]>();
+		this.alphaMatrix = new ConcurrentHashMap<Integer, double[]>();
+		this.actions = actions;
+	}
+
+	@Override
+	public boolean isVisited(int stateId) {
+		return Qvalues.containsKey(stateId);
+	}
+
+	@Override
+	public synchronized void initialState(int stateId, double[] initialQs, double alpha) {
+		if (Qvalues.containsKey(stateId))
+			return;
+
+		double[] alphaValues = new double[actions];
+		for (int a = 0; a < actions; a++)
+			alphaValues[a] = alpha;
+		alphaMatrix.put(stateId, alphaValues);
+
+		double[] actionValues = new double[actions];
+		for (int a = 0; a < actions; a++)
+			actionValues[a] = initialQs[a];
+		Qvalues.put(stateId, actionValues);
+	}
+
+	@Override
+	public double getQ(int stateId, int actionId) {
+		return Qvalues.get(stateId)[actionId];
+	}
+
+	@Override
+	public void setQ(int stateId, int actionId, double Qij) {
+		Qvalues.get(stateId)[actionId] = Qij;
+	}
+
+	@Override
+	public double getAlpha(int stateId, int actionId) {
+		return alphaMatrix.get(stateId)[actionId];
+	}
+
+	@Override
+	public void setAlpha(int stateId, int actionId, double alpha) {
+		alphaMatrix.get(stateId)[actionId] = alpha;
+	}
+
+	@Override
+	public void fillAlpha(double alpha) {
+		for (double[] alphaValues : alphaMatrix.values())
+			for (int a = 0; a < alphaValues.length; a++)
+				alphaValues[a] = alpha;
+	}
+
+	@Override
+	public void fillQ(double Qij) {
+		for (double[] actionValues : Qvalues.values())
+			for (int a = 0; a < actionValues.length; a++)
+				actionValues[a] = Qij;
+	}
+
+	@Override
+	public double[] getQs(int stateId) {
+		double[] actionValues = Qvalues.get(stateId);
+		return (actionValues != null) ? actionValues.clone() : null;
+	}
+
+	@Override
+	public void forEachVisited(IntConsumer action) {
+		for (Integer stateId : Qvalues.keySet())
+			action.accept(stateId);
+	}
+
+	@Override
+	public int getVisitedCount() {
+		return Qvalues.size();
+	}
+
+	@Override
+	public int getActionCount() {
+		return actions;
+	}
+}
@@ -0,0 +1,186 @@
+package RL.QMatrix;
+
+import java.util.Arrays;
+
+/**
+ * This class represents the columns of a FileTable in primitive arrays of the
+ * heap (one array per column and page).
+ *
+ * @author Kakoulli Elena
+ */
+
+class HeapFileColumns extends FileColumns {
+
+	private static final class Page {
+		final String[] pathnames;
+		final long[] sizes;
+		final long[] lastModified;
+		final long[] lastAccess;
+		final int[] frequencies;
+		final int[] misses;
+		final int[] stateBits;
+		final byte[] positions;
+		final boolean[] evict;
+		final TypeInfo[] types;
+		final DirectoryInfo[] directories;
+
+		Page(int rows) {
+			this.pathnames = new String[rows];
+			this.sizes = new long[rows];
+			this.lastModified = new long[rows];
+			this.lastAccess = new long[rows];
+			this.frequencies = new int[rows];
+			this.misses = new int[rows];
+			this.stateBits = new int[rows];
+			this.positions = new byte[rows];
+			this.evict = new boolean[rows];
+			this.types = new TypeInfo[rows];
+			this.directories = new DirectoryInfo[rows];
+		}
+	}
+
+	private volatile Page[] pages;
+
+	HeapFileColumns(int pageBits) {
+		super(pageBits);
+		this.pages = new Page[1];
+	}
+
+	@Override
+	void addPage(int page) {
+		Page[] current = pages;
+		if (page >= current.length)
+			current = Arrays.copyOf(current, Math.max(current.length * 2, page + 1));
+		current[page] = new Page(1 << pageBits);
+		pages = current;
+	}
+
+	@Override
+	void clear() {
+	}
+
+	private Page page(int id) {
+		return pages[id >>> pageBits];
+	}
+
+	@Override
+	String pathname(int id) {
+		return page(id).pathnames[id & pageMask];
+	}
+
+	@Override
+	void setPathname(int id, String pathname) {
+		page(id).pathnames[id & pageMask] = pathname;
+	}
+
+	@Override
+	int hash(int id) {
+		return pathname(id).hashCode();
+	}
+
+	@Override
+	boolean matches(int id, String pathname, int hash) {
+		String candidate = pathname(id);
+		return candidate == pathname || (candidate != null && candidate.hashCode() == hash && candidate.equals(pathname));
+	}
+
+	@Override
+	long size(int id) {
+		return page(id).sizes[id & pageMask];
+	}
+
+	@Override
+	void setSize(int id, long size) {
+		page(id).sizes[id & pageMask] = size;
+	}
+
+	@Override
+	long lastModified(int id) {
+		return page(id).lastModified[id & pageMask];
+	}
+
+	@Override
+	void setLastModified(int id, long date) {
+		page(id).lastModified[id & pageMask] = date;
+	}
+
+	@Override
+	long lastAccess(int id) {
+		return page(id).lastAccess[id & pageMask];
+	}
+
+	@Override
+	void setLastAccess(int id, long date) {
+		page(id).lastAccess[id & pageMask] = date;
+	}
+
+	@Override
+	int frequency(int id) {
+		return page(id).frequencies[id & pageMask];
+	}
+
+	@Override
+	void setFrequency(int id, int frequency) {
+		page(id).frequencies[id & pageMask] = frequency;
+	}
+
+	@Override
+	int misses(int id) {
+		return page(id).misses[id & pageMask];
+	}
+
+	@Override
+	void setMisses(int id, int misses) {
+		page(id).misses[id & pageMask] = misses;
+	}
+
+	@Override
+	int stateBits(int id) {
+		return page(id).stateBits[id & pageMask];
+	}
+
+	@Override
+	void setStateBits(int id, int stateBits) {
+		page(id).stateBits[id & pageMask] = stateBits;
+	}
+
+	@Override
+	int position(int id) {
+		return page(id).positions[id & pageMask];
+	}
+
+	@Override
+	void setPosition(int id, int position) {
+		page(id).positions[id & pageMask] = (byte) position;
+	}
+
+	@Override
+	boolean evict(int id) {
+		return page(id).evict[id & pageMask];
+	}
+
+	@Override
+	void setEvict(int id, boolean evict) {
+		page(id).evict[id & pageMask] = evict;
+	}
+
+	@Override
+	TypeInfo type(int id) {
+		return page(id).types[id & pageMask];
+	}
+
+	@Override
+	void setType(int id, TypeInfo type) {
+		page(id).types[id & pageMask] = type;
+	}
+
+	@Override
+	DirectoryInfo directory(int id) {
+		return page(id).directories[id & pageMask];
+	}
+
+	@Override
+	void setDirectory(int id, DirectoryInfo directory) {
+		page(id).directories[id & pageMask] = directory;
+	}
+}
@@ -0,0 +1,212 @@
+package RL.QMatrix;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.function.IntConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class represents a dense Q-table (see DenseQTable) kept in a
+ * memory-mapped file, so the learned Q-values survive restarts. On startup an
+ * existing file with a matching header is mapped and the agent continues from
+ * it (warm start); otherwise the file is (re)initialized.
+ *
+ * File layout (little endian):
+ * header (64 bytes) = magic, version, tiers, actions, states, alpha, gamma
+ * visited bitmap (STATE_COUNT bits)
+ * Q-values (STATE_COUNT x actions doubles)
+ * alpha values (STATE_COUNT x actions doubles)
+ *
+ * @author Kakoulli Elena
+ */
+
+public class MappedQTable implements QTable {
+
+	private static final Logger logger = LoggerFactory.getLogger(MappedQTable.class);
+
+	private static final int MAGIC = 0x524C5154; // "RLQT"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int BITMAP_SIZE = State.STATE_COUNT / 8;
+
+	private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final Path path;
+	private final MappedByteBuffer buffer;
+	private final int actions;
+	private final int qOffset;
+	private final int alphaOffset;
+	private volatile int visitedCount;
+
+	/*
+	 * Parameters:
+	 * 1. path = file of the Q-table (created if it does not exist)
+	 * 2. tiers = tiers movements of the model (recorded in the header)
+	 * 3. actions = number of actions
+	 * 4. alpha, gamma = parameters of the model (recorded in the header)
+	 */
+	public MappedQTable(Path path, int tiers, int actions, double alpha, double gamma) throws IOException {
+		this.path = path;
+		this.actions = actions;
+		this.qOffset = HEADER_SIZE + BITMAP_SIZE;
+		this.alphaOffset = qOffset + State.STATE_COUNT * actions * 8;
+		long size = (long) alphaOffset + (long) State.STATE_COUNT * actions * 8;
+
+		if (path.getParent() != null)
+			Files.createDirectories(path.getParent());
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			boolean existing = channel.size() == size;
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (existing && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION && buffer.getInt(12) == actions
+					&& buffer.getInt(16) == State.STATE_COUNT) {
+				int visited = 0;
+				for (int i = HEADER_SIZE; i < qOffset; i += 8)
+					visited += Long.bitCount(buffer.getLong(i));
+				this.visitedCount = visited;
+
+				if (buffer.getInt(8) != tiers || buffer.getDouble(24) != alpha || buffer.getDouble(32) != gamma) {
+					logger.info(new Timestamp(System.currentTimeMillis()) + ":: Q-table < " + path
+							+ " > was learned with tiers=" + buffer.getInt(8) + " alpha=" + buffer.getDouble(24)
+							+ " gamma=" + buffer.getDouble(32) + ", continuing with tiers=" + tiers + " alpha=" + alpha
+							+ " gamma=" + gamma);
+				}
+				logger.info(new Timestamp(System.currentTimeMillis()) + ":: Warm start from Q-table < " + path
+						+ " > with " + visitedCount + " visited states.");
+			} else {
+				if (channel.size() > 0)
+					logger.info(new Timestamp(System.currentTimeMillis()) + ":: Q-table < " + path
+							+ " > does not match the model and is reinitialized.");
+				for (int i = HEADER_SIZE; i < qOffset; i += 8)
+					buffer.putLong(i, 0L);
+				this.visitedCount = 0;
+			}
+
+			// (re)write the header with the current parameters
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putInt(8, tiers);
+			buffer.putInt(12, actions);
+			buffer.putInt(16, State.STATE_COUNT);
+			buffer.putDouble(24, alpha);
+			buffer.putDouble(32, gamma);
+		}
+	}
+
+	@Override
+	public boolean isVisited(int stateId) {
+		long word = (long) WORDS.getAcquire(buffer, HEADER_SIZE + ((stateId >>> 6) << 3));
+		return (word & (1L << stateId)) != 0;
+	}
+
+	@Override
+	public synchronized void initialState(int stateId, double[] initialQs, double alpha) {
+		if (isVisited(stateId))
+			return;
+
+		int row = stateId * actions * 8;
+		for (int a = 0; a < actions; a++) {
+			buffer.putDouble(qOffset + row + a * 8, initialQs[a]);
+			buffer.putDouble(alphaOffset + row + a * 8, alpha);
+		}
+
+		// publish the state after its row is written
+		int wordOffset = HEADER_SIZE + ((stateId >>> 6) << 3);
+		WORDS.setRelease(buffer, wordOffset, buffer.getLong(wordOffset) | (1L << stateId));
+		visitedCount++;
+	}
+
+	@Override
+	public double getQ(int stateId, int actionId) {
+		return buffer.getDouble(qOffset + (stateId * actions + actionId) * 8);
+	}
+
+	@Override
+	public void setQ(int stateId, int actionId, double Qij) {
+		buffer.putDouble(qOffset + (stateId * actions + actionId) * 8, Qij);
+	}
+
+	@Override
+	public double getAlpha(int stateId, int actionId) {
+		return buffer.getDouble(alphaOffset + (stateId * actions + actionId) * 8);
+	}
+
+	@Override
+	public void setAlpha(int stateId, int actionId, double alpha) {
+		buffer.putDouble(alphaOffset + (stateId * actions + actionId) * 8, alpha);
+	}
+
+	@Override
+	public void fillAlpha(double alpha) {
+		forEachVisited(stateId -> {
+			for (int a = 0; a < actions; a++)
+				buffer.putDouble(alphaOffset + (stateId * actions + a) * 8, alpha);
+		});
+	}
+
+	@Override
+	public void fillQ(double Qij) {
+		forEachVisited(stateId -> {
+			for (int a = 0; a < actions; a++)
+				buffer.putDouble(qOffset + (stateId * actions + a) * 8, Qij);
+		});
+	}
+
+	@Override
+	public double[] getQs(int stateId) {
+		if (!isVisited(stateId))
+			return null;
+
+		double[] actionValues = new double[actions];
+		for (int a = 0; a < actions; a++)
+			actionValues[a] = getQ(stateId, a);
+		return actionValues;
+	}
+
+	@Override
+	public void forEachVisited(IntConsumer action) {
+		for (int w = 0; w < BITMAP_SIZE / 8; w++) {
+			long word = (long) WORDS.getAcquire(buffer, HEADER_SIZE + (w << 3));
+			while (word != 0) {
+				int bit = Long.numberOfTrailingZeros(word);
+				action.accept((w << 6) + bit);
+				word &= word - 1;
+			}
+		}
+	}
+
+	@Override
+	public int getVisitedCount() {
+		return visitedCount;
+	}
+
+	@Override
+	public int getActionCount() {
+		return actions;
+	}
+
+	/**
+	 * Write the changes of the mapped file to the storage device
+	 */
+	@Override
+	public void flush() {
+		buffer.force();
+	}
+
+	public Path getPath() {
+		return path;
+	}
+}
@@ -1,18 +1,23 @@
 package RL.QMatrix.Policies.Eviction;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import RL.QMatrix.CacheManager;
 import RL.QMatrix.CacheUpdate;
 import RL.QMatrix.FileInfo;
-import RL.QMatrix.AdmissionStrategy.Position;
 import RL.QMatrix.Policies.RLpoliciesUtils;
-import RL.QMatrix.ReplacementStrategy.Actions;
+import RL.QMatrix.ShardedCacheManager;
+import RL.QMatrix.Tier;
+import RL.QMatrix.WatermarkEvictor;
 import edu.cut.smacc.configuration.Configuration;
 import edu.cut.smacc.server.cache.common.CacheFile;
 import edu.cut.smacc.server.cache.common.StoreOptionType;
@@ -31,10 +36,16 @@ public class EvictionItemRL implements EvictionItemPolicy {
 	private static final Logger logger = LoggerFactory.getLogger(EvictionItemRL.class);
 
 	private boolean CMOwner;
-	private CacheManager CM;
+	private ShardedCacheManager CM;
 	protected HashMap<String, MemoryFile> memFiles;
 	protected HashMap<String, DiskFile> diskFiles;
 
+	// files selected by the background evictors, returned first by getItemToEvict
+	protected ConcurrentLinkedQueue<String> preparedMemQueue;
+	protected ConcurrentLinkedQueue<String> preparedDiskQueue;
+	protected Set<String> preparedMem;
+	protected Set<String> preparedDisk;
+
 	@Override
 	public void onItemAdd(CacheFile file, StoreOptionType tier) {
 		if (CMOwner)
@@ -55,6 +66,7 @@ public class EvictionItemRL implements EvictionItemPolicy {
 
 	@Override
 	public void onItemAccess(CacheFile file, StoreOptionType tier) {
+		unprepare(file.getKey());
 		if (CMOwner)
 			CM.cacheUpdate(CacheUpdate.READ, file.getKey(), file.getActualSize(),
 					RLpoliciesUtils.convertStoreOptionType(tier), RLpoliciesUtils.getLastModified(file));
@@ -62,6 +74,7 @@ public class EvictionItemRL implements EvictionItemPolicy {
 
 	@Override
 	public void onItemUpdate(CacheFile file, StoreOptionType tier) {
+		unprepare(file.getKey());
 		if (CMOwner)
 			CM.cacheUpdate(CacheUpdate.WRITE, file.getKey(), file.getActualSize(),
 					RLpoliciesUtils.convertStoreOptionType(tier), RLpoliciesUtils.getLastModified(file));
@@ -69,6 +82,7 @@ public class EvictionItemRL implements EvictionItemPolicy {
 
 	@Override
 	public void onItemDelete(CacheFile file, StoreOptionType tier) {
+		unprepare(file.getKey());
 		if (CMOwner)
 			CM.cacheUpdate(CacheUpdate.DELETΕ, file.getKey(), file.getTotalSize()/*file.getActualSize()*/,
 					RLpoliciesUtils.convertStoreOptionType(tier), RLpoliciesUtils.getLastModified(file));
@@ -84,6 +98,14 @@ public class EvictionItemRL implements EvictionItemPolicy {
 	public void reset() {
 		diskFiles.clear();
 		memFiles.clear();
+		for (String key : preparedMem)
+			CM.cancelEviction(key);
+		for (String key : preparedDisk)
+			CM.cancelEviction(key);
+		preparedMem.clear();
+		preparedDisk.clear();
+		preparedMemQueue.clear();
+		preparedDiskQueue.clear();
 	}
 
 	@Override
@@ -91,37 +113,29 @@ public class EvictionItemRL implements EvictionItemPolicy {
 
 		Properties prop = RLpoliciesUtils.getCMproperties(conf);
 
-		CMOwner = !CacheManager.isCacheManagerCreated();
-
-		// take the initial qvalues for admission policy
-		double[] admissionQs = new double[Position
-				.validValues(Integer.parseInt(prop.getProperty("cachemanager.qmodelcache.tiers"))).length];
-		String[] aQs = prop.getProperty("cachemanager.qmodelcache.admission.initialQs").split(",");
-		for (int a = 0; a < admissionQs.length; ++a) {
-			admissionQs[a] = Double.parseDouble(aQs[a]);
-		}
+		CMOwner = !RLpoliciesUtils.isCacheManagerCreated();
 
-		// take the initial qvalues for replacement/eviction policy
-		double[] replacementQs = new double[Actions.values().length];
-		String[] rQs = prop.getProperty("cachemanager.qmodelcache.replacement.initialQs").split(",");
-		for (int r = 0; r < replacementQs.length; ++r) {
-			replacementQs[r] = Double.parseDouble(rQs[r]);
-		}
-
-		CM = CacheManager.getCacheManager(Integer.parseInt(prop.getProperty("cachemanager.qmodelcache.tiers")),
-				admissionQs, replacementQs,
-				Integer.parseInt(prop.getProperty("cachemanager.maximumupdatesnum.updatestrategy")),
-				Integer.parseInt(prop.getProperty("cachemanager.maximumupdates.decisions")),
-				Integer.parseInt(prop.getProperty("cachemanager.qmodelreplacement.maxLRU")),
-				Double.parseDouble(prop.getProperty("cachemanager.qmodelcache.alpha")),
-				Double.parseDouble(prop.getProperty("cachemanager.qmodelcache.gamma")),
-				Long.parseLong(prop.getProperty("cachemanager.percentage.memorycapacitythreshold")),
-				Long.parseLong(prop.getProperty("cachemanager.memory.capacity")),
-				Long.parseLong(prop.getProperty("cachemanager.percentage.diskcapacitythreshold")),
-				Long.parseLong(prop.getProperty("cachemanager.disk.capacity")));
+		CM = RLpoliciesUtils.getShardedCacheManager(prop);
 
 		memFiles = new HashMap<String, MemoryFile>();
 		diskFiles = new HashMap<String, DiskFile>();
+		preparedMemQueue = new ConcurrentLinkedQueue<String>();
+		preparedDiskQueue = new ConcurrentLinkedQueue<String>();
+		preparedMem = ConcurrentHashMap.newKeySet();
+		preparedDisk = ConcurrentHashMap.newKeySet();
+
+		// the background evictors only select the files; SMACC evicts them through getItemToEvict (on its write path)
+		CM.startWatermarkEvictors(prop, new WatermarkEvictor.Handler() {
+			@Override
+			public boolean evict(FileInfo file, Tier tier) {
+				return prepareEviction(file, tier);
+			}
+
+			@Override
+			public boolean isPending(FileInfo file, Tier tier) {
+				return isPrepared(file, tier);
+			}
+		});
 
 		if (CMOwner) {
 			logger.info(new Timestamp(System.currentTimeMillis())
@@ -146,6 +160,10 @@ public class EvictionItemRL implements EvictionItemPolicy {
 	@Override
 	public CacheFile getItemToEvict(StoreOptionType evictionTier) {
 
+		CacheFile prepared = pollPrepared(evictionTier);
+		if (prepared != null)
+			return prepared;
+
 		// Supposed that evictionTier is only one tier no combination
 		FileInfo file = CM.cacheRequestReplacement(RLpoliciesUtils.convertStoreOptionTypeToTier(evictionTier));
 
@@ -161,4 +179,89 @@ public class EvictionItemRL implements EvictionItemPolicy {
 		return null;
 	}
 
+	/*
+	 * Handler of the background evictors: keep the selected file until SMACC
+	 * asks for a file to evict from the tier
+	 */
+	private boolean prepareEviction(FileInfo file, Tier tier) {
+		if (tier == Tier.MEM && preparedMem.add(file.getPathname()))
+			return preparedMemQueue.add(file.getPathname());
+		else if (tier == Tier.DISK && preparedDisk.add(file.getPathname()))
+			return preparedDiskQueue.add(file.getPathname());
+		return false;
+	}
+
+	/*
+	 * @return true if the file is prepared and not polled by SMACC yet
+	 */
+	private boolean isPrepared(FileInfo file, Tier tier) {
+		if (tier == Tier.MEM)
+			return preparedMem.contains(file.getPathname());
+		else if (tier == Tier.DISK)
+			return preparedDisk.contains(file.getPathname());
+		return false;
+	}
+
+	/*
+	 * @return the oldest prepared file that is still prepared and in the tier
+	 */
+	private CacheFile pollPrepared(StoreOptionType evictionTier) {
+		String key;
+		if (evictionTier == StoreOptionType.MEMORY_ONLY) {
+			while ((key = preparedMemQueue.poll()) != null) {
+				if (!preparedMem.remove(key))
+					continue;
+				if (memFiles.containsKey(key))
+					return memFiles.get(key);
+				CM.cancelEviction(key); // not in the tier anymore
+			}
+		} else if (evictionTier == StoreOptionType.DISK_ONLY) {
+			while ((key = preparedDiskQueue.poll()) != null) {
+				if (!preparedDisk.remove(key))
+					continue;
+				if (diskFiles.containsKey(key))
+					return diskFiles.get(key);
+				CM.cancelEviction(key); // not in the tier anymore
+			}
+		}
+		return null;
+	}
+
+	// an accessed, updated or deleted file is not an eviction candidate anymore
+	private void unprepare(String key) {
+		boolean prepared = preparedMem.remove(key);
+		prepared |= preparedDisk.remove(key);
+		if (prepared)
+			CM.cancelEviction(key);
+	}
+
+	/**
+	 * Batch version of getItemToEvict: select in one call the items to evict
+	 * from the tier to free bytesNeeded bytes
+	 *
+	 * @return the items to evict in eviction order (empty if there is not any
+	 *         item to evict)
+	 */
+	public List<CacheFile> getItemsToEvict(StoreOptionType evictionTier, long bytesNeeded) {
+
+		// Supposed that evictionTier is only one tier no combination
+		List<FileInfo> files = CM.cacheRequestReplacement(RLpoliciesUtils.convertStoreOptionTypeToTier(evictionTier), bytesNeeded);
+		List<CacheFile> items = new ArrayList<CacheFile>(files.size());
+
+		for (FileInfo file : files) {
+			CacheFile item = null;
+			if (evictionTier == StoreOptionType.DISK_ONLY)
+				item = diskFiles.get(file.getPathname());
+			else if (evictionTier == StoreOptionType.MEMORY_ONLY)
+				item = memFiles.get(file.getPathname());
+			if (item != null)
+				items.add(item);
+			else
+				CM.cancelEviction(file.getPathname()); // not a file of the tier
+		}
+		if (items.isEmpty())
+			logger.error(new Timestamp(System.currentTimeMillis()) + ":: There is not any file to evict!");
+		return items;
+	}
+
 }
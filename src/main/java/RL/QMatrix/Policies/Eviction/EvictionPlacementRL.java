@@ -6,11 +6,9 @@ import java.util.Properties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import RL.QMatrix.CacheManager;
 import RL.QMatrix.CacheUpdate;
-import RL.QMatrix.AdmissionStrategy.Position;
 import RL.QMatrix.Policies.RLpoliciesUtils;
-import RL.QMatrix.ReplacementStrategy.Actions;
+import RL.QMatrix.ShardedCacheManager;
 import edu.cut.smacc.configuration.Configuration;
 import edu.cut.smacc.server.cache.common.CacheFile;
 import edu.cut.smacc.server.cache.common.StoreOptionType;
@@ -27,7 +25,7 @@ public class EvictionPlacementRL implements EvictionPlacementPolicy {
 	private static final Logger logger = LoggerFactory.getLogger(EvictionPlacementRL.class);
 
 	private boolean CMOwner;
-	private CacheManager CM;
+	private ShardedCacheManager CM;
 
 	@Override
 	public void onItemAdd(CacheFile file, StoreOptionType tier) {
@@ -73,34 +71,9 @@ public class EvictionPlacementRL implements EvictionPlacementPolicy {
 
 		Properties prop = RLpoliciesUtils.getCMproperties(conf);
 
-		CMOwner = !CacheManager.isCacheManagerCreated();
+		CMOwner = !RLpoliciesUtils.isCacheManagerCreated();
 		
-		// take the initial qvalues for admission policy
-		double[] admissionQs = new double[Position
-				.validValues(Integer.parseInt(prop.getProperty("cachemanager.qmodelcache.tiers"))).length];
-		String[] aQs = prop.getProperty("cachemanager.qmodelcache.admission.initialQs").split(",");
-		for (int a = 0; a < admissionQs.length; ++a) {
-			admissionQs[a] = Double.parseDouble(aQs[a]);
-		}
-
-		// take the initial qvalues for replacement/eviction policy
-		double[] replacementQs = new double[Actions.values().length];
-		String[] rQs = prop.getProperty("cachemanager.qmodelcache.replacement.initialQs").split(",");
-		for (int r = 0; r < replacementQs.length; ++r) {
-			replacementQs[r] = Double.parseDouble(rQs[r]);
-		}
-
-		CM = CacheManager.getCacheManager(Integer.parseInt(prop.getProperty("cachemanager.qmodelcache.tiers")),
-				admissionQs, replacementQs,
-				Integer.parseInt(prop.getProperty("cachemanager.maximumupdatesnum.updatestrategy")),
-				Integer.parseInt(prop.getProperty("cachemanager.maximumupdates.decisions")),
-				Integer.parseInt(prop.getProperty("cachemanager.qmodelreplacement.maxLRU")),
-				Double.parseDouble(prop.getProperty("cachemanager.qmodelcache.alpha")),
-				Double.parseDouble(prop.getProperty("cachemanager.qmodelcache.gamma")),
-				Long.parseLong(prop.getProperty("cachemanager.percentage.memorycapacitythreshold")),
-				Long.parseLong(prop.getProperty("cachemanager.memory.capacity")),
-				Long.parseLong(prop.getProperty("cachemanager.percentage.diskcapacitythreshold")),
-				Long.parseLong(prop.getProperty("cachemanager.disk.capacity")));
+		CM = RLpoliciesUtils.getShardedCacheManager(prop);
 
 		if (CMOwner) {
 			logger.info(new Timestamp(System.currentTimeMillis())
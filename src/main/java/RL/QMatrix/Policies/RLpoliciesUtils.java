@@ -10,8 +10,12 @@ import java.util.Properties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import RL.QMatrix.CacheManager;
+import RL.QMatrix.ShardedCacheManager;
 import RL.QMatrix.Tier;
+import RL.QMatrix.AdmissionStrategy.Position;
 import RL.QMatrix.AdmissionStrategy.TiersMovements;
+import RL.QMatrix.ReplacementStrategy.Actions;
 import edu.cut.smacc.configuration.Configuration;
 import edu.cut.smacc.server.cache.common.CacheFile;
 import edu.cut.smacc.server.cache.common.StoreOptionType;
@@ -26,6 +30,8 @@ public class RLpoliciesUtils {
 
 	private static final Logger logger = LoggerFactory.getLogger(RLpoliciesUtils.class);
 
+	private static ShardedCacheManager policiesCM = null; // the Cache Manager of the SMACC policies
+
 	public static Properties getCMproperties(Configuration conf) {
 		Properties prop = new Properties();
 		File configFile = new File(conf.getString("rl.config.file"));
@@ -50,6 +56,102 @@ public class RLpoliciesUtils {
 		return prop;
 	}
 
+	/**
+	 * @return true if the Cache Manager of the policies is created (the first
+	 *         policy that creates it forwards the cache updates)
+	 */
+	public static synchronized boolean isCacheManagerCreated() {
+		return policiesCM != null;
+	}
+
+	/**
+	 * @return the Cache Manager of the policies: the shared instance, or N
+	 *         independent shards if cachemanager.shards > 1
+	 */
+	public static synchronized ShardedCacheManager getShardedCacheManager(Properties prop) {
+		if (policiesCM == null) {
+			if (Integer.parseInt(prop.getProperty("cachemanager.shards", "1").trim()) > 1)
+				policiesCM = new Settings(prop).newShardedCacheManager(prop);
+			else
+				policiesCM = new ShardedCacheManager(new CacheManager[] { getCacheManager(prop) }, ShardedCacheManager.Routing.HASH, 1);
+		}
+		return policiesCM;
+	}
+
+	public static CacheManager getCacheManager(Properties prop) {
+		return new Settings(prop).getCacheManager(prop);
+	}
+
+	/**
+	 * @return an independent Cache Manager (not the shared instance)
+	 */
+	public static CacheManager newCacheManager(Properties prop) {
+		return new Settings(prop).newCacheManager(prop);
+	}
+
+	/**
+	 * The settings of the Cache Manager from cachemanager.config.properties
+	 * (the optional settings, e.g., cachemanager.async.*, are read by the
+	 * CacheManager)
+	 */
+	private static class Settings {
+		final int tiers;
+		final double[] admissionQs;
+		final double[] replacementQs;
+		final int maxUpdatesNum;
+		final int maxDecisions;
+		final int maxLRU;
+		final double alpha;
+		final double gamma;
+		final long memThresPerc;
+		final long memCapacity;
+		final long diskThresPerc;
+		final long diskCapacity;
+
+		Settings(Properties prop) {
+			tiers = Integer.parseInt(prop.getProperty("cachemanager.qmodelcache.tiers").trim());
+
+			// take the initial qvalues for admission policy
+			admissionQs = new double[Position.validValues(tiers).length];
+			String[] aQs = prop.getProperty("cachemanager.qmodelcache.admission.initialQs").split(",");
+			for (int a = 0; a < admissionQs.length; ++a) {
+				admissionQs[a] = Double.parseDouble(aQs[a]);
+			}
+
+			// take the initial qvalues for replacement/eviction policy
+			replacementQs = new double[Actions.values().length];
+			String[] rQs = prop.getProperty("cachemanager.qmodelcache.replacement.initialQs").split(",");
+			for (int r = 0; r < replacementQs.length; ++r) {
+				replacementQs[r] = Double.parseDouble(rQs[r]);
+			}
+
+			maxUpdatesNum = Integer.parseInt(prop.getProperty("cachemanager.maximumupdatesnum.updatestrategy").trim());
+			maxDecisions = Integer.parseInt(prop.getProperty("cachemanager.maximumupdates.decisions").trim());
+			maxLRU = Integer.parseInt(prop.getProperty("cachemanager.qmodelreplacement.maxLRU").trim());
+			alpha = Double.parseDouble(prop.getProperty("cachemanager.qmodelcache.alpha"));
+			gamma = Double.parseDouble(prop.getProperty("cachemanager.qmodelcache.gamma"));
+			memThresPerc = Long.parseLong(prop.getProperty("cachemanager.percentage.memorycapacitythreshold").trim());
+			memCapacity = Long.parseLong(prop.getProperty("cachemanager.memory.capacity").trim());
+			diskThresPerc = Long.parseLong(prop.getProperty("cachemanager.percentage.diskcapacitythreshold").trim());
+			diskCapacity = Long.parseLong(prop.getProperty("cachemanager.disk.capacity").trim());
+		}
+
+		CacheManager getCacheManager(Properties prop) {
+			return CacheManager.getCacheManager(tiers, admissionQs, replacementQs, maxUpdatesNum, maxDecisions, maxLRU,
+					alpha, gamma, memThresPerc, memCapacity, diskThresPerc, diskCapacity, prop);
+		}
+
+		CacheManager newCacheManager(Properties prop) {
+			return CacheManager.newCacheManager(tiers, admissionQs, replacementQs, maxUpdatesNum, maxDecisions, maxLRU,
+					alpha, gamma, memThresPerc, memCapacity, diskThresPerc, diskCapacity, prop);
+		}
+
+		ShardedCacheManager newShardedCacheManager(Properties prop) {
+			return ShardedCacheManager.newShardedCacheManager(tiers, admissionQs, replacementQs, maxUpdatesNum, maxDecisions, maxLRU,
+					alpha, gamma, memThresPerc, memCapacity, diskThresPerc, diskCapacity, prop);
+		}
+	}
+
 	public static TiersMovements convertStoreOptionType(StoreOptionType tier) {
 		// convert MEMORY_ONLY, DISK_ONLY, MEMORY_DISK, S3_ONLY to CM Position
 		// NONE, DISK, SSD, DISK_SSD, MEM, DISK_MEM, SSD_MEM, DISK_SSD_MEM
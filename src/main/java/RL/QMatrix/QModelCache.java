@@ -1,17 +1,13 @@
 package RL.QMatrix;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 
 import com.github.chen0040.rl.models.QModel;
 import com.github.chen0040.rl.utils.IndexValue;
-import com.github.chen0040.rl.utils.Vec;
 
 import RL.QMatrix.AdmissionStrategy.Position;
 
@@ -23,14 +19,10 @@ import RL.QMatrix.AdmissionStrategy.Position;
 
 public class QModelCache extends QModel {
 		/**
-	    *  Q value for (state_id, action_id) pair
+	    *  Q value and $\alpha[s, a]$ value for learning rate for (state_id, action_id) pair
 	    *  Q is known as the quality of state-action combination, note that it is different from utility of a state
 	    */
-		private HashMap<Integer,double[]> Qvalues;	
-	    /**
-	    *  $\alpha[s, a]$ value for learning rate: alpha(state_id, action_id)
-	    */
-		private HashMap<Integer,double[]> alphaMatrix;
+		private QTable table;
 		private double alpha;
 		    
 	    /**
@@ -43,11 +35,12 @@ public class QModelCache extends QModel {
 	    
 	    
 	public QModelCache(int tiersMovements, double[] initialQ, double alpha, double gamma) {		
-		//Create Q-Table
-		Qvalues = new HashMap<Integer,double[]>();
-		
-		//Create alpha-table
-		alphaMatrix = new HashMap<Integer,double[]>();
+		this(tiersMovements, initialQ, alpha, gamma, new HashQTable(initialQ.length));
+	}
+
+	public QModelCache(int tiersMovements, double[] initialQ, double alpha, double gamma, QTable table) {		
+		//Q-Table & alpha-table
+		this.table = table;
 	
 		this.tiersMovements = tiersMovements;
 		this.initialQs = initialQ;
@@ -57,76 +50,77 @@ public class QModelCache extends QModel {
 	 
 	 @Override
 	 public double getQ(int stateId, int actionId){
-		 if (!Qvalues.containsKey(stateId)) //if state does not exist
+		 if (!table.isVisited(stateId)) //if state does not exist
 			 initialStateAction(stateId);
 		 
-	        return Qvalues.get(stateId)[actionId];
+	        return table.getQ(stateId, actionId);
 	    }
 	 
 	 @Override
 	 public void setQ(int stateId, int actionId, double Qij){
-		 if (!Qvalues.containsKey(stateId)) //if state does not exist
+		 if (!table.isVisited(stateId)) //if state does not exist
 			 initialStateAction(stateId);
 		
-				 double[] actions = Qvalues.get(stateId);
-				 actions[actionId] = Qij;
-				 Qvalues.put(stateId, actions); 
+		 table.setQ(stateId, actionId, Qij);
 	 }	
 	 
 	 public void initialStateAction(int stateId) {
-		 
-		double[] actions = new double[initialQs.length];
-		for(int a=0; a<initialQs.length;a++)
-			actions[a] = initialQs[a];
-		Qvalues.put(stateId, actions);
-		     
-		//initialize alpha-values
-		double[] alphaValues = new double[initialQs.length];
-		for(int a=0; a<initialQs.length; a++)	
-			alphaValues[a] = alpha;	    	
-		alphaMatrix.put(stateId, alphaValues);
+		//initialize Q-values and alpha-values
+		table.initialState(stateId, initialQs, alpha);
 	 }
 	 
 	 @Override
 	 public double getAlpha(int stateId, int actionId){
-	        return alphaMatrix.get(stateId)[actionId];
+	        return table.getAlpha(stateId, actionId);
 	 }
 
 	 @Override
 	 public void setAlpha(double defaultAlpha) {
-		 for (HashMap.Entry<Integer,double[]> entry : alphaMatrix.entrySet()) {
-			 double[] actions = this.alphaMatrix.get(entry.getKey());
-			 for (int i=0;i<actions.length;i++) {
-					actions[i] = defaultAlpha;
-				}
-	    }
+		 table.fillAlpha(defaultAlpha);
 	 }
 	 
 	 @Override
 	 public IndexValue actionWithMaxQAtState(int stateId, Set<Integer> actionsAtState){
-		 if (!Qvalues.containsKey(stateId)) //if state does not exist
+		 if (!table.isVisited(stateId)) //if state does not exist
 			 initialStateAction(stateId);
 		 
-	        Vec rowVector = new Vec(Qvalues.get(stateId));
-	        return rowVector.indexWithMaxValue(actionsAtState);
+		 // same selection as Vec.indexWithMaxValue (first maximum wins) without copying the row
+		 IndexValue result = new IndexValue();
+		 result.setIndex(-1);
+		 result.setValue(Double.NEGATIVE_INFINITY);
+		 if (actionsAtState == null) {
+			 for (int actionId = 0; actionId < table.getActionCount(); ++actionId) {
+				 double value = table.getQ(stateId, actionId);
+				 if (result.getIndex() == -1 || result.getValue() < value) {
+					 result.setIndex(actionId);
+					 result.setValue(value);
+				 }
+			 }
+		 } else {
+			 for (Integer actionId : actionsAtState) {
+				 double value = table.getQ(stateId, actionId);
+				 if (result.getIndex() == -1 || result.getValue() < value) {
+					 result.setIndex(actionId);
+					 result.setValue(value);
+				 }
+			 }
+		 }
+		 return result;
 	 }
 
      public void reset(double initialQ) {
-		for (HashMap.Entry<Integer,double[]> entry : Qvalues.entrySet()) {
-				for (int i=0;i<entry.getValue().length;i++) {
-					entry.getValue()[i] = initialQ;
-				}
-		 }
+		table.fillQ(initialQ);
 	 }
 
 	 @Override
 	 public IndexValue actionWithSoftMaxQAtState(int stateId,Set<Integer> actionsAtState, Random random) {
-	        Vec rowVector = new Vec(Qvalues.get(stateId));
+		 	if (!table.isVisited(stateId)) //if state does not exist
+		 		initialStateAction(stateId);
 	        double sum = 0;
 
 	        if(actionsAtState==null){
 	            actionsAtState = new HashSet<>();
-	            for(int i=0; i < Qvalues.get(stateId).length; ++i){
+	            for(int i=0; i < table.getActionCount(); ++i){
 	                actionsAtState.add(i);
 	            }
 	        }
@@ -138,7 +132,7 @@ public class QModelCache extends QModel {
 
 	        double[] acc = new double[actions.size()];
 	        for(int i=0; i < actions.size(); ++i){
-	            sum += rowVector.get(actions.get(i));
+	            sum += table.getQ(stateId, actions.get(i));
 	            acc[i] = sum;
 	        }
 
@@ -150,7 +144,7 @@ public class QModelCache extends QModel {
 	            if(acc[i] >= r){
 	                int actionId = actions.get(i);
 	                result.setIndex(actionId);
-	                result.setValue(rowVector.get(actionId));
+	                result.setValue(table.getQ(stateId, actionId));
 	                break;
 	            }
 	        }
@@ -164,15 +158,13 @@ public class QModelCache extends QModel {
 		 * 
 		 */
 		public void print(int strategy) {
-			int counter = 1;
+			int[] counter = { 1 };
 
-			for (Iterator<Entry<Integer, double[]>> entry = Qvalues.entrySet().iterator(); entry.hasNext();) {
-				Entry<Integer, double[]> state = entry.next();
+			table.forEachVisited(stateId -> {
+				double[] actions = table.getQs(stateId);
 
-				double[] actions = state.getValue();
-
-				System.out.println("\n(" + counter + ")\n" + "File State: " + state.getKey());
-				counter++;
+				System.out.println("\n(" + counter[0] + ")\n" + "File State: " + stateId);
+				counter[0]++;
 		
 				if (strategy == 1) {
 					System.out.println("NOT_EVICT = " + actions[0]);
@@ -184,7 +176,7 @@ public class QModelCache extends QModel {
 					}
 				} else
 					System.out.println("\nUsed wrong parameter num for strategy! (0-admission & 1-replacement)\n");
-			}
+			});
 
 		}
 	 
@@ -196,10 +188,27 @@ public class QModelCache extends QModel {
 		 return this.gamma;
 	 }
 	 
+	 public boolean isStateVisited(int stateId){
+		 return table.isVisited(stateId);
+	 }
+	 
+	 public QTable getTable(){
+		 return this.table;
+	 }
+	 
 	 public double[] getQs(int stateId){
-		if(Qvalues.get(stateId)!=null)
-	        return Qvalues.get(stateId);
-		else 
-			return null; //if state does not exist
+		 return table.getQs(stateId); //null if state does not exist
 	    }
+
+	 /**
+	  * Copy the Q-values of count states into rows (the states that do not
+	  * exist are initialized, as by getQ)
+	  */
+	 public void getQRows(int[] stateIds, int count, double[] rows){
+		 for (int i = 0; i < count; i++)
+			 if (!table.isVisited(stateIds[i]))
+				 initialStateAction(stateIds[i]);
+
+		 table.getQRows(stateIds, count, rows);
+	 }
 }
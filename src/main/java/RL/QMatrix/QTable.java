@@ -0,0 +1,71 @@
+package RL.QMatrix;
+
+import java.util.function.IntConsumer;
+
+/**
+ * This interface represents the storage of a Q-table: the Q-value and the
+ * learning rate (alpha) of every (state_id, action_id) pair of the visited
+ * states.
+ *
+ * @author Kakoulli Elena
+ */
+
+public interface QTable {
+
+	/**
+	 * @return true if the state has been initialized
+	 */
+	boolean isVisited(int stateId);
+
+	/**
+	 * Initialize a state with the initial Q-values and the default alpha (do
+	 * nothing if the state is already visited)
+	 */
+	void initialState(int stateId, double[] initialQs, double alpha);
+
+	double getQ(int stateId, int actionId);
+
+	void setQ(int stateId, int actionId, double Qij);
+
+	double getAlpha(int stateId, int actionId);
+
+	void setAlpha(int stateId, int actionId, double alpha);
+
+	/**
+	 * Set alpha of all the actions of all the visited states
+	 */
+	void fillAlpha(double alpha);
+
+	/**
+	 * Set the Q-value of all the actions of all the visited states
+	 */
+	void fillQ(double Qij);
+
+	/**
+	 * @return a copy of the Q-values of the state or null if it is not visited
+	 */
+	double[] getQs(int stateId);
+
+	/**
+	 * Copy the Q-values of count states (all visited) into rows (row i =
+	 * rows[i * actions .. i * actions + actions - 1])
+	 */
+	default void getQRows(int[] stateIds, int count, double[] rows) {
+		int actions = getActionCount();
+		for (int i = 0; i < count; i++)
+			for (int a = 0; a < actions; a++)
+				rows[i * actions + a] = getQ(stateIds[i], a);
+	}
+
+	void forEachVisited(IntConsumer action);
+
+	int getVisitedCount();
+
+	int getActionCount();
+
+	/**
+	 * Make the table durable (only for persistent tables)
+	 */
+	default void flush() {
+	}
+}
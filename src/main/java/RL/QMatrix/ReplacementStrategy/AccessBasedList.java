@@ -9,9 +9,13 @@ import java.util.NoSuchElementException;
 /**
  * This class keeps a sorted list of objects based on recency.
  * 
+ * All operations are synchronized on the list, so a list can be shared by
+ * concurrent updates. The iterators are not synchronized; use getLRUItems or
+ * getMRUItems to take a snapshot while the list is being updated.
+ * 
  * @author herodotos.herodotou
  */
-public class AccessBasedList<T> {
+public class AccessBasedList<T> implements RecencyList<T> {
 
     private DoublyLinkedList itemList;
     private Map<T, Node> itemMap;
@@ -21,7 +25,8 @@ public class AccessBasedList<T> {
         itemMap = new HashMap<T, Node>();
     }
 
-    public void add(T item) {
+    @Override
+    public synchronized void add(T item) {
         if (item != null && !itemMap.containsKey(item)) {
             Node node = new Node(item);
             node = itemList.addToHead(node);
@@ -29,7 +34,8 @@ public class AccessBasedList<T> {
         }
     }
 
-    public void addLast(T item) {
+    @Override
+    public synchronized void addLast(T item) {
         if (item != null && !itemMap.containsKey(item)) {
             Node node = new Node(item);
             node = itemList.addToTail(node);
@@ -37,7 +43,7 @@ public class AccessBasedList<T> {
         }
     }
 
-    public void addToNext(T current, T item) {
+    public synchronized void addToNext(T current, T item) {
         if (current != null && itemMap.containsKey(current)
                 && item != null && !itemMap.containsKey(item)) {
             Node currNode = itemMap.get(current);
@@ -47,28 +53,29 @@ public class AccessBasedList<T> {
         }
     }
 
-    public void addNode(Node node) {
+    public synchronized void addNode(Node node) {
         if (!itemMap.containsKey(node.item)) {
             node = itemList.addToHead(node);
             itemMap.put(node.item, node);
         }
     }
 
-    public void addNodeLast(Node node) {
+    public synchronized void addNodeLast(Node node) {
         if (!itemMap.containsKey(node.item)) {
             node = itemList.addToTail(node);
             itemMap.put(node.item, node);
         }
     }
 
-    public void accessItem(T item) {
+    @Override
+    public synchronized void accessItem(T item) {
         if (item != null && itemMap.containsKey(item)) {
             Node node = itemMap.get(item);
             itemList.moveNodeToHead(node);
         }
     }
 
-    public Node deleteItem(T item) {
+    public synchronized Node deleteItem(T item) {
         if (item != null && itemMap.containsKey(item)) {
             itemList.removeNode(itemMap.get(item));
             Node node = itemMap.remove(item);
@@ -79,18 +86,46 @@ public class AccessBasedList<T> {
         return null;
     }
 
-    public void moveToTail(T item) {
+    /**
+     * @return the node of the item, so that an access does not look it up
+     */
+    @Override
+    public synchronized Object addWithHandle(T item) {
+        add(item);
+        return (item != null) ? itemMap.get(item) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized void accessHandle(T item, Object handle) {
+        if (handle == null) {
+            accessItem(item);
+            return;
+        }
+        Node node = (Node) handle;
+        // the node of a deleted item is cleared (and is not the head)
+        if (node.item == item && (node.getPrev() != null || itemList.head == node))
+            itemList.moveNodeToHead(node);
+    }
+
+    @Override
+    public synchronized boolean removeItem(T item) {
+        return deleteItem(item) != null;
+    }
+
+    public synchronized void moveToTail(T item) {
         Node node = deleteItem(item);
         if (node != null) {
             addLast(item);
         }
     }
 
-    public boolean containsItem(T item) {
+    @Override
+    public synchronized boolean containsItem(T item) {
         return item != null && itemMap.containsKey(item);
     }
 
-    public void replaceItem(T item, T[] items) {
+    public synchronized void replaceItem(T item, T[] items) {
         if (!containsItem(item) || items == null)
             return;
 
@@ -107,7 +142,7 @@ public class AccessBasedList<T> {
             deleteItem(item);
     }
 
-    public Node removeLRUNode() {
+    public synchronized Node removeLRUNode() {
         Node tail = itemList.removeTail();
         if (tail != null) {
             Node node = itemMap.remove(tail.item);
@@ -117,7 +152,7 @@ public class AccessBasedList<T> {
             return null;
     }
 
-    public Node removeMRUNode() {
+    public synchronized Node removeMRUNode() {
         Node head = itemList.removeHead();
         if (head != null) {
             Node node = itemMap.remove(head.item);
@@ -127,46 +162,53 @@ public class AccessBasedList<T> {
             return null;
     }
 
-    public void printListState() {
+    public synchronized void printListState() {
         itemList.printList();
         System.out.println();
     }
 
-    public T getLRUItem() {
+    @Override
+    public synchronized T getLRUItem() {
         return itemList.getLRUItem();
     }
 
+    @Override
     public Iterator<T> getLRUItemIterator() {
         return itemList.getLRUItemIterator();
     }
 
-    public ArrayList<T> getLRUItems(int count) {
+    @Override
+    public synchronized ArrayList<T> getLRUItems(int count) {
         return itemList.getCountLRUItems(count);
     }
 
-    public T getMRUItem() {
+    public synchronized T getMRUItem() {
         return itemList.getMRUItem();
     }
 
+    @Override
     public Iterator<T> getMRUItemIterator() {
         return itemList.getMRUItemIterator();
     }
 
-    public ArrayList<T> getMRUItems(int count) {
+    @Override
+    public synchronized ArrayList<T> getMRUItems(int count) {
         return itemList.getCountMRUItems(count);
     }
 
-    public int size() {
+    @Override
+    public synchronized int size() {
         return itemList.size();
     }
 
-    public void clear() {
+    @Override
+    public synchronized void clear() {
         while (removeLRUNode() != null)
             ;
     }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
         return itemList.toString();
     }
 
@@ -0,0 +1,221 @@
+package RL.QMatrix.ReplacementStrategy;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class represents a recency list whose accesses are recorded in striped
+ * lossy buffers and replayed on the list in batches, so a hit does not
+ * reorder (and lock) the list. A thread offers the access to the buffer of
+ * its stripe; when the buffer is half full the thread drains all the buffers
+ * under a try-lock (if another thread is draining it just continues). When a
+ * buffer is full the access is dropped, so under heavy load the order is an
+ * approximate LRU.
+ *
+ * Adds and deletes go directly to the list. The LRU/MRU items are read after
+ * draining the pending accesses (peekLRUItem does not drain them).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class BufferedRecencyList<T> implements RecencyList<T> {
+
+	private static final int BUFFER_SIZE = 16; // accesses per stripe (power of two)
+	private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 2;
+
+	private final AccessBasedList<T> list; // the recency order
+	private final ReadBuffer<T>[] buffers;
+	private final int buffersMask;
+	private final ReentrantLock drainLock;
+	private final LongAdder dropped;
+
+	public BufferedRecencyList() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	@SuppressWarnings("unchecked")
+	public BufferedRecencyList(int stripes) {
+		int size = Integer.highestOneBit(Math.max(2, stripes) - 1) << 1;
+		this.list = new AccessBasedList<>();
+		this.buffers = new ReadBuffer[size];
+		for (int i = 0; i < size; i++)
+			this.buffers[i] = new ReadBuffer<>();
+		this.buffersMask = size - 1;
+		this.drainLock = new ReentrantLock();
+		this.dropped = new LongAdder();
+	}
+
+	@Override
+	public void accessItem(T item) {
+		if (item == null)
+			return;
+		int pending = buffers[stripe()].offer(item);
+		if (pending < 0) {
+			dropped.increment();
+			tryDrain();
+		} else if (pending >= DRAIN_THRESHOLD)
+			tryDrain();
+	}
+
+	private int stripe() {
+		long id = Thread.currentThread().getId();
+		int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return (h >>> 16) & buffersMask;
+	}
+
+	private void tryDrain() {
+		if (drainLock.tryLock()) {
+			try {
+				drain();
+			} finally {
+				drainLock.unlock();
+			}
+		}
+	}
+
+	private void drain() {
+		synchronized (list) { // lock the list once per batch
+			for (ReadBuffer<T> buffer : buffers)
+				buffer.drainTo(list);
+		}
+	}
+
+	/**
+	 * Replay the pending accesses (waits for a running drain)
+	 */
+	public void flush() {
+		drainLock.lock();
+		try {
+			drain();
+		} finally {
+			drainLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of accesses that were dropped because a buffer was full
+	 */
+	public long getDroppedAccesses() {
+		return dropped.sum();
+	}
+
+	@Override
+	public void add(T item) {
+		list.add(item);
+	}
+
+	@Override
+	public void addLast(T item) {
+		list.addLast(item);
+	}
+
+	@Override
+	public boolean removeItem(T item) {
+		return list.removeItem(item); // a pending access of a removed item is ignored by the list
+	}
+
+	@Override
+	public boolean containsItem(T item) {
+		return list.containsItem(item);
+	}
+
+	@Override
+	public T getLRUItem() {
+		tryDrain();
+		return list.getLRUItem();
+	}
+
+	@Override
+	public T peekLRUItem() {
+		return list.getLRUItem();
+	}
+
+	@Override
+	public List<T> getLRUItems(int count) {
+		tryDrain();
+		return list.getLRUItems(count);
+	}
+
+	@Override
+	public List<T> getMRUItems(int count) {
+		tryDrain();
+		return list.getMRUItems(count);
+	}
+
+	@Override
+	public Iterator<T> getLRUItemIterator() {
+		tryDrain();
+		return list.getLRUItemIterator();
+	}
+
+	@Override
+	public Iterator<T> getMRUItemIterator() {
+		tryDrain();
+		return list.getMRUItemIterator();
+	}
+
+	@Override
+	public int size() {
+		return list.size();
+	}
+
+	@Override
+	public void clear() {
+		drainLock.lock();
+		try {
+			drain();
+			list.clear();
+		} finally {
+			drainLock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return list.toString();
+	}
+
+	/**
+	 * A bounded buffer of accesses with many producers (the threads of a
+	 * stripe) and one consumer at a time (the drain, under the drain lock)
+	 */
+	private static final class ReadBuffer<T> {
+
+		private final AtomicReferenceArray<T> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+		private final AtomicLong writeCounter = new AtomicLong();
+		private volatile long readCounter; // written only by the drain
+
+		/**
+		 * @return the pending accesses after the offer, or -1 if the access
+		 *         was dropped (full buffer or contention)
+		 */
+		int offer(T item) {
+			long head = readCounter;
+			long tail = writeCounter.get();
+			long size = tail - head;
+			if (size >= BUFFER_SIZE || !writeCounter.compareAndSet(tail, tail + 1))
+				return -1;
+			slots.lazySet((int) (tail & (BUFFER_SIZE - 1)), item);
+			return (int) size + 1;
+		}
+
+		void drainTo(AccessBasedList<T> list) {
+			long head = readCounter;
+			long tail = writeCounter.get();
+			while (head < tail) {
+				int index = (int) (head & (BUFFER_SIZE - 1));
+				T item = slots.get(index);
+				if (item == null)
+					break; // reserved but not written yet
+				slots.lazySet(index, null);
+				list.accessItem(item);
+				head++;
+			}
+			readCounter = head;
+		}
+	}
+}
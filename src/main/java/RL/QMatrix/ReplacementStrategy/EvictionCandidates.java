@@ -0,0 +1,276 @@
+package RL.QMatrix.ReplacementStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import RL.QMatrix.FileInfo;
+
+/**
+ * This class represents the eviction candidates of a tier ordered by the
+ * advantage of evicting them (Q-value of the best eviction action over
+ * NOT_EVICT) according to the replacement agent. The advantage depends only on
+ * the state of a file, so the files are kept in one bucket per state, in LRU
+ * order, and only the buckets are ordered: the best candidate is the LRU file
+ * of the best bucket.
+ *
+ * The candidates are updated when a file is added, accessed or removed from
+ * the tier. When the agent publishes a new Q-model version, refresh rescores
+ * the buckets (one advantage per state) and moves only the files whose state
+ * changed (the state of a file changes also with the statistics of its
+ * directory and type); the files are checked in chunks of REFRESH_CHUNK, so
+ * the requests that add or remove candidates wait at most one chunk. The
+ * polled files wait in a parked set until they leave the tier, are accessed
+ * or the next refresh adds them back.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class EvictionCandidates {
+
+	static final int REFRESH_CHUNK = 1024;
+
+	/*
+	 * A file in a bucket. A removed node keeps its next node, so the refresh
+	 * continues from a node that was removed while it did not hold the lock.
+	 */
+	private static class Node {
+		final FileInfo file;
+		final Bucket bucket;
+		Node prev, next;
+		boolean removed;
+
+		Node(FileInfo file, Bucket bucket) {
+			this.file = file;
+			this.bucket = bucket;
+		}
+	}
+
+	private static class Bucket {
+		final int state;
+		double advantage; // NaN if the agent does not evict at the state
+		Node head, tail; // LRU first
+		int size;
+
+		Bucket(int state, double advantage) {
+			this.state = state;
+			this.advantage = advantage;
+		}
+
+		void append(Node node) {
+			node.prev = tail;
+			if (tail != null)
+				tail.next = node;
+			else
+				head = node;
+			tail = node;
+			size++;
+		}
+
+		void unlink(Node node) {
+			if (node.prev != null)
+				node.prev.next = node.next;
+			else
+				head = node.next;
+			if (node.next != null)
+				node.next.prev = node.prev;
+			else
+				tail = node.prev;
+			node.removed = true;
+			size--;
+		}
+	}
+
+	private final ReplacementAgent RA;
+	private final int tierBit; // bit of the tier in FileInfo.getLRUTiers
+	private final Map<Integer, Bucket> buckets; // by state
+	private final Map<FileInfo, Node> nodeOf;
+	private final LinkedHashSet<FileInfo> parked; // polled files, added back by refresh if they are still in the tier
+	// non-empty buckets with an eviction action, best first
+	private final TreeSet<Bucket> ranked = new TreeSet<>((b1, b2) -> (b1.advantage != b2.advantage)
+			? Double.compare(b2.advantage, b1.advantage) : Integer.compare(b1.state, b2.state));
+	private volatile long version; // Q-model version of the advantages
+
+	public EvictionCandidates(ReplacementAgent RA, int tierBit) {
+		this.RA = RA;
+		this.tierBit = tierBit;
+		this.buckets = new HashMap<>();
+		this.nodeOf = new IdentityHashMap<>();
+		this.parked = new LinkedHashSet<>();
+		this.version = RA.getModelVersion();
+	}
+
+	/**
+	 * Add the file as the most recently used file of its state (or move it
+	 * there after an access)
+	 */
+	public synchronized void add(FileInfo file) {
+		remove(file);
+		add(file, file.getStateID());
+	}
+
+	private void add(FileInfo file, int state) {
+		Bucket bucket = bucket(state);
+		if (bucket.size == 0 && !Double.isNaN(bucket.advantage))
+			ranked.add(bucket);
+		Node node = new Node(file, bucket);
+		bucket.append(node);
+		nodeOf.put(file, node);
+	}
+
+	public synchronized boolean remove(FileInfo file) {
+		parked.remove(file);
+		Node node = nodeOf.remove(file);
+		if (node == null)
+			return false;
+		unlink(node);
+		return true;
+	}
+
+	private void unlink(Node node) {
+		Bucket bucket = node.bucket;
+		bucket.unlink(node);
+		if (bucket.size == 0)
+			ranked.remove(bucket);
+	}
+
+	/**
+	 * Remove the best candidate (it is parked until the next refresh)
+	 *
+	 * @return the file or null if the agent does not evict any file of the tier
+	 */
+	public synchronized FileInfo poll() {
+		if (ranked.isEmpty())
+			return null;
+		Node node = ranked.first().head;
+		nodeOf.remove(node.file);
+		unlink(node);
+		parked.add(node.file);
+		return node.file;
+	}
+
+	/**
+	 * @return the state of the bucket of the file (the state of its last
+	 *         update), or -1 if it is not a candidate
+	 */
+	public synchronized int getState(FileInfo file) {
+		Node node = nodeOf.get(file);
+		return (node != null) ? node.bucket.state : -1;
+	}
+
+	/**
+	 * Rescore the buckets with the current Q-model, move the files whose state
+	 * changed since their last update and add back the parked files that are
+	 * still in the tier
+	 */
+	public void refresh() {
+		long current = RA.getModelVersion();
+
+		// the advantages are computed outside the lock (states of the model are initialized on the first access)
+		List<Integer> states;
+		synchronized (this) {
+			buckets.values().removeIf(bucket -> bucket.size == 0);
+			states = new ArrayList<>(buckets.keySet());
+		}
+		Map<Integer, Double> advantages = new HashMap<>();
+		for (Integer state : states)
+			advantages.put(state, RA.evictionAdvantage(state));
+
+		synchronized (this) {
+			ranked.clear();
+			for (Bucket bucket : buckets.values()) {
+				Double advantage = advantages.get(bucket.state);
+				bucket.advantage = (advantage != null) ? advantage : RA.evictionAdvantage(bucket.state);
+				if (bucket.size > 0 && !Double.isNaN(bucket.advantage))
+					ranked.add(bucket);
+			}
+			version = current;
+		}
+
+		for (Integer state : states)
+			rebucket(state);
+
+		synchronized (this) {
+			List<FileInfo> polled = new ArrayList<>(parked);
+			parked.clear();
+			for (FileInfo file : polled)
+				if ((file.getLRUTiers() & tierBit) != 0 && !nodeOf.containsKey(file))
+					add(file);
+		}
+	}
+
+	/*
+	 * Move the files of the bucket whose state changed, one chunk at a time
+	 * (the states are computed outside the lock)
+	 */
+	private void rebucket(int state) {
+		Node[] nodes = new Node[REFRESH_CHUNK];
+		int[] states = new int[REFRESH_CHUNK];
+		Node cursor = null; // last checked node
+		while (true) {
+			int count = 0;
+			synchronized (this) {
+				Node node;
+				if (cursor == null) {
+					Bucket bucket = buckets.get(state);
+					node = (bucket != null) ? bucket.head : null;
+				} else {
+					node = cursor.next;
+				}
+				for (; node != null && count < REFRESH_CHUNK; node = node.next)
+					if (!node.removed)
+						nodes[count++] = node;
+			}
+			if (count == 0)
+				return;
+
+			for (int i = 0; i < count; i++)
+				states[i] = nodes[i].file.getStateID();
+
+			synchronized (this) {
+				for (int i = 0; i < count; i++) {
+					Node node = nodes[i];
+					if (!node.removed && states[i] != state) {
+						nodeOf.remove(node.file);
+						unlink(node);
+						add(node.file, states[i]);
+					}
+				}
+			}
+			cursor = nodes[count - 1];
+			Arrays.fill(nodes, 0, count, null);
+		}
+	}
+
+	/**
+	 * @return true if the advantages are older than the Q-model of the agent
+	 */
+	public boolean isStale() {
+		return version != RA.getModelVersion();
+	}
+
+	public synchronized int size() {
+		return nodeOf.size();
+	}
+
+	public synchronized void clear() {
+		ranked.clear();
+		buckets.clear();
+		nodeOf.clear();
+		parked.clear();
+	}
+
+	private Bucket bucket(int state) {
+		Bucket bucket = buckets.get(state);
+		if (bucket == null) {
+			bucket = new Bucket(state, RA.evictionAdvantage(state));
+			buckets.put(state, bucket);
+		}
+		return bucket;
+	}
+}
@@ -0,0 +1,221 @@
+package RL.QMatrix.ReplacementStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents a recency list without a node per item or a hash map:
+ * every item has a stable slot (from a SlotTable shared by the lists of the
+ * tiers) and the links of the list are kept in two int arrays indexed by
+ * slot. Adding, accessing and deleting an item do not allocate (except when
+ * the arrays grow) and do not hash the item.
+ *
+ * All operations are synchronized on the list. The iterators are not
+ * synchronized; use getLRUItems or getMRUItems while the list is being
+ * updated.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class IndexedRecencyList<T extends Slotted> implements RecencyList<T> {
+
+	private static final int NIL = -1; // no previous/next item
+	private static final int ABSENT = -2; // the slot is not in the list
+
+	private final SlotTable<T> slots;
+	private final int listBit;
+	private int[] prev; // by slot: the more recently used item
+	private int[] next; // by slot: the less recently used item
+	private int head; // MRU
+	private int tail; // LRU
+	private int size;
+
+	public IndexedRecencyList(SlotTable<T> slots) {
+		this.slots = slots;
+		this.listBit = slots.register();
+		this.prev = new int[1024];
+		this.next = new int[1024];
+		Arrays.fill(prev, ABSENT);
+		Arrays.fill(next, ABSENT);
+		this.head = NIL;
+		this.tail = NIL;
+		this.size = 0;
+	}
+
+	/**
+	 * @return the slot of the item if it is in the list, otherwise -1
+	 */
+	private int slotOf(T item) {
+		int slot = item.getSlot();
+		if (slot < 0 || slot >= next.length || next[slot] == ABSENT || slots.item(slot) != item)
+			return -1;
+		return slot;
+	}
+
+	private void ensureCapacity(int slot) {
+		if (slot < next.length)
+			return;
+		int capacity = Math.max(slot + 1, next.length * 2);
+		int oldCapacity = next.length;
+		prev = Arrays.copyOf(prev, capacity);
+		next = Arrays.copyOf(next, capacity);
+		Arrays.fill(prev, oldCapacity, capacity, ABSENT);
+		Arrays.fill(next, oldCapacity, capacity, ABSENT);
+	}
+
+	private void linkHead(int slot) {
+		prev[slot] = NIL;
+		next[slot] = head;
+		if (head != NIL)
+			prev[head] = slot;
+		else
+			tail = slot;
+		head = slot;
+	}
+
+	private void linkTail(int slot) {
+		next[slot] = NIL;
+		prev[slot] = tail;
+		if (tail != NIL)
+			next[tail] = slot;
+		else
+			head = slot;
+		tail = slot;
+	}
+
+	private void unlink(int slot) {
+		int p = prev[slot];
+		int n = next[slot];
+		if (p != NIL)
+			next[p] = n;
+		else
+			head = n;
+		if (n != NIL)
+			prev[n] = p;
+		else
+			tail = p;
+	}
+
+	@Override
+	public synchronized void add(T item) {
+		if (item == null || slotOf(item) >= 0)
+			return;
+		int slot = slots.acquire(item, listBit);
+		ensureCapacity(slot);
+		linkHead(slot);
+		size++;
+	}
+
+	@Override
+	public synchronized void addLast(T item) {
+		if (item == null || slotOf(item) >= 0)
+			return;
+		int slot = slots.acquire(item, listBit);
+		ensureCapacity(slot);
+		linkTail(slot);
+		size++;
+	}
+
+	@Override
+	public synchronized void accessItem(T item) {
+		if (item == null)
+			return;
+		int slot = slotOf(item);
+		if (slot < 0 || slot == head)
+			return;
+		unlink(slot);
+		linkHead(slot);
+	}
+
+	@Override
+	public synchronized boolean removeItem(T item) {
+		if (item == null)
+			return false;
+		int slot = slotOf(item);
+		if (slot < 0)
+			return false;
+		unlink(slot);
+		prev[slot] = ABSENT;
+		next[slot] = ABSENT;
+		size--;
+		slots.release(item, listBit);
+		return true;
+	}
+
+	@Override
+	public synchronized boolean containsItem(T item) {
+		return item != null && slotOf(item) >= 0;
+	}
+
+	@Override
+	public synchronized T getLRUItem() {
+		return (tail != NIL) ? slots.item(tail) : null;
+	}
+
+	@Override
+	public synchronized ArrayList<T> getLRUItems(int count) {
+		ArrayList<T> items = new ArrayList<T>(Math.min(size, count));
+		for (int slot = tail; slot != NIL && items.size() < count; slot = prev[slot])
+			items.add(slots.item(slot));
+		return items;
+	}
+
+	@Override
+	public synchronized ArrayList<T> getMRUItems(int count) {
+		ArrayList<T> items = new ArrayList<T>(Math.min(size, count));
+		for (int slot = head; slot != NIL && items.size() < count; slot = next[slot])
+			items.add(slots.item(slot));
+		return items;
+	}
+
+	@Override
+	public Iterator<T> getLRUItemIterator() {
+		return new SlotIterator(tail, false);
+	}
+
+	@Override
+	public Iterator<T> getMRUItemIterator() {
+		return new SlotIterator(head, true);
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	@Override
+	public synchronized void clear() {
+		while (tail != NIL)
+			removeItem(slots.item(tail));
+	}
+
+	/**
+	 * An iterator from the LRU to the MRU item or the reverse
+	 */
+	private class SlotIterator implements Iterator<T> {
+
+		private int current;
+		private final boolean towardsLRU;
+
+		SlotIterator(int first, boolean towardsLRU) {
+			this.current = first;
+			this.towardsLRU = towardsLRU;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return current >= 0;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			T item = slots.item(current);
+			current = towardsLRU ? next[current] : prev[current];
+			return item;
+		}
+	}
+}
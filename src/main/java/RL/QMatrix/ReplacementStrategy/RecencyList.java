@@ -0,0 +1,89 @@
+package RL.QMatrix.ReplacementStrategy;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This class represents a list of objects sorted by recency (the LRU list of
+ * a tier). The implementations are safe for concurrent updates.
+ *
+ * @author Kakoulli Elena
+ */
+
+public interface RecencyList<T> {
+
+	/**
+	 * Add the item as the most recently used (if it is not in the list)
+	 */
+	void add(T item);
+
+	/**
+	 * Add the item as the least recently used (if it is not in the list)
+	 */
+	void addLast(T item);
+
+	/**
+	 * Record an access of the item (it becomes the most recently used)
+	 */
+	void accessItem(T item);
+
+	/**
+	 * Add the item as the most recently used (if it is not in the list)
+	 *
+	 * @return the handle of the item for accessHandle, or null if the list
+	 *         does not use handles
+	 */
+	default Object addWithHandle(T item) {
+		add(item);
+		return null;
+	}
+
+	/**
+	 * Record an access of the item through the handle returned by
+	 * addWithHandle, without looking the item up (a null handle is the same as
+	 * accessItem)
+	 */
+	default void accessHandle(T item, Object handle) {
+		accessItem(item);
+	}
+
+	/**
+	 * @return true if the item was in the list
+	 */
+	boolean removeItem(T item);
+
+	boolean containsItem(T item);
+
+	T getLRUItem();
+
+	/**
+	 * @return the least recently used item without replaying the pending
+	 *         accesses of a buffered list (an approximate LRU item, e.g., the
+	 *         victim of the admission filter)
+	 */
+	default T peekLRUItem() {
+		return getLRUItem();
+	}
+
+	/**
+	 * @return a snapshot of up to count items from the least recently used
+	 */
+	List<T> getLRUItems(int count);
+
+	/**
+	 * @return a snapshot of up to count items from the most recently used
+	 */
+	List<T> getMRUItems(int count);
+
+	/**
+	 * The iterators are not synchronized; use getLRUItems or getMRUItems while
+	 * the list is being updated
+	 */
+	Iterator<T> getLRUItemIterator();
+
+	Iterator<T> getMRUItemIterator();
+
+	int size();
+
+	void clear();
+}
@@ -3,6 +3,7 @@ package RL.QMatrix.ReplacementStrategy;
 import java.sql.Timestamp;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
@@ -12,9 +13,12 @@ import com.github.chen0040.rl.learning.qlearn.QLearner;
 import com.github.chen0040.rl.utils.IndexValue;
 
 import RL.QMatrix.CacheAgent;
-import RL.QMatrix.Decision;
+import RL.QMatrix.DecisionAggregate;
+import RL.QMatrix.DecisionLog;
 import RL.QMatrix.FileInfo;
+import RL.QMatrix.HashQTable;
 import RL.QMatrix.QModelCache;
+import RL.QMatrix.QTable;
 import RL.QMatrix.State;
 import RL.QMatrix.AdmissionStrategy.AdmissionAgent;
 import RL.QMatrix.AdmissionStrategy.TiersMovements;
@@ -32,6 +36,11 @@ public class ReplacementAgent extends CacheAgent {
 	    private final QLearner agent;
 	    protected QModelCache model;
 	    protected Set<Integer> possibleActions;
+	    private volatile boolean greedyScoring; // decisions of the batch scoring and eviction candidates with the greedy action (no exploration)
+	    // read misses of evicted files by (state << 2 | action) of their eviction, learned in the next training round
+	    private final ConcurrentHashMap<Integer, Integer> missesAfterEviction = new ConcurrentHashMap<>();
+	    
+	    public static final double MISS_AFTER_EVICTION_REWARD = -1.0; // as the eviction of a FAMOUS file to none
 	    
 	    public ReplacementAgent(QLearner learner) {
 	    	super();
@@ -39,10 +48,18 @@ public class ReplacementAgent extends CacheAgent {
 	    }
 	      
 	    public ReplacementAgent(double initialQs[], double alpha, double gamma) {
-	    	super();
+	    	this(initialQs, alpha, gamma, new HashQTable(Actions.values().length));
+	    }
+	      
+	    public ReplacementAgent(double initialQs[], double alpha, double gamma, QTable table) {
+	    	this(initialQs, alpha, gamma, table, DecisionLog.DEFAULT_CAPACITY);
+	    }
+	      
+	    public ReplacementAgent(double initialQs[], double alpha, double gamma, QTable table, int decisionsCapacity) {
+	    	super(decisionsCapacity);
 			
 	    	//Create QModel   			 	
-			this.model = new QModelCache(Actions.values().length, initialQs, alpha, gamma); //3 Actions		
+			this.model = new QModelCache(Actions.values().length, initialQs, alpha, gamma, table); //3 Actions		
 			this.agent = new QLearner();
 			this.agent.setModel(model);
 			this.possibleActions = new HashSet<Integer>(); 
@@ -55,8 +72,15 @@ public class ReplacementAgent extends CacheAgent {
 	    	return this.agent;
 	    }
 	    
+	    public QModelCache getModel() {
+	    	return this.model;
+	    }
+	    
 	    public int act(State file, AtomicLong currentMemCapacity, AtomicLong currentDiskCapacity) {
-	    	int state = getState(file);
+	    	return act(getState(file), file.fileInfo, currentMemCapacity, currentDiskCapacity);
+	    }
+
+	    public int act(int state, FileInfo fileInfo, AtomicLong currentMemCapacity, AtomicLong currentDiskCapacity) {
 	    	int action = 0;
 	
 	    	if (!possibleActions.isEmpty()) {
@@ -64,14 +88,14 @@ public class ReplacementAgent extends CacheAgent {
 				action = iv.getIndex();
 				double value = iv.getValue();
 				
-				decisions.add(new Decision(state, state, file.fileInfo, action, 0, possibleActions));
+				recordDecision(state, fileInfo, action);
 				
 				if (value <= 0 /*|| !stateExists*/) {
     				action = Actions.NOT_EVICT.ordinal();
 				} else {
 					// give a 2nd chance before evict it from MEM
 					if (action == Actions.EVICT_TO_NONE.ordinal()
-							&& file.fileInfo.getCurrentPosition().getPosition() == TiersMovements.MEM) {
+							&& fileInfo.getCurrentPosition().getPosition() == TiersMovements.MEM) {
 
 						action = Actions.EVICT_TO_LOWER_TIER.ordinal();
                     }
@@ -82,49 +106,191 @@ public class ReplacementAgent extends CacheAgent {
 			return action;
 	    }
 	   
+	    /**
+	     * Batch version of act for the least recently used files of a tier: the
+	     * files are scanned in one loop until the first file that act would
+	     * evict (selected action other than NOT_EVICT with a positive Q-value),
+	     * and the decisions of the scanned files are recorded as by act, in one
+	     * batch. Every file is decided by the action selection of the learner, as
+	     * in act; with greedy scoring the Q-rows of the states are instead copied
+	     * in one call and the greedy action is taken (no exploration).
+	     * 
+	     * @param states the state ids of the files
+	     * @param rows buffer of at least count * actions Q-values (used with
+	     *        greedy scoring)
+	     * @param selected buffer of at least count actions (the selected action
+	     *        of each scanned file)
+	     * @return the index of the first file to evict or -1
+	     */
+	    public int actBatch(int[] states, FileInfo[] files, int count, double[] rows, int[] selected) {
+			int actions = model.getTable().getActionCount();
+			boolean greedy = greedyScoring;
+			if (greedy)
+				model.getQRows(states, count, rows);
+
+			int victim = -1;
+			int scanned = count;
+			for (int i = 0, row = 0; i < count; i++, row += actions) {
+				int best = 0;
+				double value;
+				if (greedy) {
+					value = rows[row];
+					for (int a = 1; a < actions; a++) {
+						if (rows[row + a] > value) { // first maximum wins, as actionWithMaxQAtState
+							best = a;
+							value = rows[row + a];
+						}
+					}
+				} else {
+					IndexValue iv = agent.selectAction(states[i], possibleActions);
+					best = iv.getIndex();
+					value = iv.getValue();
+				}
+				selected[i] = best;
+				if (best != Actions.NOT_EVICT.ordinal() && value > 0) {
+					victim = i;
+					scanned = i + 1;
+					break;
+				}
+			}
+
+			if (aggregate != null) {
+				// count the runs of equal (state, action) pairs (the LRU files share few states)
+				for (int i = 0, run = 1; i < scanned; i++, run++) {
+					if (i + 1 == scanned || states[i + 1] != states[i] || selected[i + 1] != selected[i]) {
+						aggregate.add(states[i], selected[i], run);
+						run = 0;
+					}
+				}
+			} else
+				decisions.addAll(states, files, selected, scanned);
+			return victim;
+	    }
+
+	    /**
+	     * Record a decision made without act (it is learned as a decision of act)
+	     */
+	    public void recordDecision(int state, FileInfo fileInfo, int action) {
+			if (aggregate != null)
+				aggregate.add(state, action);
+			else
+				decisions.add(state, state, fileInfo, action, 0);
+	    }
+
+	    /**
+	     * Record a read miss of a file that was evicted at the state with the
+	     * action: the eviction is learned as a wrong one in the next training round
+	     */
+	    public void recordMissAfterEviction(int state, int action) {
+			missesAfterEviction.merge((state << 2) | action, 1, Integer::sum);
+	    }
+
+	    /**
+	     * The eviction candidates (and the batch scoring) decide with the
+	     * greedy action of the state instead of the action selection of the
+	     * learner, so they do not explore
+	     */
+	    public void setGreedyScoring(boolean greedyScoring) {
+	    	this.greedyScoring = greedyScoring;
+	    }
+
+	    public boolean isGreedyScoring() {
+	    	return greedyScoring;
+	    }
+
+	    /**
+	     * The action of act at the state (before the 2nd chance of the files in
+	     * MEM and without recording it): the action selection of the learner, or
+	     * the greedy action with greedy scoring
+	     * 
+	     * @return the action and its Q-value
+	     */
+	    public IndexValue selectAction(int state) {
+	    	if (greedyScoring)
+	    		return model.actionWithMaxQAtState(state, possibleActions);
+	    	return agent.selectAction(state, possibleActions);
+	    }
+
+	    /**
+	     * Greedy eviction decision at the state, as act without recording it
+	     * 
+	     * @return the advantage (Q-value difference) of the best action over
+	     *         NOT_EVICT, or NaN if act does not evict at the state
+	     */
+	    public double evictionAdvantage(int state) {
+			IndexValue iv = model.actionWithMaxQAtState(state, possibleActions);
+			if (iv.getIndex() == Actions.NOT_EVICT.ordinal() || iv.getValue() <= 0)
+				return Double.NaN;
+			return iv.getValue() - model.getQ(state, Actions.NOT_EVICT.ordinal());
+	    }
+
 		@Override
 		public void updateStrategy() {
 
-			for (int i = decisions.size() - 1; i >= 0; --i) {
+			// the evictions of the files that were read again after their eviction
+			for (Integer key : missesAfterEviction.keySet()) {
+				Integer misses = missesAfterEviction.remove(key);
+				if (misses == null)
+					continue;
+				int state = key >>> 2;
+				int action = key & 3;
+				for (int i = 0; i < misses; i++)
+					agent.update(state, action, state, possibleActions, MISS_AFTER_EVICTION_REWARD);
+				logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CM] - ReplacementAgent.update of " + misses + " misses after eviction with action="
+						+ action + " state=" + state + " reward=" + MISS_AFTER_EVICTION_REWARD);
+			}
+
+			if (aggregate != null) {
+				int pairs = aggregate.apply((QModelCache) agent.getModel(), possibleActions,
+						(stateId, action) -> reward(action, DecisionAggregate.fileAccessFrequency(stateId)));
+				logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CM] - ReplacementAgent.update of " + pairs + " (state, action) pairs");
+				return;
+			}
 
-				Decision decision = decisions.get(i);
-				FileInfo file = decision.fileObject;
-				Actions action = Actions.NOT_EVICT;
+			decisions.replay(true, (oldState, newState, file, decisionAction) -> {
 
-				switch (decision.action) {
+				double reward = reward(decisionAction, file.getFile_access_frequency().ordinal());
 
-				case 0: // object has not evicted
-					action = Actions.NOT_EVICT;
-					break;
-				case 1: // object has evicted to lower tier
-					action = Actions.EVICT_TO_LOWER_TIER;
-					break;
-				case 2: // object has evicted to none - delete
-					action = Actions.EVICT_TO_NONE;
-					break;
-				default:
-					logger.error(new Timestamp(System.currentTimeMillis()) + ":: Undefined action: {}", decision.action);
-				}
+				agent.update(oldState, decisionAction, newState, possibleActions, reward);
 
-				// -------------------------------------------------
+				logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CM] - ReplacementAgent.update with decision.action=" + decisionAction + " oldState="
+						+ oldState + " newState=" + newState + " reward=" + reward);
+				return reward;
+			});
+		}
 
-				if (eviction_action_values.get(action) > 5 && file.getFile_access_frequency().ordinal() == 0)
-					decision.reward = 0.667; // special case
-				else
-					decision.reward = (eviction_action_values.get(action) + file.getFile_access_frequency().ordinal())
-						/ 3.0;
+		private double reward(int decisionAction, int fileAccessFrequency) {
 
-				if (decision.reward > 1) {
-					decision.reward = 2.0 - decision.reward;
-				}
+			Actions action = Actions.NOT_EVICT;
+
+			switch (decisionAction) {
+
+			case 0: // object has not evicted
+				action = Actions.NOT_EVICT;
+				break;
+			case 1: // object has evicted to lower tier
+				action = Actions.EVICT_TO_LOWER_TIER;
+				break;
+			case 2: // object has evicted to none - delete
+				action = Actions.EVICT_TO_NONE;
+				break;
+			default:
+				logger.error(new Timestamp(System.currentTimeMillis()) + ":: Undefined action: {}", decisionAction);
+			}
+
+			// -------------------------------------------------
 
-				agent.update(decision.oldState, decision.action, decision.newState, decision.possibleActions,
-						decision.reward);
-				decision.updates++;
+			double reward;
+			if (eviction_action_values.get(action) > 5 && fileAccessFrequency == 0)
+				reward = 0.667; // special case
+			else
+				reward = (eviction_action_values.get(action) + fileAccessFrequency)
+					/ 3.0;
 
-				logger.info(new Timestamp(System.currentTimeMillis()) + ":: [CM] - ReplacementAgent.update with decision.action=" + decision.action + " oldState="
-						+ decision.oldState + " newState=" + decision.newState + " reward=" + decision.reward);
+			if (reward > 1) {
+				reward = 2.0 - reward;
 			}
+			return reward;
 		}
 	    
 	}
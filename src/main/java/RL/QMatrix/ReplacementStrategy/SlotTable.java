@@ -0,0 +1,105 @@
+package RL.QMatrix.ReplacementStrategy;
+
+import java.util.Arrays;
+
+/**
+ * This class represents the slots of the items of up to 8 indexed recency
+ * lists (e.g., the LRU lists of the tiers). An item gets a slot when it is
+ * added to its first list and keeps it until it is removed from its last
+ * list; the free slots are reused, so the slots stay dense.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class SlotTable<T extends Slotted> {
+
+	private volatile Object[] items; // by slot (read without the lock by the lists)
+	private byte[] lists; // by slot: the bits of the lists that contain the item
+	private int[] free; // stack of free slots
+	private int freeCount;
+	private int used; // slots ever assigned
+	private int registered; // lists
+
+	public SlotTable() {
+		this(1024);
+	}
+
+	public SlotTable(int initialCapacity) {
+		int capacity = Math.max(16, initialCapacity);
+		this.items = new Object[capacity];
+		this.lists = new byte[capacity];
+		this.free = new int[16];
+		this.freeCount = 0;
+		this.used = 0;
+		this.registered = 0;
+	}
+
+	/**
+	 * @return the bit of a new list
+	 */
+	synchronized int register() {
+		if (registered == 8)
+			throw new IllegalStateException("A slot table is shared by up to 8 lists");
+		return 1 << registered++;
+	}
+
+	/**
+	 * Mark the item as a member of the list (assigns a slot if it has none)
+	 *
+	 * @return the slot of the item
+	 */
+	synchronized int acquire(T item, int listBit) {
+		int slot = item.getSlot();
+		if (slot < 0 || slot >= used || items[slot] != item) {
+			if (freeCount > 0)
+				slot = free[--freeCount];
+			else {
+				if (used == items.length) {
+					int capacity = used * 2;
+					lists = Arrays.copyOf(lists, capacity);
+					items = Arrays.copyOf(items, capacity);
+				}
+				slot = used++;
+			}
+			items[slot] = item;
+			lists[slot] = 0;
+			item.setSlot(slot);
+		}
+		lists[slot] |= listBit;
+		return slot;
+	}
+
+	/**
+	 * Mark the item as not a member of the list (frees the slot if it is in
+	 * no other list)
+	 */
+	synchronized void release(T item, int listBit) {
+		int slot = item.getSlot();
+		if (slot < 0 || slot >= used || items[slot] != item)
+			return;
+		lists[slot] &= ~listBit;
+		if (lists[slot] == 0) {
+			items[slot] = null;
+			if (freeCount == free.length)
+				free = Arrays.copyOf(free, freeCount * 2);
+			free[freeCount++] = slot;
+			item.setSlot(-1);
+		}
+	}
+
+	/**
+	 * @return the item of the slot (null if the slot is free)
+	 */
+	@SuppressWarnings("unchecked")
+	T item(int slot) {
+		Object[] array = items;
+		return (slot >= 0 && slot < array.length) ? (T) array[slot] : null;
+	}
+
+	/**
+	 * @return the number of slots that are assigned to items
+	 */
+	public synchronized int size() {
+		return used - freeCount;
+	}
+}
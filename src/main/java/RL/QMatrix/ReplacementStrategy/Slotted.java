@@ -0,0 +1,15 @@
+package RL.QMatrix.ReplacementStrategy;
+
+/**
+ * This class represents an item of the indexed recency lists: the item keeps
+ * the slot that a SlotTable assigned to it (-1 when it is in no list).
+ *
+ * @author Kakoulli Elena
+ */
+
+public interface Slotted {
+
+	int getSlot();
+
+	void setSlot(int slot);
+}
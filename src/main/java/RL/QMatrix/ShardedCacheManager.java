@@ -0,0 +1,279 @@
+package RL.QMatrix;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import RL.QMatrix.AdmissionStrategy.Position;
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+import RL.QMatrix.ReplacementStrategy.Actions;
+
+/**
+ * This class represents a front-end of N independent Cache Managers (shards).
+ * A pathname is routed to a shard by its namespace (the first path components,
+ * e.g., the bucket) or by the hash of the whole pathname, so each shard has its
+ * own metadata, LRU lists, locks and training rounds. The shards learn
+ * separate Q-models, or share one Q-model (cachemanager.shards.qtables).
+ *
+ * Each shard manages an equal share of the tier capacities. A replacement
+ * request is served by the shard that uses the most bytes of the tier; a
+ * request for a number of bytes is divided between the shards by usage.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class ShardedCacheManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(ShardedCacheManager.class);
+
+	public enum Routing {
+		PREFIX, // by the first prefixDepth components of the pathname
+		HASH // by the whole pathname
+	}
+
+	private final CacheManager[] shards;
+	private final Routing routing;
+	private final int prefixDepth;
+
+	public ShardedCacheManager(CacheManager[] shards, Routing routing, int prefixDepth) {
+		this.shards = shards;
+		this.routing = routing;
+		this.prefixDepth = Math.max(1, prefixDepth);
+	}
+
+	/*
+	 * Parameters: as CacheManager.getCacheManager, the capacities are divided
+	 * between the shards and the options contain the sharding settings:
+	 * cachemanager.shards = number of shards
+	 * cachemanager.shards.routing = prefix or hash
+	 * cachemanager.shards.prefix.depth = path components of the namespace for prefix routing
+	 * cachemanager.shards.qtables = separate (one Q-model per shard) or shared
+	 */
+	public static ShardedCacheManager newShardedCacheManager(int tiersMovements, double admissionInitialQs[], double replacementInitialQs[], int maxUpdatesNum,
+			int maxDecisions, int maxLRU, double alpha, double gamma, long memThresPerc, long memCapacity, long diskThresPerc, long diskCapacity,
+			Properties options) {
+		int count = Math.max(1, Integer.parseInt(options.getProperty("cachemanager.shards", "1").trim()));
+		Routing routing = Routing.valueOf(options.getProperty("cachemanager.shards.routing", "prefix").trim().toUpperCase());
+		int prefixDepth = Integer.parseInt(options.getProperty("cachemanager.shards.prefix.depth", "1").trim());
+		boolean sharedTables = "shared".equals(options.getProperty("cachemanager.shards.qtables", "separate").trim());
+		boolean mapped = "mapped".equals(options.getProperty("cachemanager.qmodelcache.backend", "hash").trim());
+		boolean mappedMetadata = "mapped".equals(options.getProperty("cachemanager.metadata.backend", "heap").trim());
+
+		QTable admissionTable = null;
+		QTable replacementTable = null;
+		if (sharedTables) {
+			admissionTable = CacheManager.createQTable(options, "admission", tiersMovements, Position.validValues(tiersMovements).length, alpha, gamma);
+			replacementTable = CacheManager.createQTable(options, "replacement", tiersMovements, Actions.values().length, alpha, gamma);
+		}
+
+		CacheManager[] shards = new CacheManager[count];
+		for (int i = 0; i < count; i++) {
+			Properties shardOptions = options;
+			if (mapped && !sharedTables && count > 1) { // one directory of Q-table files per shard
+				shardOptions = new Properties();
+				shardOptions.putAll(options);
+				shardOptions.setProperty("cachemanager.qmodelcache.mapped.dir",
+						options.getProperty("cachemanager.qmodelcache.mapped.dir", "qtables").trim() + "/shard-" + i);
+			}
+			if (mappedMetadata && count > 1) { // one directory of metadata files per shard
+				if (shardOptions == options) {
+					shardOptions = new Properties();
+					shardOptions.putAll(options);
+				}
+				shardOptions.setProperty("cachemanager.metadata.mapped.dir",
+						options.getProperty("cachemanager.metadata.mapped.dir", "metadata").trim() + "/shard-" + i);
+			}
+			shards[i] = CacheManager.newCacheManager(tiersMovements, admissionInitialQs, replacementInitialQs, maxUpdatesNum, maxDecisions, maxLRU,
+					alpha, gamma, memThresPerc, memCapacity / count, diskThresPerc, diskCapacity / count, shardOptions, admissionTable, replacementTable);
+		}
+		logger.info(new Timestamp(System.currentTimeMillis()) + ":: Created " + count + " Cache Manager shards (routing: " + routing
+				+ ", Q-tables: " + (sharedTables ? "shared" : "separate") + ")");
+		return new ShardedCacheManager(shards, routing, prefixDepth);
+	}
+
+	/**
+	 * @return the shard of the pathname
+	 */
+	public CacheManager shardFor(String pathname) {
+		if (shards.length == 1)
+			return shards[0];
+		int h = (routing == Routing.PREFIX) ? prefixHash(pathname) : pathname.hashCode();
+		return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+	}
+
+	/*
+	 * Hash of the first prefixDepth components, without creating the substring
+	 * (a leading '/' is skipped)
+	 */
+	private int prefixHash(String pathname) {
+		int start = (pathname.startsWith("/")) ? 1 : 0;
+		int components = 0;
+		int h = 0;
+		for (int i = start; i < pathname.length(); i++) {
+			char c = pathname.charAt(i);
+			if (c == '/' && ++components == prefixDepth)
+				break;
+			h = 31 * h + c;
+		}
+		return h;
+	}
+
+	public CacheManager[] getShards() {
+		return shards;
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	/*
+	 * API - REQUEST PROCESSES (routed to the shard of the pathname)
+	 */
+
+	public TiersMovements cacheRequestAdmission(String pathname, long filesize, boolean forRead) {
+		return shardFor(pathname).cacheRequestAdmission(pathname, filesize, forRead);
+	}
+
+	/**
+	 * Select a file to evict from the shard that uses the most bytes of the
+	 * tier (the next shards are tried if it has no file to evict)
+	 */
+	public FileInfo cacheRequestReplacement(Tier tier) {
+		if (shards.length == 1)
+			return shards[0].cacheRequestReplacement(tier);
+
+		CacheManager[] byUsage = shards.clone();
+		Arrays.sort(byUsage, Comparator.comparingLong((CacheManager shard) -> usage(shard, tier)).reversed());
+		for (CacheManager shard : byUsage) {
+			if (usage(shard, tier) == 0)
+				break;
+			FileInfo file = shard.cacheRequestReplacement(tier);
+			if (file != null)
+				return file;
+		}
+		return null;
+	}
+
+	/**
+	 * Select the files to evict to free bytesNeeded bytes of the tier. Each
+	 * shard frees a share of the bytes proportional to its usage of the tier;
+	 * what a shard cannot free is requested from the next shards.
+	 */
+	public List<FileInfo> cacheRequestReplacement(Tier tier, long bytesNeeded) {
+		if (shards.length == 1)
+			return shards[0].cacheRequestReplacement(tier, bytesNeeded);
+
+		CacheManager[] byUsage = shards.clone();
+		Arrays.sort(byUsage, Comparator.comparingLong((CacheManager shard) -> usage(shard, tier)).reversed());
+		long totalUsage = 0;
+		for (CacheManager shard : byUsage)
+			totalUsage += usage(shard, tier);
+
+		List<FileInfo> victims = new ArrayList<>();
+		long requested = 0; // sum of the shares
+		long freed = 0;
+		for (int i = 0; i < byUsage.length && freed < bytesNeeded; i++) {
+			long shardUsage = usage(byUsage[i], tier);
+			if (shardUsage == 0)
+				break;
+			// the share of the shard and the shortfall of the previous shards
+			long share = (long) Math.ceil((double) bytesNeeded * shardUsage / totalUsage);
+			requested += share;
+			long bytes = Math.min(requested, bytesNeeded) - freed;
+			if (bytes <= 0)
+				continue; // the previous shards freed more than their shares
+			for (FileInfo file : byUsage[i].cacheRequestReplacement(tier, bytes)) {
+				victims.add(file);
+				freed += file.getSize();
+			}
+		}
+		return victims;
+	}
+
+	private static long usage(CacheManager shard, Tier tier) {
+		switch (tier) {
+		case MEM:
+			return shard.getMemFilesSize().get();
+		case DISK:
+			return shard.getDiskFilesSize().get();
+		default: // the sizes of the SSD files are not kept, use the number of files
+			return shard.getLRUList(tier).size();
+		}
+	}
+
+	public boolean fileDeleteOrDowngrade(String pathname) {
+		return shardFor(pathname).fileDeleteOrDowngrade(pathname);
+	}
+
+	public void cancelEviction(String pathname) {
+		shardFor(pathname).cancelEviction(pathname);
+	}
+
+	public void cacheUpdate(CacheUpdate update, String pathname, long filesize, TiersMovements tiers, long last_modified_date) {
+		shardFor(pathname).cacheUpdate(update, pathname, filesize, tiers, last_modified_date);
+	}
+
+	public void incrFileMisses(String pathname, long filesize) {
+		shardFor(pathname).incrFileMisses(pathname, filesize);
+	}
+
+	/**
+	 * @return the bytes of all shards in memory
+	 */
+	public long getMemFilesSize() {
+		long size = 0;
+		for (CacheManager shard : shards)
+			size += shard.getMemFilesSize().get();
+		return size;
+	}
+
+	/**
+	 * @return the bytes of all shards in disk
+	 */
+	public long getDiskFilesSize() {
+		long size = 0;
+		for (CacheManager shard : shards)
+			size += shard.getDiskFilesSize().get();
+		return size;
+	}
+
+	/**
+	 * Start the background evictors of each shard (cachemanager.evictor.*)
+	 */
+	public void startWatermarkEvictors(Properties options, WatermarkEvictor.Handler handler) {
+		for (CacheManager shard : shards)
+			shard.startWatermarkEvictors(options, handler);
+	}
+
+	/**
+	 * Write one checkpoint per shard (shard-<i>.ckpt) in the directory
+	 */
+	public void checkpoint(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		for (int i = 0; i < shards.length; i++)
+			shards[i].checkpoint(directory.resolve("shard-" + i + ".ckpt"));
+	}
+
+	/**
+	 * Restore the checkpoints of the shards (with the same number of shards and
+	 * routing). Call it before the shards serve any request.
+	 */
+	public void restore(Path directory) throws IOException {
+		for (int i = 0; i < shards.length; i++)
+			shards[i].restore(directory.resolve("shard-" + i + ".ckpt"));
+	}
+
+	public void shutdown() {
+		for (CacheManager shard : shards)
+			shard.shutdown();
+	}
+}
@@ -0,0 +1,107 @@
+package RL.QMatrix;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * This class represents an allocator of chunks of bytes in regions of
+ * REGION_SIZE bytes outside the heap (direct or mapped buffers). A chunk has
+ * the smallest power of two size (MIN_CHUNK to MAX_CHUNK bytes) that fits the
+ * request; the free chunks of a size are linked through their first 8 bytes,
+ * so the allocator keeps no object per chunk. The chunks are never given back
+ * to the operating system, a freed chunk is reused by the next chunk of its
+ * size.
+ *
+ * The address of a chunk is the index of its region and its offset in the
+ * region (region << REGION_BITS | offset).
+ *
+ * @author Kakoulli Elena
+ */
+
+class SlabAllocator {
+
+	static final int REGION_BITS = 20;
+	static final int REGION_SIZE = 1 << REGION_BITS; // 1 MB
+	static final int MIN_CHUNK = 16;
+	static final int MAX_CHUNK = 1 << 16;
+
+	private static final int MIN_CHUNK_BITS = Integer.numberOfTrailingZeros(MIN_CHUNK);
+	private static final long NONE = -1;
+
+	private final IntFunction<ByteBuffer> regions; // creates the region with the given index
+	private volatile ByteBuffer[] buffers;
+	private int count; // regions created so far
+	private int top; // first free byte of the last region
+	private final long[] freeChunks; // first free chunk of every size (NONE = empty)
+
+	/**
+	 * @param regions creates the region (REGION_SIZE bytes) with the given
+	 *        index
+	 */
+	SlabAllocator(IntFunction<ByteBuffer> regions) {
+		this.regions = regions;
+		this.buffers = new ByteBuffer[16];
+		this.count = 0;
+		this.top = REGION_SIZE;
+		this.freeChunks = new long[sizeClass(MAX_CHUNK) + 1];
+		Arrays.fill(this.freeChunks, NONE);
+	}
+
+	/**
+	 * @return the address of a chunk of at least the given bytes
+	 */
+	synchronized long allocate(int bytes) {
+		if (bytes > MAX_CHUNK)
+			throw new IllegalArgumentException("Cannot allocate " + bytes + " bytes (maximum " + MAX_CHUNK + ")");
+		int sizeClass = sizeClass(bytes);
+		long address = freeChunks[sizeClass];
+		if (address != NONE) {
+			freeChunks[sizeClass] = buffer(address).getLong(offset(address));
+			return address;
+		}
+
+		int chunk = MIN_CHUNK << sizeClass;
+		if (top + chunk > REGION_SIZE) { // the rest of the last region is left unused
+			ByteBuffer[] current = buffers;
+			if (count == current.length)
+				current = Arrays.copyOf(current, current.length * 2);
+			current[count] = regions.apply(count);
+			buffers = current;
+			count++;
+			top = 0;
+		}
+		address = ((long) (count - 1) << REGION_BITS) | top;
+		top += chunk;
+		return address;
+	}
+
+	/**
+	 * Give back the chunk of the address, allocated for the given bytes
+	 */
+	synchronized void free(long address, int bytes) {
+		int sizeClass = sizeClass(bytes);
+		buffer(address).putLong(offset(address), freeChunks[sizeClass]);
+		freeChunks[sizeClass] = address;
+	}
+
+	ByteBuffer buffer(long address) {
+		return buffers[(int) (address >>> REGION_BITS)];
+	}
+
+	static int offset(long address) {
+		return (int) (address & (REGION_SIZE - 1));
+	}
+
+	/**
+	 * @return the bytes of the regions
+	 */
+	synchronized long capacity() {
+		return (long) count * REGION_SIZE;
+	}
+
+	private static int sizeClass(int bytes) {
+		int chunk = Math.max(MIN_CHUNK, Integer.highestOneBit(Math.max(bytes, 1) - 1) << 1);
+		return Integer.numberOfTrailingZeros(chunk) - MIN_CHUNK_BITS;
+	}
+}
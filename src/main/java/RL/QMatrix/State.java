@@ -9,6 +9,20 @@ package RL.QMatrix;
  */
 public class State {
 	
+	public static final int STATE_BITS = 18; // 9 characteristics x 2 bits
+	public static final int STATE_COUNT = 1 << STATE_BITS;
+
+	// position of each characteristic (2 bits) in the state id
+	public static final int SIZE_SHIFT = 0;
+	public static final int LAST_MODIFIED_SHIFT = 2;
+	public static final int FILE_LAST_ACCESS_SHIFT = 4;
+	public static final int FILE_FREQUENCY_SHIFT = 6;
+	public static final int FILE_TYPE_SHIFT = 8;
+	public static final int TYPE_LAST_ACCESS_SHIFT = 10;
+	public static final int TYPE_FREQUENCY_SHIFT = 12;
+	public static final int DIR_LAST_ACCESS_SHIFT = 14;
+	public static final int DIR_FREQUENCY_SHIFT = 16;
+	
 	public FileInfo fileInfo;
 	protected TypeInfo typeInfo;
 	protected DirectoryInfo directoryInfo;
@@ -48,6 +62,14 @@ public class State {
 	
 	
 	public Integer getStateID() {
+		return fileInfo.getStateID();
+	}
+
+	/**
+	 * @return the state id computed from the characteristics (without the
+	 *         bits cached in FileInfo, TypeInfo and DirectoryInfo)
+	 */
+	public int computeStateID() {
 	    int stateID = 0;
 
 	    // Map each characteristic to a specific bit position
@@ -56,7 +78,7 @@ public class State {
 	        fileInfo.getLast_modified().ordinal(),
 	        fileInfo.getFile_last_access_time().ordinal(),
 	        fileInfo.getFile_access_frequency().ordinal(),
-	        fileInfo.file_format.getFile_type().ordinal(),
+	        fileInfo.getFile_format().getFile_type().ordinal(),
 	        typeInfo.getFile_type_last_access_time().ordinal(),
 	        typeInfo.getFile_type_access_frequency().ordinal(),
 	        directoryInfo.getDirectory_last_access_time().ordinal(),
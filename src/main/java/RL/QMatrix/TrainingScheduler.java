@@ -0,0 +1,136 @@
+package RL.QMatrix;
+
+import java.sql.Timestamp;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class represents the scheduler of the training rounds (update strategy
+ * of the RL agents). The rounds run one at a time on a dedicated thread; the
+ * requests that arrive while a round is running are coalesced into a single
+ * next round instead of starting overlapping rounds.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class TrainingScheduler {
+
+	private static final Logger logger = LoggerFactory.getLogger(TrainingScheduler.class);
+
+	private final Runnable round;
+	private final ExecutorService executor;
+	private final AtomicBoolean scheduled; // true while a round is queued or running
+	private final AtomicInteger pending; // requests not yet served by a round
+	private final AtomicLong rounds;
+	private final AtomicLong coalesced;
+	private volatile long lastRoundDuration; // ms
+	private volatile long totalRoundsDuration; // ms
+
+	public TrainingScheduler(Runnable round, String name) {
+		this.round = round;
+		this.scheduled = new AtomicBoolean(false);
+		this.pending = new AtomicInteger(0);
+		this.rounds = new AtomicLong(0);
+		this.coalesced = new AtomicLong(0);
+		this.lastRoundDuration = 0;
+		this.totalRoundsDuration = 0;
+		this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, name);
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/**
+	 * Request a training round. If a round is already queued or running, the
+	 * request is served by the next round.
+	 */
+	public void requestRound() {
+		pending.incrementAndGet();
+		if (scheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::runRounds);
+			} catch (RejectedExecutionException e) { // after shutdown
+				scheduled.set(false);
+			}
+		} else
+			coalesced.incrementAndGet();
+	}
+
+	private void runRounds() {
+		while (true) {
+			if (pending.getAndSet(0) == 0) {
+				scheduled.set(false);
+				// a request may have arrived after the check and before the reset
+				if (pending.get() == 0 || !scheduled.compareAndSet(false, true))
+					return;
+				continue;
+			}
+
+			long start = System.currentTimeMillis();
+			try {
+				round.run();
+			} catch (RuntimeException e) {
+				logger.error(new Timestamp(System.currentTimeMillis()) + ":: Training round failed: " + e);
+			}
+			lastRoundDuration = System.currentTimeMillis() - start;
+			totalRoundsDuration += lastRoundDuration;
+			rounds.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the number of requests waiting for the next round
+	 */
+	public int getPendingRequests() {
+		return pending.get();
+	}
+
+	/**
+	 * @return true if a round is queued or running
+	 */
+	public boolean isRoundScheduled() {
+		return scheduled.get();
+	}
+
+	public long getRounds() {
+		return rounds.get();
+	}
+
+	/**
+	 * @return the number of requests that were merged into another round
+	 */
+	public long getCoalescedRequests() {
+		return coalesced.get();
+	}
+
+	public long getLastRoundDuration() {
+		return lastRoundDuration;
+	}
+
+	public long getTotalRoundsDuration() {
+		return totalRoundsDuration;
+	}
+
+	/**
+	 * Let the running round finish and stop the training thread
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -38,6 +38,7 @@ public class TypeInfo {
 	protected FileTypeLastAccessTimeEnum file_type_last_access_time;
 	protected FileTypeAccessFrequencyEnum file_type_access_frequency;
 	protected int files = 0; //keep the count of files
+	protected volatile int stateBits; // type characteristics at their position in the state id (bits 10-13)
    
     /**
      * 	CONSTRUCTORS
@@ -57,6 +58,7 @@ public class TypeInfo {
     	this.file_type_last_access_time = file_type_last_access_time;
     	this.file_type_access_frequency = file_type_access_frequency;
     	this.files = 0;
+    	updateStateBits();
     }
 	
     /**
@@ -71,6 +73,7 @@ public class TypeInfo {
     	this.file_type_last_access_time = FileTypeLastAccessTimeEnum.RECENT;
     	this.file_type_access_frequency = FileTypeAccessFrequencyEnum.NOT_FAMOUS;
     	this.files = 0;
+    	updateStateBits();
     }
     
     /**
@@ -133,7 +136,7 @@ public class TypeInfo {
 		this.file_type_last_access_time = FileTypeLastAccessTimeEnum.RECENT;
     	this.file_type_access_frequency = FileTypeAccessFrequencyEnum.NOT_FAMOUS;
     	this.files = 0;
-		
+    	updateStateBits();
 	}
     
     /**
@@ -156,7 +159,7 @@ public class TypeInfo {
     	return this.file_type;
     }
     
-    public void set_fileTypeLastAccessTime() {
+    public synchronized void set_fileTypeLastAccessTime() {
 	 	long diff = System.currentTimeMillis() - this.fileTypeLastAccessTime;
     	
 		//update
@@ -174,6 +177,7 @@ public class TypeInfo {
 		}
 		else
 			this.file_type_last_access_time = FileTypeLastAccessTimeEnum.OLD;
+		updateStateBits();
 	}
 	
 	public long get_fileTypeLastAccessTime() {
@@ -186,6 +190,7 @@ public class TypeInfo {
      */
     public void setFile_type_last_access_time(FileTypeLastAccessTimeEnum file_type_last_access_time) {
     	this.file_type_last_access_time = file_type_last_access_time;
+    	updateStateBits();
     }
     
     /**
@@ -207,6 +212,7 @@ public class TypeInfo {
 			this.file_type_access_frequency = FileTypeAccessFrequencyEnum.LESS_FAMOUS;
 		else		
 			this.file_type_access_frequency = FileTypeAccessFrequencyEnum.NOT_FAMOUS;
+		updateStateBits();
 	}	
 	
 	public int get_fileTypeAccessFrequency() {
@@ -218,6 +224,7 @@ public class TypeInfo {
      */
     public void setFile_type_access_frequency(FileTypeAccessFrequencyEnum file_type_access_frequency) {
     	this.file_type_access_frequency = file_type_access_frequency;
+    	updateStateBits();
     }
     
     /**
@@ -232,21 +239,33 @@ public class TypeInfo {
 		return files;
 	}
 	
-	public void incrFiles() {
+	public synchronized void incrFiles() {
 		files++;
 	}
 	
-	public void decrFiles() {
+	public synchronized void decrFiles() {
 		files--;
 	}
 	
-	public void incr_access_frequency() {
+	public synchronized void incr_access_frequency() {
 		this.fileTypeAccessFrequency++;
 		
 		//update file access frequency
 		set_fileTypeAccessFrequency(this.fileTypeAccessFrequency);
 	}
+
+	/**
+	 * Halve the access frequency (aging, see FrequencyAging)
+	 */
+	public synchronized void halve_access_frequency() {
+		set_fileTypeAccessFrequency(this.fileTypeAccessFrequency >>> 1);
+	}
 	
+	private void updateStateBits() {
+		this.stateBits = (this.file_type_last_access_time.ordinal() << State.TYPE_LAST_ACCESS_SHIFT)
+				| (this.file_type_access_frequency.ordinal() << State.TYPE_FREQUENCY_SHIFT);
+	}
+
 	@Override
 	public String toString() {
 		return "\nFile Type = " + file_type + 
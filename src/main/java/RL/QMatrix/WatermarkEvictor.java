@@ -0,0 +1,219 @@
+package RL.QMatrix;
+
+import java.sql.Timestamp;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class represents the background evictor of a tier. When the bytes of
+ * the tier exceed the high watermark, it selects with the replacement agent
+ * the files to evict down to the low watermark and passes them to the handler
+ * of the cache, so the writes rarely have to wait for an eviction.
+ *
+ * The evictor wakes up every interval, or earlier when an update of the Cache
+ * Manager takes the tier above the high watermark. A handler may only
+ * schedule the evictions (e.g., SMACC evicts a scheduled file when a write
+ * needs space, so the eviction itself stays on the write path): the files that
+ * it still holds count as freed bytes, so a round is skipped while they cover
+ * the bytes above the low watermark, and they are not selected (nor decided by
+ * the replacement agent) again.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class WatermarkEvictor {
+
+	private static final Logger logger = LoggerFactory.getLogger(WatermarkEvictor.class);
+
+	/**
+	 * Evicts the files selected by the evictor from the cache
+	 */
+	public interface Handler {
+		/**
+		 * Evict (or schedule the eviction of) the file from the tier. The
+		 * handler decides between downgrade and delete with
+		 * CacheManager.fileDeleteOrDowngrade, which returns the decision of the
+		 * replacement agent for the file, and reports the eviction to the Cache
+		 * Manager with a DELETE update.
+		 *
+		 * @return false if the file was not evicted (the evictor cancels its
+		 *         replacement decision)
+		 */
+		boolean evict(FileInfo file, Tier tier);
+
+		/**
+		 * @return true if the eviction of the file is scheduled and not done yet
+		 *         (a handler that evicts the files in evict returns false)
+		 */
+		default boolean isPending(FileInfo file, Tier tier) {
+			return false;
+		}
+	}
+
+	private final CacheManager CM;
+	private final Tier tier;
+	private final AtomicLong used; // bytes of the tier
+	private final long highBytes;
+	private final long lowBytes;
+	private final long interval; // ms
+	private final Handler handler;
+	private final Map<FileInfo, Long> pending; // scheduled files with their bytes (only the evictor thread)
+
+	private final Object lock = new Object();
+	private final Thread thread;
+	private volatile boolean running;
+	private volatile boolean wakeRequested;
+
+	private volatile long rounds;
+	private volatile long evictedFiles;
+	private volatile long evictedBytes;
+
+	/*
+	 * Parameters:
+	 * 1. used = current bytes of the tier
+	 * 2. capacity = bytes of the tier
+	 * 3. highPerc/lowPerc = percentages of the capacity to start/stop evicting
+	 * 4. interval = ms between two checks of the tier
+	 */
+	public WatermarkEvictor(CacheManager CM, Tier tier, AtomicLong used, long capacity, int highPerc, int lowPerc, long interval, Handler handler) {
+		this.CM = CM;
+		this.tier = tier;
+		this.used = used;
+		this.highBytes = capacity * highPerc / 100;
+		this.lowBytes = capacity * Math.min(lowPerc, highPerc) / 100;
+		this.interval = Math.max(1, interval);
+		this.handler = handler;
+		this.pending = new IdentityHashMap<>();
+		this.running = true;
+		this.wakeRequested = false;
+		this.thread = new Thread(this::run, "CacheManager-evictor-" + tier.name());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Wake up the evictor if the tier is above the high watermark (called after
+	 * the updates that add bytes to the tier)
+	 */
+	public void checkUsage() {
+		if (used.get() > highBytes && !wakeRequested) {
+			synchronized (lock) {
+				wakeRequested = true;
+				lock.notify();
+			}
+		}
+	}
+
+	private void run() {
+		while (running) {
+			synchronized (lock) {
+				try {
+					if (!wakeRequested)
+						lock.wait(interval);
+				} catch (InterruptedException e) {
+					break;
+				}
+				wakeRequested = false;
+			}
+			if (!running)
+				break;
+
+			try {
+				evict();
+			} catch (RuntimeException e) {
+				logger.error(new Timestamp(System.currentTimeMillis()) + ":: Eviction round of < " + tier.name() + " > failed: " + e);
+			}
+		}
+	}
+
+	/*
+	 * One eviction round: the files to evict down to the low watermark (minus
+	 * the bytes of the scheduled files) are selected with one batch
+	 * replacement request
+	 */
+	private void evict() {
+		long pendingBytes = prunePending();
+		long current = used.get();
+		if (current <= highBytes)
+			return;
+		long bytesNeeded = current - lowBytes - pendingBytes;
+		if (bytesNeeded <= 0)
+			return; // the scheduled files are enough
+
+		List<FileInfo> victims = CM.cacheRequestReplacement(tier, bytesNeeded, pending::containsKey);
+		long files = 0;
+		long bytes = 0;
+		for (FileInfo victim : victims) {
+			long size = victim.getSize();
+			if (handler.evict(victim, tier)) {
+				files++;
+				bytes += size;
+				if (handler.isPending(victim, tier))
+					pending.put(victim, size);
+			} else {
+				CM.cancelEviction(victim.getPathname());
+			}
+		}
+		rounds++;
+		evictedFiles += files;
+		evictedBytes += bytes;
+		logger.info(new Timestamp(System.currentTimeMillis()) + ":: [Evictor] - Evicted " + files + " files (" + bytes + " bytes) from < "
+				+ tier.name() + " > with " + current + " bytes");
+	}
+
+	/*
+	 * Forget the scheduled files that left the tier or that the handler does
+	 * not hold anymore
+	 *
+	 * @return the bytes of the files that are still scheduled
+	 */
+	private long prunePending() {
+		long bytes = 0;
+		for (Iterator<Map.Entry<FileInfo, Long>> it = pending.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<FileInfo, Long> entry = it.next();
+			FileInfo file = entry.getKey();
+			if ((file.lruTiers & (1 << tier.ordinal())) == 0 || !handler.isPending(file, tier))
+				it.remove();
+			else
+				bytes += entry.getValue();
+		}
+		return bytes;
+	}
+
+	public Tier getTier() {
+		return tier;
+	}
+
+	public long getRounds() {
+		return rounds;
+	}
+
+	public long getEvictedFiles() {
+		return evictedFiles;
+	}
+
+	public long getEvictedBytes() {
+		return evictedBytes;
+	}
+
+	/**
+	 * Let the running round finish and stop the evictor thread
+	 */
+	public void shutdown() {
+		running = false;
+		synchronized (lock) {
+			lock.notify();
+		}
+		try {
+			thread.join(60000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package RL.QMatrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+
+/**
+ * This class represents the tests of the CacheCheckpoint (checkpoint of a
+ * Cache Manager and its restore in the same or another Cache Manager).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class CacheCheckpointTest {
+
+	@TempDir
+	Path dir;
+
+	private final List<CacheManager> managers = new ArrayList<>();
+
+	@AfterEach
+	public void tearDown() {
+		for (CacheManager CM : managers)
+			CM.shutdown();
+	}
+
+	private CacheManager newCacheManager(Properties options) {
+		CacheManager CM = CacheManager.newCacheManager(2, new double[] { 0.01, 0.3, 0.4, 0.2 },
+				new double[] { 0.2, 0.3, 0.01 }, 50, 5, 100, 0.1, 0.7, 85, 1000000, 85, 1000000000, options);
+		managers.add(CM);
+		return CM;
+	}
+
+	/*
+	 * Requests of files in 5 directories and 2 types, with replacements
+	 */
+	private static void traffic(CacheManager CM, int requests) {
+		Random random = new Random(1);
+		for (int i = 0; i < requests; i++) {
+			String pathname = "/d" + random.nextInt(5) + "/f" + random.nextInt(1000) + ((i % 3 == 0) ? ".txt" : ".jpg");
+			CM.cacheRequestAdmission(pathname, 1000, true);
+			CM.cacheUpdate(CacheUpdate.CREATE, pathname, 1000, (i % 2 == 0) ? TiersMovements.MEM : TiersMovements.DISK, i);
+			CM.cacheUpdate(CacheUpdate.READ, pathname, 1000, TiersMovements.MEM, 0);
+			if (i % 50 == 0) {
+				FileInfo victim = CM.cacheRequestReplacement(Tier.MEM);
+				if (victim != null)
+					CM.cacheUpdate(CacheUpdate.values()[3], victim.getPathname(), 1000, TiersMovements.MEM, 0); // DELETE
+			}
+		}
+	}
+
+	/*
+	 * The LRU lists with the metadata of their files, the tier sizes, the
+	 * types, the directories and the Q-tables
+	 */
+	private static String signature(CacheManager CM) {
+		StringBuilder signature = new StringBuilder();
+		for (Tier tier : Tier.values()) {
+			signature.append(tier).append(':');
+			for (FileInfo file : CM.getLRUList(tier).getLRUItems(Integer.MAX_VALUE))
+				signature.append(file.getPathname()).append(',').append(file.getSize()).append(',')
+						.append(file.getLast_modified_date()).append(',').append(file.getFile_access_frequency_num()).append(',')
+						.append(file.getMisses()).append(',').append(file.getCurrentPosition().getPosition()).append(',')
+						.append(file.getEvict()).append(',').append(file.getStateID()).append(';');
+		}
+		signature.append(CM.getMemFilesSize()).append(',').append(CM.getDiskFilesSize()).append(',').append(CM.files.size());
+		for (TypeInfo type : CM.getTypes().values())
+			signature.append(type.file_type).append(type.fileTypeAccessFrequency).append(type.fileTypeLastAccessTime);
+		for (DirectoryInfo directory : new TreeMap<>(CM.getDirectories()).values())
+			signature.append(directory.name_directory).append(directory.access_frequency).append(directory.last_access_time);
+		for (QTable table : Arrays.asList(CM.getAdmissionAgent().getModel().getTable(), CM.getReplacementAgent().getModel().getTable())) {
+			List<String> rows = new ArrayList<>();
+			table.forEachVisited(state -> rows.add(state + "=" + Arrays.toString(table.getQs(state))));
+			Collections.sort(rows);
+			signature.append(rows);
+		}
+		return signature.toString();
+	}
+
+	@Test
+	public void restoresTheCheckpointInAnotherCacheManager() throws IOException {
+		roundTrip(new Properties());
+	}
+
+	@Test
+	public void restoresTheCheckpointWithTheColumnsInDirectBuffers() throws IOException {
+		Properties options = new Properties();
+		options.setProperty("cachemanager.metadata.backend", "direct");
+		options.setProperty("cachemanager.lru.list", "indexed");
+		roundTrip(options);
+	}
+
+	private void roundTrip(Properties options) throws IOException {
+		CacheManager source = newCacheManager(options);
+		traffic(source, 5000);
+		source.shutdown(); // no training round changes the Q-tables meanwhile
+		Path checkpoint = dir.resolve("cm.ckpt");
+		source.checkpoint(checkpoint);
+
+		CacheManager target = newCacheManager(options);
+		target.restore(checkpoint);
+
+		String expected = signature(source);
+		assertTrue(source.files.size() > 100);
+		assertEquals(expected, signature(target));
+		try (Stream<Path> files = Files.list(dir)) {
+			assertTrue(files.allMatch(checkpoint::equals), "the temporary file was moved in place");
+		}
+	}
+
+	@Test
+	public void restoreReplacesTheFilesOfTheCacheManager() throws IOException {
+		CacheManager CM = newCacheManager(new Properties());
+		traffic(CM, 3000);
+		CM.shutdown();
+		String expected = signature(CM);
+		Path checkpoint = dir.resolve("cm.ckpt");
+		CM.checkpoint(checkpoint);
+
+		for (int i = 0; i < 1000; i++)
+			CM.cacheUpdate(CacheUpdate.CREATE, "/x/g" + i + ".mp4", 5, TiersMovements.MEM, 0);
+		CM.restore(checkpoint);
+
+		assertEquals(expected, signature(CM));
+		assertNull(CM.files.get("/x/g1.mp4"));
+	}
+
+	/*
+	 * The eviction candidates are rebuilt with the restored files, so a
+	 * replacement request never returns a view of the files before the
+	 * restore
+	 */
+	@Test
+	public void restoreRebuildsTheEvictionCandidates() throws IOException {
+		Properties options = new Properties();
+		options.setProperty("cachemanager.eviction.candidates", "true");
+		CacheManager CM = newCacheManager(options);
+		traffic(CM, 5000);
+		Path checkpoint = dir.resolve("cm.ckpt");
+		CM.checkpoint(checkpoint);
+		CM.restore(checkpoint);
+
+		Set<FileInfo> restored = Collections.newSetFromMap(new IdentityHashMap<>());
+		restored.addAll(CM.getLRUList(Tier.MEM).getLRUItems(Integer.MAX_VALUE));
+		int polled = 0;
+		for (int i = 0; i < 200; i++) {
+			FileInfo file = CM.cacheRequestReplacement(Tier.MEM);
+			if (file == null)
+				continue;
+			polled++;
+			assertTrue(restored.contains(file), file.getPathname());
+			assertTrue(CM.files.get(file.getPathname()) == file);
+		}
+		assertTrue(polled > 0);
+	}
+
+	@Test
+	public void rejectsAFileThatIsNotACheckpoint() throws IOException {
+		Path path = dir.resolve("other");
+		Files.write(path, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+
+		assertThrows(IOException.class, () -> newCacheManager(new Properties()).restore(path));
+	}
+}
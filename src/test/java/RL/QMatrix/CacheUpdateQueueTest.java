@@ -0,0 +1,189 @@
+package RL.QMatrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import RL.QMatrix.AdmissionStrategy.TiersMovements;
+
+/**
+ * This class represents the tests of the CacheUpdateQueue (ring buffers of
+ * updates applied to a Cache Manager by consumer threads).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class CacheUpdateQueueTest {
+
+	private CacheManager CM;
+
+	@BeforeEach
+	public void setUp() {
+		CM = CacheManager.newCacheManager(2, new double[] { 0.01, 0.3, 0.4, 0.2 }, new double[] { 0.2, 0.3, 0.01 },
+				50, 5, 100, 0.1, 0.7, 85, 1000000000L, 85, 1000000000L, new Properties());
+	}
+
+	@AfterEach
+	public void tearDown() {
+		CM.shutdown();
+	}
+
+	/*
+	 * A consumer that applies a CREATE in memory waits while the test holds
+	 * the LRU list of the memory
+	 */
+	private Object memoryList() {
+		return CM.getLRUList(Tier.MEM);
+	}
+
+	@Test
+	public void shutdownAppliesEveryQueuedUpdate() throws InterruptedException {
+		CacheUpdateQueue queue = new CacheUpdateQueue(CM, 4, 64, 16, CacheUpdateQueue.OverflowPolicy.BLOCK);
+		int producers = 4;
+		int files = 500;
+		List<Thread> threads = new ArrayList<>();
+		for (int k = 0; k < producers; k++) {
+			int producer = k;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < files; i++)
+					assertTrue(queue.submit(CacheUpdate.CREATE, "/data/p" + producer + "/f" + i, 10, TiersMovements.MEM, 0));
+			}));
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		queue.shutdown();
+
+		assertEquals(0, queue.getLaggingUpdates());
+		assertEquals(0, queue.getDroppedUpdates());
+		assertEquals(producers * files, CM.files.size());
+		assertEquals(producers * files * 10L, CM.getMemFilesSize().get());
+		assertEquals(producers * files, CM.getLRUList(Tier.MEM).size());
+	}
+
+	/*
+	 * Every producer resizes its own files: a file ends with the size of its
+	 * last update only if its updates are applied in order
+	 */
+	@Test
+	public void appliesTheUpdatesOfAFileInOrder() throws InterruptedException {
+		CacheUpdateQueue queue = new CacheUpdateQueue(CM, 3, 8, 4, CacheUpdateQueue.OverflowPolicy.BLOCK);
+		int producers = 4;
+		int files = 20;
+		int updates = 200;
+		List<Thread> threads = new ArrayList<>();
+		for (int k = 0; k < producers; k++) {
+			int producer = k;
+			threads.add(new Thread(() -> {
+				for (int u = 1; u <= updates; u++)
+					for (int i = 0; i < files; i++)
+						queue.submit(CacheUpdate.CREATE, "/data/p" + producer + "/f" + i, u, TiersMovements.DISK, u);
+			}));
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		queue.shutdown();
+
+		for (int k = 0; k < producers; k++)
+			for (int i = 0; i < files; i++)
+				assertEquals(updates, CM.files.get("/data/p" + k + "/f" + i).getSize());
+		assertEquals((long) producers * files * updates, CM.getDiskFilesSize().get());
+	}
+
+	@Test
+	public void dropsTheUpdatesOfAFullRingBuffer() throws InterruptedException {
+		CacheUpdateQueue queue = new CacheUpdateQueue(CM, 1, 2, 1, CacheUpdateQueue.OverflowPolicy.DROP);
+		synchronized (memoryList()) {
+			assertTrue(queue.submit(CacheUpdate.CREATE, "/data/a", 10, TiersMovements.MEM, 0));
+			waitUntilTaken();
+			assertTrue(queue.submit(CacheUpdate.CREATE, "/data/b", 10, TiersMovements.MEM, 0));
+			assertTrue(queue.submit(CacheUpdate.CREATE, "/data/c", 10, TiersMovements.MEM, 0));
+			assertFalse(queue.submit(CacheUpdate.CREATE, "/data/d", 10, TiersMovements.MEM, 0));
+
+			assertEquals(1, queue.getDroppedUpdates());
+			assertEquals(3, queue.getLaggingUpdates());
+		}
+		queue.shutdown();
+
+		assertEquals(0, queue.getLaggingUpdates());
+		assertTrue(CM.files.containsKey("/data/c"));
+		assertNull(CM.files.get("/data/d"));
+	}
+
+	@Test
+	public void dropsOnlyTheReadsWithDropReads() throws InterruptedException {
+		CacheUpdateQueue queue = new CacheUpdateQueue(CM, 1, 2, 1, CacheUpdateQueue.OverflowPolicy.DROP_READS);
+		AtomicBoolean queued = new AtomicBoolean();
+		Thread producer;
+		synchronized (memoryList()) {
+			assertTrue(queue.submit(CacheUpdate.CREATE, "/data/a", 10, TiersMovements.MEM, 0));
+			waitUntilTaken();
+			assertTrue(queue.submit(CacheUpdate.CREATE, "/data/b", 10, TiersMovements.MEM, 0));
+			assertTrue(queue.submit(CacheUpdate.CREATE, "/data/c", 10, TiersMovements.MEM, 0));
+			assertFalse(queue.submit(CacheUpdate.READ, "/data/a", 10, TiersMovements.MEM, 0));
+
+			CountDownLatch started = new CountDownLatch(1);
+			producer = new Thread(() -> {
+				started.countDown();
+				queued.set(queue.submit(CacheUpdate.CREATE, "/data/d", 10, TiersMovements.MEM, 0));
+			});
+			producer.start();
+			started.await();
+			producer.join(100);
+			assertTrue(producer.isAlive(), "a CREATE waits for space");
+		}
+		producer.join(TimeUnit.SECONDS.toMillis(10));
+		queue.shutdown();
+
+		assertTrue(queued.get());
+		assertEquals(1, queue.getDroppedUpdates());
+		assertTrue(CM.files.containsKey("/data/d"));
+	}
+
+	@Test
+	public void cacheManagerQueuesTheUpdatesInAsynchronousMode() {
+		Properties options = new Properties();
+		options.setProperty("cachemanager.async.updates", "true");
+		options.setProperty("cachemanager.async.consumers", "2");
+		CacheManager async = CacheManager.newCacheManager(2, new double[] { 0.01, 0.3, 0.4, 0.2 },
+				new double[] { 0.2, 0.3, 0.01 }, 50, 5, 100, 0.1, 0.7, 85, 1000000000L, 85, 1000000000L, options);
+		for (int i = 0; i < 1000; i++)
+			async.cacheUpdate(CacheUpdate.CREATE, "/data/f" + i, 10, TiersMovements.DISK, 0);
+		async.shutdown();
+
+		assertEquals(0, async.getLaggingUpdates());
+		assertEquals(1000, async.files.size());
+		assertEquals(10000, async.getDiskFilesSize().get());
+	}
+
+	/*
+	 * Wait until the consumer took the first update and waits for the list
+	 * (the slot of the update is already free)
+	 */
+	private void waitUntilTaken() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (true) {
+			for (Thread thread : Thread.getAllStackTraces().keySet())
+				if (thread.getName().equals("CacheManager-updates-0") && thread.getState() == Thread.State.BLOCKED)
+					return;
+			if (System.nanoTime() > deadline)
+				throw new AssertionError("the consumer did not take the update");
+			Thread.sleep(1);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package RL.QMatrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class represents the tests of the DecisionLog (ring buffer of the
+ * decisions of an agent, replayed by the training rounds).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class DecisionLogTest {
+
+	private static final Set<Integer> ACTIONS = Set.of(0, 1);
+
+	private static List<Integer> oldStates(DecisionLog log) {
+		List<Integer> states = new ArrayList<>();
+		for (Decision decision : log.toList(ACTIONS))
+			states.add(decision.oldState);
+		return states;
+	}
+
+	@Test
+	public void keepsTheDecisionsFromTheOldest() {
+		DecisionLog log = new DecisionLog(5);
+		log.add(1, 2, null, 1, 0.5);
+		log.addAll(new int[] { 3, 4 }, new FileInfo[2], new int[] { 0, 1 }, 2);
+
+		assertEquals(8, log.capacity(), "rounded up to a power of two");
+		assertEquals(3, log.size());
+		List<Decision> decisions = log.toList(ACTIONS);
+		assertEquals(Arrays.asList(1, 3, 4), oldStates(log));
+		assertEquals(2, decisions.get(0).newState);
+		assertEquals(0.5, decisions.get(0).reward);
+		assertEquals(3, decisions.get(1).newState, "a batch decision keeps its state");
+		assertEquals(1, decisions.get(2).action);
+	}
+
+	@Test
+	public void overwritesTheOldestDecisionsWhenFull() {
+		DecisionLog log = new DecisionLog(4);
+		for (int i = 0; i < 6; i++)
+			log.add(i, i, null, 0, 0);
+		log.addAll(new int[] { 6, 7, 8 }, new FileInfo[3], new int[] { 0, 0, 0 }, 3);
+
+		assertEquals(4, log.size());
+		assertEquals(9, log.getAdded());
+		assertEquals(Arrays.asList(5, 6, 7, 8), oldStates(log));
+	}
+
+	@Test
+	public void replayStoresTheRewardsAndCountsTheUpdates() {
+		DecisionLog log = new DecisionLog(8);
+		for (int i = 0; i < 4; i++)
+			log.add(i, i, null, 0, 0);
+		List<Integer> order = new ArrayList<>();
+
+		assertEquals(4, log.replay(true, (oldState, newState, file, action) -> {
+			order.add(oldState);
+			return 10 * oldState;
+		}));
+		assertEquals(4, log.replay(false, (oldState, newState, file, action) -> 1));
+
+		assertEquals(Arrays.asList(3, 2, 1, 0), order);
+		for (Decision decision : log.toList(ACTIONS)) {
+			assertEquals(1.0, decision.reward);
+			assertEquals(2, decision.updates);
+		}
+	}
+
+	@Test
+	public void retiresTheOldestDecisionsWithEnoughUpdates() {
+		DecisionLog log = new DecisionLog(8);
+		for (int i = 0; i < 3; i++)
+			log.add(i, i, null, 0, 0);
+		log.replay(false, (oldState, newState, file, action) -> 0);
+		log.add(3, 3, null, 0, 0);
+
+		assertEquals(0, log.retire(2));
+		assertEquals(3, log.retire(1), "the new decision was not replayed yet");
+		assertEquals(Arrays.asList(3), oldStates(log));
+		assertEquals(1, log.replay(false, (oldState, newState, file, action) -> 0));
+
+		log.clear();
+		assertEquals(0, log.size());
+		assertEquals(0, log.replay(false, (oldState, newState, file, action) -> 0));
+	}
+
+	/*
+	 * Writers overwrite the slots of a small ring while it is replayed and
+	 * copied: a decision whose state is s always has the reward s (the replay
+	 * never stores the reward of a decision on a newer one)
+	 */
+	@Test
+	public void replayNeverStoresARewardOnANewerDecision() throws InterruptedException {
+		DecisionLog log = new DecisionLog(64);
+		AtomicBoolean stop = new AtomicBoolean();
+		List<Thread> writers = new ArrayList<>();
+		for (int k = 0; k < 4; k++) {
+			writers.add(new Thread(() -> {
+				for (int i = 1; !stop.get(); i++) {
+					log.add(i & 1023, i & 1023, null, i & 1, 0);
+					if (i % 7 == 0)
+						log.addAll(new int[] { i & 1023, (i + 1) & 1023 }, new FileInfo[2], new int[] { 0, 1 }, 2);
+				}
+			}));
+		}
+		for (Thread writer : writers)
+			writer.start();
+
+		long errors = 0;
+		long replayed = 0;
+		for (int round = 0; round < 5000; round++) {
+			replayed += log.replay(round % 2 == 0, (oldState, newState, file, action) -> {
+				if (oldState != newState)
+					throw new IllegalStateException("torn decision");
+				return oldState;
+			});
+			for (Decision decision : log.toList(ACTIONS))
+				if (decision.oldState != decision.newState || (decision.updates > 0 && decision.reward != decision.oldState))
+					errors++;
+		}
+		stop.set(true);
+		for (Thread writer : writers)
+			writer.join();
+
+		assertTrue(replayed > 0);
+		assertEquals(0, errors);
+	}
+}
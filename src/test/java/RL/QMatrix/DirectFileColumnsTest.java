@@ -0,0 +1,137 @@
+package RL.QMatrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class represents the tests of the DirectFileColumns (records and
+ * pathnames outside the heap, in direct and mapped buffers).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class DirectFileColumnsTest {
+
+	private static final int PAGE_BITS = 4;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void storesTheColumnsOfARecord() throws IOException {
+		DirectFileColumns columns = new DirectFileColumns(PAGE_BITS, null, "files");
+		columns.addPage(0);
+		TypeInfo type = new TypeInfo("/data/a.txt");
+		DirectoryInfo directory = new DirectoryInfo("/data");
+
+		columns.setSize(3, 1L << 40);
+		columns.setLastModified(3, 11);
+		columns.setLastAccess(3, 12);
+		columns.setFrequency(3, 13);
+		columns.setMisses(3, 14);
+		columns.setStateBits(3, 15);
+		columns.setPosition(3, 2);
+		columns.setEvict(3, true);
+		columns.setType(3, type);
+		columns.setDirectory(3, directory);
+
+		assertEquals(1L << 40, columns.size(3));
+		assertEquals(11, columns.lastModified(3));
+		assertEquals(12, columns.lastAccess(3));
+		assertEquals(13, columns.frequency(3));
+		assertEquals(14, columns.misses(3));
+		assertEquals(15, columns.stateBits(3));
+		assertEquals(2, columns.position(3));
+		assertTrue(columns.evict(3));
+		assertSame(type, columns.type(3));
+		assertSame(directory, columns.directory(3));
+		assertEquals(0, columns.size(4), "the other records are not written");
+		assertNull(columns.type(4));
+	}
+
+	@Test
+	public void storesLatin1AndUtf16Pathnames() throws IOException {
+		DirectFileColumns columns = new DirectFileColumns(PAGE_BITS, null, "files");
+		columns.addPage(0);
+		String latin1 = "/data/café.txt";
+		String utf16 = "/data/αβγ.txt";
+		columns.setPathname(0, latin1);
+		columns.setPathname(1, utf16);
+
+		assertEquals(latin1, columns.pathname(0));
+		assertEquals(utf16, columns.pathname(1));
+		assertEquals(latin1.hashCode(), columns.hash(0));
+		assertTrue(columns.matches(0, latin1, latin1.hashCode()));
+		assertTrue(columns.matches(1, utf16, utf16.hashCode()));
+		assertFalse(columns.matches(0, utf16, utf16.hashCode()));
+		assertFalse(columns.matches(1, "/data/αβδ.txt", utf16.hashCode()), "equal hashes, other chars");
+		assertNull(columns.pathname(2));
+		assertFalse(columns.matches(2, latin1, 0), "a row without pathname matches nothing");
+	}
+
+	@Test
+	public void reusesTheChunkOfAReplacedPathname() throws IOException {
+		DirectFileColumns columns = new DirectFileColumns(PAGE_BITS, dir, "files");
+		columns.addPage(0);
+		// 100000 chunks of 32 bytes would need 4 regions without reuse
+		for (int i = 0; i < 100_000; i++)
+			columns.setPathname(i & 1, "/data/file-" + i);
+
+		assertEquals("/data/file-99998", columns.pathname(0));
+		assertEquals("/data/file-99999", columns.pathname(1));
+		assertFalse(Files.exists(dir.resolve("files-pathnames-1")));
+		columns.setPathname(1, null);
+		assertNull(columns.pathname(1));
+	}
+
+	@Test
+	public void addsPagesOnDemand() throws IOException {
+		DirectFileColumns columns = new DirectFileColumns(PAGE_BITS, null, "files");
+		int rows = 5 << PAGE_BITS;
+		for (int page = 0; page < 5; page++)
+			columns.addPage(page);
+		for (int id = 0; id < rows; id++) {
+			columns.setPathname(id, "/f" + id);
+			columns.setFrequency(id, id);
+		}
+		for (int id = 0; id < rows; id++) {
+			assertEquals("/f" + id, columns.pathname(id));
+			assertEquals(id, columns.frequency(id));
+		}
+	}
+
+	@Test
+	public void mapsTheBuffersToFilesAndDeletesTheFilesOfAnOlderRun() throws IOException {
+		Files.write(dir.resolve("files-rows-7"), new byte[] { 1, 2, 3 });
+		Files.write(dir.resolve("other"), new byte[] { 1 });
+
+		DirectFileColumns columns = new DirectFileColumns(PAGE_BITS, dir, "files");
+		columns.addPage(0);
+		columns.setPathname(0, "/data/a.txt");
+		columns.setSize(0, 42);
+
+		assertFalse(Files.exists(dir.resolve("files-rows-7")));
+		assertTrue(Files.exists(dir.resolve("other")), "only the files of the table are deleted");
+		assertTrue(Files.exists(dir.resolve("files-rows-0")));
+		assertTrue(Files.exists(dir.resolve("files-pathnames-0")));
+		assertEquals((long) DirectFileColumns.RECORD_SIZE << PAGE_BITS, Files.size(dir.resolve("files-rows-0")));
+		assertEquals("/data/a.txt", columns.pathname(0));
+		assertEquals(42, columns.size(0));
+
+		new DirectFileColumns(PAGE_BITS, dir, "files");
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(1, files.count(), "a restart recreates the mapped files");
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package RL.QMatrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class represents the tests of the FileTable (index of the pathnames,
+ * reuse of the ids and reads of the views of removed files), with the columns
+ * in the heap and in direct buffers.
+ *
+ * @author Kakoulli Elena
+ */
+
+public class FileTableTest {
+
+	private static final TypeInfo TYPE = new TypeInfo("/data/a.txt");
+	private static final DirectoryInfo DIRECTORY = new DirectoryInfo("/data");
+
+	private static FileInfo add(FileTable table, String pathname, long size) {
+		FileInfo file = new FileInfo(table, pathname, size, TYPE, DIRECTORY);
+		table.put(pathname, file);
+		return file;
+	}
+
+	/*
+	 * 2^n pathnames with the same hash code ("Aa" and "BB" have the same one),
+	 * so they probe the same slots of the same segment
+	 */
+	private static List<String> colliding(int n) {
+		List<String> pathnames = new ArrayList<>();
+		for (int bits = 0; bits < (1 << n); bits++) {
+			StringBuilder pathname = new StringBuilder("/data/");
+			for (int i = 0; i < n; i++)
+				pathname.append(((bits >>> i) & 1) == 0 ? "Aa" : "BB");
+			pathnames.add(pathname.toString());
+		}
+		return pathnames;
+	}
+
+	@Test
+	public void putGetAndRemove() {
+		putGetAndRemove(FileTable::new);
+		putGetAndRemove(FileTable::direct);
+	}
+
+	private void putGetAndRemove(Supplier<FileTable> tables) {
+		FileTable table = tables.get();
+		FileInfo a = add(table, "/data/a.txt", 10);
+		FileInfo b = add(table, "/data/b.txt", 20);
+
+		assertEquals(2, table.size());
+		assertSame(a, table.get("/data/a.txt"));
+		assertSame(b, table.get("/data/b.txt"));
+		assertNull(table.get("/data/c.txt"));
+
+		assertFalse(table.remove("/data/a.txt", b), "the pathname is not the given file");
+		assertSame(a, table.get("/data/a.txt"));
+		assertTrue(table.remove("/data/a.txt", a));
+		assertNull(table.get("/data/a.txt"));
+		assertSame(b, table.remove("/data/b.txt"));
+		assertNull(table.remove("/data/b.txt"));
+		assertTrue(table.isEmpty());
+	}
+
+	@Test
+	public void putReplacesTheFileOfThePathname() {
+		FileTable table = new FileTable();
+		FileInfo old = add(table, "/data/a.txt", 10);
+		FileInfo file = new FileInfo(table, "/data/a.txt", 20, TYPE, DIRECTORY);
+
+		assertSame(old, table.put("/data/a.txt", file));
+		assertNull(table.put("/data/a.txt", file), "the file is already indexed");
+		assertSame(file, table.get("/data/a.txt"));
+		assertEquals(1, table.size());
+		assertEquals(10, old.getSize(), "the replaced file reads the copy of its row");
+		assertEquals(20, file.getSize());
+	}
+
+	@Test
+	public void findsTheCollidingPathnamesAfterARemoval() {
+		findsTheCollidingPathnamesAfterARemoval(FileTable::new);
+		findsTheCollidingPathnamesAfterARemoval(FileTable::direct);
+	}
+
+	private void findsTheCollidingPathnamesAfterARemoval(Supplier<FileTable> tables) {
+		FileTable table = tables.get();
+		List<String> pathnames = colliding(7); // one cluster of 128 slots, with resizes
+		List<FileInfo> files = new ArrayList<>();
+		for (int i = 0; i < pathnames.size(); i++)
+			files.add(add(table, pathnames.get(i), i));
+
+		// backward shift deletion: the slots after a hole move back, so the probes still reach them
+		for (int i = 0; i < pathnames.size(); i += 3)
+			assertSame(files.get(i), table.remove(pathnames.get(i)));
+		for (int i = 0; i < pathnames.size(); i++) {
+			if (i % 3 == 0)
+				assertNull(table.get(pathnames.get(i)), pathnames.get(i));
+			else
+				assertSame(files.get(i), table.get(pathnames.get(i)), pathnames.get(i));
+		}
+
+		for (int i = 0; i < pathnames.size(); i += 3)
+			files.set(i, add(table, pathnames.get(i), -i));
+		assertEquals(pathnames.size(), table.size());
+		for (int i = 0; i < pathnames.size(); i++) {
+			assertSame(files.get(i), table.get(pathnames.get(i)));
+			assertEquals((i % 3 == 0) ? -i : i, table.get(pathnames.get(i)).getSize());
+		}
+
+		for (String pathname : pathnames)
+			assertTrue(table.remove(pathname) != null);
+		assertTrue(table.isEmpty());
+		for (String pathname : pathnames)
+			assertNull(table.get(pathname));
+	}
+
+	@Test
+	public void reusesTheIdOfARemovedFileAtOnce() {
+		FileTable table = new FileTable();
+		FileInfo a = add(table, "/data/a.txt", 10);
+		a.setFile_access_frequency(7);
+		add(table, "/data/b.txt", 20);
+		int id = a.id;
+
+		table.remove("/data/a.txt");
+		FileInfo c = add(table, "/data/c.txt", 30);
+
+		assertEquals(id, c.id);
+		assertNotSame(table, a.table);
+		assertEquals("/data/a.txt", a.getPathname(), "the removed file reads the copy of its row");
+		assertEquals(10, a.getSize());
+		assertEquals(7, a.getFile_access_frequency_num());
+		assertEquals("/data/c.txt", c.getPathname());
+		assertEquals(30, c.getSize());
+		assertEquals(1, c.getFile_access_frequency_num());
+	}
+
+	@Test
+	public void clearAllocatesTheIdsFromZeroAgain() {
+		FileTable table = new FileTable();
+		List<FileInfo> removed = new ArrayList<>();
+		for (int i = 0; i < 5000; i++)
+			removed.add(add(table, "/data/f" + i, i));
+
+		table.clear();
+		assertTrue(table.isEmpty());
+		assertFalse(table.values().iterator().hasNext());
+		assertNull(table.get("/data/f1"));
+
+		FileInfo file = add(table, "/data/new", 1);
+		assertEquals(0, file.id);
+		assertSame(file, table.get("/data/new"));
+		for (int i = 0; i < removed.size(); i += 997)
+			assertEquals("/data/f" + i, removed.get(i).getPathname());
+	}
+
+	@Test
+	public void iteratesTheFilesInIdOrder() {
+		FileTable table = new FileTable();
+		List<FileInfo> files = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+			files.add(add(table, "/data/f" + i, i));
+		table.remove("/data/f3");
+		table.remove("/data/f7");
+		files.remove(7);
+		files.remove(3);
+
+		assertEquals(files, new ArrayList<>(table.values()));
+		assertEquals(8, table.values().size());
+	}
+
+	@Test
+	public void readersOfRemovedFilesNeverSeeAReusedRow() throws InterruptedException {
+		readersOfRemovedFilesNeverSeeAReusedRow(FileTable::new);
+		readersOfRemovedFilesNeverSeeAReusedRow(FileTable::direct);
+	}
+
+	/*
+	 * A writer replaces the files with new pathnames (reusing their ids at
+	 * once) while the readers read the views they hold and look the
+	 * pathnames up: a view always reads its own pathname and size
+	 */
+	private void readersOfRemovedFilesNeverSeeAReusedRow(Supplier<FileTable> tables) throws InterruptedException {
+		FileTable table = tables.get();
+		int n = 1024;
+		AtomicReferenceArray<FileInfo> current = new AtomicReferenceArray<>(n);
+		for (int i = 0; i < n; i++)
+			current.set(i, add(table, "/data/f" + i + "-0", i));
+
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicLong errors = new AtomicLong();
+		AtomicLong reads = new AtomicLong();
+		Thread writer = new Thread(() -> {
+			Random random = new Random(1);
+			for (int generation = 1; generation <= 50_000; generation++) {
+				int i = random.nextInt(n);
+				table.remove(current.get(i).getPathname());
+				current.set(i, add(table, "/data/f" + i + "-" + generation, (long) generation * n + i));
+			}
+			stop.set(true);
+		});
+		List<Thread> readers = new ArrayList<>();
+		for (int k = 0; k < 3; k++) {
+			readers.add(new Thread(() -> {
+				Random random = new Random();
+				while (!stop.get()) {
+					int i = random.nextInt(n);
+					FileInfo file = current.get(i);
+					String pathname = file.getPathname();
+					for (int j = 0; j < 20; j++) {
+						if (!pathname.equals(file.getPathname()) || file.getSize() % n != i)
+							errors.incrementAndGet();
+						FileInfo found = table.get(pathname);
+						if (found != null && found != file)
+							errors.incrementAndGet();
+						reads.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Thread reader : readers)
+			reader.start();
+		writer.start();
+		writer.join();
+		for (Thread reader : readers)
+			reader.join();
+
+		assertEquals(0, errors.get(), "inconsistent reads out of " + reads.get());
+		assertEquals(n, table.size());
+		for (int i = 0; i < n; i++)
+			assertSame(current.get(i), table.get(current.get(i).getPathname()));
+	}
+}
@@ -0,0 +1,132 @@
+package RL.QMatrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import RL.QMatrix.GhostCache.Ghost;
+
+/**
+ * This class represents the tests of the GhostCache (statistics of the files
+ * that left the cache, two generations of ghosts).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class GhostCacheTest {
+
+	private static final TypeInfo TYPE = new TypeInfo("/data/a.txt");
+	private static final DirectoryInfo DIRECTORY = new DirectoryInfo("/data");
+
+	private static FileInfo file(String pathname, int frequency, int misses) {
+		FileInfo file = new FileInfo(pathname, 100, TYPE, DIRECTORY);
+		file.setFile_access_frequency(frequency);
+		file.setMisses(misses);
+		return file;
+	}
+
+	@Test
+	public void takeRestoresTheStatisticsOfAFile() {
+		GhostCache ghosts = new GhostCache(16);
+		FileInfo file = file("/data/a.txt", 5, 3);
+		ghosts.add(file, 2);
+
+		Ghost ghost = ghosts.take("/data/a.txt");
+		assertNotNull(ghost);
+		assertEquals(file.getStateID(), ghost.getState());
+		assertEquals(2, ghost.getAction());
+		assertEquals(5, ghost.getFile_access_frequency_num());
+		assertEquals(3, ghost.getMisses());
+		assertNull(ghosts.take("/data/a.txt"), "a ghost is taken once");
+		assertNull(ghosts.take("/data/b.txt"));
+		assertEquals(0, ghosts.size());
+	}
+
+	@Test
+	public void addReplacesTheGhostOfThePathname() {
+		GhostCache ghosts = new GhostCache(16);
+		ghosts.add(file("/data/a.txt", 5, 3), 2);
+		ghosts.add(file("/data/a.txt", 9, 1), 0);
+
+		assertEquals(1, ghosts.size());
+		Ghost ghost = ghosts.take("/data/a.txt");
+		assertEquals(9, ghost.getFile_access_frequency_num());
+		assertEquals(0, ghost.getAction());
+	}
+
+	@Test
+	public void saturatesTheCounts() {
+		GhostCache ghosts = new GhostCache(16);
+		ghosts.add(file("/data/a.txt", Integer.MAX_VALUE, Integer.MAX_VALUE), 3);
+
+		Ghost ghost = ghosts.take("/data/a.txt");
+		assertEquals((1 << 22) - 1, ghost.getFile_access_frequency_num());
+		assertEquals((1 << 22) - 1, ghost.getMisses());
+		assertEquals(3, ghost.getAction());
+	}
+
+	@Test
+	public void dropsTheOlderGenerationWhenTheCurrentOneIsFull() {
+		GhostCache ghosts = new GhostCache(8); // two generations of 4 ghosts
+		for (int i = 0; i < 8; i++)
+			ghosts.add(file("/data/f" + i, i, 0), 0);
+		assertEquals(8, ghosts.size());
+
+		ghosts.add(file("/data/f8", 8, 0), 0);
+		assertEquals(5, ghosts.size());
+		for (int i = 0; i < 4; i++)
+			assertNull(ghosts.take("/data/f" + i), "/data/f" + i);
+		for (int i = 4; i < 9; i++)
+			assertEquals(i, ghosts.take("/data/f" + i).getFile_access_frequency_num());
+		assertEquals(0, ghosts.size());
+	}
+
+	@Test
+	public void addMovesAGhostOfTheOlderGenerationToTheCurrentOne() {
+		GhostCache ghosts = new GhostCache(8);
+		for (int i = 0; i < 5; i++)
+			ghosts.add(file("/data/f" + i, i, 0), 0); // f0-f3 in the older generation
+		ghosts.add(file("/data/f0", 10, 0), 0);
+		for (int i = 5; i < 8; i++)
+			ghosts.add(file("/data/f" + i, i, 0), 0); // drops f1-f3
+
+		assertEquals(5, ghosts.size());
+		assertEquals(10, ghosts.take("/data/f0").getFile_access_frequency_num());
+		assertNull(ghosts.take("/data/f1"));
+	}
+
+	@Test
+	public void findsTheOtherGhostsAfterADeletion() {
+		GhostCache ghosts = new GhostCache(1 << 14);
+		int n = 1 << 13; // a full generation: half of the slots, with long probe sequences
+		for (int i = 0; i < n; i++)
+			ghosts.add(file("/data/f" + i, i, 0), 0);
+
+		for (int i = 0; i < n; i += 2)
+			assertEquals(i, ghosts.take("/data/f" + i).getFile_access_frequency_num());
+		assertEquals(n / 2, ghosts.size());
+		for (int i = 1; i < n; i += 2) {
+			Ghost ghost = ghosts.take("/data/f" + i);
+			assertNotNull(ghost, "/data/f" + i);
+			assertEquals(i, ghost.getFile_access_frequency_num());
+		}
+		assertEquals(0, ghosts.size());
+	}
+
+	@Test
+	public void clearForgetsEveryGhost() {
+		GhostCache ghosts = new GhostCache(8);
+		for (int i = 0; i < 6; i++)
+			ghosts.add(file("/data/f" + i, i, 0), 0);
+		ghosts.clear();
+
+		assertEquals(0, ghosts.size());
+		for (int i = 0; i < 6; i++)
+			assertNull(ghosts.take("/data/f" + i));
+		ghosts.add(file("/data/f0", 1, 0), 0);
+		assertTrue(ghosts.take("/data/f0") != null);
+	}
+}
@@ -0,0 +1,137 @@
+package RL.QMatrix.ReplacementStrategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class represents the tests of the BufferedRecencyList (accesses
+ * buffered per stripe and replayed on the list).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class BufferedRecencyListTest {
+
+	private static BufferedRecencyList<String> list(String... items) {
+		BufferedRecencyList<String> list = new BufferedRecencyList<>(1);
+		for (String item : items)
+			list.add(item);
+		return list;
+	}
+
+	@Test
+	public void replaysThePendingAccessesBeforeReadingTheLRUItem() {
+		BufferedRecencyList<String> list = list("a", "b", "c");
+		list.accessItem("a");
+
+		assertEquals("a", list.peekLRUItem(), "peekLRUItem does not drain the pending access");
+		assertEquals("b", list.getLRUItem());
+		assertEquals("b", list.peekLRUItem());
+		assertEquals(Arrays.asList("a", "c", "b"), list.getMRUItems(10));
+	}
+
+	@Test
+	public void flushReplaysThePendingAccessesInOrder() {
+		BufferedRecencyList<String> list = list("a", "b", "c", "d");
+		list.accessItem("b");
+		list.accessItem("a");
+		list.flush();
+
+		assertEquals("c", list.peekLRUItem());
+		assertEquals(Arrays.asList("c", "d", "b", "a"), list.getLRUItems(10));
+	}
+
+	@Test
+	public void drainsWhenABufferIsHalfFull() {
+		BufferedRecencyList<String> list = list("a", "b", "c");
+		for (int i = 0; i < 7; i++)
+			list.accessItem("a");
+		assertEquals("a", list.peekLRUItem());
+		list.accessItem("b"); // 8 pending accesses
+
+		assertEquals("c", list.peekLRUItem());
+		assertEquals(0, list.getDroppedAccesses());
+	}
+
+	@Test
+	public void ignoresThePendingAccessOfARemovedItem() {
+		BufferedRecencyList<String> list = list("a", "b");
+		list.accessItem("a");
+		assertTrue(list.removeItem("a"));
+		list.flush();
+
+		assertEquals(1, list.size());
+		assertFalse(list.containsItem("a"));
+		assertEquals(Arrays.asList("b"), list.getLRUItems(10));
+	}
+
+	@Test
+	public void clearDropsThePendingAccesses() {
+		BufferedRecencyList<String> list = list("a", "b");
+		list.accessItem("a");
+		list.clear();
+
+		assertEquals(0, list.size());
+		list.add("c");
+		list.flush();
+		assertEquals(Arrays.asList("c"), list.getLRUItems(10));
+	}
+
+	/*
+	 * Threads that share the stripes offer accesses (the buffers wrap around
+	 * many times) while one of them removes and adds items back: the list
+	 * keeps every item once
+	 */
+	@Test
+	public void concurrentAccessesKeepTheListConsistent() throws InterruptedException {
+		int n = 256;
+		BufferedRecencyList<String> list = new BufferedRecencyList<>(2);
+		for (int i = 0; i < n; i++)
+			list.add("f" + i);
+
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int k = 0; k < 4; k++) {
+			int seed = k;
+			threads.add(new Thread(() -> {
+				try {
+					Random random = new Random(seed);
+					for (int i = 0; i < 200_000; i++) {
+						list.accessItem("f" + random.nextInt(n));
+						if (seed == 0 && i % 100 == 0) {
+							String item = "f" + random.nextInt(n);
+							if (list.removeItem(item))
+								list.add(item);
+						}
+						if (i % 1000 == 0)
+							list.getLRUItem();
+					}
+				} catch (Throwable e) {
+					failure.set(e);
+				}
+			}));
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		list.flush();
+
+		assertEquals(null, failure.get());
+		assertEquals(n, list.size());
+		List<String> items = list.getLRUItems(2 * n);
+		assertEquals(n, items.size());
+		assertEquals(n, new HashSet<>(items).size());
+		assertEquals(items.get(0), list.peekLRUItem());
+	}
+}
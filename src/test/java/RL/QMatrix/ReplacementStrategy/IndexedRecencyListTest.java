@@ -0,0 +1,143 @@
+package RL.QMatrix.ReplacementStrategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import RL.QMatrix.ReplacementStrategy.SlotTableTest.Item;
+
+/**
+ * This class represents the tests of the IndexedRecencyList (recency order,
+ * removals and lists that share a SlotTable).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class IndexedRecencyListTest {
+
+	private SlotTable<Item> slots;
+	private IndexedRecencyList<Item> list;
+	private Item a, b, c, d;
+
+	@BeforeEach
+	public void setUp() {
+		slots = new SlotTable<>();
+		list = new IndexedRecencyList<>(slots);
+		a = new Item("a");
+		b = new Item("b");
+		c = new Item("c");
+		d = new Item("d");
+	}
+
+	private static <T> List<T> toList(Iterator<T> iterator) {
+		List<T> items = new ArrayList<>();
+		iterator.forEachRemaining(items::add);
+		return items;
+	}
+
+	@Test
+	public void keepsTheItemsInRecencyOrder() {
+		list.add(a);
+		list.add(b);
+		list.add(c);
+		list.addLast(d);
+		list.add(a); // already in the list
+
+		assertEquals(4, list.size());
+		assertSame(d, list.getLRUItem());
+		assertEquals(Arrays.asList(d, a, b, c), list.getLRUItems(10));
+		assertEquals(Arrays.asList(c, b), list.getMRUItems(2));
+
+		list.accessItem(c); // already the MRU item
+		list.accessItem(a);
+		assertEquals(Arrays.asList(a, c, b, d), list.getMRUItems(10));
+		assertEquals(Arrays.asList(d, b, c, a), toList(list.getLRUItemIterator()));
+		assertEquals(Arrays.asList(a, c, b, d), toList(list.getMRUItemIterator()));
+	}
+
+	@Test
+	public void removesItemsAnywhereInTheList() {
+		list.add(a);
+		list.add(b);
+		list.add(c);
+		list.add(d);
+
+		assertTrue(list.removeItem(b));
+		assertFalse(list.removeItem(b));
+		assertTrue(list.removeItem(a)); // LRU
+		assertTrue(list.removeItem(d)); // MRU
+		assertFalse(list.containsItem(a));
+		assertTrue(list.containsItem(c));
+		assertEquals(Arrays.asList(c), list.getLRUItems(10));
+		assertSame(c, list.getLRUItem());
+
+		list.accessItem(a); // not in the list
+		assertEquals(1, list.size());
+		assertTrue(list.removeItem(c));
+		assertNull(list.getLRUItem());
+		assertEquals(0, slots.size(), "the slots of the removed items are free");
+	}
+
+	@Test
+	public void sharesTheSlotOfAnItemWithTheOtherLists() {
+		IndexedRecencyList<Item> disk = new IndexedRecencyList<>(slots);
+		list.add(a);
+		list.add(b);
+		disk.add(b);
+		disk.add(c);
+
+		assertEquals(3, slots.size());
+		assertTrue(list.removeItem(b));
+		assertTrue(disk.containsItem(b), "the other list keeps the item");
+		assertEquals(Arrays.asList(b, c), disk.getLRUItems(10));
+
+		list.add(d); // does not reuse the slot of b
+		assertEquals(Arrays.asList(b, c), disk.getLRUItems(10));
+		assertEquals(Arrays.asList(a, d), list.getLRUItems(10));
+		assertTrue(disk.removeItem(b));
+		assertEquals(3, slots.size());
+	}
+
+	@Test
+	public void reusesTheSlotsOfTheRemovedItems() {
+		List<Item> items = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) { // grows past the initial arrays
+			Item item = new Item("i" + i);
+			items.add(item);
+			list.add(item);
+		}
+		for (int i = 0; i < 5000; i += 2)
+			list.removeItem(items.get(i));
+		for (int i = 0; i < 2500; i++)
+			list.add(new Item("n" + i));
+
+		assertEquals(5000, list.size());
+		assertEquals(5000, slots.size(), "no slot was added");
+		assertSame(items.get(1), list.getLRUItem());
+		assertFalse(list.containsItem(items.get(0)), "a removed item does not own its old slot");
+	}
+
+	@Test
+	public void clearRemovesEveryItem() {
+		list.add(a);
+		list.add(b);
+		list.clear();
+
+		assertEquals(0, list.size());
+		assertFalse(list.containsItem(a));
+		assertEquals(-1, a.getSlot());
+		assertEquals(0, slots.size());
+		list.add(c);
+		assertEquals(Arrays.asList(c), list.getMRUItems(10));
+	}
+}
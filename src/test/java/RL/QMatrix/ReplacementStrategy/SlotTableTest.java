@@ -0,0 +1,108 @@
+package RL.QMatrix.ReplacementStrategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class represents the tests of the SlotTable (slots shared by the
+ * indexed recency lists).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class SlotTableTest {
+
+	static class Item implements Slotted {
+		private final String name;
+		private int slot = -1;
+
+		Item(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public int getSlot() {
+			return slot;
+		}
+
+		@Override
+		public void setSlot(int slot) {
+			this.slot = slot;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	@Test
+	public void registersUpToEightLists() {
+		SlotTable<Item> slots = new SlotTable<>();
+		for (int i = 0; i < 8; i++)
+			assertEquals(1 << i, slots.register());
+		assertThrows(IllegalStateException.class, slots::register);
+	}
+
+	@Test
+	public void keepsTheSlotUntilTheItemLeavesItsLastList() {
+		SlotTable<Item> slots = new SlotTable<>();
+		int mem = slots.register();
+		int disk = slots.register();
+		Item item = new Item("a");
+
+		int slot = slots.acquire(item, mem);
+		assertEquals(slot, slots.acquire(item, disk));
+		assertSame(item, slots.item(slot));
+		assertEquals(1, slots.size());
+
+		slots.release(item, mem);
+		assertEquals(slot, item.getSlot());
+		assertSame(item, slots.item(slot));
+		slots.release(item, disk);
+		assertEquals(-1, item.getSlot());
+		assertNull(slots.item(slot));
+		assertEquals(0, slots.size());
+	}
+
+	@Test
+	public void reusesTheFreeSlots() {
+		SlotTable<Item> slots = new SlotTable<>(16);
+		int list = slots.register();
+		Item[] items = new Item[40]; // grows past the initial capacity
+		for (int i = 0; i < items.length; i++) {
+			items[i] = new Item("i" + i);
+			assertEquals(i, slots.acquire(items[i], list));
+		}
+		slots.release(items[5], list);
+		slots.release(items[9], list);
+
+		Item a = new Item("a");
+		Item b = new Item("b");
+		assertEquals(9, slots.acquire(a, list));
+		assertEquals(5, slots.acquire(b, list));
+		assertEquals(40, slots.acquire(new Item("c"), list));
+		assertEquals(41, slots.size());
+	}
+
+	@Test
+	public void ignoresTheStaleSlotOfAnotherItem() {
+		SlotTable<Item> slots = new SlotTable<>();
+		int list = slots.register();
+		Item a = new Item("a");
+		Item b = new Item("b");
+		slots.acquire(a, list);
+		b.setSlot(a.getSlot()); // e.g., a copied item
+
+		slots.release(b, list);
+		assertSame(a, slots.item(a.getSlot()), "b does not own the slot");
+		int slot = slots.acquire(b, list);
+		assertEquals(1, slot);
+		assertSame(a, slots.item(0));
+		assertSame(b, slots.item(1));
+	}
+}
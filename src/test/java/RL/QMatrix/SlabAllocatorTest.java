@@ -0,0 +1,103 @@
+package RL.QMatrix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class represents the tests of the SlabAllocator (size classes, reuse of
+ * the freed chunks and creation of the regions).
+ *
+ * @author Kakoulli Elena
+ */
+
+public class SlabAllocatorTest {
+
+	private List<Integer> created;
+	private SlabAllocator allocator;
+
+	@BeforeEach
+	public void setUp() {
+		created = new ArrayList<>();
+		allocator = new SlabAllocator(region -> {
+			created.add(region);
+			return ByteBuffer.allocate(SlabAllocator.REGION_SIZE);
+		});
+	}
+
+	@Test
+	public void allocatesChunksOfPowerOfTwoSizes() {
+		long first = allocator.allocate(1);
+		long second = allocator.allocate(SlabAllocator.MIN_CHUNK);
+		long third = allocator.allocate(SlabAllocator.MIN_CHUNK + 1);
+		long fourth = allocator.allocate(1);
+
+		assertEquals(0, SlabAllocator.offset(first));
+		assertEquals(SlabAllocator.MIN_CHUNK, SlabAllocator.offset(second));
+		assertEquals(2 * SlabAllocator.MIN_CHUNK, SlabAllocator.offset(third));
+		assertEquals(4 * SlabAllocator.MIN_CHUNK, SlabAllocator.offset(fourth), "a 17 byte request takes 32 bytes");
+		assertEquals(SlabAllocator.REGION_SIZE, allocator.capacity());
+	}
+
+	@Test
+	public void reusesTheLastFreedChunkOfTheSameSize() {
+		long a = allocator.allocate(100);
+		long b = allocator.allocate(100);
+		long other = allocator.allocate(10);
+		allocator.free(a, 100);
+		allocator.free(b, 100);
+
+		assertEquals(b, allocator.allocate(128), "the free chunks of a size are reused last in, first out");
+		assertEquals(a, allocator.allocate(65));
+		long fresh = allocator.allocate(100);
+		assertNotEquals(a, fresh);
+		assertNotEquals(b, fresh);
+
+		allocator.free(other, 10);
+		assertNotEquals(other, allocator.allocate(100), "a chunk is reused only by its own size");
+		assertEquals(other, allocator.allocate(16));
+	}
+
+	@Test
+	public void keepsTheDataOfTheOtherChunksWhenAChunkIsReused() {
+		long a = allocator.allocate(16);
+		long b = allocator.allocate(16);
+		allocator.buffer(b).putLong(SlabAllocator.offset(b), 42L);
+		allocator.free(a, 16);
+		long c = allocator.allocate(16);
+
+		assertEquals(a, c);
+		assertEquals(42L, allocator.buffer(b).getLong(SlabAllocator.offset(b)));
+	}
+
+	@Test
+	public void createsANewRegionWhenTheLastOneIsFull() {
+		Set<Long> addresses = new HashSet<>();
+		int chunks = SlabAllocator.REGION_SIZE / SlabAllocator.MAX_CHUNK;
+		for (int i = 0; i < chunks; i++)
+			addresses.add(allocator.allocate(SlabAllocator.MAX_CHUNK));
+		assertEquals(1, created.size());
+
+		long next = allocator.allocate(SlabAllocator.MIN_CHUNK);
+		assertEquals(2, created.size());
+		assertEquals(1, (int) (next >>> SlabAllocator.REGION_BITS));
+		assertEquals(0, SlabAllocator.offset(next));
+		assertEquals(2L * SlabAllocator.REGION_SIZE, allocator.capacity());
+		assertEquals(chunks, addresses.size());
+	}
+
+	@Test
+	public void rejectsChunksLargerThanTheMaximum() {
+		assertThrows(IllegalArgumentException.class, () -> allocator.allocate(SlabAllocator.MAX_CHUNK + 1));
+		assertEquals(0, created.size());
+	}
+}